@@ -0,0 +1,139 @@
+package org.ometa.lovemonster.models;
+
+import android.os.Parcel;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * Compares the size and time of handing a heavy user to another activity as a deep parcel, with
+ * their loves, against the slim parcel and the registry key which are used now.
+ */
+public class UserParcelBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = UserParcelBenchmarkTest.class.getSimpleName();
+    private static final int LOVES_PER_LIST = 1000;
+    private static final int ITERATIONS = 200;
+
+    private interface ParcelWriter {
+        void write(Parcel parcel);
+    }
+
+    private static User heavyUser() {
+        final User user = new User("ada@example.com", "ada");
+        user.name = "Ada Lovelace";
+        user.profileImageUrl = "https://example.com/ada.png";
+
+        final User other = new User("bob@example.com", "bob");
+        other.name = "Bob";
+        other.profileImageUrl = "https://example.com/bob.png";
+        for (int i = 0; i < LOVES_PER_LIST; i++) {
+            user.receivedLoves.add(new Love("thanks for the help " + i, "a message " + i, false, other, user, i, null, 1450000000000L + i));
+            user.sentLoves.add(new Love("thanks for the review " + i, null, i % 2 == 0, user, other, i, null, 1450000000000L + i));
+        }
+        return user;
+    }
+
+    /**
+     * Writes the user with their loves, as the parcel did before it was made slim, with each love
+     * written as a parcelable love would write itself.
+     */
+    private static void writeDeepUser(final Parcel parcel, final User user) {
+        writeUserFields(parcel, user);
+        writeLoves(parcel, user.receivedLoves);
+        writeLoves(parcel, user.sentLoves);
+    }
+
+    private static void writeLoves(final Parcel parcel, final List<Love> loves) {
+        parcel.writeInt(loves.size());
+        for (final Love love : loves) {
+            parcel.writeString(love.reason);
+            parcel.writeString(love.message);
+            parcel.writeInt(love.isPrivate ? 1 : 0);
+            parcel.writeLong(love.id);
+            parcel.writeLong(love.createdAtMillis);
+            writeUserFields(parcel, love.lover);
+            writeUserFields(parcel, love.lovee);
+        }
+    }
+
+    private static void writeUserFields(final Parcel parcel, final User user) {
+        parcel.writeString(user.email);
+        parcel.writeString(user.name);
+        parcel.writeString(user.username);
+        parcel.writeString(user.profileImageUrl);
+    }
+
+    /**
+     * Writes and reads back a parcel, returning its size in bytes and logging the time taken.
+     */
+    private static int measure(final String name, final ParcelWriter writer) {
+        int dataSize = 0;
+        final long startNanos = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            final Parcel parcel = Parcel.obtain();
+            try {
+                writer.write(parcel);
+                final byte[] bytes = parcel.marshall();
+                dataSize = bytes.length;
+
+                final Parcel copy = Parcel.obtain();
+                copy.unmarshall(bytes, 0, bytes.length);
+                copy.recycle();
+            } finally {
+                parcel.recycle();
+            }
+        }
+        final long nanosPerOperation = (System.nanoTime() - startNanos) / ITERATIONS;
+
+        Log.i(TAG, "benchmark=" + name + " bytes=" + dataSize + " nanosPerOperation=" + nanosPerOperation);
+        return dataSize;
+    }
+
+    public void testParcel_SlimUserAndKey_SmallerThanDeepUser() {
+        final User user = heavyUser();
+
+        final int deepBytes = measure("deep_user", new ParcelWriter() {
+            @Override
+            public void write(final Parcel parcel) {
+                writeDeepUser(parcel, user);
+            }
+        });
+        final int slimBytes = measure("slim_user", new ParcelWriter() {
+            @Override
+            public void write(final Parcel parcel) {
+                user.writeToParcel(parcel, 0);
+            }
+        });
+        final int keyBytes = measure("registry_key", new ParcelWriter() {
+            @Override
+            public void write(final Parcel parcel) {
+                parcel.writeString(UserRegistry.getInstance().register(user));
+            }
+        });
+
+        assertTrue("slim user should be a fraction of the deep user", slimBytes * 100 < deepBytes);
+        assertTrue("key should be smaller than the slim user", keyBytes < slimBytes);
+    }
+
+    public void testParcel_SlimUser_RoundTrips() {
+        final User user = heavyUser();
+        final Parcel parcel = Parcel.obtain();
+        try {
+            user.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+
+            final User copy = User.CREATOR.createFromParcel(parcel);
+
+            assertEquals(user.email, copy.email);
+            assertEquals(user.name, copy.name);
+            assertEquals(user.username, copy.username);
+            assertEquals(user.profileImageUrl, copy.profileImageUrl);
+            assertTrue(copy.receivedLoves.isEmpty());
+            assertTrue(copy.sentLoves.isEmpty());
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
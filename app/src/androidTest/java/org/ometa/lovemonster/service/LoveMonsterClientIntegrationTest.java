@@ -30,7 +30,7 @@ public class LoveMonsterClientIntegrationTest extends AndroidTestCase {
         final Love firstLove = retrievedLoves.get(0);
         assertNotNull("should set the reason", firstLove.reason);
         assertNotNull("should set the message", firstLove.message);
-        assertNotNull("should set created at", firstLove.createdAt);
+        assertTrue("should set created at", firstLove.createdAtMillis > 0);
         assertNotNull("should set lovee email", firstLove.lovee.email);
         assertNotNull("should set lovee username", firstLove.lovee.username);
         assertNotNull("should set lover email", firstLove.lover.email);
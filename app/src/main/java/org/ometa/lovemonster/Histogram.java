@@ -0,0 +1,199 @@
+package org.ometa.lovemonster;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import cz.msebera.android.httpclient.annotation.Immutable;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Distribution of recorded values, counted into fixed buckets. Recording a value is a binary search
+ * and a few atomic increments, with no allocation and no locking, so it is cheap enough to do on
+ * every request.
+ *
+ * Percentiles are estimated from the buckets: each is reported as the upper bound of the bucket
+ * holding it, capped at the largest value recorded. Values above the last bound are counted in an
+ * overflow bucket, whose percentiles are reported as the largest value recorded.
+ */
+@ThreadSafe
+public class Histogram {
+
+    /**
+     * Bucket bounds for latencies in milliseconds, from 1ms to one minute.
+     */
+    private static final long[] LATENCY_MILLIS_BOUNDS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000
+    };
+
+    /**
+     * Bucket bounds for payload sizes in bytes, from 100 bytes to 5MB.
+     */
+    private static final long[] SIZE_BYTES_BOUNDS = {
+            100, 200, 500, 1000, 2000, 5000, 10000, 20000, 50000, 100000, 200000, 500000, 1000000, 2000000, 5000000
+    };
+
+    /**
+     * Creates a histogram suited to latencies in milliseconds.
+     */
+    @NonNull
+    public static Histogram forLatencyMillis() {
+        return new Histogram(LATENCY_MILLIS_BOUNDS);
+    }
+
+    /**
+     * Creates a histogram suited to payload sizes in bytes.
+     */
+    @NonNull
+    public static Histogram forSizeBytes() {
+        return new Histogram(SIZE_BYTES_BOUNDS);
+    }
+
+    /**
+     * The inclusive upper bound of each bucket, in ascending order.
+     */
+    @NonNull
+    private final long[] bounds;
+
+    /**
+     * The number of values in each bucket. The last bucket counts the values above the last bound.
+     */
+    @NonNull
+    private final AtomicLongArray bucketCounts;
+
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param bounds
+     *      the inclusive upper bound of each bucket, in strictly ascending order
+     * @throws IllegalArgumentException
+     *      if {@code bounds} is null, empty or not strictly ascending
+     */
+    public Histogram(@NonNull final long[] bounds) throws IllegalArgumentException {
+        if (bounds == null || bounds.length == 0) {
+            throw new IllegalArgumentException("argument `bounds` cannot be null or empty");
+        }
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("argument `bounds` must be strictly ascending");
+            }
+        }
+
+        this.bounds = bounds.clone();
+        this.bucketCounts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value
+     *      the value to record
+     */
+    public void record(final long value) {
+        final long recordedValue = Math.max(value, 0);
+
+        int bucket = Arrays.binarySearch(bounds, recordedValue);
+        if (bucket < 0) {
+            bucket = -bucket - 1;
+        }
+        bucketCounts.incrementAndGet(bucket);
+        sum.addAndGet(recordedValue);
+
+        long currentMax = max.get();
+        while (recordedValue > currentMax && !max.compareAndSet(currentMax, recordedValue)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Returns the recorded distribution. Values recorded while the snapshot is taken may or may
+     * not be included.
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        final long[] counts = new long[bucketCounts.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = bucketCounts.get(i);
+            count += counts[i];
+        }
+
+        final long maxValue = max.get();
+        return new Snapshot(
+                count,
+                sum.get(),
+                maxValue,
+                percentile(counts, count, maxValue, 0.50),
+                percentile(counts, count, maxValue, 0.95),
+                percentile(counts, count, maxValue, 0.99)
+        );
+    }
+
+    private long percentile(@NonNull final long[] counts, final long count, final long maxValue, final double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bounds[i], maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * A point in time view of a {@link Histogram}.
+     */
+    @Immutable
+    public static final class Snapshot {
+
+        /**
+         * The number of values recorded.
+         */
+        public final long count;
+
+        /**
+         * The sum of the values recorded.
+         */
+        public final long sum;
+
+        /**
+         * The largest value recorded, or 0 if none were.
+         */
+        public final long max;
+
+        public final long p50;
+        public final long p95;
+        public final long p99;
+
+        Snapshot(final long count, final long sum, final long max, final long p50, final long p95, final long p99) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+        }
+
+        /**
+         * Returns the mean of the values recorded, or 0 if none were.
+         */
+        public long getMean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " p50=" + p50 + " p95=" + p95 + " p99=" + p99 + " max=" + max + " mean=" + getMean();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package org.ometa.lovemonster;
+
+import java.util.Arrays;
+
+import cz.msebera.android.httpclient.annotation.NotThreadSafe;
+
+/**
+ * Set of primitive {@code long}s, using open addressing with linear probing in a single array.
+ * Adding, checking and removing a value is a hash and a few array reads, with no boxing and no
+ * allocation except when the table grows.
+ *
+ * Empty slots hold 0, so 0 itself is tracked separately. Removing a value shifts the values probed
+ * past it back into its slot, rather than leaving a marker, so lookups never slow down as values
+ * come and go.
+ */
+@NotThreadSafe
+public class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The table is grown once it is this full, which keeps probe sequences short.
+     */
+    private static final float MAX_LOAD_FACTOR = 0.5f;
+
+    private long[] table;
+
+    /**
+     * The number of bits of the hash used to index the table, whose length is a power of 2.
+     */
+    private int indexBits;
+
+    private int resizeThreshold;
+
+    /**
+     * The number of non-zero values in the table.
+     */
+    private int tableSize;
+
+    private boolean containsZero;
+
+    /**
+     * Creates an empty set.
+     */
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty set which holds the specified number of values without growing.
+     *
+     * @param expectedSize
+     *      the number of values expected
+     * @throws IllegalArgumentException
+     *      if the expected size is negative
+     */
+    public LongHashSet(final int expectedSize) throws IllegalArgumentException {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("argument `expectedSize` cannot be negative");
+        }
+
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Adds the value, unless it is already in the set.
+     *
+     * @param value
+     *      the value to add
+     * @return
+     *      true if the value was added, or false if it was already in the set
+     */
+    public boolean add(final long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            return true;
+        }
+
+        final int mask = table.length - 1;
+        for (int index = indexFor(value); ; index = (index + 1) & mask) {
+            final long slot = table[index];
+            if (slot == value) {
+                return false;
+            }
+            if (slot == 0) {
+                table[index] = value;
+                if (++tableSize > resizeThreshold) {
+                    grow();
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the value is in the set.
+     *
+     * @param value
+     *      the value to check
+     * @return
+     *      true if the value is in the set
+     */
+    public boolean contains(final long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+
+        final int mask = table.length - 1;
+        for (int index = indexFor(value); ; index = (index + 1) & mask) {
+            final long slot = table[index];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Removes the value, if it is in the set.
+     *
+     * @param value
+     *      the value to remove
+     * @return
+     *      true if the value was removed, or false if it was not in the set
+     */
+    public boolean remove(final long value) {
+        if (value == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            return true;
+        }
+
+        final int mask = table.length - 1;
+        int gap = indexFor(value);
+        while (table[gap] != value) {
+            if (table[gap] == 0) {
+                return false;
+            }
+            gap = (gap + 1) & mask;
+        }
+
+        // each value in the run after the gap moves back into it, unless its own slot lies between
+        // the gap and where it is now, in which case moving it would put it before its own slot
+        for (int index = (gap + 1) & mask; table[index] != 0; index = (index + 1) & mask) {
+            final long slot = table[index];
+            if (((index - indexFor(slot)) & mask) >= ((index - gap) & mask)) {
+                table[gap] = slot;
+                gap = index;
+            }
+        }
+        table[gap] = 0;
+        tableSize--;
+        return true;
+    }
+
+    /**
+     * Returns the number of values in the set.
+     */
+    public int size() {
+        return containsZero ? tableSize + 1 : tableSize;
+    }
+
+    /**
+     * Removes every value, keeping the table at its current capacity.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        tableSize = 0;
+        containsZero = false;
+    }
+
+    private void allocate(final int capacity) {
+        table = new long[capacity];
+        indexBits = Integer.numberOfTrailingZeros(capacity);
+        resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    private void grow() {
+        final long[] oldTable = table;
+        allocate(oldTable.length << 1);
+
+        final int mask = table.length - 1;
+        for (final long value : oldTable) {
+            if (value != 0) {
+                int index = indexFor(value);
+                while (table[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    /**
+     * Spreads the value over the table with Fibonacci hashing, taking the top bits of the product,
+     * so that values differing only in their low or high bits still land far apart.
+     */
+    private int indexFor(final long value) {
+        return (int) ((value * 0x9E3779B97F4A7C15L) >>> (64 - indexBits));
+    }
+}
@@ -0,0 +1,145 @@
+package org.ometa.lovemonster;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Named {@link Histogram}s and counters, created on first use. Names are free-form; the client
+ * names its metrics {@code "<endpoint> <metric>"}, e.g. {@code "GET /api/v1/loves ttfb_ms"}.
+ *
+ * {@code
+ *      final Histogram.Snapshot ttfb = MetricsRegistry.getInstance().getSnapshot("GET /api/v1/loves ttfb_ms");
+ *      ...
+ *      logger.debug(MetricsRegistry.getInstance().dump());
+ * }
+ */
+@ThreadSafe
+public class MetricsRegistry {
+
+    /**
+     * The singleton instance, shared by the app.
+     */
+    private static final MetricsRegistry singletonInstance = new MetricsRegistry();
+
+    /**
+     * Returns the singleton {@code MetricsRegistry}.
+     *
+     * @return
+     *      the singleton registry
+     */
+    public static MetricsRegistry getInstance() {
+        return singletonInstance;
+    }
+
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Records a latency in the named latency histogram.
+     *
+     * @param name
+     *      the name of the histogram
+     * @param millis
+     *      the latency in milliseconds
+     */
+    public void recordLatency(@NonNull final String name, final long millis) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = putIfAbsent(name, Histogram.forLatencyMillis());
+        }
+        histogram.record(millis);
+    }
+
+    /**
+     * Records a size in the named size histogram.
+     *
+     * @param name
+     *      the name of the histogram
+     * @param bytes
+     *      the size in bytes
+     */
+    public void recordSize(@NonNull final String name, final long bytes) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = putIfAbsent(name, Histogram.forSizeBytes());
+        }
+        histogram.record(bytes);
+    }
+
+    /**
+     * Adds one to the named counter.
+     *
+     * @param name
+     *      the name of the counter
+     */
+    public void increment(@NonNull final String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            final AtomicLong newCounter = new AtomicLong();
+            counter = counters.putIfAbsent(name, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Returns the value of the named counter, or 0 if it has never been incremented.
+     */
+    public long getCount(@NonNull final String name) {
+        final AtomicLong counter = counters.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Returns a snapshot of the named histogram, or null if nothing has been recorded in it.
+     */
+    @Nullable
+    public Histogram.Snapshot getSnapshot(@NonNull final String name) {
+        final Histogram histogram = histograms.get(name);
+        return histogram == null ? null : histogram.snapshot();
+    }
+
+    /**
+     * Returns snapshots of every histogram, sorted by name.
+     */
+    @NonNull
+    public SortedMap<String, Histogram.Snapshot> getSnapshots() {
+        final SortedMap<String, Histogram.Snapshot> snapshots = new TreeMap<>();
+        for (final Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Returns every histogram and counter, one per line, sorted by name.
+     */
+    @NonNull
+    public String dump() {
+        final StringBuilder dump = new StringBuilder();
+        for (final Map.Entry<String, Histogram.Snapshot> entry : getSnapshots().entrySet()) {
+            dump.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        for (final Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            dump.append(entry.getKey()).append(" count=").append(entry.getValue().get()).append('\n');
+        }
+        return dump.toString();
+    }
+
+    @NonNull
+    private Histogram putIfAbsent(@NonNull final String name, @NonNull final Histogram histogram) {
+        final Histogram existingHistogram = histograms.putIfAbsent(name, histogram);
+        return existingHistogram == null ? histogram : existingHistogram;
+    }
+}
@@ -6,31 +6,38 @@ import android.support.annotation.Nullable;
 import org.ometa.lovemonster.ui.presenters.DatePresenter;
 
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
 /**
  * Represents a Love which can be sent from one {@link User} to another {@link User}.
+ *
+ * Loves are immutable, apart from their likes, and are kept compact since a long session holds
+ * thousands of them: the creation time is held as epoch milliseconds rather than a
+ * {@link java.util.Calendar}, and the list of likes is only created once a like is added.
  */
+@ThreadSafe
 public class Love {
     /**
      * The reason note for why this love was sent.  Required field.
      */
     @NonNull
-    public String reason;
+    public final String reason;
 
     /**
      * An optional personalized message from the lover.  Optional field.
      */
     @Nullable
-    public String message;
+    public final String message;
 
     /**
      * Whether this love was sent privately or not.  True if this is a private Love, and false otherwise.
      * Defaults to false.  Required field.
      */
-    @NonNull
-    public boolean isPrivate;
+    public final boolean isPrivate;
 
     /**
      * The {@link User} who sent this love.  Required field.
@@ -45,49 +52,71 @@ public class Love {
     public final User lovee;
 
     /**
-     * The {@link Like}s this love has received. May be empty, but cannot be null.
-     * This field cannot be reassigned, but the contents may be modified freely by any thread (not threadsafe).
+     * The server's identifier for this love, or 0 if it is not known (e.g. for a love which has not
+     * been sent yet).  Optional field.
      */
-    @NonNull
-    public final List<Like> likes;
+    public final long id;
 
     /**
-     * The timestamp for when this love was created.  Required field.
+     * A key which uniquely identifies this love when it is sent, so that a send which is retried
+     * after its response was lost is not created twice.  Optional field.
      */
-    @NonNull
-    public final Calendar createdAt;
+    @Nullable
+    public final String idempotencyKey;
+
+    /**
+     * When this love was created, in milliseconds since the epoch.  Required field.
+     */
+    public final long createdAtMillis;
 
     /**
-     * Instantiates a {@code Love} instance with the minimum required fields.
+     * The {@link Like}s this love has received, or null until the first like is added.
+     */
+    @GuardedBy("this")
+    @Nullable
+    private List<Like> likes;
+
+    /**
+     * Instantiates a {@code Love} instance with the minimum required fields, created now.
      *
-     *  @param reason
+     * @param reason
      *      the reason for why this love was sent
      * @param lover
      *      the {@link User} sending the love
      * @param lovee
      *      the {@link User} receiving the love
      * @throws IllegalArgumentException
-     *      if the specified reason, lover, lovee, or createdAt are {@code null}
+     *      if the specified reason, lover, or lovee are {@code null}
      */
     public Love(@NonNull final String reason, @NonNull final User lover, @NonNull final User lovee) throws IllegalArgumentException {
-        this(reason, lover, lovee, Calendar.getInstance());
+        this(reason, null, false, lover, lovee, 0, null, System.currentTimeMillis());
     }
 
     /**
-     * Instantiates a {@code Love} instance with the minimum required fields.
+     * Instantiates a {@code Love} instance with all of its fields.
      *
-     *  @param reason
+     * @param reason
      *      the reason for why this love was sent
+     * @param message
+     *      the lover's personalized message. may be null
+     * @param isPrivate
+     *      whether this love was sent privately
      * @param lover
      *      the {@link User} sending the love
      * @param lovee
      *      the {@link User} receiving the love
-     * @param createdAt
-     *      when this love was created
+     * @param id
+     *      the server's identifier for this love, or 0 if it is not known
+     * @param idempotencyKey
+     *      the key which identifies this love when it is sent. may be null
+     * @param createdAtMillis
+     *      when this love was created, in milliseconds since the epoch
      * @throws IllegalArgumentException
-     *      if the specified reason, lover, lovee, or createdAt are {@code null}
+     *      if the specified reason, lover, or lovee are {@code null}
      */
-    public Love(@NonNull final String reason, @NonNull final User lover, @NonNull final User lovee, @NonNull final Calendar createdAt) throws IllegalArgumentException {
+    public Love(@NonNull final String reason, @Nullable final String message, final boolean isPrivate,
+                @NonNull final User lover, @NonNull final User lovee, final long id,
+                @Nullable final String idempotencyKey, final long createdAtMillis) throws IllegalArgumentException {
         if (reason == null) {
             throw new IllegalArgumentException("argument `reason` cannot be null");
         }
@@ -100,16 +129,113 @@ public class Love {
             throw new IllegalArgumentException("argument `lovee` cannot be null");
         }
 
-        if (createdAt == null) {
-            throw new IllegalArgumentException("argument `createdAt` cannot be null");
-        }
-
         this.reason = reason;
+        this.message = message;
+        this.isPrivate = isPrivate;
         this.lover = lover;
         this.lovee = lovee;
-        this.createdAt = createdAt;
-        this.isPrivate = false;
-        this.likes = new ArrayList<>();
+        this.id = id;
+        this.idempotencyKey = idempotencyKey;
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    /**
+     * Returns a copy of this love with the specified idempotency key. Likes are not copied.
+     *
+     * @param idempotencyKey
+     *      the key which identifies the love when it is sent
+     * @return
+     *      the copy of this love
+     */
+    @NonNull
+    public Love withIdempotencyKey(@Nullable final String idempotencyKey) {
+        return new Love(reason, message, isPrivate, lover, lovee, id, idempotencyKey, createdAtMillis);
+    }
+
+    /**
+     * Returns the {@link Like}s this love has received.
+     *
+     * @return
+     *      an unmodifiable snapshot of the likes. may be empty, but not null
+     */
+    @NonNull
+    public synchronized List<Like> getLikes() {
+        if (likes == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(likes));
+    }
+
+    /**
+     * Adds a {@link Like} to this love.
+     *
+     * @param like
+     *      the like to add
+     * @throws IllegalArgumentException
+     *      if the specified like is {@code null}
+     */
+    public synchronized void addLike(@NonNull final Like like) throws IllegalArgumentException {
+        if (like == null) {
+            throw new IllegalArgumentException("argument `like` cannot be null");
+        }
+
+        if (likes == null) {
+            likes = new ArrayList<>(2);
+        }
+        likes.add(like);
+    }
+
+    /**
+     * The FNV-1a 64 bit offset basis and prime.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Returns a 64 bit FNV-1a hash of the love's whole content: its creation time, lover, lovee,
+     * reason, message and privacy. It is the same however many times the love is parsed, so that a
+     * love repeated by overlapping pages can be recognised without keeping or comparing the loves
+     * themselves. Since every character is hashed into all 64 bits, two different loves only have
+     * the same fingerprint by chance, with a probability of about 1 in 2^64 per pair.
+     *
+     * @return
+     *      the fingerprint
+     */
+    public long fingerprint() {
+        long hash = hash(FNV_OFFSET_BASIS, createdAtMillis);
+        hash = hash(hash, lover.username);
+        hash = hash(hash, lovee.username);
+        hash = hash(hash, reason);
+        hash = hash(hash, message);
+        return hash(hash, isPrivate ? 1 : 0);
+    }
+
+    /**
+     * Hashes each byte of the value into the FNV-1a hash.
+     */
+    private static long hash(long hash, final long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes the length and then each character of the string into the FNV-1a hash. Hashing the
+     * length first keeps the boundaries between strings, so "ab" then "c" differs from "a" then "bc".
+     */
+    private static long hash(long hash, @Nullable final String value) {
+        if (value == null) {
+            return hash(hash, -1);
+        }
+
+        hash = hash(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
     }
 
     /**
@@ -131,6 +257,6 @@ public class Love {
      * @return a string of the relative "time ago" of the {@code Love}.
      */
     public String timeAgo() {
-        return DatePresenter.shortRelativeElapsedFrom(createdAt);
+        return DatePresenter.shortRelativeElapsedFrom(createdAtMillis);
     }
 }
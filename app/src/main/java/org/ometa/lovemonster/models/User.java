@@ -18,6 +18,11 @@ public class User implements Parcelable {
      */
     public static final String PARCELABLE_KEY = User.class.getName();
 
+    /**
+     * The key used to reference this User's {@link UserRegistry} key in an intent.
+     */
+    public static final String REGISTRY_KEY = User.class.getName() + ".registryKey";
+
     /**
      * Represents the association type between a love and a user.
      */
@@ -32,10 +37,11 @@ public class User implements Parcelable {
     public String email;
 
     /**
-     * The name for this user.  Optional field.
+     * The name for this user.  Optional field.  Volatile, since a user shared through the
+     * {@link UserIdentityMap} may have its name filled in by a parsing thread while it is displayed.
      */
     @Nullable
-    public String name;
+    public volatile String name;
 
     /**
      * The username for this user. Required field.
@@ -106,23 +112,25 @@ public class User implements Parcelable {
         return 0;
     }
 
+    /**
+     * Writes only the user's own fields, not their loves, since the parcel is only a fallback for
+     * when the {@link UserRegistry} is empty after the process is restarted.
+     */
     @Override
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeString(this.email);
         dest.writeString(this.name);
         dest.writeString(this.username);
-        dest.writeList(this.receivedLoves);
-        dest.writeList(this.sentLoves);
+        dest.writeString(this.profileImageUrl);
     }
 
     protected User(Parcel in) {
         this.email = in.readString();
         this.name = in.readString();
         this.username = in.readString();
-        this.receivedLoves = new ArrayList<Love>();
-        in.readList(this.receivedLoves, List.class.getClassLoader());
-        this.sentLoves = new ArrayList<Love>();
-        in.readList(this.sentLoves, List.class.getClassLoader());
+        this.profileImageUrl = in.readString();
+        this.receivedLoves = new ArrayList<>();
+        this.sentLoves = new ArrayList<>();
     }
 
     public static final Parcelable.Creator<User> CREATOR = new Parcelable.Creator<User>() {
@@ -0,0 +1,195 @@
+package org.ometa.lovemonster.models;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * App-wide identity map of the live {@link User}s by email, so that each person exists once in
+ * memory however many loves, pages, fragments and lookups refer to them. Users are held through weak
+ * references, so a user is forgotten once nothing else refers to it.
+ *
+ * Users are interned from several parsing threads at once, so the map is split into stripes, each
+ * with its own lock. The entries of collected users are removed as the stripe is next written to.
+ */
+@ThreadSafe
+public class UserIdentityMap {
+
+    /**
+     * The default number of stripes, which is the number of threads which can intern users at once.
+     */
+    static final int DEFAULT_STRIPES = 8;
+
+    private static final UserIdentityMap instance = new UserIdentityMap(DEFAULT_STRIPES);
+
+    /**
+     * A weak reference to a user, which remembers its email so that its entry can be removed once
+     * the user is collected.
+     */
+    private static class UserReference extends WeakReference<User> {
+
+        @NonNull
+        final String email;
+
+        UserReference(@NonNull final User user, @NonNull final ReferenceQueue<User> queue) {
+            super(user, queue);
+            this.email = user.email;
+        }
+    }
+
+    /**
+     * A share of the map, with its own lock.
+     */
+    private static class Stripe {
+
+        @GuardedBy("this")
+        final HashMap<String, UserReference> users = new HashMap<>();
+
+        /**
+         * Receives the references of collected users.
+         */
+        final ReferenceQueue<User> collectedUsers = new ReferenceQueue<>();
+    }
+
+    @NonNull
+    private final Stripe[] stripes;
+
+    /**
+     * Returns the app-wide identity map.
+     *
+     * @return
+     *      the identity map
+     */
+    @NonNull
+    public static UserIdentityMap getInstance() {
+        return instance;
+    }
+
+    /**
+     * Creates an empty identity map.
+     *
+     * @param stripeCount
+     *      the number of stripes, which is the number of threads which can intern users at once
+     * @throws IllegalArgumentException
+     *      if the stripe count is less than 1
+     */
+    public UserIdentityMap(final int stripeCount) throws IllegalArgumentException {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("argument `stripeCount` must be positive");
+        }
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Returns the live user with the email.
+     *
+     * @param email
+     *      the user's email. may be null
+     * @return
+     *      the user, or null if no live user has the email
+     */
+    @Nullable
+    public User find(@Nullable final String email) {
+        if (email == null) {
+            return null;
+        }
+
+        final Stripe stripe = stripeFor(email);
+        synchronized (stripe) {
+            final UserReference reference = stripe.users.get(email);
+            return reference == null ? null : reference.get();
+        }
+    }
+
+    /**
+     * Returns the live user with the same email as the specified user, adding the specified user if
+     * there is none. Users without an email, such as a lovee known only by username, are returned
+     * as they are.
+     *
+     * @param user
+     *      the user to intern
+     * @return
+     *      the live user with the same email, which is {@code user} unless one already existed
+     * @throws IllegalArgumentException
+     *      if the specified user is {@code null}
+     */
+    @NonNull
+    public User intern(@NonNull final User user) throws IllegalArgumentException {
+        if (user == null) {
+            throw new IllegalArgumentException("argument `user` cannot be null");
+        }
+
+        if (user.email.isEmpty()) {
+            return user;
+        }
+
+        final Stripe stripe = stripeFor(user.email);
+        synchronized (stripe) {
+            removeCollectedUsers(stripe);
+
+            final UserReference reference = stripe.users.get(user.email);
+            final User existingUser = reference == null ? null : reference.get();
+            if (existingUser != null) {
+                return existingUser;
+            }
+
+            stripe.users.put(user.email, new UserReference(user, stripe.collectedUsers));
+            return user;
+        }
+    }
+
+    /**
+     * Returns the number of entries, including those of users collected since their stripe was
+     * last written to.
+     */
+    public int size() {
+        int size = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.users.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes the entries of collected users from every stripe.
+     */
+    public void removeCollectedUsers() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                removeCollectedUsers(stripe);
+            }
+        }
+    }
+
+    /**
+     * Removes the entries of collected users from the stripe. The stripe's lock must be held.
+     */
+    private static void removeCollectedUsers(@NonNull final Stripe stripe) {
+        Reference<? extends User> collected;
+        while ((collected = stripe.collectedUsers.poll()) != null) {
+            final UserReference reference = (UserReference) collected;
+            // the email may have been interned again since, for a new user
+            if (stripe.users.get(reference.email) == reference) {
+                stripe.users.remove(reference.email);
+            }
+        }
+    }
+
+    private Stripe stripeFor(@NonNull final String email) {
+        final int hash = email.hashCode();
+        return stripes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % stripes.length];
+    }
+}
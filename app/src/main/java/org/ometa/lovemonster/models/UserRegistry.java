@@ -0,0 +1,98 @@
+package org.ometa.lovemonster.models;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * In-process registry of {@link User}s handed from one screen to another, keyed by username. An
+ * {@link android.content.Intent} carries only the key, so opening a user's screen does not parcel
+ * the user, and the screen finds the same instance the sender had.
+ *
+ * Only the most recently registered users are kept. The registry is empty after the process is
+ * restarted, so screens should fall back to the {@link android.os.Parcelable} form of the user saved
+ * with their instance state.
+ */
+@ThreadSafe
+public class UserRegistry {
+
+    /**
+     * The number of most recently registered users which are kept.
+     */
+    static final int MAX_USERS = 64;
+
+    private static final UserRegistry instance = new UserRegistry(MAX_USERS);
+
+    /**
+     * The registered users keyed by username, in access order.
+     */
+    @GuardedBy("this")
+    private final LinkedHashMap<String, User> users;
+
+    /**
+     * Returns the app-wide registry.
+     *
+     * @return
+     *      the registry
+     */
+    @NonNull
+    public static UserRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param maxUsers
+     *      the number of most recently registered users to keep
+     */
+    UserRegistry(final int maxUsers) {
+        this.users = new LinkedHashMap<String, User>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, User> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * Registers the user, replacing any user registered with the same username.
+     *
+     * @param user
+     *      the user to register
+     * @return
+     *      the key to pass to {@link #find(String)}, which is the user's username
+     * @throws IllegalArgumentException
+     *      if the specified user is {@code null}
+     */
+    @NonNull
+    public synchronized String register(@NonNull final User user) throws IllegalArgumentException {
+        if (user == null) {
+            throw new IllegalArgumentException("argument `user` cannot be null");
+        }
+
+        users.put(user.username, user);
+        return user.username;
+    }
+
+    /**
+     * Returns the registered user with the key.
+     *
+     * @param key
+     *      the key returned by {@link #register(User)}. may be null
+     * @return
+     *      the registered user, or null if there is none, such as after the process is restarted
+     */
+    @Nullable
+    public synchronized User find(@Nullable final String key) {
+        if (key == null) {
+            return null;
+        }
+        return users.get(key);
+    }
+}
@@ -0,0 +1,116 @@
+package org.ometa.lovemonster.service;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.AsyncHttpRequest;
+import com.loopj.android.http.RequestHandle;
+import com.loopj.android.http.RequestParams;
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import java.util.concurrent.ExecutorService;
+
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.impl.client.DefaultHttpClient;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+/**
+ * {@link Transport} backed by a loopj {@link AsyncHttpClient}. Response handlers are only told when
+ * their request starts ({@link Transport.StartListener}) if the client is a
+ * {@link StartReportingAsyncHttpClient}.
+ */
+@ThreadSafe
+public class AsyncHttpClientTransport implements Transport {
+
+    @NonNull
+    private final AsyncHttpClient asyncHttpClient;
+
+    /**
+     * Creates a transport which sends requests with the specified client.
+     *
+     * @param asyncHttpClient
+     *      the http client used to make requests
+     * @param networkExecutor
+     *      the executor which makes the http calls. if null, the client's own thread pool is used
+     * @throws IllegalArgumentException
+     *      if {@code asyncHttpClient} is null
+     */
+    public AsyncHttpClientTransport(@NonNull final AsyncHttpClient asyncHttpClient, @Nullable final ExecutorService networkExecutor) throws IllegalArgumentException {
+        if (asyncHttpClient == null) {
+            throw new IllegalArgumentException("argument `asyncHttpClient` cannot be null");
+        }
+
+        this.asyncHttpClient = asyncHttpClient;
+
+        // retries are decided per endpoint by LoveMonsterClient; the http client's own retries
+        // would resend loves without an idempotency key, and multiply the client's attempts
+        asyncHttpClient.setMaxRetriesAndTimeout(0, AsyncHttpClient.DEFAULT_SOCKET_TIMEOUT);
+        if (networkExecutor != null) {
+            asyncHttpClient.setThreadPool(networkExecutor);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Cancellable send(@NonNull final Request request, @NonNull final ResponseHandlerInterface responseHandler) {
+        final RequestHandle requestHandle;
+        if (request.method.equals(Request.POST)) {
+            requestHandle = asyncHttpClient.post(null, request.url, request.getHeaders(), (RequestParams) null, request.contentType, responseHandler);
+        } else {
+            requestHandle = asyncHttpClient.get(null, request.url, request.getHeaders(), null, responseHandler);
+        }
+        return new RequestHandleCancellable(requestHandle);
+    }
+
+    /**
+     * {@link AsyncHttpClient} which tells {@link Transport.StartListener} response handlers when
+     * their request is picked up by a network thread.
+     */
+    public static class StartReportingAsyncHttpClient extends AsyncHttpClient {
+
+        @Override
+        protected AsyncHttpRequest newAsyncHttpRequest(final DefaultHttpClient client, final HttpContext httpContext, final HttpUriRequest uriRequest, final String contentType, final ResponseHandlerInterface responseHandler, final Context context) {
+            return new AsyncHttpRequest(client, httpContext, uriRequest, responseHandler) {
+                @Override
+                public void onPreProcessRequest(final AsyncHttpRequest request) {
+                    if (responseHandler instanceof StartListener) {
+                        ((StartListener) responseHandler).onRequestStarted();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Adapts a loopj {@link RequestHandle}, which may be null if the request could not be made.
+     */
+    private static class RequestHandleCancellable implements Cancellable {
+
+        @Nullable
+        private final RequestHandle requestHandle;
+
+        RequestHandleCancellable(@Nullable final RequestHandle requestHandle) {
+            this.requestHandle = requestHandle;
+        }
+
+        @Override
+        public void cancel() {
+            if (requestHandle != null) {
+                requestHandle.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return requestHandle != null && requestHandle.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return requestHandle == null || requestHandle.isFinished() || requestHandle.isCancelled();
+        }
+    }
+}
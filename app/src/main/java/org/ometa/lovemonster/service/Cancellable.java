@@ -0,0 +1,26 @@
+package org.ometa.lovemonster.service;
+
+/**
+ * Handle to an asynchronous request, returned by the {@link LoveMonsterClient} calls. Cancelling
+ * stops the request if it is still in flight, skips parsing its response, and ensures its handler
+ * is not invoked, as long as {@link #cancel()} is called on the callback (generally main) thread.
+ *
+ * @see RequestGroup
+ */
+public interface Cancellable {
+
+    /**
+     * Cancels the request. Does nothing if the request is already done.
+     */
+    void cancel();
+
+    /**
+     * Returns true if the request was cancelled.
+     */
+    boolean isCancelled();
+
+    /**
+     * Returns true once the request has completed, or been cancelled.
+     */
+    boolean isDone();
+}
@@ -0,0 +1,178 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Stops requests to a server which keeps failing, so that callers fail fast instead of each waiting
+ * for their own timeouts and retries.
+ *
+ * The breaker starts {@link State#CLOSED}. After a number of consecutive transient failures it
+ * opens, and every request is rejected. Once the open period has passed, it lets a single trial
+ * request through ({@link State#HALF_OPEN}); the breaker closes if the trial succeeds, or opens
+ * again if it fails.
+ */
+@ThreadSafe
+public class CircuitBreaker {
+
+    /**
+     * The state of a {@link CircuitBreaker}.
+     */
+    public enum State {
+        /**
+         * Requests are allowed.
+         */
+        CLOSED,
+
+        /**
+         * Requests are rejected.
+         */
+        OPEN,
+
+        /**
+         * A single trial request is allowed, to find out whether the server has recovered.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Source of the current time, replaceable in tests.
+     */
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    /**
+     * A monotonic clock, unaffected by changes to the wall clock.
+     */
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.nanoTime() / 1000000L;
+        }
+    };
+
+    /**
+     * The failure passed to requests which were rejected because the breaker is open.
+     */
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException() {
+            super("Circuit breaker open");
+        }
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    @NonNull
+    private final Clock clock;
+
+    @GuardedBy("this")
+    private State state = State.CLOSED;
+
+    /**
+     * The number of consecutive failures while closed.
+     */
+    @GuardedBy("this")
+    private int consecutiveFailures = 0;
+
+    /**
+     * When the breaker last opened, or when the current trial request was let through.
+     */
+    @GuardedBy("this")
+    private long stateChangedAtMillis;
+
+    @GuardedBy("this")
+    private long rejectedCount = 0;
+
+    /**
+     * Creates a closed breaker.
+     *
+     * @param failureThreshold
+     *      the number of consecutive failures which open the breaker
+     * @param openMillis
+     *      how long the breaker stays open before allowing a trial request. also how long a trial
+     *      request may take before another one is allowed
+     * @param clock
+     *      the source of the current time
+     * @throws IllegalArgumentException
+     *      if {@code failureThreshold} is less than 1, {@code openMillis} is negative, or
+     *      {@code clock} is null
+     */
+    CircuitBreaker(final int failureThreshold, final long openMillis, @NonNull final Clock clock) throws IllegalArgumentException {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("argument `failureThreshold` must be positive");
+        }
+        if (openMillis < 0) {
+            throw new IllegalArgumentException("argument `openMillis` cannot be negative");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("argument `clock` cannot be null");
+        }
+
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns true if a request may be made now. When the open period has passed, the first caller
+     * is allowed through as the trial request, and later callers are rejected until it completes.
+     */
+    synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        final long now = clock.currentTimeMillis();
+        if (now - stateChangedAtMillis >= openMillis) {
+            state = State.HALF_OPEN;
+            stateChangedAtMillis = now;
+            return true;
+        }
+
+        rejectedCount++;
+        return false;
+    }
+
+    /**
+     * Records that the server answered a request, closing the breaker.
+     */
+    synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Records a transient failure, opening the breaker if the trial request failed or the failure
+     * threshold has been reached.
+     */
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            stateChangedAtMillis = clock.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Returns the current state.
+     */
+    @NonNull
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of requests rejected because the breaker was open.
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+}
@@ -0,0 +1,131 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Bounded cache of parsed responses keyed by url, along with the validators ({@code ETag} and
+ * {@code Last-Modified}) needed to revalidate them with a conditional GET. When the server answers
+ * {@code 304 Not Modified}, the cached value can be returned without downloading or parsing the
+ * body again. The least recently used entry is evicted once the cache is full.
+ *
+ * @param <T>
+ *     the parsed response type
+ */
+@ThreadSafe
+class ConditionalGetCache<T> {
+
+    /**
+     * A cached response value and its validators. At least one of the validators is non-null.
+     *
+     * @param <T>
+     *     the parsed response type
+     */
+    static class Entry<T> {
+
+        /**
+         * The {@code ETag} from the response, sent back as {@code If-None-Match}. May be null.
+         */
+        @Nullable
+        final String etag;
+
+        /**
+         * The {@code Last-Modified} date from the response, sent back as {@code If-Modified-Since}.
+         * May be null.
+         */
+        @Nullable
+        final String lastModified;
+
+        /**
+         * The parsed response.
+         */
+        @NonNull
+        final T value;
+
+        Entry(@Nullable final String etag, @Nullable final String lastModified, @NonNull final T value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The cached entries, in access order.
+     */
+    private final LinkedHashMap<String, Entry<T>> entries;
+
+    /**
+     * Creates a cache which holds at most the specified number of responses.
+     *
+     * @param maxEntries
+     *      the maximum number of responses to cache
+     * @throws IllegalArgumentException
+     *      if {@code maxEntries} is less than 1
+     */
+    ConditionalGetCache(final int maxEntries) throws IllegalArgumentException {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("argument `maxEntries` must be positive");
+        }
+
+        this.entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry<T>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached entry for the url, or null if there is none.
+     *
+     * @param url
+     *      the request url
+     * @return
+     *      the cached entry, or null
+     */
+    @Nullable
+    synchronized Entry<T> get(@NonNull final String url) {
+        return entries.get(url);
+    }
+
+    /**
+     * Caches the parsed response for the url. If the response had no validators, it cannot be
+     * revalidated, so any existing entry for the url is removed instead.
+     *
+     * @param url
+     *      the request url
+     * @param etag
+     *      the response's {@code ETag} header value. may be null
+     * @param lastModified
+     *      the response's {@code Last-Modified} header value. may be null
+     * @param value
+     *      the parsed response
+     */
+    synchronized void put(@NonNull final String url, @Nullable final String etag, @Nullable final String lastModified, @NonNull final T value) {
+        if (etag == null && lastModified == null) {
+            entries.remove(url);
+            return;
+        }
+
+        entries.put(url, new Entry<>(etag, lastModified, value));
+    }
+
+    /**
+     * Removes all cached responses.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of cached responses.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+}
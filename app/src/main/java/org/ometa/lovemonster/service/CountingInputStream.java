@@ -0,0 +1,104 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import cz.msebera.android.httpclient.HttpEntity;
+import cz.msebera.android.httpclient.annotation.NotThreadSafe;
+import cz.msebera.android.httpclient.entity.HttpEntityWrapper;
+
+/**
+ * Counts the bytes read from a stream, and the time spent waiting on it. When a response is parsed
+ * straight from the network stream, the time spent in {@code read} is the download time, and the
+ * rest is the parse time.
+ */
+@NotThreadSafe
+class CountingInputStream extends FilterInputStream {
+
+    private long byteCount = 0;
+    private long readNanos = 0;
+
+    CountingInputStream(@NonNull final InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final long startNanos = System.nanoTime();
+        try {
+            final int read = super.read();
+            if (read != -1) {
+                byteCount++;
+            }
+            return read;
+        } finally {
+            readNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    @Override
+    public int read(@NonNull final byte[] buffer, final int offset, final int length) throws IOException {
+        final long startNanos = System.nanoTime();
+        try {
+            final int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                byteCount += read;
+            }
+            return read;
+        } finally {
+            readNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    @Override
+    public long skip(final long count) throws IOException {
+        final long skipped = super.skip(count);
+        byteCount += skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     */
+    long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Returns the time spent reading so far, in nanoseconds.
+     */
+    long getReadNanos() {
+        return readNanos;
+    }
+
+    /**
+     * Entity whose content is counted, for response handlers which read the entity themselves.
+     */
+    @NotThreadSafe
+    static class Entity extends HttpEntityWrapper {
+
+        private CountingInputStream content;
+
+        Entity(@NonNull final HttpEntity wrappedEntity) {
+            super(wrappedEntity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            if (content == null) {
+                content = new CountingInputStream(super.getContent());
+            }
+            return content;
+        }
+
+        /**
+         * Returns the number of bytes read from the content so far.
+         */
+        long getByteCount() {
+            return content == null ? 0 : content.getByteCount();
+        }
+    }
+}
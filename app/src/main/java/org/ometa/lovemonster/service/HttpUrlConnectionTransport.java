@@ -0,0 +1,183 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import org.ometa.lovemonster.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.HttpVersion;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+import cz.msebera.android.httpclient.entity.BasicHttpEntity;
+import cz.msebera.android.httpclient.message.BasicHttpResponse;
+
+/**
+ * {@link Transport} backed by the platform's {@link HttpURLConnection}, which keeps connections
+ * alive and reuses them for later requests to the same host. A connection is only returned to the
+ * pool once its response body has been read to the end, so the body is always drained after the
+ * response handler is done with it.
+ */
+@ThreadSafe
+public class HttpUrlConnectionTransport implements Transport {
+
+    private static final Logger logger = new Logger(HttpUrlConnectionTransport.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    /**
+     * The executor which makes the http calls.
+     */
+    @NonNull
+    private final ExecutorService networkExecutor;
+
+    /**
+     * Creates a transport which makes its http calls on the specified executor.
+     *
+     * @param networkExecutor
+     *      the executor which makes the http calls
+     * @throws IllegalArgumentException
+     *      if {@code networkExecutor} is null
+     */
+    public HttpUrlConnectionTransport(@NonNull final ExecutorService networkExecutor) throws IllegalArgumentException {
+        if (networkExecutor == null) {
+            throw new IllegalArgumentException("argument `networkExecutor` cannot be null");
+        }
+
+        this.networkExecutor = networkExecutor;
+    }
+
+    @NonNull
+    @Override
+    public Cancellable send(@NonNull final Request request, @NonNull final ResponseHandlerInterface responseHandler) {
+        final Future<?> future = networkExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                execute(request, responseHandler);
+            }
+        });
+
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                future.cancel(true);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return future.isCancelled();
+            }
+
+            @Override
+            public boolean isDone() {
+                return future.isDone();
+            }
+        };
+    }
+
+    /**
+     * Makes the http call and passes the response to the handler. Runs on the network executor.
+     */
+    private void execute(@NonNull final Request request, @NonNull final ResponseHandlerInterface responseHandler) {
+        if (responseHandler instanceof StartListener) {
+            ((StartListener) responseHandler).onRequestStarted();
+        }
+
+        InputStream content = null;
+        try {
+            responseHandler.setRequestURI(URI.create(request.url));
+            responseHandler.setRequestHeaders(request.getHeaders());
+
+            final HttpURLConnection connection = (HttpURLConnection) new URL(request.url).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setUseCaches(false);
+            connection.setRequestMethod(request.method);
+            final Header[] requestHeaders = request.getHeaders();
+            if (requestHeaders != null) {
+                for (final Header header : requestHeaders) {
+                    connection.addRequestProperty(header.getName(), header.getValue());
+                }
+            }
+
+            if (request.method.equals(Request.POST)) {
+                if (request.contentType != null) {
+                    connection.setRequestProperty("Content-Type", request.contentType);
+                }
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(0);
+                connection.getOutputStream().close();
+            }
+
+            final int statusCode = connection.getResponseCode();
+            if (Thread.currentThread().isInterrupted()) {
+                // cancelled while waiting for the response
+                return;
+            }
+
+            final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, connection.getResponseMessage());
+            for (final Map.Entry<String, List<String>> headerField : connection.getHeaderFields().entrySet()) {
+                // the status line is listed under a null name
+                if (headerField.getKey() == null) {
+                    continue;
+                }
+                for (final String value : headerField.getValue()) {
+                    response.addHeader(headerField.getKey(), value);
+                }
+            }
+
+            content = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (content != null) {
+                final BasicHttpEntity entity = new BasicHttpEntity();
+                entity.setContent(content);
+                entity.setContentLength(connection.getContentLength());
+                entity.setContentType(connection.getContentType());
+                response.setEntity(entity);
+            }
+
+            responseHandler.sendResponseMessage(response);
+        } catch (final IOException | RuntimeException e) {
+            // a handler which fails unexpectedly must still be answered, or its waiters wait forever
+            logger.debug("method=execute request=" + request, e);
+            responseHandler.sendFailureMessage(0, null, null, e);
+        } finally {
+            release(content);
+        }
+    }
+
+    /**
+     * Reads the rest of the body and closes it, so the connection can be reused.
+     */
+    private static void release(@Nullable final InputStream content) {
+        if (content == null) {
+            return;
+        }
+
+        try {
+            final byte[] buffer = new byte[4096];
+            while (content.read(buffer) != -1) {
+                // discard
+            }
+        } catch (final IOException | RuntimeException e) {
+            // already closed by the response handler
+        } finally {
+            try {
+                content.close();
+            } catch (final IOException e) {
+                // nothing more can be done
+            }
+        }
+    }
+}
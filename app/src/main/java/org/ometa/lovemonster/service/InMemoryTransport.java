@@ -0,0 +1,195 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.HttpVersion;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+import cz.msebera.android.httpclient.entity.StringEntity;
+import cz.msebera.android.httpclient.message.BasicHttpResponse;
+
+/**
+ * {@link Transport} which never touches the network: every request is answered by a
+ * {@link Responder} in the same process. Intended for tests, and for running the app against a
+ * fake server.
+ *
+ * {@code
+ *      final InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Responder() {
+ *          public HttpResponse respond(Transport.Request request) {
+ *              return InMemoryTransport.response(200, "{\"data\": []}");
+ *          }
+ *      });
+ * }
+ */
+@ThreadSafe
+public class InMemoryTransport implements Transport {
+
+    /**
+     * Answers requests sent to an {@link InMemoryTransport}.
+     */
+    public interface Responder {
+
+        /**
+         * Returns the response to the request.
+         *
+         * @param request
+         *      the request
+         * @return
+         *      the response
+         * @throws IOException
+         *      to simulate the request failing without a response
+         */
+        @NonNull
+        HttpResponse respond(@NonNull Request request) throws IOException;
+    }
+
+    /**
+     * Runs work on the calling thread.
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull final Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @NonNull
+    private final Responder responder;
+
+    /**
+     * The executor the responder is invoked on, standing in for the network thread.
+     */
+    @NonNull
+    private final Executor executor;
+
+    private final List<Request> sentRequests = Collections.synchronizedList(new ArrayList<Request>());
+
+    /**
+     * Creates a transport which answers requests on the thread which sends them.
+     *
+     * @param responder
+     *      the responder which answers requests
+     */
+    public InMemoryTransport(@NonNull final Responder responder) {
+        this(responder, DIRECT_EXECUTOR);
+    }
+
+    /**
+     * Creates a transport which answers requests on the specified executor.
+     *
+     * @param responder
+     *      the responder which answers requests
+     * @param executor
+     *      the executor the responder is invoked on
+     * @throws IllegalArgumentException
+     *      if {@code responder} or {@code executor} are null
+     */
+    public InMemoryTransport(@NonNull final Responder responder, @NonNull final Executor executor) throws IllegalArgumentException {
+        if (responder == null) {
+            throw new IllegalArgumentException("argument `responder` cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("argument `executor` cannot be null");
+        }
+
+        this.responder = responder;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a response with the specified status and a UTF-8 body.
+     *
+     * @param statusCode
+     *      the status code of the response
+     * @param body
+     *      the response body
+     * @return
+     *      the response
+     */
+    @NonNull
+    public static HttpResponse response(final int statusCode, @NonNull final String body) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, Integer.toString(statusCode));
+        response.setEntity(new StringEntity(body, "UTF-8"));
+        return response;
+    }
+
+    @NonNull
+    @Override
+    public Cancellable send(@NonNull final Request request, @NonNull final ResponseHandlerInterface responseHandler) {
+        sentRequests.add(request);
+
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicBoolean done = new AtomicBoolean();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!cancelled.get()) {
+                        respond(request, responseHandler);
+                    }
+                } finally {
+                    done.set(true);
+                }
+            }
+        });
+
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                cancelled.set(true);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled.get();
+            }
+
+            @Override
+            public boolean isDone() {
+                return done.get() || cancelled.get();
+            }
+        };
+    }
+
+    /**
+     * Passes the responder's answer to the response handler.
+     */
+    private void respond(@NonNull final Request request, @NonNull final ResponseHandlerInterface responseHandler) {
+        if (responseHandler instanceof StartListener) {
+            ((StartListener) responseHandler).onRequestStarted();
+        }
+
+        final HttpResponse response;
+        try {
+            response = responder.respond(request);
+        } catch (final IOException e) {
+            responseHandler.sendFailureMessage(0, null, null, e);
+            return;
+        }
+
+        try {
+            responseHandler.sendResponseMessage(response);
+        } catch (final IOException e) {
+            responseHandler.sendFailureMessage(response.getStatusLine().getStatusCode(), response.getAllHeaders(), null, e);
+        }
+    }
+
+    /**
+     * Returns the requests sent so far, in the order they were sent.
+     */
+    @NonNull
+    public List<Request> getSentRequests() {
+        synchronized (sentRequests) {
+            return new ArrayList<>(sentRequests);
+        }
+    }
+}
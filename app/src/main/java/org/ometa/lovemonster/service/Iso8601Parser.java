@@ -0,0 +1,165 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.Nullable;
+
+import cz.msebera.android.httpclient.annotation.Immutable;
+
+/**
+ * Parses ISO-8601 datetimes, as sent by the server, straight into epoch milliseconds. The
+ * characters are read directly, so that a page of loves can be parsed without a
+ * {@link java.text.SimpleDateFormat}, {@link java.util.Date} or {@link java.util.Calendar} per love.
+ *
+ * Accepts {@code yyyy-MM-ddTHH:mm:ss}, with optional fractional seconds, and an optional offset of
+ * {@code Z}, {@code +hh:mm}, {@code +hhmm} or {@code +hh}, or the same with {@code -}. A datetime
+ * without an offset is taken to be in UTC, which is what the server sends.
+ */
+@Immutable
+final class Iso8601Parser {
+
+    /**
+     * Returned for a datetime which cannot be parsed.
+     */
+    static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_SECOND = 1000;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    private Iso8601Parser() {
+    }
+
+    /**
+     * Parses a datetime into milliseconds since the epoch.
+     *
+     * @param datetime
+     *      the datetime to parse. may be null
+     * @return
+     *      the milliseconds since the epoch, or {@link #INVALID} if the datetime cannot be parsed
+     */
+    static long parseEpochMillis(@Nullable final CharSequence datetime) {
+        if (datetime == null || datetime.length() < 19
+                || datetime.charAt(4) != '-' || datetime.charAt(7) != '-' || datetime.charAt(10) != 'T'
+                || datetime.charAt(13) != ':' || datetime.charAt(16) != ':') {
+            return INVALID;
+        }
+
+        final int year = digits(datetime, 0, 4);
+        final int month = digits(datetime, 5, 2);
+        final int day = digits(datetime, 8, 2);
+        final int hour = digits(datetime, 11, 2);
+        final int minute = digits(datetime, 14, 2);
+        final int second = digits(datetime, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+
+        final int length = datetime.length();
+        int position = 19;
+
+        int millis = 0;
+        if (position < length && datetime.charAt(position) == '.') {
+            position++;
+            final int fractionStart = position;
+            while (position < length && isDigit(datetime.charAt(position))) {
+                // only the first three digits are significant
+                if (position - fractionStart < 3) {
+                    millis = millis * 10 + (datetime.charAt(position) - '0');
+                }
+                position++;
+            }
+            final int fractionDigits = position - fractionStart;
+            if (fractionDigits == 0) {
+                return INVALID;
+            }
+            for (int i = fractionDigits; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+
+        long offsetMillis = 0;
+        if (position < length) {
+            final char designator = datetime.charAt(position);
+            if (designator == 'Z' || designator == 'z') {
+                position++;
+            } else if (designator == '+' || designator == '-') {
+                final int offsetHours = digits(datetime, position + 1, 2);
+                position += 3;
+                int offsetMinutes = 0;
+                if (position < length) {
+                    if (datetime.charAt(position) == ':') {
+                        position++;
+                    }
+                    offsetMinutes = digits(datetime, position, 2);
+                    position += 2;
+                }
+                if (offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    return INVALID;
+                }
+                offsetMillis = offsetHours * MILLIS_PER_HOUR + offsetMinutes * MILLIS_PER_MINUTE;
+                if (designator == '-') {
+                    offsetMillis = -offsetMillis;
+                }
+            }
+        }
+        if (position != length) {
+            return INVALID;
+        }
+
+        return epochDay(year, month, day) * MILLIS_PER_DAY
+                + hour * MILLIS_PER_HOUR
+                + minute * MILLIS_PER_MINUTE
+                + second * MILLIS_PER_SECOND
+                + millis
+                - offsetMillis;
+    }
+
+    /**
+     * Reads a fixed number of decimal digits, returning -1 if any character is not a digit or is
+     * past the end.
+     */
+    private static int digits(final CharSequence value, final int start, final int count) {
+        if (start + count > value.length()) {
+            return -1;
+        }
+
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            final char c = value.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(final int year, final int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the number of days from 1970-01-01 to the date in the proleptic Gregorian calendar.
+     * See http://howardhinnant.github.io/date_algorithms.html#days_from_civil
+     */
+    private static long epochDay(final int year, final int month, final int day) {
+        final int marchYear = month <= 2 ? year - 1 : year;
+        final int era = (marchYear >= 0 ? marchYear : marchYear - 399) / 400;
+        final int yearOfEra = marchYear - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
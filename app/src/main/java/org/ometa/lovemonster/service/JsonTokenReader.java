@@ -0,0 +1,435 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import cz.msebera.android.httpclient.annotation.NotThreadSafe;
+
+/**
+ * Pull-style json tokenizer which reads directly from a character stream, so responses can be
+ * turned into model objects without first building an {@link org.json.JSONObject} tree. The api
+ * mirrors {@link android.util.JsonReader}, but is implemented here so that it behaves the same on
+ * the device and in jvm unit tests.
+ *
+ * Like {@link org.json.JSONObject}, unquoted object names are accepted. Malformed input results in
+ * a {@link MalformedJsonException}, which allows callers to detect non-json (e.g. html) responses.
+ */
+@NotThreadSafe
+class JsonTokenReader {
+
+    /**
+     * The json tokens which may be returned by {@link JsonTokenReader#peek()}.
+     */
+    enum Token {
+        BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    /**
+     * The stream being tokenized.
+     */
+    @NonNull
+    private final Reader in;
+
+    /**
+     * Read buffer, used to avoid per-character calls to the underlying reader.
+     */
+    private final char[] buffer = new char[1024];
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     * Stack of the enclosing scopes (arrays/objects) for the current token.
+     */
+    private int[] scopes = new int[32];
+    private int scopeCount = 0;
+
+    /**
+     * The token which has been peeked but not yet consumed, or null.
+     */
+    @Nullable
+    private Token peeked;
+
+    /**
+     * The text of the peeked name, string, number or boolean token.
+     */
+    @Nullable
+    private String peekedValue;
+
+    /**
+     * Reused when reading strings, to avoid allocating a builder per value.
+     */
+    private final StringBuilder stringBuilder = new StringBuilder();
+
+    JsonTokenReader(@NonNull final Reader in) {
+        this.in = in;
+        pushScope(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * Returns the type of the next token without consuming it.
+     *
+     * @return
+     *      the next token
+     * @throws IOException
+     *      if the stream cannot be read or contains malformed json
+     */
+    Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        switch (scopes[scopeCount - 1]) {
+            case EMPTY_DOCUMENT:
+                scopes[scopeCount - 1] = NONEMPTY_DOCUMENT;
+                if (nextNonWhitespace() == -1) {
+                    return peeked = Token.END_DOCUMENT;
+                }
+                position--;
+                return peeked = readValueToken();
+
+            case NONEMPTY_DOCUMENT:
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("expected end of document");
+                }
+                return peeked = Token.END_DOCUMENT;
+
+            case EMPTY_ARRAY:
+                scopes[scopeCount - 1] = NONEMPTY_ARRAY;
+                if (nextNonWhitespace() == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                position--;
+                return peeked = readValueToken();
+
+            case NONEMPTY_ARRAY:
+                switch (nextNonWhitespace()) {
+                    case ']':
+                        return peeked = Token.END_ARRAY;
+                    case ',':
+                        return peeked = readValueToken();
+                    default:
+                        throw syntaxError("unterminated array");
+                }
+
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                int c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scopes[scopeCount - 1] == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("unterminated object");
+                    }
+                    c = nextNonWhitespace();
+                }
+                scopes[scopeCount - 1] = DANGLING_NAME;
+                if (c == '"' || c == '\'') {
+                    peekedValue = readQuoted((char) c);
+                } else if (c != -1) {
+                    position--;
+                    peekedValue = readUnquoted();
+                }
+                if (peekedValue == null || peekedValue.length() == 0) {
+                    throw syntaxError("expected name");
+                }
+                return peeked = Token.NAME;
+
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("expected ':'");
+                }
+                scopes[scopeCount - 1] = NONEMPTY_OBJECT;
+                return peeked = readValueToken();
+
+            default:
+                throw new IllegalStateException("unknown scope");
+        }
+    }
+
+    /**
+     * Returns true if the current array or object has another element.
+     */
+    boolean hasNext() throws IOException {
+        final Token token = peek();
+        return token != Token.END_ARRAY && token != Token.END_OBJECT && token != Token.END_DOCUMENT;
+    }
+
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+    }
+
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        scopeCount--;
+    }
+
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+    }
+
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        scopeCount--;
+    }
+
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        return takeValue();
+    }
+
+    /**
+     * Returns the next string value, coercing numbers and booleans to their textual form.
+     */
+    String nextString() throws IOException {
+        final Token token = peek();
+        if (token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN) {
+            throw new IllegalStateException("expected STRING but was " + token);
+        }
+        peeked = null;
+        return takeValue();
+    }
+
+    boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        return Boolean.parseBoolean(takeValue());
+    }
+
+    /**
+     * Returns the next number (or numeric string) value as an int.
+     *
+     * @throws NumberFormatException
+     *      if the value is not an integer
+     */
+    int nextInt() throws IOException {
+        final Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            throw new IllegalStateException("expected NUMBER but was " + token);
+        }
+        peeked = null;
+        final String value = takeValue();
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            final double asDouble = Double.parseDouble(value);
+            if ((int) asDouble != asDouble) {
+                throw new NumberFormatException("expected an int but was " + value);
+            }
+            return (int) asDouble;
+        }
+    }
+
+    void nextNull() throws IOException {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Skips the next value, including all nested values if it is an array or object.
+     */
+    void skipValue() throws IOException {
+        int depth = 0;
+        Token token;
+        do {
+            token = peek();
+            peeked = null;
+            peekedValue = null;
+            if (token == Token.BEGIN_ARRAY || token == Token.BEGIN_OBJECT) {
+                depth++;
+            } else if (token == Token.END_ARRAY || token == Token.END_OBJECT) {
+                scopeCount--;
+                depth--;
+            } else if (token == Token.END_DOCUMENT) {
+                return;
+            }
+            // a name is always followed by its value, which is skipped as well
+        } while (depth > 0 || token == Token.NAME);
+    }
+
+    private void expect(final Token expected) throws IOException {
+        final Token token = peek();
+        if (token != expected) {
+            throw new IllegalStateException("expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private String takeValue() {
+        final String value = peekedValue;
+        peekedValue = null;
+        return value;
+    }
+
+    private void pushScope(final int scope) {
+        if (scopeCount == scopes.length) {
+            final int[] expanded = new int[scopeCount * 2];
+            System.arraycopy(scopes, 0, expanded, 0, scopeCount);
+            scopes = expanded;
+        }
+        scopes[scopeCount++] = scope;
+    }
+
+    /**
+     * Reads the start of a value and returns its token. Arrays and objects push a new scope.
+     */
+    private Token readValueToken() throws IOException {
+        final int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                pushScope(EMPTY_OBJECT);
+                return Token.BEGIN_OBJECT;
+            case '[':
+                pushScope(EMPTY_ARRAY);
+                return Token.BEGIN_ARRAY;
+            case '"':
+            case '\'':
+                peekedValue = readQuoted((char) c);
+                return Token.STRING;
+            case -1:
+                throw syntaxError("unexpected end of input");
+            default:
+                position--;
+        }
+
+        final String literal = readUnquoted();
+        if ("true".equals(literal) || "false".equals(literal)) {
+            peekedValue = literal;
+            return Token.BOOLEAN;
+        }
+        if ("null".equals(literal)) {
+            return Token.NULL;
+        }
+        if (literal.length() > 0 && (literal.charAt(0) == '-' || (literal.charAt(0) >= '0' && literal.charAt(0) <= '9'))) {
+            peekedValue = literal;
+            return Token.NUMBER;
+        }
+        throw syntaxError("unexpected value");
+    }
+
+    /**
+     * Reads a quoted string, with the opening quote already consumed.
+     */
+    private String readQuoted(final char quote) throws IOException {
+        stringBuilder.setLength(0);
+
+        while (true) {
+            int start = position;
+            while (position < limit) {
+                final char c = buffer[position++];
+                if (c == quote) {
+                    stringBuilder.append(buffer, start, position - start - 1);
+                    return stringBuilder.toString();
+                } else if (c == '\\') {
+                    stringBuilder.append(buffer, start, position - start - 1);
+                    stringBuilder.append(readEscapeCharacter());
+                    start = position;
+                }
+            }
+            stringBuilder.append(buffer, start, position - start);
+            if (!fillBuffer()) {
+                throw syntaxError("unterminated string");
+            }
+        }
+    }
+
+    /**
+     * Reads an unquoted literal (names, numbers, booleans and nulls).
+     */
+    private String readUnquoted() throws IOException {
+        stringBuilder.setLength(0);
+
+        while (position < limit || fillBuffer()) {
+            final char c = buffer[position];
+            switch (c) {
+                case '{': case '}': case '[': case ']': case ':': case ',':
+                case ' ': case '\t': case '\f': case '\r': case '\n': case '"': case '\'':
+                    return stringBuilder.toString();
+                default:
+                    stringBuilder.append(c);
+                    position++;
+            }
+        }
+
+        return stringBuilder.toString();
+    }
+
+    private char readEscapeCharacter() throws IOException {
+        if (position == limit && !fillBuffer()) {
+            throw syntaxError("unterminated escape sequence");
+        }
+
+        final char escaped = buffer[position++];
+        switch (escaped) {
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (position == limit && !fillBuffer()) {
+                        throw syntaxError("unterminated escape sequence");
+                    }
+                    final int digit = Character.digit(buffer[position++], 16);
+                    if (digit == -1) {
+                        throw syntaxError("invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            default:
+                return escaped;
+        }
+    }
+
+    /**
+     * Returns the next non-whitespace character, or -1 at the end of the stream.
+     */
+    private int nextNonWhitespace() throws IOException {
+        while (position < limit || fillBuffer()) {
+            final char c = buffer[position++];
+            if (c != ' ' && c != '\n' && c != '\t' && c != '\r') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        position = 0;
+        limit = 0;
+
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+
+        if (read == -1) {
+            return false;
+        }
+
+        limit = read;
+        return true;
+    }
+
+    private MalformedJsonException syntaxError(final String message) {
+        return new MalformedJsonException(message + " near buffer offset " + position);
+    }
+}
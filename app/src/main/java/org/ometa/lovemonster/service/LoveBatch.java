@@ -0,0 +1,242 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.ometa.lovemonster.models.Love;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Sends a list of loves with at most a fixed number of requests in flight at once. As each send
+ * completes, the next love is sent, so a large batch takes roughly
+ * {@code loves / maxConcurrentSends} round trips instead of one round trip per love. The outcome of
+ * each love is reported as it completes, and the whole batch once every send has finished.
+ *
+ * If a send fails authentication, no further loves are sent; the unsent loves are reported as
+ * failed in {@link LoveMonsterClient.BatchHandler#onComplete(List, List)}.
+ *
+ * Cancelling the batch cancels the sends in flight and stops further sends. The batch handler is
+ * not called again afterwards, not even {@code onComplete}.
+ */
+@ThreadSafe
+class LoveBatch implements Cancellable {
+
+    /**
+     * Sends a single love, generally by calling {@link LoveMonsterClient#makeLove}.
+     */
+    interface LoveSender {
+        @NonNull
+        Cancellable send(@NonNull Love love, @NonNull LoveMonsterClient.LoveResponseHandler responseHandler);
+    }
+
+    @NonNull
+    private final List<Love> loves;
+
+    private final int maxConcurrentSends;
+
+    @NonNull
+    private final LoveSender loveSender;
+
+    @NonNull
+    private final LoveMonsterClient.BatchHandler batchHandler;
+
+    private final List<Love> sentLoves = new ArrayList<>();
+    private final List<Love> failedLoves = new ArrayList<>();
+
+    /**
+     * The handles of the sends made so far, including completed ones.
+     */
+    private final List<Cancellable> sends = new ArrayList<>();
+
+    /**
+     * The index of the next love to send.
+     */
+    private int nextIndex = 0;
+
+    /**
+     * The number of sends in flight.
+     */
+    private int inFlightCount = 0;
+
+    /**
+     * Set once a send fails authentication; no further loves are sent afterwards.
+     */
+    private boolean aborted = false;
+
+    private boolean completed = false;
+
+    private boolean cancelled = false;
+
+    /**
+     * Creates a batch. The batch does not start sending until {@link #start()} is called.
+     *
+     * @param loves
+     *      the loves to send
+     * @param maxConcurrentSends
+     *      the maximum number of sends in flight at once
+     * @param loveSender
+     *      used to send each love
+     * @param batchHandler
+     *      the handler for the outcome of each love and of the batch
+     */
+    LoveBatch(@NonNull final List<Love> loves, final int maxConcurrentSends, @NonNull final LoveSender loveSender, @NonNull final LoveMonsterClient.BatchHandler batchHandler) {
+        this.loves = new ArrayList<>(loves);
+        this.maxConcurrentSends = maxConcurrentSends;
+        this.loveSender = loveSender;
+        this.batchHandler = batchHandler;
+    }
+
+    /**
+     * Starts sending the loves.
+     */
+    void start() {
+        sendNext();
+        completeIfDone();
+    }
+
+    @Override
+    public void cancel() {
+        final List<Cancellable> inFlightSends;
+        synchronized (this) {
+            if (completed || cancelled) {
+                return;
+            }
+            cancelled = true;
+            inFlightSends = new ArrayList<>(sends);
+        }
+
+        for (final Cancellable send : inFlightSends) {
+            send.cancel();
+        }
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return completed || cancelled;
+    }
+
+    /**
+     * Sends loves until the concurrency limit is reached or none are left. The sends happen outside
+     * the lock, since a failed send may call back into this batch on the same thread.
+     */
+    private void sendNext() {
+        while (true) {
+            final Love love;
+            synchronized (this) {
+                if (aborted || cancelled || nextIndex >= loves.size() || inFlightCount >= maxConcurrentSends) {
+                    return;
+                }
+                love = loves.get(nextIndex++);
+                inFlightCount++;
+            }
+
+            final Cancellable send = loveSender.send(love, new LoveSendHandler(love));
+            final boolean cancelSend;
+            synchronized (this) {
+                sends.add(send);
+                cancelSend = cancelled;
+            }
+            if (cancelSend) {
+                // the batch was cancelled while this love was being sent
+                send.cancel();
+            }
+        }
+    }
+
+    /**
+     * Invokes {@link LoveMonsterClient.BatchHandler#onComplete(List, List)} once nothing is in
+     * flight and nothing more will be sent.
+     */
+    private void completeIfDone() {
+        final List<Love> sent;
+        final List<Love> failed;
+
+        synchronized (this) {
+            if (completed || cancelled || inFlightCount > 0 || (!aborted && nextIndex < loves.size())) {
+                return;
+            }
+
+            completed = true;
+            if (aborted) {
+                failedLoves.addAll(loves.subList(nextIndex, loves.size()));
+                nextIndex = loves.size();
+            }
+            sent = Collections.unmodifiableList(new ArrayList<>(sentLoves));
+            failed = Collections.unmodifiableList(new ArrayList<>(failedLoves));
+        }
+
+        batchHandler.onComplete(sent, failed);
+    }
+
+    /**
+     * Records the outcome of a single send.
+     */
+    private class LoveSendHandler implements LoveMonsterClient.LoveResponseHandler {
+
+        @NonNull
+        private final Love love;
+
+        LoveSendHandler(@NonNull final Love love) {
+            this.love = love;
+        }
+
+        @Override
+        public void onSuccess(@NonNull final Love sentLove) {
+            synchronized (LoveBatch.this) {
+                if (cancelled) {
+                    return;
+                }
+                inFlightCount--;
+                sentLoves.add(love);
+            }
+
+            batchHandler.onLoveSent(love);
+            sendNext();
+            completeIfDone();
+        }
+
+        @Override
+        public void onFail(final int statusCode, @Nullable final Throwable throwable, @NonNull final List<String> errorMessages) {
+            synchronized (LoveBatch.this) {
+                if (cancelled) {
+                    return;
+                }
+                inFlightCount--;
+                failedLoves.add(love);
+            }
+
+            batchHandler.onLoveFailed(love, statusCode, throwable, errorMessages);
+            sendNext();
+            completeIfDone();
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+            final boolean firstAuthenticationFailure;
+            synchronized (LoveBatch.this) {
+                if (cancelled) {
+                    return;
+                }
+                inFlightCount--;
+                failedLoves.add(love);
+                firstAuthenticationFailure = !aborted;
+                aborted = true;
+            }
+
+            if (firstAuthenticationFailure) {
+                batchHandler.onAuthenticationFailure();
+            }
+            completeIfDone();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import org.ometa.lovemonster.models.Love;
+
+import cz.msebera.android.httpclient.annotation.Immutable;
+
+/**
+ * Position in a love list, just after a love already shown. Loves are listed newest first, so the
+ * loves after the cursor are those created before the love at the cursor, with the love's id
+ * breaking ties between loves created in the same millisecond. Loves without an id cannot be
+ * ordered within the same millisecond, so every one of them except the love at the cursor counts as
+ * after it; any already shown are repeated rather than skipped, and recognised by their
+ * {@link Love#fingerprint()}.
+ *
+ * Unlike a page number, a cursor stays on the same love when loves are added to or removed from the
+ * top of the list while it is being scrolled, so the next loves are neither repeated nor skipped.
+ * The page the love was last seen on is kept as a hint of where to look for it next.
+ *
+ * {@code
+ *      client.retrieveLovesBefore(handler, null);            // the newest loves
+ *      ...
+ *      client.retrieveLovesBefore(handler, nextCursor);      // the loves after the last one shown
+ * }
+ */
+@Immutable
+public final class LoveCursor {
+
+    /**
+     * When the love at the cursor was created, in milliseconds since the epoch.
+     */
+    public final long createdAtMillis;
+
+    /**
+     * The id of the love at the cursor, or 0 if it is not known.
+     */
+    public final long id;
+
+    /**
+     * The {@link Love#fingerprint()} of the love at the cursor.
+     */
+    final long fingerprint;
+
+    /**
+     * The page the love at the cursor was last seen on.
+     */
+    final int page;
+
+    LoveCursor(final long createdAtMillis, final long id, final long fingerprint, final int page) {
+        this.createdAtMillis = createdAtMillis;
+        this.id = id;
+        this.fingerprint = fingerprint;
+        this.page = page;
+    }
+
+    /**
+     * Creates a cursor just after the specified love.
+     *
+     * @param love
+     *      the last love shown
+     * @param page
+     *      the page the love was seen on
+     * @return
+     *      the cursor
+     */
+    @NonNull
+    static LoveCursor after(@NonNull final Love love, final int page) {
+        return new LoveCursor(love.createdAtMillis, love.id, love.fingerprint(), page);
+    }
+
+    /**
+     * Returns a cursor at the same love, last seen on the specified page.
+     *
+     * @param page
+     *      the page the love was last seen on
+     * @return
+     *      the cursor
+     */
+    @NonNull
+    LoveCursor onPage(final int page) {
+        return new LoveCursor(createdAtMillis, id, fingerprint, page);
+    }
+
+    /**
+     * Returns true if the love comes after the cursor, i.e. was created before the love at the
+     * cursor.
+     *
+     * @param love
+     *      the love to check
+     * @return
+     *      true if the love comes after the cursor
+     */
+    public boolean isBefore(@NonNull final Love love) {
+        final long loveCreatedAtMillis = love.createdAtMillis;
+        if (loveCreatedAtMillis != createdAtMillis) {
+            return loveCreatedAtMillis < createdAtMillis;
+        }
+        if (love.id != 0 && id != 0) {
+            return love.id < id;
+        }
+        return love.fingerprint() != fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return "LoveCursor{createdAtMillis=" + createdAtMillis + ", id=" + id + ", fingerprint=" + fingerprint + ", page=" + page + "}";
+    }
+}
@@ -0,0 +1,222 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.ometa.lovemonster.models.Love;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Retrieves the loves after a {@link LoveCursor}, on top of the server's numbered pages. The page
+ * after the one the cursor was last seen on is loaded first, and only the loves after the cursor are
+ * kept from it, so loves added to the top of the list since then are not repeated. If the whole
+ * page comes before the cursor (more than a page of loves were added), the following pages are
+ * loaded until one reaches past the cursor.
+ *
+ * At most a fixed number of pages are loaded per request. If none of them reach past the cursor,
+ * no loves are returned, along with a cursor to carry on from.
+ *
+ * Loves removed above the cursor pull the list up, which a single page cannot detect; the loves
+ * pulled up onto the cursor's page are not shown. The server never removes loves today.
+ *
+ * Cancelling the request cancels the page in flight. The handler is not called afterwards.
+ */
+@ThreadSafe
+class LoveCursorRequest implements Cancellable {
+
+    @Nullable
+    private final LoveCursor cursor;
+
+    private final int maxPages;
+
+    @NonNull
+    private final LovePageLoader pageLoader;
+
+    @NonNull
+    private final LoveMonsterClient.LoveCursorResponseHandler responseHandler;
+
+    /**
+     * The number of pages loaded so far.
+     */
+    @GuardedBy("this")
+    private int pageCount = 0;
+
+    /**
+     * The handle of the page being loaded.
+     */
+    @GuardedBy("this")
+    private Cancellable pageRequest;
+
+    @GuardedBy("this")
+    private boolean completed = false;
+
+    @GuardedBy("this")
+    private boolean cancelled = false;
+
+    /**
+     * Creates a request. The request does not start loading until {@link #start()} is called.
+     *
+     * @param cursor
+     *      the cursor to retrieve the loves after, or null to retrieve the newest loves
+     * @param maxPages
+     *      the maximum number of pages to load
+     * @param pageLoader
+     *      used to load each page
+     * @param responseHandler
+     *      the handler for the loves
+     */
+    LoveCursorRequest(@Nullable final LoveCursor cursor, final int maxPages, @NonNull final LovePageLoader pageLoader, @NonNull final LoveMonsterClient.LoveCursorResponseHandler responseHandler) {
+        this.cursor = cursor;
+        this.maxPages = maxPages;
+        this.pageLoader = pageLoader;
+        this.responseHandler = responseHandler;
+    }
+
+    /**
+     * Starts loading from the page after the one the cursor was last seen on.
+     */
+    void start() {
+        loadPage(cursor == null ? 1 : cursor.page + 1);
+    }
+
+    @Override
+    public void cancel() {
+        final Cancellable inFlightRequest;
+        synchronized (this) {
+            if (completed || cancelled) {
+                return;
+            }
+            cancelled = true;
+            inFlightRequest = pageRequest;
+        }
+
+        if (inFlightRequest != null) {
+            inFlightRequest.cancel();
+        }
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return completed || cancelled;
+    }
+
+    /**
+     * Loads the page. The load happens outside the lock, since a failed load may call back into this
+     * request on the same thread.
+     */
+    private void loadPage(final int page) {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            pageCount++;
+        }
+
+        final Cancellable request = pageLoader.loadPage(page, new PageHandler(page));
+        final boolean cancelRequest;
+        synchronized (this) {
+            if (!completed) {
+                pageRequest = request;
+            }
+            cancelRequest = cancelled;
+        }
+        if (cancelRequest) {
+            // the request was cancelled while the page was being loaded
+            request.cancel();
+        }
+    }
+
+    /**
+     * Handles a loaded page, returning the page to load next, or 0 once the loves are known.
+     */
+    private synchronized int onPageLoaded(final int page, @NonNull final List<Love> loves, final int totalPages, @NonNull final List<Love> result, @NonNull final LoveCursor[] nextCursor) {
+        final boolean lastPage = loves.isEmpty() || (totalPages > 0 && page >= totalPages);
+
+        for (final Love love : loves) {
+            if (cursor == null || cursor.isBefore(love)) {
+                result.add(love);
+            }
+        }
+
+        if (result.isEmpty()) {
+            if (!lastPage && pageCount < maxPages) {
+                // loves were added above the cursor, pushing it down to a later page
+                return page + 1;
+            }
+            nextCursor[0] = lastPage || cursor == null ? null : cursor.onPage(page);
+            return 0;
+        }
+
+        nextCursor[0] = lastPage ? null : LoveCursor.after(result.get(result.size() - 1), page);
+        return 0;
+    }
+
+    /**
+     * Collects the loves from a single page, and decides which page to load next.
+     */
+    private class PageHandler implements LoveMonsterClient.LoveListResponseHandler {
+
+        private final int page;
+
+        PageHandler(final int page) {
+            this.page = page;
+        }
+
+        @Override
+        public void onSuccess(@NonNull final List<Love> loves, final int totalPages) {
+            final List<Love> result = new ArrayList<>();
+            final LoveCursor[] nextCursor = new LoveCursor[1];
+            final int nextPage;
+            synchronized (LoveCursorRequest.this) {
+                if (cancelled || completed) {
+                    return;
+                }
+                nextPage = onPageLoaded(page, loves, totalPages, result, nextCursor);
+                if (nextPage == 0) {
+                    completed = true;
+                }
+            }
+
+            if (nextPage != 0) {
+                loadPage(nextPage);
+            } else {
+                responseHandler.onSuccess(Collections.unmodifiableList(result), nextCursor[0]);
+            }
+        }
+
+        @Override
+        public void onFail() {
+            synchronized (LoveCursorRequest.this) {
+                if (cancelled || completed) {
+                    return;
+                }
+                completed = true;
+            }
+
+            responseHandler.onFail();
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+            synchronized (LoveCursorRequest.this) {
+                if (cancelled || completed) {
+                    return;
+                }
+                completed = true;
+            }
+
+            responseHandler.onAuthenticationFailure();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import org.ometa.lovemonster.models.Love;
+
+import java.util.List;
+
+/**
+ * A single page of {@link Love}s returned from the {@code /api/v1/loves} endpoint, along with the
+ * paging information from the response's {@code meta} section.
+ */
+class LoveListPage {
+
+    /**
+     * The loves on this page. May be empty, but cannot be null.
+     */
+    @NonNull
+    final List<Love> loves;
+
+    /**
+     * The total number of pages available, or 0 if the response did not specify.
+     */
+    final int totalPages;
+
+    LoveListPage(@NonNull final List<Love> loves, final int totalPages) {
+        this.loves = loves;
+        this.totalPages = totalPages;
+    }
+}
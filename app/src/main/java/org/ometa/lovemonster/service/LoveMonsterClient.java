@@ -5,29 +5,66 @@ import android.support.annotation.Nullable;
 import android.util.MalformedJsonException;
 
 import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.AsyncHttpResponseHandler;
 import com.loopj.android.http.JsonHttpResponseHandler;
-import com.loopj.android.http.RequestParams;
+import com.loopj.android.http.ResponseHandlerInterface;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.ometa.lovemonster.Logger;
+import org.ometa.lovemonster.MetricsRegistry;
 import org.ometa.lovemonster.models.Love;
 import org.ometa.lovemonster.models.User;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import cz.msebera.android.httpclient.Header;
-import cz.msebera.android.httpclient.annotation.NotThreadSafe;
+import cz.msebera.android.httpclient.HttpEntity;
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.HttpStatus;
+import cz.msebera.android.httpclient.StatusLine;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+import cz.msebera.android.httpclient.client.HttpResponseException;
 import cz.msebera.android.httpclient.client.utils.URIBuilder;
 import cz.msebera.android.httpclient.message.BasicHeader;
+import cz.msebera.android.httpclient.util.EntityUtils;
 
 /**
  * Client which makes requests to the Love Monster web service. For normal usage, this class is
  * intended to be used by using the singleton method {@link LoveMonsterClient#getInstance()} to
- * return a singleton instance. **N.B.** This singleton is not threadsafe due to dependencies on
- * {@link AsyncHttpClient}.
+ * return a singleton instance. Http calls are made by a {@link Transport}, chosen when the client is
+ * created. The client is threadsafe: requests may be made from any thread and
+ * run in parallel on the {@link RequestDispatcher}'s executors. Each request takes an immutable
+ * snapshot of the session headers when it is made. Callbacks are made on the looper of the thread
+ * which made the request, or on a network or parse thread if that thread has no looper.
+ *
+ * Requests which fail transiently are retried with exponential backoff, according to a
+ * {@link RetryPolicy} per endpoint. Loves are only resent if they carry an idempotency key, so a
+ * retry can never create a duplicate love. A {@link CircuitBreaker} stops requests while the
+ * server keeps failing, failing them straight away instead.
+ *
+ * Every call returns a {@link Cancellable} handle. Screens generally add the handles to a
+ * {@link RequestGroup} and cancel it when they go away, so responses are neither parsed nor
+ * delivered to a screen which no longer exists.
+ *
+ * Each request's queue time, time to first byte, download time, parse time and payload size are
+ * recorded per endpoint in a {@link MetricsRegistry}, under the names built by
+ * {@link #metricName(String, String)}.
  *
  * {@code
  *      final LoveMonsterClient client = LoveMonsterClient.getInstance();
@@ -35,12 +72,164 @@ import cz.msebera.android.httpclient.message.BasicHeader;
  * }
  *
  */
-@NotThreadSafe
+@ThreadSafe
 public class LoveMonsterClient {
 
     private static final String API_URL = "love-staging.groupondev.com";
     private static final String USER_AVATAR_TEMPLATE = "https://skynet.groupon.com/people/%s/avatar/40.png";
 
+    /**
+     * The number of love list responses kept for conditional requests.
+     */
+    private static final int MAX_CACHED_LOVE_LIST_PAGES = 16;
+
+    /**
+     * The maximum number of love sends in flight at once for {@link #makeLoves(List, BatchHandler)}.
+     * Kept below the http client's default connection limit.
+     */
+    private static final int MAX_CONCURRENT_LOVE_SENDS = 6;
+
+    /**
+     * The maximum number of pages read by {@link #retrieveNewLoves(NewLovesResponseHandler, Love)}
+     * before giving up on finding a love already held.
+     */
+    private static final int MAX_NEW_LOVE_PAGES = 5;
+
+    /**
+     * The maximum number of pages read by {@link #retrieveLovesBefore(LoveCursorResponseHandler, LoveCursor)}
+     * while looking for the loves after the cursor.
+     */
+    private static final int MAX_CURSOR_PAGES = 5;
+
+    /**
+     * The number of usernames kept by the user lookup cache.
+     */
+    private static final int MAX_CACHED_USER_LOOKUPS = 256;
+
+    /**
+     * How long a user found by username is cached for. Users rarely change their names.
+     */
+    private static final long USER_FOUND_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * How long a username which was not found is cached for, kept short since the user may be
+     * created at any time.
+     */
+    private static final long USER_NOT_FOUND_TTL_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * Love lists are cheap to fetch again and the user is waiting on them.
+     */
+    private static final RetryPolicy LOVE_LIST_RETRY_POLICY = new RetryPolicy(3, 250, 2000);
+
+    /**
+     * Only used for loves with an idempotency key, which the server de-duplicates.
+     */
+    private static final RetryPolicy MAKE_LOVE_RETRY_POLICY = new RetryPolicy(3, 500, 4000);
+
+    private static final RetryPolicy USER_LOOKUP_RETRY_POLICY = new RetryPolicy(2, 250, 1000);
+
+    private static final RetryPolicy ACCOUNT_RETRY_POLICY = new RetryPolicy(3, 500, 4000);
+
+    /**
+     * The number of consecutive transient failures which open the circuit breaker.
+     */
+    private static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+
+    /**
+     * How long the circuit breaker stays open before letting a trial request through.
+     */
+    private static final long CIRCUIT_BREAKER_OPEN_MILLIS = 30000;
+
+    private static final Logger logger = new Logger(LoveMonsterClient.class);
+
+    /**
+     * Handle returned for calls answered without a request.
+     */
+    private static final Cancellable COMPLETED_REQUEST = new Cancellable() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+    };
+
+    public static final String LOVE_LIST_ENDPOINT = "GET /api/v1/loves";
+    public static final String MAKE_LOVE_ENDPOINT = "POST /api/v1/loves";
+    public static final String USER_LOOKUP_ENDPOINT = "GET /api/v1/users/{name}";
+    public static final String ACCOUNT_ENDPOINT = "GET /api/v1/account";
+
+    /**
+     * Latency histogram of the time from handing a request to the transport until a network thread
+     * starts making it. Only recorded by transports which report when requests start.
+     */
+    public static final String QUEUE_TIME_METRIC = "queue_ms";
+
+    /**
+     * Latency histogram of the time from starting a request until the response headers arrive.
+     * Includes the queue time if the transport does not report when requests start.
+     */
+    public static final String TIME_TO_FIRST_BYTE_METRIC = "ttfb_ms";
+
+    /**
+     * Latency histogram of the time spent reading successful response bodies.
+     */
+    public static final String DOWNLOAD_TIME_METRIC = "download_ms";
+
+    /**
+     * Latency histogram of the time spent parsing response bodies.
+     */
+    public static final String PARSE_TIME_METRIC = "parse_ms";
+
+    /**
+     * Latency histogram of the time the callback (main) thread spends on each successful love list
+     * response, from receiving it until the caller's handler has returned.
+     */
+    public static final String MAIN_THREAD_TIME_METRIC = "main_thread_ms";
+
+    /**
+     * Size histogram of the successful response bodies, in bytes.
+     */
+    public static final String PAYLOAD_SIZE_METRIC = "size_bytes";
+
+    /**
+     * Counter of the failed requests which were scheduled to be sent again.
+     */
+    public static final String RETRY_METRIC = "retries";
+
+    /**
+     * Counter of the requests which failed straight away because the circuit breaker was open.
+     */
+    public static final String CIRCUIT_BREAKER_REJECTED_METRIC = "circuit_breaker_rejected";
+
+    /**
+     * Counter of the requests answered from a cache without a request.
+     */
+    public static final String CACHE_HIT_METRIC = "cache_hits";
+
+    /**
+     * Returns the name under which a metric is recorded for an endpoint.
+     *
+     * @param endpoint
+     *      the endpoint, e.g. {@link #LOVE_LIST_ENDPOINT}
+     * @param metric
+     *      the metric, e.g. {@link #TIME_TO_FIRST_BYTE_METRIC}
+     * @return
+     *      the metric name
+     */
+    @NonNull
+    public static String metricName(@NonNull final String endpoint, @NonNull final String metric) {
+        return endpoint + " " + metric;
+    }
+
     /**
      * Handler for response callbacks from the {@link LoveMonsterClient} for calls which retrieve loves.
      */
@@ -66,6 +255,64 @@ public class LoveMonsterClient {
         void onAuthenticationFailure();
     }
 
+    /**
+     * Handler for response callbacks from the {@link LoveMonsterClient} for calls which retrieve loves
+     * after a {@link LoveCursor}.
+     */
+    public interface LoveCursorResponseHandler {
+
+        /**
+         * Invoked when the request successfully completes.  The passed loves may be empty, but cannot
+         * be null.  Loves may be empty while there are more loves to retrieve, if too many loves were
+         * added above the cursor to reach past it in one request.
+         *
+         * @param loves
+         *      the loves after the cursor, newest first
+         * @param nextCursor
+         *      the cursor to retrieve the following loves with, or null if there are no more loves
+         */
+        void onSuccess(@NonNull List<Love> loves, @Nullable LoveCursor nextCursor);
+
+        /**
+         * Handler when a request fails.
+         */
+        void onFail();
+
+        /**
+         * Handler for when authentication has failed or the session has expired.
+         */
+        void onAuthenticationFailure();
+    }
+
+    /**
+     * Handler for response callbacks from the {@link LoveMonsterClient} for calls which retrieve the
+     * loves newer than those already held.
+     */
+    public interface NewLovesResponseHandler {
+
+        /**
+         * Invoked when the request successfully completes.  The passed loves may be empty, but cannot
+         * be null.
+         *
+         * @param newLoves
+         *      the new loves, newest first
+         * @param complete
+         *      true if every new love was retrieved. false if there were too many new loves to find
+         *      the loves already held, in which case the list should be reloaded instead
+         */
+        void onSuccess(@NonNull List<Love> newLoves, boolean complete);
+
+        /**
+         * Handler when a request fails.
+         */
+        void onFail();
+
+        /**
+         * Handler for when authentication has failed or the session has expired.
+         */
+        void onAuthenticationFailure();
+    }
+
     /**
      * Handler for response callbacks from the {@link LoveMonsterClient} for calls which return a single love.
      */
@@ -82,10 +329,14 @@ public class LoveMonsterClient {
         /**
          * Handler when a request fails.
          *
+         * @param statusCode
+         *      the status code of the response, or 0 if no response was received
+         * @param throwable
+         *      the error the request failed with. may be null
          * @param errorMessages
          *      the error messages from the server and/or exception messages
          */
-        void onFail(@NonNull List<String> errorMessages);
+        void onFail(int statusCode, @Nullable Throwable throwable, @NonNull List<String> errorMessages);
 
         /**
          * Handler for when authentication has failed or the session has expired.
@@ -93,6 +344,52 @@ public class LoveMonsterClient {
         void onAuthenticationFailure();
     }
 
+    /**
+     * Handler for response callbacks from the {@link LoveMonsterClient} for calls which send several
+     * loves at once.
+     */
+    public interface BatchHandler {
+
+        /**
+         * Invoked when a single love has been sent.
+         *
+         * @param love
+         *      the sent love
+         */
+        void onLoveSent(@NonNull Love love);
+
+        /**
+         * Invoked when a single love could not be sent.
+         *
+         * @param love
+         *      the love which failed
+         * @param statusCode
+         *      the status code of the response, or 0 if no response was received
+         * @param throwable
+         *      the error the send failed with. may be null
+         * @param errorMessages
+         *      the error messages from the server and/or exception messages
+         */
+        void onLoveFailed(@NonNull Love love, int statusCode, @Nullable Throwable throwable, @NonNull List<String> errorMessages);
+
+        /**
+         * Invoked once, after every love in the batch has either been sent or failed. Loves which
+         * failed authentication, or were never sent because of it, are included in the failed loves.
+         *
+         * @param sentLoves
+         *      the loves which were sent
+         * @param failedLoves
+         *      the loves which were not sent
+         */
+        void onComplete(@NonNull List<Love> sentLoves, @NonNull List<Love> failedLoves);
+
+        /**
+         * Handler for when authentication has failed or the session has expired. Invoked at most
+         * once per batch; no further loves are sent afterwards.
+         */
+        void onAuthenticationFailure();
+    }
+
     public interface UserLookupResponseHandler {
         void onUserExists(@NonNull User user);
         void onUserNotFound();
@@ -122,15 +419,28 @@ public class LoveMonsterClient {
     }
 
     /**
-     * The singleton instance for this client. Because of {@link AsyncHttpClient}, this instance
-     * is *NOT* threadsafe.
+     * Listener told when the session expires while a {@code SessionExpiredListener} is set. Requests
+     * answered with the login page, and those made afterwards, are then held instead of failing with
+     * {@code onAuthenticationFailure}, and are sent again once
+     * {@link #authenticate(String, AuthenticationHandler)} succeeds with new cookies.
+     */
+    public interface SessionExpiredListener {
+
+        /**
+         * Invoked once when the session expires, on the callback thread. Typically, this should be
+         * used to fire the login intent.
+         */
+        void onSessionExpired();
+    }
+
+    /**
+     * The singleton instance for this client.
      */
     private static final LoveMonsterClient singletonInstance = new LoveMonsterClient();
 
 
     /**
-     * Returns the singleton {@code LoveMonsterClient} instance.  Because of {@link AsyncHttpClient}, this
-     * instance is *NOT* threadsafe.
+     * Returns the singleton {@code LoveMonsterClient} instance.
      *
      * @return
      *      the singleton {@code LoveMonsterClient}
@@ -161,15 +471,73 @@ public class LoveMonsterClient {
      * authenticated yet.
      */
     @Nullable
-    private User authenticatedUser;
+    private volatile User authenticatedUser;
+
+    /**
+     * The auth cookies of the current session, or null if there is none.
+     */
+    @Nullable
+    private volatile String sessionCookies;
+
+    /**
+     * True if the current session was restored from the {@link #sessionStore}, and has not yet been
+     * checked with the server.
+     */
+    private volatile boolean sessionRestored = false;
+
+    /**
+     * The newest loves saved with the restored session. Empty if there are none.
+     */
+    @NonNull
+    private volatile List<Love> savedLoves = Collections.emptyList();
+
+    /**
+     * Where the session is saved on authentication, and restored from on the next launch. May be
+     * null, in which case sessions are not saved.
+     */
+    @Nullable
+    private volatile SessionStore sessionStore;
+
+    /**
+     * The in-flight love list requests, keyed by url. Identical requests made while one is in
+     * flight share its response instead of making their own.
+     */
+    @NonNull
+    private final RequestCoalescer<LoveListResponseHandler> inFlightLoveListRequests = new RequestCoalescer<>();
+
+    /**
+     * The user lookups by username, including the users parsed from every response.
+     */
+    @NonNull
+    private final UserLookupCache userLookupCache = new UserLookupCache(MAX_CACHED_USER_LOOKUPS, USER_FOUND_TTL_MILLIS, USER_NOT_FOUND_TTL_MILLIS, CircuitBreaker.SYSTEM_CLOCK);
+
+    /**
+     * Every user parsed from any response, by the prefixes of their username and name.
+     */
+    @NonNull
+    private final UserPrefixIndex userPrefixIndex = new UserPrefixIndex();
+
+    /**
+     * Whether love lists are parsed directly from the response stream. If false, responses are
+     * first parsed into a {@link JSONObject} and then into model objects.
+     */
+    private final boolean streamingParseEnabled;
+
+    /**
+     * The dispatcher whose executors run requests and parse responses. If null, requests run on the
+     * http client's own thread pool and love lists are parsed on the network thread.
+     */
+    @Nullable
+    private final RequestDispatcher dispatcher;
 
     /**
      * Private constructor used to implement the singleton. Purposely not made protected to avoid
      * breaking the singleton.
-     * Defaults to use newly instantiated {@link ResponseParser} and {@link AsyncHttpClient} objects.
+     * Defaults to use newly instantiated {@link ResponseParser} and {@link AsyncHttpClient} objects,
+     * with streaming parsing enabled and the default {@link RequestDispatcher}.
      */
     private LoveMonsterClient() {
-            this(new ResponseParser(USER_AVATAR_TEMPLATE), new AsyncHttpClient(), API_URL);
+            this(new ResponseParser(USER_AVATAR_TEMPLATE), new AsyncHttpClientTransport.StartReportingAsyncHttpClient(), API_URL, true, RequestDispatcher.create());
     }
 
     /**
@@ -186,19 +554,135 @@ public class LoveMonsterClient {
      *      if {@code responseParser}, {@code asyncHttpClient}, or @{code host} are {@code null}
      */
     protected LoveMonsterClient(@NonNull final ResponseParser responseParser, @NonNull final AsyncHttpClient asyncHttpClient, @NonNull final String host) throws IllegalArgumentException {
+        this(responseParser, asyncHttpClient, host, false);
+    }
+
+    /**
+     * Protected constructor used to create an instance. Is protected scope to allow overriding and
+     * easier unit testing.
+     *
+     * @param responseParser
+     *      the response parser to use to parse requests
+     * @param asyncHttpClient
+     *      the http client used to make requests
+     * @param host
+     *      the host to make requests to.
+     * @param streamingParseEnabled
+     *      true to parse love lists directly from the response stream, or false to parse them
+     *      from a {@link JSONObject}
+     * @throws IllegalArgumentException
+     *      if {@code responseParser}, {@code asyncHttpClient}, or @{code host} are {@code null}
+     */
+    protected LoveMonsterClient(@NonNull final ResponseParser responseParser, @NonNull final AsyncHttpClient asyncHttpClient, @NonNull final String host, final boolean streamingParseEnabled) throws IllegalArgumentException {
+        this(responseParser, asyncHttpClient, host, streamingParseEnabled, null);
+    }
+
+    /**
+     * Protected constructor used to create an instance. Is protected scope to allow overriding and
+     * easier unit testing.
+     *
+     * @param responseParser
+     *      the response parser to use to parse requests
+     * @param asyncHttpClient
+     *      the http client used to make requests
+     * @param host
+     *      the host to make requests to.
+     * @param streamingParseEnabled
+     *      true to parse love lists directly from the response stream, or false to parse them
+     *      from a {@link JSONObject}
+     * @param dispatcher
+     *      the dispatcher whose executors run requests and parse responses. if null, the http
+     *      client's own thread pool is used, love lists are parsed on the network thread and
+     *      retries are scheduled on a new single thread scheduler
+     * @throws IllegalArgumentException
+     *      if {@code responseParser}, {@code asyncHttpClient}, or @{code host} are {@code null}
+     */
+    protected LoveMonsterClient(@NonNull final ResponseParser responseParser, @NonNull final AsyncHttpClient asyncHttpClient, @NonNull final String host, final boolean streamingParseEnabled, @Nullable final RequestDispatcher dispatcher) throws IllegalArgumentException {
+        this(responseParser, new AsyncHttpClientTransport(asyncHttpClient, dispatcher == null ? null : dispatcher.getNetworkExecutor()), host, streamingParseEnabled, dispatcher);
+    }
+
+    /**
+     * Protected constructor used to create an instance with a specific {@link Transport}. Is
+     * protected scope to allow overriding and easier unit testing.
+     *
+     * {@code
+     *      final RequestDispatcher dispatcher = RequestDispatcher.create();
+     *      new LoveMonsterClient(parser, new HttpUrlConnectionTransport(dispatcher.getNetworkExecutor()), host, true, dispatcher);
+     * }
+     *
+     * @param responseParser
+     *      the response parser to use to parse requests
+     * @param transport
+     *      the transport used to make http calls
+     * @param host
+     *      the host to make requests to.
+     * @param streamingParseEnabled
+     *      true to parse love lists directly from the response stream, or false to parse them
+     *      from a {@link JSONObject}
+     * @param dispatcher
+     *      the dispatcher whose executors parse responses and schedule retries. if null, love
+     *      lists are parsed on the network thread and retries are scheduled on a new single thread
+     *      scheduler. the transport's network threads are configured separately
+     * @throws IllegalArgumentException
+     *      if {@code responseParser}, {@code transport}, or @{code host} are {@code null}
+     */
+    protected LoveMonsterClient(@NonNull final ResponseParser responseParser, @NonNull final Transport transport, @NonNull final String host, final boolean streamingParseEnabled, @Nullable final RequestDispatcher dispatcher) throws IllegalArgumentException {
+        this(responseParser, transport, host, streamingParseEnabled, dispatcher, MetricsRegistry.getInstance());
+    }
+
+    /**
+     * Protected constructor used to create an instance with a specific {@link Transport} and
+     * {@link MetricsRegistry}. Is protected scope to allow overriding and easier unit testing.
+     *
+     * @param responseParser
+     *      the response parser to use to parse requests
+     * @param transport
+     *      the transport used to make http calls
+     * @param host
+     *      the host to make requests to.
+     * @param streamingParseEnabled
+     *      true to parse love lists directly from the response stream, or false to parse them
+     *      from a {@link JSONObject}
+     * @param dispatcher
+     *      the dispatcher whose executors parse responses and schedule retries. if null, love
+     *      lists are parsed on the network thread and retries are scheduled on a new single thread
+     *      scheduler. the transport's network threads are configured separately
+     * @param metrics
+     *      the registry the request metrics are recorded in
+     * @throws IllegalArgumentException
+     *      if {@code responseParser}, {@code transport}, @{code host} or {@code metrics} are
+     *      {@code null}
+     */
+    protected LoveMonsterClient(@NonNull final ResponseParser responseParser, @NonNull final Transport transport, @NonNull final String host, final boolean streamingParseEnabled, @Nullable final RequestDispatcher dispatcher, @NonNull final MetricsRegistry metrics) throws IllegalArgumentException {
         if (responseParser == null) {
             throw new IllegalArgumentException("argument `responseParser` cannot be null");
         }
-        if (asyncHttpClient == null) {
-            throw new IllegalArgumentException("argument `asyncHttpClient` cannot be null");
+        if (transport == null) {
+            throw new IllegalArgumentException("argument `transport` cannot be null");
         }
         if (host == null) {
             throw new IllegalArgumentException("argument `host` cannot be null");
         }
+        if (metrics == null) {
+            throw new IllegalArgumentException("argument `metrics` cannot be null");
+        }
 
         this.responseParser = responseParser;
-        this.httpRemoter = new HttpRemoter(asyncHttpClient);
+        this.responseParser.setUserLookupCache(userLookupCache);
+        this.responseParser.setUserPrefixIndex(userPrefixIndex);
+        if (dispatcher != null) {
+            // large love lists are parsed by the parse threads together, in no more chunks than there are threads
+            this.responseParser.setParallelParse(dispatcher.getParseExecutor(), dispatcher.getParseParallelism());
+        }
+        this.httpRemoter = new HttpRemoter(
+                transport,
+                dispatcher == null ? RequestDispatcher.newRetryScheduler() : dispatcher.getRetryScheduler(),
+                new CircuitBreaker(CIRCUIT_BREAKER_FAILURE_THRESHOLD, CIRCUIT_BREAKER_OPEN_MILLIS, CircuitBreaker.SYSTEM_CLOCK),
+                metrics
+        );
         this.host = host;
+        this.streamingParseEnabled = streamingParseEnabled;
+        this.dispatcher = dispatcher;
     }
 
     /**
@@ -209,9 +693,12 @@ public class LoveMonsterClient {
      *      the response handler to use on response completion
      * @param page
      *      the page of results to send
+     * @return
+     *      a handle which cancels the request
      */
-    public void retrieveRecentLoves(@NonNull final LoveListResponseHandler loveListResponseHandler, final int page) {
-        retrieveRecentLoves(loveListResponseHandler, page, null);
+    @NonNull
+    public Cancellable retrieveRecentLoves(@NonNull final LoveListResponseHandler loveListResponseHandler, final int page) {
+        return retrieveRecentLoves(loveListResponseHandler, page, null);
     }
 
     /**
@@ -225,9 +712,12 @@ public class LoveMonsterClient {
      *      the page of results to send
      * @param user
      *      the authenticatedUser to use for filtering results.  if null, no filtering will occur
+     * @return
+     *      a handle which cancels the request
      */
-    public void retrieveRecentLoves(@NonNull final LoveListResponseHandler loveListResponseHandler, final int page, @Nullable final User user) {
-        retrieveRecentLoves(loveListResponseHandler, page, user, null);
+    @NonNull
+    public Cancellable retrieveRecentLoves(@NonNull final LoveListResponseHandler loveListResponseHandler, final int page, @Nullable final User user) {
+        return retrieveRecentLoves(loveListResponseHandler, page, user, null);
     }
 
     /**
@@ -252,10 +742,14 @@ public class LoveMonsterClient {
      *      loves *received* by the authenticatedUser (i.e. where the authenticatedUser is the lovee) will be returned.
      *      this value is only valid to be passed if {@code authenticatedUser} is also passed, but you may omit
      *      this value even if authenticatedUser is passed.
+     * @return
+     *      a handle which cancels the request. if identical requests are in flight, the http call
+     *      is only cancelled once all of them have been cancelled
      * @throws IllegalArgumentException
      *      if {@code userLoveAssociation} is passed, but {@code authenticatedUser} is not passed
      */
-    public void retrieveRecentLoves(@NonNull final LoveListResponseHandler loveListResponseHandler, final int page, @Nullable final User user, @Nullable final User.UserLoveAssociation userLoveAssociation) throws IllegalArgumentException {
+    @NonNull
+    public Cancellable retrieveRecentLoves(@NonNull final LoveListResponseHandler loveListResponseHandler, final int page, @Nullable final User user, @Nullable final User.UserLoveAssociation userLoveAssociation) throws IllegalArgumentException {
         if (userLoveAssociation != null && user == null) {
             throw new IllegalArgumentException("cannot specify a `userLoveAssociation` without a `authenticatedUser`");
         }
@@ -271,48 +765,246 @@ public class LoveMonsterClient {
             }
         }
 
-        httpRemoter.get(
-                url,
-                new JSONObjectHttpResponseHandler() {
-                    @Override
-                    void onSuccess(@Nullable final JSONObject response) {
-                        int totalPages = 0;
+        final String requestKey = url.toString();
+        final CancellableLoveListResponseHandler waiter = new CancellableLoveListResponseHandler(loveListResponseHandler, inFlightLoveListRequests, requestKey);
+        if (!inFlightLoveListRequests.join(requestKey, waiter)) {
+            logger.debug("method=retrieveRecentLoves url=" + requestKey + " coalesced=true");
+            return waiter;
+        }
+        final LoveListResponseHandler responseHandler = new CoalescedLoveListResponseHandler(inFlightLoveListRequests, requestKey);
+
+        final Cancellable request;
+        if (streamingParseEnabled) {
+            request = httpRemoter.getLoveListPage(
+                    LOVE_LIST_ENDPOINT,
+                    url,
+                    new LoveListStreamHttpResponseHandler(responseParser, dispatcher == null ? null : dispatcher.getParseExecutor()) {
+                        @Override
+                        void onSuccess(@NonNull final LoveListPage page) {
+                            responseHandler.onSuccess(page.loves, page.totalPages);
+                        }
 
-                        if (response != null) {
-                            final JSONObject metaJsonObject = response.optJSONObject("meta");
-                            if (metaJsonObject != null) {
-                                totalPages = metaJsonObject.optInt("total_pages", 0);
+                        @Override
+                        void onFailure(@NonNull final List<String> errorMessages) {
+                            responseHandler.onFail();
+                        }
+
+                        @Override
+                        void onAuthenticationFailure() {
+                            responseHandler.onAuthenticationFailure();
+                        }
+                    },
+                    LOVE_LIST_RETRY_POLICY
+            );
+        } else {
+            request = httpRemoter.get(
+                    LOVE_LIST_ENDPOINT,
+                    url,
+                    new ParsingJSONObjectHttpResponseHandler<LoveListPage>(dispatcher == null ? null : dispatcher.getParseExecutor()) {
+                        @NonNull
+                        @Override
+                        LoveListPage parse(@Nullable final JSONObject response) {
+                            int totalPages = 0;
+
+                            if (response != null) {
+                                final JSONObject metaJsonObject = response.optJSONObject("meta");
+                                if (metaJsonObject != null) {
+                                    totalPages = metaJsonObject.optInt("total_pages", 0);
+                                }
                             }
+
+                            return new LoveListPage(responseParser.parseLoveList(response), totalPages);
                         }
 
-                        loveListResponseHandler.onSuccess(responseParser.parseLoveList(response), totalPages);
-                    }
+                        @Override
+                        void onParsed(@NonNull final LoveListPage page) {
+                            responseHandler.onSuccess(page.loves, page.totalPages);
+                        }
+
+                        @Override
+                        void onFailure(@NonNull final List<String> errorMessages) {
+                            responseHandler.onFail();
+                        }
+
+                        @Override
+                        public void onAuthenticationFailure() {
+                            responseHandler.onAuthenticationFailure();
+                        }
+                    },
+                    LOVE_LIST_RETRY_POLICY
+            );
+        }
+
+        inFlightLoveListRequests.attach(requestKey, request);
+        return waiter;
+    }
+
+    /**
+     * Retrieves the loves after the cursor. See
+     * {@link #retrieveLovesBefore(LoveCursorResponseHandler, LoveCursor, User, User.UserLoveAssociation)}.
+     *
+     * @param responseHandler
+     *      the handler for the response
+     * @param cursor
+     *      the cursor returned with the last loves shown, or null to retrieve the newest loves
+     * @return
+     *      a handle which cancels the request, and stops the handler from being called
+     * @throws IllegalArgumentException
+     *      if {@code responseHandler} is null
+     */
+    @NonNull
+    public Cancellable retrieveLovesBefore(@NonNull final LoveCursorResponseHandler responseHandler, @Nullable final LoveCursor cursor) throws IllegalArgumentException {
+        return retrieveLovesBefore(responseHandler, cursor, null, null);
+    }
+
+    /**
+     * Retrieves the loves after the cursor, i.e. created before the last love shown. Unlike
+     * {@link #retrieveRecentLoves(LoveListResponseHandler, int, User, User.UserLoveAssociation)},
+     * loves added or removed above the cursor while the list is being scrolled do not cause loves to
+     * be repeated or skipped.
+     *
+     * @param responseHandler
+     *      the handler for the response
+     * @param cursor
+     *      the cursor returned with the last loves shown, or null to retrieve the newest loves
+     * @param user
+     *      the user whose loves are listed, as in {@link #retrieveRecentLoves(LoveListResponseHandler, int, User, User.UserLoveAssociation)}
+     * @param userLoveAssociation
+     *      the association of the user to the loves
+     * @return
+     *      a handle which cancels the request, and stops the handler from being called
+     * @throws IllegalArgumentException
+     *      if {@code responseHandler} is null
+     */
+    @NonNull
+    public Cancellable retrieveLovesBefore(@NonNull final LoveCursorResponseHandler responseHandler, @Nullable final LoveCursor cursor, @Nullable final User user, @Nullable final User.UserLoveAssociation userLoveAssociation) throws IllegalArgumentException {
+        if (responseHandler == null) {
+            throw new IllegalArgumentException("argument `responseHandler` cannot be null");
+        }
+
+        logger.debug("method=retrieveLovesBefore cursor=" + cursor);
+
+        final SessionStore store = sessionStore;
+        final LoveCursorResponseHandler savingResponseHandler;
+        if (store != null && cursor == null && user == null) {
+            // the newest loves for everyone are saved with the session, to be shown on the next launch
+            savingResponseHandler = new LoveCursorResponseHandler() {
+                @Override
+                public void onSuccess(@NonNull final List<Love> loves, @Nullable final LoveCursor nextCursor) {
+                    store.saveLoves(loves);
+                    responseHandler.onSuccess(loves, nextCursor);
+                }
+
+                @Override
+                public void onFail() {
+                    responseHandler.onFail();
+                }
+
+                @Override
+                public void onAuthenticationFailure() {
+                    responseHandler.onAuthenticationFailure();
+                }
+            };
+        } else {
+            savingResponseHandler = responseHandler;
+        }
 
+        final LoveCursorRequest request = new LoveCursorRequest(
+                cursor,
+                MAX_CURSOR_PAGES,
+                new LovePageLoader() {
+                    @NonNull
                     @Override
-                    void onFailure(@NonNull final List<String> errorMessages) {
-                        loveListResponseHandler.onFail();
+                    public Cancellable loadPage(final int page, @NonNull final LoveListResponseHandler pageHandler) {
+                        return retrieveRecentLoves(pageHandler, page, user, userLoveAssociation);
                     }
+                },
+                savingResponseHandler
+        );
+        request.start();
+        return request;
+    }
+
+    /**
+     * Retrieves the loves newer than the newest love already held, without reloading the loves
+     * already held. See {@link #retrieveNewLoves(NewLovesResponseHandler, Love, User, User.UserLoveAssociation)}.
+     *
+     * @param responseHandler
+     *      the handler for the response
+     * @param newestKnownLove
+     *      the newest love already held
+     * @return
+     *      a handle which cancels the request, and stops the handler from being called
+     * @throws IllegalArgumentException
+     *      if {@code responseHandler} or {@code newestKnownLove} are null
+     */
+    @NonNull
+    public Cancellable retrieveNewLoves(@NonNull final NewLovesResponseHandler responseHandler, @NonNull final Love newestKnownLove) throws IllegalArgumentException {
+        return retrieveNewLoves(responseHandler, newestKnownLove, null, null);
+    }
+
+    /**
+     * Retrieves the loves newer than the newest love already held, without reloading the loves
+     * already held. Pages are read from the first, stopping at the first love already held, so the
+     * cost scales with the number of new loves rather than with the number of loves held.
+     *
+     * @param responseHandler
+     *      the handler for the response
+     * @param newestKnownLove
+     *      the newest love already held
+     * @param user
+     *      the user whose loves are listed, as in {@link #retrieveRecentLoves(LoveListResponseHandler, int, User, User.UserLoveAssociation)}
+     * @param userLoveAssociation
+     *      the association of the user to the loves
+     * @return
+     *      a handle which cancels the request, and stops the handler from being called
+     * @throws IllegalArgumentException
+     *      if {@code responseHandler} or {@code newestKnownLove} are null
+     */
+    @NonNull
+    public Cancellable retrieveNewLoves(@NonNull final NewLovesResponseHandler responseHandler, @NonNull final Love newestKnownLove, @Nullable final User user, @Nullable final User.UserLoveAssociation userLoveAssociation) throws IllegalArgumentException {
+        if (responseHandler == null) {
+            throw new IllegalArgumentException("argument `responseHandler` cannot be null");
+        }
+        if (newestKnownLove == null) {
+            throw new IllegalArgumentException("argument `newestKnownLove` cannot be null");
+        }
+
+        logger.debug("method=retrieveNewLoves newestKnownLove=" + newestKnownLove.createdAtMillis);
 
+        final LoveSync sync = new LoveSync(
+                newestKnownLove,
+                MAX_NEW_LOVE_PAGES,
+                new LovePageLoader() {
+                    @NonNull
                     @Override
-                    public void onAuthenticationFailure() {
-                        loveListResponseHandler.onAuthenticationFailure();
+                    public Cancellable loadPage(final int page, @NonNull final LoveListResponseHandler pageHandler) {
+                        return retrieveRecentLoves(pageHandler, page, user, userLoveAssociation);
                     }
-                }
+                },
+                responseHandler
         );
+        sync.start();
+        return sync;
     }
 
     /**
      * Creates a new love on the server. If an error occurs, error messages will be passed to the
      * failure handler. Otherwise, the created love will be returned on the success handler.
+     * Transient failures are only retried if the love has an idempotency key.
      *
      * @param love
      *      the love to creeate
      * @param loveResponseHandler
      *      the handler for the response
+     * @return
+     *      a handle which cancels the request. a love which has already reached the server may
+     *      still be created
      * @throws IllegalArgumentException
      *      if the specified love is null
      */
-    public void makeLove(@NonNull final Love love, @NonNull final LoveResponseHandler loveResponseHandler) throws IllegalArgumentException {
+    @NonNull
+    public Cancellable makeLove(@NonNull final Love love, @NonNull final LoveResponseHandler loveResponseHandler) throws IllegalArgumentException {
         if (love == null) {
             throw new IllegalArgumentException("argument `love` cannot be null");
         }
@@ -327,8 +1019,11 @@ public class LoveMonsterClient {
             url.addParameter("from", love.lover.username);
         }
         url.addParameter("private_message", Boolean.toString(love.isPrivate));
+        if (love.idempotencyKey != null) {
+            url.addParameter("idempotency_key", love.idempotencyKey);
+        }
 
-        httpRemoter.post(url, new JSONArrayHttpResponseHandler() {
+        return httpRemoter.post(MAKE_LOVE_ENDPOINT, url, new JSONArrayHttpResponseHandler() {
             @Override
             void onSuccess(@Nullable final JSONArray response) {
                 loveResponseHandler.onSuccess(love);
@@ -336,20 +1031,109 @@ public class LoveMonsterClient {
 
             @Override
             void onFailure(@NonNull final List<String> errorMessages) {
-                loveResponseHandler.onFail(errorMessages);
+                onFailure(0, null, errorMessages);
+            }
+
+            @Override
+            void onFailure(final int statusCode, @Nullable final Throwable throwable, @NonNull final List<String> errorMessages) {
+                loveResponseHandler.onFail(statusCode, throwable, errorMessages);
             }
 
             @Override
             void onAuthenticationFailure() {
                 loveResponseHandler.onAuthenticationFailure();
             }
-        });
+        }, love.idempotencyKey == null ? RetryPolicy.NONE : MAKE_LOVE_RETRY_POLICY);
+    }
+
+    /**
+     * Sends several loves, with a bounded number of requests in flight at once. The outcome of each
+     * love is passed to the handler as it completes, followed by the outcome of the whole batch.
+     *
+     * @param loves
+     *      the loves to send
+     * @param batchHandler
+     *      the handler for the responses
+     * @return
+     *      a handle which cancels the loves not yet sent, and stops further callbacks
+     * @throws IllegalArgumentException
+     *      if {@code loves} or {@code batchHandler} are null, or {@code loves} contains null
+     */
+    @NonNull
+    public Cancellable makeLoves(@NonNull final List<Love> loves, @NonNull final BatchHandler batchHandler) throws IllegalArgumentException {
+        if (loves == null) {
+            throw new IllegalArgumentException("argument `loves` cannot be null");
+        }
+        if (loves.contains(null)) {
+            throw new IllegalArgumentException("argument `loves` cannot contain null");
+        }
+        if (batchHandler == null) {
+            throw new IllegalArgumentException("argument `batchHandler` cannot be null");
+        }
+
+        logger.debug("method=makeLoves loves=" + loves.size());
+
+        final LoveBatch batch = new LoveBatch(
+                loves,
+                MAX_CONCURRENT_LOVE_SENDS,
+                new LoveBatch.LoveSender() {
+                    @NonNull
+                    @Override
+                    public Cancellable send(@NonNull final Love love, @NonNull final LoveResponseHandler responseHandler) {
+                        return makeLove(love, responseHandler);
+                    }
+                },
+                batchHandler
+        );
+        batch.start();
+        return batch;
     }
 
-    public void getUserFromUsername(@NonNull String username, @NonNull final UserLookupResponseHandler responseHandler) {
+    /**
+     * Suggests users for the text typed so far, from the users seen in any response which are still
+     * in memory, by the prefixes of their username and name. Answers straight away without a
+     * request, so may be called on the main thread for every keystroke.
+     *
+     * @param prefix
+     *      the text typed so far
+     * @param limit
+     *      the maximum number of users to suggest
+     * @return
+     *      the suggested users. may be empty, but will not be null
+     */
+    @NonNull
+    public List<User> suggestUsers(@Nullable final String prefix, final int limit) {
+        return userPrefixIndex.search(prefix, limit);
+    }
+
+    /**
+     * Looks up a user by username. Users already seen in any response, and usernames recently found
+     * not to exist, are answered straight away on the calling thread, without a request.
+     *
+     * @param username
+     *      the username to look up
+     * @param responseHandler
+     *      the handler for the response
+     * @return
+     *      a handle which cancels the request
+     */
+    @NonNull
+    public Cancellable getUserFromUsername(@NonNull final String username, @NonNull final UserLookupResponseHandler responseHandler) {
+        final UserLookupCache.Entry cachedLookup = userLookupCache.get(username);
+        if (cachedLookup != null) {
+            logger.debug("method=getUserFromUsername username=" + username + " cached=true found=" + (cachedLookup.user != null));
+            httpRemoter.metrics.increment(metricName(USER_LOOKUP_ENDPOINT, CACHE_HIT_METRIC));
+            if (cachedLookup.user != null) {
+                responseHandler.onUserExists(cachedLookup.user);
+            } else {
+                responseHandler.onUserNotFound();
+            }
+            return COMPLETED_REQUEST;
+        }
+
         final URIBuilder url = buildUrl("/api/v1/users/" + username);
 
-        httpRemoter.get(url, new JSONObjectHttpResponseHandler() {
+        return httpRemoter.get(USER_LOOKUP_ENDPOINT, url, new JSONObjectHttpResponseHandler() {
             @Override
             void onSuccess(@Nullable JSONObject response) {
                 User user = responseParser.parseUser(response);
@@ -359,6 +1143,7 @@ public class LoveMonsterClient {
             @Override
             void onFailure(@NonNull List<String> errorMessages) {
                 if (errorMessages.size() == 1 && errorMessages.get(0).equals("Not Found")) {
+                    userLookupCache.putNotFound(username);
                     responseHandler.onUserNotFound();
                 } else {
                     responseHandler.onFail(errorMessages);
@@ -369,7 +1154,7 @@ public class LoveMonsterClient {
             void onAuthenticationFailure() {
                 responseHandler.onAuthenticationFailure();
             }
-        });
+        }, USER_LOOKUP_RETRY_POLICY);
     }
     /**
      * Returns the authenticated {@link User} for this client. This method will return {@code null}
@@ -383,6 +1168,71 @@ public class LoveMonsterClient {
         return authenticatedUser;
     }
 
+    /**
+     * Returns the number of love list requests which were served by joining an identical request
+     * that was already in flight, rather than making their own http call.
+     *
+     * @return
+     *      the number of coalesced requests
+     */
+    public long getCoalescedRequestHitCount() {
+        return inFlightLoveListRequests.getHitCount();
+    }
+
+    /**
+     * Returns the number of love list requests which made their own http call because no
+     * identical request was in flight.
+     *
+     * @return
+     *      the number of requests which were not coalesced
+     */
+    public long getCoalescedRequestMissCount() {
+        return inFlightLoveListRequests.getMissCount();
+    }
+
+    /**
+     * Returns the number of failed requests which have been scheduled to be sent again.
+     *
+     * @return
+     *      the number of retries
+     */
+    public long getRetryCount() {
+        return httpRemoter.retryCount.get();
+    }
+
+    /**
+     * Returns the state of the circuit breaker guarding the server.
+     *
+     * @return
+     *      the circuit breaker state
+     */
+    @NonNull
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return httpRemoter.circuitBreaker.getState();
+    }
+
+    /**
+     * Returns the number of requests which failed straight away because the circuit breaker was
+     * open.
+     *
+     * @return
+     *      the number of rejected requests
+     */
+    public long getCircuitBreakerRejectedCount() {
+        return httpRemoter.circuitBreaker.getRejectedCount();
+    }
+
+    /**
+     * Returns the registry the request metrics are recorded in.
+     *
+     * @return
+     *      the metrics registry
+     */
+    @NonNull
+    public MetricsRegistry getMetrics() {
+        return httpRemoter.metrics;
+    }
+
     /**
      * Returns the root url used to make requests. This includes the hostname with a trailing slash.
      *
@@ -394,26 +1244,185 @@ public class LoveMonsterClient {
     }
 
     /**
-     * Authenticates against love monster, using the specified cookies for authentication.
+     * Sets the listener told when the session expires. While one is set, requests are held when the
+     * session expires rather than each failing authentication, and sent again after logging in.
+     *
+     * @param sessionExpiredListener
+     *      the listener, or null to fail each request's authentication instead
+     */
+    public void setSessionExpiredListener(@Nullable final SessionExpiredListener sessionExpiredListener) {
+        if (sessionExpiredListener == null) {
+            httpRemoter.sessionState.setListener(null);
+            return;
+        }
+
+        httpRemoter.sessionState.setListener(new SessionState.Listener() {
+            @Override
+            public void onSessionExpired() {
+                logger.debug("method=onSessionExpired authenticatedAs=" + (authenticatedUser == null ? "<null>" : authenticatedUser.username));
+                // the next launch must log in again, even if this one never does
+                sessionRestored = false;
+                final SessionStore store = sessionStore;
+                if (store != null) {
+                    store.clear();
+                }
+                sessionExpiredListener.onSessionExpired();
+            }
+        });
+    }
+
+    /**
+     * Sets where sessions are saved on authentication, and restored from by
+     * {@link #restoreSession()}.
+     *
+     * @param sessionStore
+     *      the session store, or null to stop saving sessions
+     */
+    public void setSessionStore(@Nullable final SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    /**
+     * Restores the session saved by the last successful {@link #authenticate(String, AuthenticationHandler)},
+     * so that requests can be made straight away, without logging in again. The session is not
+     * checked with the server; requests made with an expired session fail authentication as usual,
+     * and {@link #verifySession(AuthenticationHandler)} checks it explicitly.
+     *
+     * @return
+     *      true if a session was restored, or false if there is no saved session
+     */
+    public boolean restoreSession() {
+        final SessionStore store = sessionStore;
+        final SessionStore.Session session = store == null ? null : store.load();
+        if (session == null) {
+            return false;
+        }
+
+        final User user = responseParser.parseUser(session.account);
+        if (user == null) {
+            store.clear();
+            return false;
+        }
+
+        httpRemoter.setCookies(session.cookies);
+        sessionCookies = session.cookies;
+        authenticatedUser = user;
+        savedLoves = Collections.unmodifiableList(responseParser.parseLoveList(session.loves));
+        sessionRestored = true;
+        logger.debug("method=restoreSession authenticatedAs=" + user.username + " savedLoves=" + savedLoves.size());
+        return true;
+    }
+
+    /**
+     * Returns true if the current session was restored by {@link #restoreSession()}, and has not yet
+     * been checked with the server.
+     */
+    public boolean isSessionRestored() {
+        return sessionRestored;
+    }
+
+    /**
+     * Returns the newest loves saved with the restored session, to show while the loves are
+     * retrieved. Empty if no session was restored, or it had no loves saved.
+     */
+    @NonNull
+    public List<Love> getSavedLoves() {
+        return savedLoves;
+    }
+
+    /**
+     * Checks the current session with the server, refreshing the authenticated user. If the session
+     * has expired, it is cleared, and {@link AuthenticationHandler#onAuthenticationFailure()} is
+     * invoked so the user can log in again, unless a {@link SessionExpiredListener} is set, in which
+     * case the check is held until the user has logged in again. A failure for any other reason,
+     * such as the network being down, keeps the session.
+     *
+     * @param authenticationHandler
+     *      the handler for the result
+     * @return
+     *      a handle which cancels the request
+     * @throws IllegalStateException
+     *      if there is no current session
+     */
+    @NonNull
+    public Cancellable verifySession(@NonNull final AuthenticationHandler authenticationHandler) throws IllegalStateException {
+        final String cookies = sessionCookies;
+        if (cookies == null) {
+            throw new IllegalStateException("there is no session to verify");
+        }
+
+        return requestAccount(authenticationHandler, true);
+    }
+
+    /**
+     * Forgets the current session, including the saved session, so the next launch logs in again.
+     */
+    public void clearSession() {
+        authenticatedUser = null;
+        sessionCookies = null;
+        sessionRestored = false;
+        savedLoves = Collections.emptyList();
+
+        final SessionStore store = sessionStore;
+        if (store != null) {
+            store.clear();
+        }
+    }
+
+    /**
+     * Authenticates against love monster, using the specified cookies for authentication. On
+     * success, the session is saved to the {@link SessionStore}, if there is one, and any requests
+     * held since the session expired are sent again. If the cookies have expired, any saved session
+     * is cleared.
+     *
      * @param cookies
      *      the authentication cookies
+     * @return
+     *      a handle which cancels the request
      * @throws IllegalArgumentException
      *      if cookies is {@code null}
      */
-    public void authenticate(final String cookies, final AuthenticationHandler authenticationHandler) throws IllegalArgumentException {
+    @NonNull
+    public Cancellable authenticate(final String cookies, final AuthenticationHandler authenticationHandler) throws IllegalArgumentException {
         if (cookies == null) {
             throw new IllegalArgumentException("must specify non-null `cookies`");
         }
 
         httpRemoter.setCookies(cookies);
-        httpRemoter.get(
+        sessionCookies = cookies;
+        return requestAccount(authenticationHandler, false);
+    }
+
+    /**
+     * Requests the authenticated user's account with the current session.
+     *
+     * @param authenticationHandler
+     *      the handler for the result
+     * @param holdWhileExpired
+     *      true if the request is held while the session is expired. must be false when logging in
+     *      again, since the held requests wait on it
+     * @return
+     *      a handle which cancels the request
+     */
+    private Cancellable requestAccount(@NonNull final AuthenticationHandler authenticationHandler, final boolean holdWhileExpired) {
+        return httpRemoter.get(
+                ACCOUNT_ENDPOINT,
                 buildUrl("/api/v1/account"),
                 new JSONObjectHttpResponseHandler() {
                     @Override
                     void onSuccess(@Nullable final JSONObject response) {
                         final User user = responseParser.parseUser(response);
                         authenticatedUser = user;
+                        sessionRestored = false;
                         logger.debug("authenticatedAs=" + user.username);
+
+                        // saved with the current cookies, since a held check is sent again in the renewed session
+                        final String cookies = sessionCookies;
+                        final SessionStore store = sessionStore;
+                        if (store != null && cookies != null) {
+                            store.saveSession(cookies, user);
+                        }
+                        httpRemoter.sessionState.renew();
                         authenticationHandler.onSuccess();
                     }
 
@@ -424,9 +1433,12 @@ public class LoveMonsterClient {
 
                     @Override
                     void onAuthenticationFailure() {
+                        clearSession();
                         authenticationHandler.onAuthenticationFailure();
                     }
-                }
+                },
+                ACCOUNT_RETRY_POLICY,
+                holdWhileExpired
         );
     }
 
@@ -451,15 +1463,64 @@ public class LoveMonsterClient {
         private static final Logger logger = new Logger(HttpRemoter.class);
 
         /**
-         * The client used to make asynchronous http requests.
+         * The transport used to make asynchronous http requests.
+         */
+        @NonNull
+        private final Transport transport;
+
+        /**
+         * The scheduler which resends failed requests after their backoff.
+         */
+        @NonNull
+        private final ScheduledExecutorService retryScheduler;
+
+        /**
+         * The breaker which stops requests while the server keeps failing.
+         */
+        @NonNull
+        final CircuitBreaker circuitBreaker;
+
+        /**
+         * The source of retry jitter.
+         */
+        private final Random random = new Random();
+
+        /**
+         * The number of retries scheduled.
+         */
+        final AtomicLong retryCount = new AtomicLong();
+
+        /**
+         * The registry the request metrics are recorded in.
          */
         @NonNull
-        private final AsyncHttpClient asyncHttpClient;
+        final MetricsRegistry metrics;
 
-        private Header[] headers;
+        /**
+         * The session headers sent with every request. The array is never modified once published;
+         * {@link #setCookies(String)} replaces it, and each request reads it exactly once, so a
+         * request always sends a complete set of headers from a single session.
+         */
+        @Nullable
+        private volatile Header[] headers;
+
+        /**
+         * Validators and parsed results of love list responses, used to make conditional requests.
+         */
+        @NonNull
+        private final ConditionalGetCache<LoveListPage> loveListPageCache = new ConditionalGetCache<>(MAX_CACHED_LOVE_LIST_PAGES);
+
+        /**
+         * Whether the session has expired, and the requests held until it is renewed.
+         */
+        @NonNull
+        final SessionState sessionState = new SessionState();
 
-        HttpRemoter(@NonNull AsyncHttpClient asyncHttpClient) {
-            this.asyncHttpClient = asyncHttpClient;
+        HttpRemoter(@NonNull final Transport transport, @NonNull final ScheduledExecutorService retryScheduler, @NonNull final CircuitBreaker circuitBreaker, @NonNull final MetricsRegistry metrics) {
+            this.transport = transport;
+            this.retryScheduler = retryScheduler;
+            this.circuitBreaker = circuitBreaker;
+            this.metrics = metrics;
         }
 
         void setCookies(final String cookies) {
@@ -468,31 +1529,503 @@ public class LoveMonsterClient {
                     new BasicHeader("Content-Type", "application/json"),
                     new BasicHeader("Accept", "*/*")
             };
+
+            // cached responses may belong to a different session
+            loveListPageCache.clear();
         }
 
-        void get(final URIBuilder url, final BaseHttpResponseHandler responseHandler) {
-            logger.debug("httpMethod=get url=" + url);
-            responseHandler.setUrl(url.toString());
+        Request get(final String endpoint, final URIBuilder url, final UrlResponseHandler responseHandler, final RetryPolicy retryPolicy) {
+            return get(endpoint, url, responseHandler, retryPolicy, true);
+        }
 
-            try {
-                asyncHttpClient.get(null, url.toString(), headers, null, responseHandler);
-            } catch (final Exception e){
-                logger.debug("httpMethod=get url=" + url, e);
-            }
+        /**
+         * Makes a GET, which is held while the session is expired only if {@code holdWhileExpired}.
+         * The request which logs in again must not be held, since nothing would release it.
+         */
+        Request get(final String endpoint, final URIBuilder url, final UrlResponseHandler responseHandler, final RetryPolicy retryPolicy, final boolean holdWhileExpired) {
+            return new Request(endpoint, Transport.Request.GET, url.toString(), headers, responseHandler, retryPolicy, holdWhileExpired).send();
         }
 
-        void post(final URIBuilder url, final BaseHttpResponseHandler responseHandler) {
-            logger.debug("httpMethod=post url=" + url);
-            responseHandler.setUrl(url.toString());
+        /**
+         * Makes a conditional GET for a love list. If a previous response for the same url is
+         * cached, its validators are sent so that an unchanged list is answered with
+         * {@code 304 Not Modified} and served from the cache without being parsed again.
+         */
+        Request getLoveListPage(final String endpoint, final URIBuilder url, final LoveListStreamHttpResponseHandler responseHandler, final RetryPolicy retryPolicy) {
+            final Header[] sessionHeaders = headers;
+            final ConditionalGetCache.Entry<LoveListPage> cachedEntry = loveListPageCache.get(url.toString());
+            responseHandler.setConditionalGetCache(loveListPageCache, cachedEntry);
 
-            try {
-                asyncHttpClient.post(null, url.toString(), headers, (RequestParams) null, "application/json", responseHandler);
-            } catch (final Exception e){
-                logger.debug("httpMethod=post url=" + url, e);
+            if (cachedEntry == null) {
+                return new Request(endpoint, Transport.Request.GET, url.toString(), sessionHeaders, responseHandler, retryPolicy, true).send();
+            }
+
+            final List<Header> conditionalHeaders = new ArrayList<>();
+            if (sessionHeaders != null) {
+                conditionalHeaders.addAll(Arrays.asList(sessionHeaders));
+            }
+            if (cachedEntry.etag != null) {
+                conditionalHeaders.add(new BasicHeader("If-None-Match", cachedEntry.etag));
+            }
+            if (cachedEntry.lastModified != null) {
+                conditionalHeaders.add(new BasicHeader("If-Modified-Since", cachedEntry.lastModified));
             }
 
+            return new Request(endpoint, Transport.Request.GET, url.toString(), conditionalHeaders.toArray(new Header[conditionalHeaders.size()]), responseHandler, retryPolicy, true).send();
         }
-    }
+
+        Request post(final String endpoint, final URIBuilder url, final UrlResponseHandler responseHandler, final RetryPolicy retryPolicy) {
+            return new Request(endpoint, Transport.Request.POST, url.toString(), headers, responseHandler, retryPolicy, true).send();
+        }
+
+        /**
+         * A single request, which may be sent several times. The response handler reports each
+         * failed attempt to {@link #retryIfTransient(int, Throwable)}, which decides whether the
+         * request is sent again, and keeps the circuit breaker up to date. Once cancelled, no
+         * further attempts are sent, and the response handler drops the response. The response
+         * handler also reports the progress of each attempt, which is recorded in the metrics.
+         *
+         * A request answered with the login page is held until the session is renewed, and then
+         * sent again with the new session's headers, rather than failing.
+         */
+        class Request implements Cancellable {
+
+            /**
+             * The endpoint the metrics are recorded under.
+             */
+            @NonNull
+            private final String endpoint;
+
+            @NonNull
+            private final String httpMethod;
+
+            @NonNull
+            private final String url;
+
+            /**
+             * The headers sent with every attempt, so that retries belong to the same session.
+             * Replaced only when the request is sent again in a renewed session.
+             */
+            @Nullable
+            private volatile Header[] requestHeaders;
+
+            /**
+             * The session headers the request was made with, to tell whether the session has been
+             * renewed since.
+             */
+            @Nullable
+            private volatile Header[] sessionHeaders;
+
+            /**
+             * True if the request is held while the session is expired.
+             */
+            private final boolean holdWhileExpired;
+
+            /**
+             * Sends the request again in the renewed session, with its headers and without any
+             * validators, since the cached response may belong to the expired session.
+             */
+            private final Runnable resend = new Runnable() {
+                @Override
+                public void run() {
+                    final Header[] renewedHeaders = headers;
+                    sessionHeaders = renewedHeaders;
+                    requestHeaders = renewedHeaders;
+                    send();
+                }
+            };
+
+            @NonNull
+            private final UrlResponseHandler responseHandler;
+
+            @NonNull
+            private final RetryPolicy retryPolicy;
+
+            /**
+             * The number of attempts the retry policy has made, counting the first. Sending the
+             * same attempt again, once the session is renewed, does not count as another.
+             */
+            private final AtomicInteger attempts = new AtomicInteger(1);
+
+            /**
+             * The transport's handle for the current attempt, or null before the first attempt.
+             */
+            @Nullable
+            private volatile Cancellable transportCall;
+
+            private volatile boolean cancelled = false;
+
+            /**
+             * Set once the outcome has been passed to the caller's handler.
+             */
+            private volatile boolean done = false;
+
+            /**
+             * When the current attempt was handed to the transport, from {@link System#nanoTime()}.
+             */
+            private volatile long attemptSentNanos;
+
+            /**
+             * When the transport started making the current attempt, or 0 if it has not said.
+             */
+            private volatile long attemptStartedNanos;
+
+            Request(@NonNull final String endpoint, @NonNull final String httpMethod, @NonNull final String url, @Nullable final Header[] requestHeaders, @NonNull final UrlResponseHandler responseHandler, @NonNull final RetryPolicy retryPolicy, final boolean holdWhileExpired) {
+                this.endpoint = endpoint;
+                this.httpMethod = httpMethod;
+                this.url = url;
+                this.requestHeaders = requestHeaders;
+                this.sessionHeaders = headers;
+                this.responseHandler = responseHandler;
+                this.retryPolicy = retryPolicy;
+                this.holdWhileExpired = holdWhileExpired;
+
+                responseHandler.setUrl(url);
+                responseHandler.setRequest(this);
+
+                // a handler made on a thread without a looper is synchronous, which the async http
+                // client refuses to send; its callbacks are made on the network thread instead
+                if (responseHandler.getUseSynchronousMode()) {
+                    responseHandler.setUsePoolThread(true);
+                }
+            }
+
+            /**
+             * Sends the next attempt, or fails it straight away if the circuit breaker is open. If
+             * the session has expired, the attempt is held until it is renewed instead.
+             *
+             * @return
+             *      this request
+             */
+            Request send() {
+                if (cancelled) {
+                    return this;
+                }
+                if (holdWhileExpired && sessionState.holdIfExpired(resend)) {
+                    logger.debug("httpMethod=" + httpMethod + " url=" + url + " heldUntilReauthenticated=true");
+                    return this;
+                }
+
+                final int attempt = attempts.get();
+                logger.debug("httpMethod=" + httpMethod + " url=" + url + " attempt=" + attempt);
+
+                if (!circuitBreaker.allowRequest()) {
+                    logger.debug("httpMethod=" + httpMethod + " url=" + url + " circuitBreaker=open");
+                    metrics.increment(metricName(endpoint, CIRCUIT_BREAKER_REJECTED_METRIC));
+                    responseHandler.sendFailure(new CircuitBreaker.OpenException());
+                    return this;
+                }
+
+                try {
+                    final String contentType = httpMethod.equals(Transport.Request.POST) ? "application/json" : null;
+                    attemptStartedNanos = 0;
+                    attemptSentNanos = System.nanoTime();
+                    transportCall = transport.send(new Transport.Request(httpMethod, url, requestHeaders, contentType), responseHandler);
+                } catch (final Exception e){
+                    logger.debug("httpMethod=" + httpMethod + " url=" + url, e);
+                    responseHandler.sendFailure(e);
+                }
+                return this;
+            }
+
+            @Override
+            public void cancel() {
+                if (done || cancelled) {
+                    return;
+                }
+
+                cancelled = true;
+                logger.debug("httpMethod=" + httpMethod + " url=" + url + " cancelled=true");
+                sessionState.release(resend);
+
+                final Cancellable call = transportCall;
+                if (call != null) {
+                    call.cancel();
+                }
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+
+            @Override
+            public boolean isDone() {
+                return done || cancelled;
+            }
+
+            /**
+             * Records that the outcome has been passed to the caller's handler.
+             */
+            void markDone() {
+                done = true;
+            }
+
+            /**
+             * Holds the request until the session is renewed, after it was answered with the login
+             * page. If the session was already renewed since the request was made, it is sent again
+             * straight away.
+             *
+             * @return
+             *      true if the request is held or sent again, in which case the authentication
+             *      failure must not be passed on to the caller
+             */
+            boolean holdUntilReauthenticated() {
+                if (cancelled || !holdWhileExpired) {
+                    return false;
+                }
+
+                if (sessionHeaders != headers && !sessionState.isExpired()) {
+                    logger.debug("httpMethod=" + httpMethod + " url=" + url + " sessionRenewed=true");
+                    resend.run();
+                    return true;
+                }
+
+                if (!sessionState.expire(resend)) {
+                    return false;
+                }
+                logger.debug("httpMethod=" + httpMethod + " url=" + url + " heldUntilReauthenticated=true");
+                return true;
+            }
+
+            /**
+             * Records that the server answered the request.
+             */
+            void recordSuccess() {
+                circuitBreaker.recordSuccess();
+            }
+
+            /**
+             * Records that the transport has started making the current attempt.
+             */
+            void recordStarted() {
+                attemptStartedNanos = System.nanoTime();
+                recordLatency(QUEUE_TIME_METRIC, attemptStartedNanos - attemptSentNanos);
+            }
+
+            /**
+             * Records that the response headers of the current attempt have arrived.
+             *
+             * @return
+             *      the current {@link System#nanoTime()}, from which the download is timed
+             */
+            long recordResponseReceived() {
+                final long receivedNanos = System.nanoTime();
+                final long startedNanos = attemptStartedNanos;
+                recordLatency(TIME_TO_FIRST_BYTE_METRIC, receivedNanos - (startedNanos == 0 ? attemptSentNanos : startedNanos));
+                return receivedNanos;
+            }
+
+            /**
+             * Records the download of a response body.
+             */
+            void recordDownload(final long nanos, final long bytes) {
+                recordLatency(DOWNLOAD_TIME_METRIC, nanos);
+                metrics.recordSize(metricName(endpoint, PAYLOAD_SIZE_METRIC), bytes);
+            }
+
+            /**
+             * Records the parsing of a response body.
+             */
+            void recordParse(final long nanos) {
+                recordLatency(PARSE_TIME_METRIC, nanos);
+            }
+
+            /**
+             * Records the time the callback thread spent on the response.
+             */
+            void recordMainThreadTime(final long nanos) {
+                recordLatency(MAIN_THREAD_TIME_METRIC, nanos);
+            }
+
+            private void recordLatency(@NonNull final String metric, final long nanos) {
+                metrics.recordLatency(metricName(endpoint, metric), TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+
+            /**
+             * Records a failed attempt, and schedules the next attempt if the failure is transient
+             * and the retry policy allows another attempt.
+             *
+             * @param statusCode
+             *      the status code of the response, or 0 if there was no response
+             * @param throwable
+             *      the thrown error. may be null
+             * @return
+             *      true if the request will be sent again, in which case the failure must not be
+             *      passed on to the caller
+             */
+            boolean retryIfTransient(final int statusCode, @Nullable final Throwable throwable) {
+                if (cancelled || throwable instanceof CircuitBreaker.OpenException) {
+                    return false;
+                }
+
+                if (!RetryPolicy.isTransientFailure(statusCode, throwable)) {
+                    if (statusCode > 0) {
+                        // the server answered, so it is up even if the request was rejected
+                        circuitBreaker.recordSuccess();
+                    }
+                    return false;
+                }
+
+                circuitBreaker.recordFailure();
+
+                final int attempt = attempts.get();
+                if (attempt >= retryPolicy.maxAttempts) {
+                    return false;
+                }
+
+                final long delayMillis = retryPolicy.backoffMillis(attempt, random);
+                attempts.incrementAndGet();
+                try {
+                    retryScheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            send();
+                        }
+                    }, delayMillis, TimeUnit.MILLISECONDS);
+                } catch (final RejectedExecutionException e) {
+                    logger.debug("httpMethod=" + httpMethod + " url=" + url + " retryRejected=true", e);
+                    return false;
+                }
+
+                retryCount.incrementAndGet();
+                metrics.increment(metricName(endpoint, RETRY_METRIC));
+                logger.debug("httpMethod=" + httpMethod + " url=" + url + " statusCode=" + statusCode + " attempt=" + attempt + " retryInMillis=" + delayMillis);
+                return true;
+            }
+        }
+    }
+    /**
+     * Passes a love list result to the caller's handler, unless the caller has cancelled. On
+     * cancellation, the caller leaves the coalesced request, which is itself cancelled once no
+     * caller is waiting on it.
+     */
+    private static class CancellableLoveListResponseHandler implements LoveListResponseHandler, Cancellable {
+
+        @NonNull
+        private final LoveListResponseHandler responseHandler;
+
+        @NonNull
+        private final RequestCoalescer<LoveListResponseHandler> coalescer;
+
+        @NonNull
+        private final String requestKey;
+
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+
+        CancellableLoveListResponseHandler(@NonNull final LoveListResponseHandler responseHandler, @NonNull final RequestCoalescer<LoveListResponseHandler> coalescer, @NonNull final String requestKey) {
+            this.responseHandler = responseHandler;
+            this.coalescer = coalescer;
+            this.requestKey = requestKey;
+        }
+
+        @Override
+        public void onSuccess(@NonNull final List<Love> loves, final int totalPages) {
+            if (cancelled) {
+                return;
+            }
+            done = true;
+            responseHandler.onSuccess(loves, totalPages);
+        }
+
+        @Override
+        public void onFail() {
+            if (cancelled) {
+                return;
+            }
+            done = true;
+            responseHandler.onFail();
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+            if (cancelled) {
+                return;
+            }
+            done = true;
+            responseHandler.onAuthenticationFailure();
+        }
+
+        @Override
+        public void cancel() {
+            if (done || cancelled) {
+                return;
+            }
+            cancelled = true;
+            coalescer.leave(requestKey, this);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done || cancelled;
+        }
+    }
+
+    /**
+     * Fans the result of a single love list request out to every handler which was waiting on it
+     * in the {@link RequestCoalescer}.
+     */
+    private static class CoalescedLoveListResponseHandler implements LoveListResponseHandler {
+
+        @NonNull
+        private final RequestCoalescer<LoveListResponseHandler> coalescer;
+
+        @NonNull
+        private final String requestKey;
+
+        CoalescedLoveListResponseHandler(@NonNull final RequestCoalescer<LoveListResponseHandler> coalescer, @NonNull final String requestKey) {
+            this.coalescer = coalescer;
+            this.requestKey = requestKey;
+        }
+
+        @Override
+        public void onSuccess(@NonNull final List<Love> loves, final int totalPages) {
+            final List<LoveListResponseHandler> waiters = coalescer.complete(requestKey);
+
+            // waiters share the same list, so none of them may modify it
+            final List<Love> sharedLoves = waiters.size() > 1 ? Collections.unmodifiableList(loves) : loves;
+            for (final LoveListResponseHandler waiter : waiters) {
+                waiter.onSuccess(sharedLoves, totalPages);
+            }
+        }
+
+        @Override
+        public void onFail() {
+            for (final LoveListResponseHandler waiter : coalescer.complete(requestKey)) {
+                waiter.onFail();
+            }
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+            for (final LoveListResponseHandler waiter : coalescer.complete(requestKey)) {
+                waiter.onAuthenticationFailure();
+            }
+        }
+    }
+
+    /**
+     * Response handler which is given the url of its request, generally for logging purposes, and
+     * the request itself, which decides whether failures are retried and records metrics.
+     */
+    private interface UrlResponseHandler extends ResponseHandlerInterface, Transport.StartListener {
+        void setUrl(String url);
+
+        void setRequest(HttpRemoter.Request request);
+
+        /**
+         * Fails the request without a response, invoking the failure handlers on the callback
+         * thread.
+         */
+        void sendFailure(Throwable throwable);
+    }
+
     private static abstract class JSONObjectHttpResponseHandler extends BaseHttpResponseHandler<JSONObject> {
         public JSONObjectHttpResponseHandler() {
             super(JSONObject.class);
@@ -505,7 +2038,111 @@ public class LoveMonsterClient {
         }
     }
 
-    private static abstract class BaseHttpResponseHandler<T> extends JsonHttpResponseHandler {
+    /**
+     * Response handler which converts the json response into models on the parse executor, and
+     * posts only the finished models back to the callback thread, so a large response does not
+     * hold up the callback (generally main) thread. Without a parse executor, the models are built
+     * on the callback thread.
+     *
+     * @param <R>
+     *     the type of the models
+     */
+    private static abstract class ParsingJSONObjectHttpResponseHandler<R> extends JSONObjectHttpResponseHandler {
+
+        /**
+         * The executor used to build the models, or null to build them on the callback thread.
+         */
+        @Nullable
+        private final Executor parseExecutor;
+
+        /**
+         * The time taken to parse the body into json, recorded along with the time taken to build
+         * the models.
+         */
+        private volatile long jsonParseNanos;
+
+        ParsingJSONObjectHttpResponseHandler(@Nullable final Executor parseExecutor) {
+            this.parseExecutor = parseExecutor;
+        }
+
+        /**
+         * Builds the models from the response. Invoked on the parse executor.
+         *
+         * @param response
+         *      the response from the server. may be null
+         * @return
+         *      the models
+         */
+        @NonNull
+        abstract R parse(@Nullable final JSONObject response);
+
+        /**
+         * Handler called with the models of a successful response, on the callback thread.
+         *
+         * @param result
+         *      the models. cannot be null
+         */
+        abstract void onParsed(@NonNull final R result);
+
+        @Override
+        final void onSuccess(@Nullable final JSONObject response) {
+            // never called; successful responses are delivered through deliverSuccess
+        }
+
+        @Override
+        void recordJsonParse(final long nanos) {
+            jsonParseNanos = nanos;
+        }
+
+        @Override
+        void deliverSuccess(@NonNull final JSONObject response) {
+            final long handoffStartNanos = callbackStartedNanos;
+            if (parseExecutor == null) {
+                final R result = timedParse(response);
+                markDone();
+                onParsed(result);
+                recordMainThreadTime(System.nanoTime() - handoffStartNanos);
+                return;
+            }
+
+            parseExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCancelled()) {
+                        logger.debug("url=" + url + " handler=parse cancelled=true");
+                        return;
+                    }
+
+                    final R result = timedParse(response);
+                    postRunnable(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (isCancelled()) {
+                                logger.debug("url=" + url + " handler=onSuccess cancelled=true");
+                                return;
+                            }
+
+                            final long deliveryStartNanos = System.nanoTime();
+                            markDone();
+                            onParsed(result);
+                            recordMainThreadTime(System.nanoTime() - deliveryStartNanos);
+                        }
+                    });
+                }
+            });
+            recordMainThreadTime(System.nanoTime() - handoffStartNanos);
+        }
+
+        @NonNull
+        private R timedParse(@Nullable final JSONObject response) {
+            final long startNanos = System.nanoTime();
+            final R result = parse(response);
+            recordParse(jsonParseNanos + System.nanoTime() - startNanos);
+            return result;
+        }
+    }
+
+    private static abstract class BaseHttpResponseHandler<T> extends JsonHttpResponseHandler implements UrlResponseHandler {
 
         protected static final Logger logger = new Logger(BaseHttpResponseHandler.class);
 
@@ -514,20 +2151,143 @@ public class LoveMonsterClient {
          */
         protected String url;
 
+        /**
+         * The request the response is for. Consulted before reporting a failure, in case the
+         * request is retried instead.
+         */
+        @Nullable
+        private HttpRemoter.Request request;
+
         /**
          * The expected response class. This is used to "swallow" responses which don't match the
          * expected type, and instead invoke the onfail handler.
          */
         private final Class<T> expectedResponseType;
 
+        /**
+         * When the current success callback was entered, from {@link System#nanoTime()}, so that the
+         * main thread time includes everything done in the callback. Only accessed on the callback
+         * thread.
+         */
+        long callbackStartedNanos;
+
         BaseHttpResponseHandler(final Class<T> expectedResponseType) {
             this.expectedResponseType = expectedResponseType;
         }
 
-        void setUrl(String url) {
+        @Override
+        public void setUrl(String url) {
             this.url = url;
         }
 
+        @Override
+        public void setRequest(final HttpRemoter.Request request) {
+            this.request = request;
+        }
+
+        @Override
+        public void sendFailure(final Throwable throwable) {
+            postRunnable(new Runnable() {
+                @Override
+                public void run() {
+                    handleFailure(0, null, throwable);
+                }
+            });
+        }
+
+        @Override
+        public void onRequestStarted() {
+            if (request != null) {
+                request.recordStarted();
+            }
+        }
+
+        /**
+         * Drops the response without reading or parsing it if the request has been cancelled, or
+         * if the headers show it is the login page of an expired session. Otherwise the body is
+         * downloaded, and handed on to be parsed.
+         */
+        @Override
+        public void sendResponseMessage(final HttpResponse response) throws IOException {
+            if (isCancelled()) {
+                AsyncHttpClient.endEntityViaReflection(response.getEntity());
+                return;
+            }
+            if (SessionState.isLoginPage(response)) {
+                AsyncHttpClient.endEntityViaReflection(response.getEntity());
+                final int statusCode = response.getStatusLine().getStatusCode();
+                postRunnable(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleExpiredSession(statusCode);
+                    }
+                });
+                return;
+            }
+            if (request == null) {
+                super.sendResponseMessage(response);
+                return;
+            }
+
+            final long receivedNanos = request.recordResponseReceived();
+            final CountingInputStream.Entity entity = response.getEntity() == null ? null : new CountingInputStream.Entity(response.getEntity());
+            if (entity != null) {
+                response.setEntity(entity);
+            }
+            super.sendResponseMessage(response);
+            if (entity != null && response.getStatusLine().getStatusCode() < 300) {
+                request.recordDownload(System.nanoTime() - receivedNanos, entity.getByteCount());
+            }
+        }
+
+        @Override
+        protected Object parseResponse(final byte[] responseBody) throws JSONException {
+            final long startNanos = System.nanoTime();
+            try {
+                return super.parseResponse(responseBody);
+            } finally {
+                recordJsonParse(System.nanoTime() - startNanos);
+            }
+        }
+
+        /**
+         * Records the time taken to parse the response body into json.
+         */
+        void recordJsonParse(final long nanos) {
+            recordParse(nanos);
+        }
+
+        void recordParse(final long nanos) {
+            if (request != null) {
+                request.recordParse(nanos);
+            }
+        }
+
+        void recordMainThreadTime(final long nanos) {
+            if (request != null) {
+                request.recordMainThreadTime(nanos);
+            }
+        }
+
+        boolean isCancelled() {
+            return request != null && request.isCancelled();
+        }
+
+        void markDone() {
+            if (request != null) {
+                request.markDone();
+            }
+        }
+
+        /**
+         * Passes a successful response on to {@link #onSuccess(Object)}, marking the request done.
+         * Invoked on the callback thread.
+         */
+        void deliverSuccess(@NonNull final T response) {
+            markDone();
+            onSuccess(response);
+        }
+
         /**
          * Handler called on successful responses. The response may be a {@link String},
          * {@link JSONObject} or {@link JSONArray} object (or {@code null}); it is the responsibility
@@ -547,6 +2307,22 @@ public class LoveMonsterClient {
          */
         abstract void onFailure(@NonNull final List<String> errorMessages);
 
+        /**
+         * Handler called on failed responses, with the status and error the failure came from.
+         * Calls {@link #onFailure(List)} unless overridden by handlers which treat failures
+         * differently by their cause.
+         *
+         * @param statusCode
+         *      the status code for the response, or 0 if no response was received
+         * @param throwable
+         *      the thrown error. may be null
+         * @param errorMessages
+         *      the error messages describing the failure. cannot be null
+         */
+        void onFailure(final int statusCode, @Nullable final Throwable throwable, @NonNull final List<String> errorMessages) {
+            onFailure(errorMessages);
+        }
+
         /**
          * Handler called when authentication has failed. Typically, this should be used to fire the
          * login intent.
@@ -577,21 +2353,26 @@ public class LoveMonsterClient {
          *      the response from the server
          */
         private void handleSuccess(final int statusCode, final Object responseObject) {
-            final String response;
-            if (responseObject == null) {
-                response = "<null>";
-            } else {
-                response = responseObject.toString();
+            callbackStartedNanos = System.nanoTime();
+            if (isCancelled()) {
+                logger.debug("url=" + url + " handler=onSuccess statusCode=" + statusCode + " cancelled=true");
+                return;
             }
 
-            logger.debug("url=" + url + " handler=onSuccess statusCode=" + statusCode + " response=" + response);
+            // the response itself is not logged, since rendering a large page would stall the main thread
+            logger.debug("url=" + url + " handler=onSuccess statusCode=" + statusCode + " size=" + sizeOf(responseObject));
 
-            if (response != null && expectedResponseType.isAssignableFrom(responseObject.getClass())) {
-                onSuccess((T) responseObject);
+            if (request != null) {
+                request.recordSuccess();
+            }
+
+            if (responseObject != null && expectedResponseType.isAssignableFrom(responseObject.getClass())) {
+                deliverSuccess((T) responseObject);
             } else {
+                markDone();
                 final String typeError;
 
-                if (response == null) {
+                if (responseObject == null) {
                     typeError = "expectedType=" + expectedResponseType.getName() + " actualType=<null>";
                 } else {
                     typeError = "expectedType=" + expectedResponseType.getName() + " actualType=" + responseObject.getClass().getName();
@@ -599,7 +2380,7 @@ public class LoveMonsterClient {
 
                 logger.debug("url=" + url + " " + typeError);
 
-                onFailure(Arrays.asList(typeError));
+                onFailure(statusCode, null, Arrays.asList(typeError));
             }
         }
 
@@ -618,6 +2399,25 @@ public class LoveMonsterClient {
             handleFailure(statusCode, errorResponse, throwable);
         }
 
+        /**
+         * Returns the number of entries, keys or characters in a response, for logging.
+         *
+         * @param responseObject
+         *      the response from the server. may be null
+         * @return
+         *      the size of the response, or -1 if it is null
+         */
+        private static int sizeOf(@Nullable final Object responseObject) {
+            if (responseObject instanceof JSONArray) {
+                return ((JSONArray) responseObject).length();
+            } else if (responseObject instanceof JSONObject) {
+                return ((JSONObject) responseObject).length();
+            } else if (responseObject instanceof String) {
+                return ((String) responseObject).length();
+            }
+            return -1;
+        }
+
         /**
          * Centralized handler for failed responses.
          *
@@ -629,22 +2429,67 @@ public class LoveMonsterClient {
          *      the thrown error. may be null
          */
         private void handleFailure(final int statusCode, @Nullable final Object responseObject, @Nullable final Throwable throwable) {
+            if (isCancelled()) {
+                logger.debug("url=" + url + " handler=onFailure statusCode=" + statusCode + " cancelled=true");
+                return;
+            }
+
             if (isExpiredOktaCredentials(statusCode, throwable)) {
-                onAuthenticationFailure();
+                handleExpiredSession(statusCode);
+                return;
+            }
+
+            if (request != null && request.retryIfTransient(statusCode, throwable)) {
                 return;
             }
-            final String response;
+            markDone();
+
+            logger.debug(
+                    "url=" + url + " handler=onFailure statusCode=" + statusCode + " response=" + (responseObject == null ? "<null>" : responseObject),
+                    throwable
+            );
+
+            onFailure(statusCode, throwable, parseErrorMessages(responseObject, throwable));
+        }
+
+        /**
+         * Handles a response which is the login page of an expired session. The request is held
+         * until the session is renewed if it can be, and fails authentication otherwise.
+         *
+         * @param statusCode
+         *      the status code for the response
+         */
+        private void handleExpiredSession(final int statusCode) {
+            if (isCancelled()) {
+                logger.debug("url=" + url + " handler=onAuthenticationFailure statusCode=" + statusCode + " cancelled=true");
+                return;
+            }
+            if (request != null && request.holdUntilReauthenticated()) {
+                return;
+            }
+
+            markDone();
+            onAuthenticationFailure();
+        }
+
+        /**
+         * Builds the error messages for a failed response, from the response's {@code errors}
+         * attribute and the thrown error.
+         *
+         * @param responseObject
+         *      the response from the server. may be null
+         * @param throwable
+         *      the thrown error. may be null
+         * @return
+         *      the error messages. may be empty, but will not be null
+         */
+        static List<String> parseErrorMessages(@Nullable final Object responseObject, @Nullable final Throwable throwable) {
             final List<String> errorMessages = new ArrayList<>();
 
-            if (responseObject == null) {
-                response = "<null>";
-            } else {
-                response = responseObject.toString();
-                if (responseObject instanceof JSONObject) {
-                    final String errors = ((JSONObject)responseObject).optString("errors", null);
-                    if (errors != null) {
-                        errorMessages.add(errors);
-                    }
+            if (responseObject instanceof JSONObject) {
+                final String errors = ((JSONObject)responseObject).optString("errors", null);
+                if (errors != null) {
+                    errorMessages.add(errors);
                 }
             }
 
@@ -652,16 +2497,13 @@ public class LoveMonsterClient {
                 errorMessages.add(throwable.getLocalizedMessage());
             }
 
-            logger.debug(
-                    "url=" + url + " handler=onFailure statusCode=" + statusCode + " response=" + response,
-                    throwable
-            );
-
-            onFailure(errorMessages);
+            return errorMessages;
         }
 
         /**
-         * Returns true if the response represents expired okta credentials.
+         * Returns true if the response represents expired okta credentials. This is the fallback
+         * for a login page whose headers did not give it away, which is only noticed once its body
+         * fails to parse as json.
          *
          * @param statusCode
          *      the status code from the response
@@ -670,8 +2512,385 @@ public class LoveMonsterClient {
          * @return
          *      true if the failure represents expired okta credentials, or false otherwise
          */
-        private boolean isExpiredOktaCredentials(final int statusCode, final Throwable throwable) {
+        static boolean isExpiredOktaCredentials(final int statusCode, final Throwable throwable) {
             return statusCode == 200 && throwable instanceof MalformedJsonException;
         }
     }
+
+    /**
+     * Response handler which parses a {@link LoveListPage} with the streaming parser, instead of
+     * building a {@link JSONObject} first. Without a parse executor, the page is parsed straight from
+     * the response stream on the network thread. With one, the body is downloaded on the network
+     * thread and parsed on the parse executor, freeing the network thread for the next request.
+     * Only the parsed result is posted back to the callback thread.
+     */
+    private static abstract class LoveListStreamHttpResponseHandler extends AsyncHttpResponseHandler implements UrlResponseHandler {
+
+        protected static final Logger logger = new Logger(LoveListStreamHttpResponseHandler.class);
+
+        /**
+         * The parser used to convert the response stream into model objects.
+         */
+        @NonNull
+        private final ResponseParser responseParser;
+
+        /**
+         * The executor used to parse the downloaded body, or null to parse on the network thread.
+         */
+        @Nullable
+        private final Executor parseExecutor;
+
+        /**
+         * The url the response is for. Used for logging purposes and as the conditional get cache key.
+         */
+        protected String url;
+
+        /**
+         * The cache to store the parsed response in, or null if the response should not be cached.
+         */
+        @Nullable
+        private ConditionalGetCache<LoveListPage> conditionalGetCache;
+
+        /**
+         * The cached response whose validators were sent with the request, or null.
+         */
+        @Nullable
+        private ConditionalGetCache.Entry<LoveListPage> cachedEntry;
+
+        /**
+         * The request the response is for. Consulted before reporting a failure, in case the
+         * request is retried instead.
+         */
+        @Nullable
+        private HttpRemoter.Request request;
+
+        LoveListStreamHttpResponseHandler(@NonNull final ResponseParser responseParser, @Nullable final Executor parseExecutor) {
+            this.responseParser = responseParser;
+            this.parseExecutor = parseExecutor;
+        }
+
+        @Override
+        public void setUrl(final String url) {
+            this.url = url;
+        }
+
+        @Override
+        public void setRequest(final HttpRemoter.Request request) {
+            this.request = request;
+        }
+
+        @Override
+        public void sendFailure(final Throwable throwable) {
+            postRunnable(new Runnable() {
+                @Override
+                public void run() {
+                    handleFailure(0, null, throwable);
+                }
+            });
+        }
+
+        @Override
+        public void onRequestStarted() {
+            if (request != null) {
+                request.recordStarted();
+            }
+        }
+
+        private boolean isCancelled() {
+            return request != null && request.isCancelled();
+        }
+
+        private void markDone() {
+            if (request != null) {
+                request.markDone();
+            }
+        }
+
+        /**
+         * Enables conditional get caching for this response.
+         *
+         * @param conditionalGetCache
+         *      the cache to store the parsed response in
+         * @param cachedEntry
+         *      the cached response whose validators were sent with the request, or null
+         */
+        void setConditionalGetCache(@NonNull final ConditionalGetCache<LoveListPage> conditionalGetCache, @Nullable final ConditionalGetCache.Entry<LoveListPage> cachedEntry) {
+            this.conditionalGetCache = conditionalGetCache;
+            this.cachedEntry = cachedEntry;
+        }
+
+        /**
+         * Handler called on successful responses.
+         *
+         * @param page
+         *      the parsed page. cannot be null
+         */
+        abstract void onSuccess(@NonNull final LoveListPage page);
+
+        /**
+         * Handler called on failed responses. The error messages may be empty, but will not be
+         * {@code null}.
+         *
+         * @param errorMessages
+         *      the error messages describing the failure. cannot be null
+         */
+        abstract void onFailure(@NonNull final List<String> errorMessages);
+
+        /**
+         * Handler called when authentication has failed. Typically, this should be used to fire the
+         * login intent.
+         */
+        abstract void onAuthenticationFailure();
+
+        /**
+         * Invoked on the request thread with the raw response. Successful responses are parsed here
+         * straight from the entity stream, or downloaded and handed to the parse executor; error
+         * responses are buffered so their error messages can be read. The login page of an expired
+         * session is dropped unread.
+         */
+        @Override
+        public void sendResponseMessage(final HttpResponse response) throws IOException {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            final StatusLine status = response.getStatusLine();
+            final HttpEntity entity = response.getEntity();
+
+            if (isCancelled()) {
+                AsyncHttpClient.endEntityViaReflection(entity);
+                return;
+            }
+            if (SessionState.isLoginPage(response)) {
+                AsyncHttpClient.endEntityViaReflection(entity);
+                postRunnable(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleExpiredSession(status.getStatusCode());
+                    }
+                });
+                return;
+            }
+            final long receivedNanos = request == null ? System.nanoTime() : request.recordResponseReceived();
+
+            if (status.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && cachedEntry != null) {
+                AsyncHttpClient.endEntityViaReflection(entity);
+                postSuccess(status.getStatusCode(), cachedEntry.value, true);
+                return;
+            }
+
+            if (status.getStatusCode() >= 300) {
+                final String responseBody = entity == null ? null : EntityUtils.toString(entity, getCharset());
+                postFailure(status.getStatusCode(), responseBody, new HttpResponseException(status.getStatusCode(), status.getReasonPhrase()));
+                return;
+            }
+
+            final int statusCode = status.getStatusCode();
+            final String etag = headerValue(response, "ETag");
+            final String lastModified = headerValue(response, "Last-Modified");
+
+            if (parseExecutor == null) {
+                // downloaded while being parsed; the counting stream tells the two apart
+                parseAndPost(statusCode, entity == null ? null : new CountingInputStream(entity.getContent()), etag, lastModified);
+                AsyncHttpClient.endEntityViaReflection(entity);
+                return;
+            }
+
+            final byte[] body = entity == null ? null : EntityUtils.toByteArray(entity);
+            if (request != null && body != null) {
+                request.recordDownload(System.nanoTime() - receivedNanos, body.length);
+            }
+            parseExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    parseAndPost(statusCode, body == null ? null : new ByteArrayInputStream(body), etag, lastModified);
+                }
+            });
+        }
+
+        /**
+         * Parses the response body, caches the page if conditional get caching is enabled, and
+         * posts the result. Closes the body stream when done.
+         */
+        private void parseAndPost(final int statusCode, @Nullable final InputStream content, @Nullable final String etag, @Nullable final String lastModified) {
+            if (isCancelled()) {
+                // cancelled while waiting for the parse executor
+                if (content != null) {
+                    AsyncHttpClient.silentCloseInputStream(content);
+                }
+                return;
+            }
+
+            LoveListPage page;
+            final long startNanos = System.nanoTime();
+            try {
+                page = parse(content);
+            } catch (final IOException | RuntimeException e) {
+                // every failure is posted, so that the request and any coalesced waiters are answered
+                postFailure(statusCode, null, e);
+                return;
+            }
+            recordParse(System.nanoTime() - startNanos, content);
+
+            if (conditionalGetCache != null) {
+                // the cached copy is shared between responses, so it must not be modifiable
+                page = new LoveListPage(Collections.unmodifiableList(page.loves), page.totalPages);
+                conditionalGetCache.put(url, etag, lastModified, page);
+            }
+
+            postSuccess(statusCode, page, false);
+        }
+
+        /**
+         * Records the time taken to parse the body. If the body was parsed straight from the
+         * network, the time spent reading it is recorded as the download time instead.
+         */
+        private void recordParse(final long nanos, @Nullable final InputStream content) {
+            if (request == null) {
+                return;
+            }
+
+            if (content instanceof CountingInputStream) {
+                final CountingInputStream countingContent = (CountingInputStream) content;
+                request.recordDownload(countingContent.getReadNanos(), countingContent.getByteCount());
+                request.recordParse(nanos - countingContent.getReadNanos());
+            } else {
+                request.recordParse(nanos);
+            }
+        }
+
+        private void postSuccess(final int statusCode, @NonNull final LoveListPage page, final boolean fromCache) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            postRunnable(new Runnable() {
+                @Override
+                public void run() {
+                    if (isCancelled()) {
+                        logger.debug("url=" + url + " handler=onSuccess statusCode=" + statusCode + " cancelled=true");
+                        return;
+                    }
+
+                    final long deliveryStartNanos = System.nanoTime();
+                    logger.debug("url=" + url + " handler=onSuccess statusCode=" + statusCode + " fromCache=" + fromCache + " loves=" + page.loves.size() + " totalPages=" + page.totalPages);
+                    if (request != null) {
+                        request.recordSuccess();
+                    }
+                    markDone();
+                    onSuccess(page);
+                    if (request != null) {
+                        request.recordMainThreadTime(System.nanoTime() - deliveryStartNanos);
+                    }
+                }
+            });
+        }
+
+        @Nullable
+        private static String headerValue(@NonNull final HttpResponse response, @NonNull final String name) {
+            final Header header = response.getFirstHeader(name);
+            return header == null ? null : header.getValue();
+        }
+
+        /**
+         * Parses the response body, closing its stream when done.
+         */
+        private LoveListPage parse(@Nullable final InputStream content) throws IOException {
+            if (content == null) {
+                return new LoveListPage(new ArrayList<Love>(), 0);
+            }
+
+            try {
+                return responseParser.parseLoveListPage(new InputStreamReader(content, getCharset()));
+            } finally {
+                AsyncHttpClient.silentCloseInputStream(content);
+            }
+        }
+
+        private void postFailure(final int statusCode, @Nullable final String responseBody, @Nullable final Throwable throwable) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            postRunnable(new Runnable() {
+                @Override
+                public void run() {
+                    handleFailure(statusCode, responseBody, throwable);
+                }
+            });
+        }
+
+        @Override
+        public void onSuccess(final int statusCode, final Header[] headers, final byte[] responseBody) {
+            // successful responses are parsed and delivered from sendResponseMessage
+        }
+
+        @Override
+        public void onFailure(final int statusCode, final Header[] headers, final byte[] responseBody, final Throwable throwable) {
+            handleFailure(statusCode, responseBody == null ? null : new String(responseBody), throwable);
+        }
+
+        /**
+         * Centralized handler for failed responses.
+         *
+         * @param statusCode
+         *      the status code for the response
+         * @param responseBody
+         *      the response body from the server. may be null
+         * @param throwable
+         *      the thrown error. may be null
+         */
+        private void handleFailure(final int statusCode, @Nullable final String responseBody, @Nullable final Throwable throwable) {
+            if (isCancelled()) {
+                logger.debug("url=" + url + " handler=onFailure statusCode=" + statusCode + " cancelled=true");
+                return;
+            }
+
+            if (BaseHttpResponseHandler.isExpiredOktaCredentials(statusCode, throwable)) {
+                handleExpiredSession(statusCode);
+                return;
+            }
+
+            if (request != null && request.retryIfTransient(statusCode, throwable)) {
+                return;
+            }
+            markDone();
+
+            Object responseObject = responseBody;
+            if (responseBody != null) {
+                try {
+                    responseObject = new JSONObject(responseBody);
+                } catch (final JSONException e) {
+                    // not json; the raw body is logged instead
+                }
+            }
+
+            logger.debug(
+                    "url=" + url + " handler=onFailure statusCode=" + statusCode + " response=" + (responseObject == null ? "<null>" : responseObject),
+                    throwable
+            );
+
+            onFailure(BaseHttpResponseHandler.parseErrorMessages(responseObject, throwable));
+        }
+
+        /**
+         * Handles a response which is the login page of an expired session. The request is held
+         * until the session is renewed if it can be, and fails authentication otherwise.
+         *
+         * @param statusCode
+         *      the status code for the response
+         */
+        private void handleExpiredSession(final int statusCode) {
+            if (isCancelled()) {
+                logger.debug("url=" + url + " handler=onAuthenticationFailure statusCode=" + statusCode + " cancelled=true");
+                return;
+            }
+            if (request != null && request.holdUntilReauthenticated()) {
+                return;
+            }
+
+            markDone();
+            onAuthenticationFailure();
+        }
+    }
 }
@@ -0,0 +1,476 @@
+package org.ometa.lovemonster.service;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.ometa.lovemonster.Logger;
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.models.UserIdentityMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Durable queue of loves which could not be sent, generally because the network was down. Pending
+ * loves are written to a file on every change, so they survive the process being killed, and are
+ * replayed in batches by {@link #drain(LoveMonsterClient)} once connectivity returns.
+ *
+ * Each love is given an idempotency key when it is queued. The key is sent with every attempt, and
+ * a love is never queued twice or sent twice at once under the same key, so retries do not create
+ * duplicate loves.
+ *
+ * All file access and queue state is confined to a single background thread; the public methods
+ * only post work to it, so they never block the calling (generally UI) thread. Batches are sent
+ * from the main thread, since the http client answers requests on the looper they were made on,
+ * and the outcomes are posted back to the background thread.
+ *
+ * {@code
+ *      final LoveOutbox outbox = LoveOutbox.getInstance(context);
+ *      outbox.enqueue(unsentLoves);
+ *      ...
+ *      outbox.drain(LoveMonsterClient.getInstance());
+ * }
+ */
+@ThreadSafe
+public class LoveOutbox {
+
+    private static final Logger logger = new Logger(LoveOutbox.class);
+
+    /**
+     * The name of the outbox file, in the app's private files directory.
+     */
+    private static final String FILE_NAME = "love_outbox.json";
+
+    /**
+     * The maximum number of loves sent per batch.
+     */
+    private static final int BATCH_SIZE = 20;
+
+    /**
+     * The number of times the server may reject a love before it is dropped. Only rejections count:
+     * failures which {@link RetryPolicy#isTransientFailure(int, Throwable)} considers transient, such
+     * as the network being down, keep the love queued however many times they happen.
+     */
+    private static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * The singleton instance, created on first use.
+     */
+    private static LoveOutbox singletonInstance;
+
+    /**
+     * Returns the singleton {@code LoveOutbox}, stored in the app's private files directory.
+     *
+     * @param context
+     *      any context for the app
+     * @return
+     *      the singleton outbox
+     */
+    public static synchronized LoveOutbox getInstance(@NonNull final Context context) {
+        if (singletonInstance == null) {
+            singletonInstance = new LoveOutbox(
+                    new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "lovemonster-outbox");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }),
+                    new Executor() {
+                        private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+                        @Override
+                        public void execute(@NonNull final Runnable runnable) {
+                            mainThreadHandler.post(runnable);
+                        }
+                    }
+            );
+        }
+        return singletonInstance;
+    }
+
+    /**
+     * The file the pending loves are persisted to.
+     */
+    @NonNull
+    private final File file;
+
+    /**
+     * The single-threaded executor which owns the queue state and does all file access.
+     */
+    @NonNull
+    private final Executor executor;
+
+    /**
+     * The executor which sends the batches, generally posting to the main thread.
+     */
+    @NonNull
+    private final Executor mainThreadExecutor;
+
+    /**
+     * The pending loves keyed by idempotency key, in the order they were queued. Null until loaded
+     * from the file. Only accessed on the executor.
+     */
+    @Nullable
+    private Map<String, PendingLove> pendingLoves;
+
+    /**
+     * The keys of the loves currently being sent. Only accessed on the executor.
+     */
+    private final Set<String> inFlightKeys = new HashSet<>();
+
+    /**
+     * Whether a batch is currently being sent. Only accessed on the executor.
+     */
+    private boolean draining = false;
+
+    /**
+     * Creates an outbox persisted to the specified file.
+     *
+     * @param file
+     *      the file the pending loves are persisted to
+     * @param executor
+     *      a single-threaded executor used for all file access and queue state
+     * @param mainThreadExecutor
+     *      the executor the batches are sent from, generally posting to the main thread
+     * @throws IllegalArgumentException
+     *      if {@code file}, {@code executor} or {@code mainThreadExecutor} are null
+     */
+    LoveOutbox(@NonNull final File file, @NonNull final Executor executor, @NonNull final Executor mainThreadExecutor) throws IllegalArgumentException {
+        if (file == null) {
+            throw new IllegalArgumentException("argument `file` cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("argument `executor` cannot be null");
+        }
+        if (mainThreadExecutor == null) {
+            throw new IllegalArgumentException("argument `mainThreadExecutor` cannot be null");
+        }
+
+        this.file = file;
+        this.executor = executor;
+        this.mainThreadExecutor = mainThreadExecutor;
+    }
+
+    /**
+     * Queues the loves to be sent by a later {@link #drain(LoveMonsterClient)}. Loves without an
+     * idempotency key are queued as a copy with one; loves whose key is already queued are ignored.
+     *
+     * @param loves
+     *      the loves to queue
+     * @return
+     *      the queued loves, in the same order, each with an idempotency key
+     */
+    @NonNull
+    public List<Love> enqueue(@NonNull final List<Love> loves) {
+        final List<Love> queuedLoves = new ArrayList<>(loves.size());
+        for (final Love love : loves) {
+            queuedLoves.add(love.idempotencyKey == null ? love.withIdempotencyKey(UUID.randomUUID().toString()) : love);
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Map<String, PendingLove> pending = loadPendingLoves();
+                for (final Love love : queuedLoves) {
+                    if (!pending.containsKey(love.idempotencyKey)) {
+                        pending.put(love.idempotencyKey, new PendingLove(love, 0));
+                    }
+                }
+                persist();
+                logger.debug("method=enqueue queued=" + queuedLoves.size() + " pending=" + pending.size());
+            }
+        });
+        return queuedLoves;
+    }
+
+    /**
+     * Sends the pending loves in batches, one batch at a time. Stops when the outbox is empty, or
+     * when a batch has failures, which generally means the network is down again. Does nothing if
+     * a drain is already in progress.
+     *
+     * @param client
+     *      the client used to send the loves. must be authenticated
+     */
+    public void drain(@NonNull final LoveMonsterClient client) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                sendNextBatch(client);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of pending loves. Must be called on the executor.
+     */
+    @VisibleForTesting
+    int getPendingCount() {
+        return loadPendingLoves().size();
+    }
+
+    /**
+     * Sends the next batch of pending loves which are not already in flight. Runs on the executor,
+     * and hands the batch to the main thread executor to be sent.
+     */
+    private void sendNextBatch(@NonNull final LoveMonsterClient client) {
+        if (draining) {
+            return;
+        }
+
+        final List<Love> batch = new ArrayList<>();
+        for (final PendingLove pendingLove : loadPendingLoves().values()) {
+            if (batch.size() == BATCH_SIZE) {
+                break;
+            }
+            if (!inFlightKeys.contains(pendingLove.love.idempotencyKey)) {
+                batch.add(pendingLove.love);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        draining = true;
+        for (final Love love : batch) {
+            inFlightKeys.add(love.idempotencyKey);
+        }
+        logger.debug("method=sendNextBatch loves=" + batch.size() + " pending=" + pendingLoves.size());
+
+        mainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                client.makeLoves(batch, new LoveMonsterClient.BatchHandler() {
+                    @Override
+                    public void onLoveSent(@NonNull final Love love) {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                loadPendingLoves().remove(love.idempotencyKey);
+                                persist();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onLoveFailed(@NonNull final Love love, final int statusCode, @Nullable final Throwable throwable, @NonNull final List<String> errorMessages) {
+                        if (!isRejection(statusCode, throwable)) {
+                            logger.debug("method=onLoveFailed key=" + love.idempotencyKey + " statusCode=" + statusCode + " transient=true");
+                            return;
+                        }
+
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                final PendingLove pendingLove = loadPendingLoves().get(love.idempotencyKey);
+                                if (pendingLove == null) {
+                                    return;
+                                }
+
+                                pendingLove.attempts++;
+                                if (pendingLove.attempts >= MAX_ATTEMPTS) {
+                                    logger.debug("method=onLoveFailed key=" + love.idempotencyKey + " attempts=" + pendingLove.attempts + " dropped=true errors=" + errorMessages);
+                                    pendingLoves.remove(love.idempotencyKey);
+                                }
+                                persist();
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onComplete(@NonNull final List<Love> sentLoves, @NonNull final List<Love> failedLoves) {
+                        executor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                for (final Love love : batch) {
+                                    inFlightKeys.remove(love.idempotencyKey);
+                                }
+                                draining = false;
+
+                                if (failedLoves.isEmpty()) {
+                                    sendNextBatch(client);
+                                }
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onAuthenticationFailure() {
+                        // the remaining loves stay queued until the next drain after logging in again
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Checks whether a failed send was the server rejecting the love, rather than a transient
+     * failure such as the network being down or the server being overloaded.
+     *
+     * @param statusCode
+     *      the status code of the response, or 0 if no response was received
+     * @param throwable
+     *      the error the send failed with. may be null
+     * @return
+     *      true if the love was rejected
+     */
+    public static boolean isRejection(final int statusCode, @Nullable final Throwable throwable) {
+        return statusCode >= 400 && statusCode < 500 && !RetryPolicy.isTransientFailure(statusCode, throwable);
+    }
+
+    /**
+     * Returns the pending loves, loading them from the file on first use. Entries which cannot be
+     * read are skipped. If the file cannot be read at all, it is moved aside rather than left to be
+     * overwritten by the next {@link #persist()}. Runs on the executor.
+     */
+    @NonNull
+    private Map<String, PendingLove> loadPendingLoves() {
+        if (pendingLoves != null) {
+            return pendingLoves;
+        }
+
+        pendingLoves = new LinkedHashMap<>();
+        if (!file.exists()) {
+            return pendingLoves;
+        }
+
+        final JSONArray entries;
+        try {
+            entries = new JSONArray(readFile());
+        } catch (final IOException | JSONException e) {
+            final File unreadableFile = new File(file.getPath() + ".unreadable");
+            logger.debug("method=loadPendingLoves file=" + file + " unreadable=true movedTo=" + unreadableFile, e);
+            if (!file.renameTo(unreadableFile)) {
+                logger.debug("method=loadPendingLoves file=" + file + " moved=false");
+            }
+            return pendingLoves;
+        }
+
+        for (int i = 0; i < entries.length(); i++) {
+            try {
+                final PendingLove pendingLove = PendingLove.fromJson(entries.getJSONObject(i));
+                pendingLoves.put(pendingLove.love.idempotencyKey, pendingLove);
+            } catch (final JSONException e) {
+                logger.debug("method=loadPendingLoves file=" + file + " entry=" + i + " skipped=true", e);
+            }
+        }
+
+        return pendingLoves;
+    }
+
+    /**
+     * Writes the pending loves to a temporary file and renames it over the outbox file, so a crash
+     * part way through a write never leaves a truncated outbox. Runs on the executor.
+     */
+    private void persist() {
+        final JSONArray entries = new JSONArray();
+        try {
+            for (final PendingLove pendingLove : loadPendingLoves().values()) {
+                entries.put(pendingLove.toJson());
+            }
+
+            final File temporaryFile = new File(file.getPath() + ".tmp");
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), "UTF-8");
+            try {
+                writer.write(entries.toString());
+            } finally {
+                writer.close();
+            }
+
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("unable to rename " + temporaryFile + " to " + file);
+            }
+        } catch (final IOException | JSONException e) {
+            logger.debug("method=persist file=" + file, e);
+        }
+    }
+
+    private String readFile() throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            final StringBuilder contents = new StringBuilder();
+            final char[] buffer = new char[1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                contents.append(buffer, 0, read);
+            }
+            return contents.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * A queued love and the number of times sending it has failed.
+     */
+    private static class PendingLove {
+
+        @NonNull
+        final Love love;
+
+        int attempts;
+
+        PendingLove(@NonNull final Love love, final int attempts) {
+            this.love = love;
+            this.attempts = attempts;
+        }
+
+        JSONObject toJson() throws JSONException {
+            return new JSONObject()
+                    .put("idempotency_key", love.idempotencyKey)
+                    .put("reason", love.reason)
+                    .put("message", love.message)
+                    .put("private_message", love.isPrivate)
+                    .put("created_at", love.createdAtMillis)
+                    .put("lover", userToJson(love.lover))
+                    .put("lovee", userToJson(love.lovee))
+                    .put("attempts", attempts);
+        }
+
+        static PendingLove fromJson(@NonNull final JSONObject json) throws JSONException {
+            final Love love = new Love(json.getString("reason"), json.optString("message", null), json.optBoolean("private_message", false),
+                    userFromJson(json.getJSONObject("lover")), userFromJson(json.getJSONObject("lovee")),
+                    0, json.getString("idempotency_key"), json.getLong("created_at"));
+
+            return new PendingLove(love, json.optInt("attempts", 0));
+        }
+
+        private static JSONObject userToJson(@NonNull final User user) throws JSONException {
+            return new JSONObject()
+                    .put("email", user.email)
+                    .put("username", user.username);
+        }
+
+        private static User userFromJson(@NonNull final JSONObject json) throws JSONException {
+            return UserIdentityMap.getInstance().intern(new User(json.getString("email"), json.getString("username")));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.ometa.lovemonster.service;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Drains the {@link LoveOutbox} when network connectivity returns. Loves can only be sent by an
+ * authenticated client, so nothing is sent until the user has logged in; a successful login
+ * drains the outbox as well.
+ */
+public class LoveOutboxConnectivityReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(final Context context, final Intent intent) {
+        final LoveMonsterClient client = LoveMonsterClient.getInstance();
+        if (NetworkHelper.isUp(context) && client.getAuthenticatedUser() != null) {
+            LoveOutbox.getInstance(context).drain(client);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Loads a single page of loves, generally by calling {@link LoveMonsterClient#retrieveRecentLoves}.
+ * Used by the requests which are made of several page requests.
+ */
+interface LovePageLoader {
+
+    /**
+     * Starts loading the specified page, invoking the handler on completion.
+     *
+     * @param page
+     *      the page to load
+     * @param responseHandler
+     *      the handler to invoke on completion
+     * @return
+     *      a handle which cancels the page request
+     */
+    @NonNull
+    Cancellable loadPage(int page, @NonNull LoveMonsterClient.LoveListResponseHandler responseHandler);
+}
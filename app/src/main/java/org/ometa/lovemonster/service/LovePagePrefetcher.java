@@ -0,0 +1,290 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import org.ometa.lovemonster.Logger;
+import org.ometa.lovemonster.models.Love;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import cz.msebera.android.httpclient.annotation.NotThreadSafe;
+
+/**
+ * Speculatively loads the next page of an endless love list. As soon as page N has been delivered,
+ * page N+1 (if the response's total pages says it exists) is fetched and parsed in the background
+ * and held in a small buffer. When the list then asks for page N+1, it is handed over immediately,
+ * or as soon as the in-flight prefetch completes, instead of starting a new request.
+ *
+ * Intended to be used from the main thread only, which is where {@link LoveMonsterClient} delivers
+ * its responses.
+ *
+ * {@code
+ *      final LovePagePrefetcher prefetcher = new LovePagePrefetcher(new LovePagePrefetcher.PageLoader() {
+ *          public void loadPage(int page, LoveMonsterClient.LoveListResponseHandler handler) {
+ *              client.retrieveRecentLoves(handler, page);
+ *          }
+ *      });
+ *      prefetcher.requestPage(1, handler);
+ * }
+ */
+@NotThreadSafe
+public class LovePagePrefetcher {
+
+    private static final Logger logger = new Logger(LovePagePrefetcher.class);
+
+    /**
+     * The default number of pages which may be buffered at once.
+     */
+    private static final int DEFAULT_MAX_BUFFERED_PAGES = 2;
+
+    /**
+     * Loads a single page of loves, generally by calling {@link LoveMonsterClient}.
+     */
+    public interface PageLoader {
+
+        /**
+         * Starts loading the specified page, invoking the handler on completion.
+         *
+         * @param page
+         *      the page to load
+         * @param responseHandler
+         *      the handler to invoke on completion
+         */
+        void loadPage(int page, @NonNull LoveMonsterClient.LoveListResponseHandler responseHandler);
+    }
+
+    /**
+     * The loader used to fetch pages.
+     */
+    @NonNull
+    private final PageLoader pageLoader;
+
+    /**
+     * The maximum number of pages which may be buffered (or being prefetched) at once.
+     */
+    private final int maxBufferedPages;
+
+    /**
+     * The prefetched pages, keyed by page number. Entries may still be in flight.
+     */
+    private final Map<Integer, PrefetchedPage> prefetchedPages = new HashMap<>();
+
+    /**
+     * Incremented on {@link #clear()}, so results of requests made before then are discarded.
+     */
+    private int generation = 0;
+
+    /**
+     * Creates a prefetcher with the default buffer size.
+     *
+     * @param pageLoader
+     *      the loader used to fetch pages
+     */
+    public LovePagePrefetcher(@NonNull final PageLoader pageLoader) {
+        this(pageLoader, DEFAULT_MAX_BUFFERED_PAGES);
+    }
+
+    /**
+     * Creates a prefetcher.
+     *
+     * @param pageLoader
+     *      the loader used to fetch pages
+     * @param maxBufferedPages
+     *      the maximum number of pages to buffer at once
+     * @throws IllegalArgumentException
+     *      if {@code pageLoader} is null or {@code maxBufferedPages} is less than 1
+     */
+    public LovePagePrefetcher(@NonNull final PageLoader pageLoader, final int maxBufferedPages) throws IllegalArgumentException {
+        if (pageLoader == null) {
+            throw new IllegalArgumentException("argument `pageLoader` cannot be null");
+        }
+        if (maxBufferedPages < 1) {
+            throw new IllegalArgumentException("argument `maxBufferedPages` must be positive");
+        }
+
+        this.pageLoader = pageLoader;
+        this.maxBufferedPages = maxBufferedPages;
+    }
+
+    /**
+     * Requests the specified page. If the page has been prefetched, it is handed to the handler
+     * immediately (or when its prefetch completes); otherwise it is loaded. Once the page has been
+     * delivered, the following page is prefetched.
+     *
+     * @param page
+     *      the page to request
+     * @param responseHandler
+     *      the handler to invoke with the page
+     */
+    public void requestPage(final int page, @NonNull final LoveMonsterClient.LoveListResponseHandler responseHandler) {
+        final LoveMonsterClient.LoveListResponseHandler shownPageHandler = new ShownPageHandler(page, generation, responseHandler);
+        final PrefetchedPage prefetchedPage = prefetchedPages.remove(page);
+
+        if (prefetchedPage != null) {
+            logger.debug("method=requestPage page=" + page + " prefetched=true complete=" + prefetchedPage.complete);
+            prefetchedPage.handOff(shownPageHandler);
+            return;
+        }
+
+        logger.debug("method=requestPage page=" + page + " prefetched=false");
+        pageLoader.loadPage(page, shownPageHandler);
+    }
+
+    /**
+     * Discards all prefetched pages, including those still in flight. Used when the list is
+     * reloaded, since the buffered pages may no longer line up with the new first page.
+     */
+    public void clear() {
+        generation++;
+        prefetchedPages.clear();
+    }
+
+    /**
+     * Returns the number of pages currently buffered or being prefetched.
+     */
+    public int getBufferedPageCount() {
+        return prefetchedPages.size();
+    }
+
+    /**
+     * Invoked once a page has been delivered. Prefetches the next page if it exists.
+     */
+    private void onPageShown(final int page, final int totalPages) {
+        // pages before the one shown can no longer be requested by the endless scroll
+        final Iterator<Integer> pages = prefetchedPages.keySet().iterator();
+        while (pages.hasNext()) {
+            if (pages.next() <= page) {
+                pages.remove();
+            }
+        }
+
+        final int nextPage = page + 1;
+        if (nextPage > totalPages || prefetchedPages.containsKey(nextPage) || prefetchedPages.size() >= maxBufferedPages) {
+            return;
+        }
+
+        logger.debug("method=onPageShown page=" + page + " prefetchPage=" + nextPage + " totalPages=" + totalPages);
+
+        final PrefetchedPage prefetchedPage = new PrefetchedPage(nextPage, generation);
+        prefetchedPages.put(nextPage, prefetchedPage);
+        pageLoader.loadPage(nextPage, prefetchedPage);
+    }
+
+    /**
+     * Wraps the handler for a requested page, so that the next page is prefetched once it has been
+     * delivered.
+     */
+    private class ShownPageHandler implements LoveMonsterClient.LoveListResponseHandler {
+
+        private final int page;
+        private final int requestGeneration;
+
+        @NonNull
+        private final LoveMonsterClient.LoveListResponseHandler responseHandler;
+
+        ShownPageHandler(final int page, final int requestGeneration, @NonNull final LoveMonsterClient.LoveListResponseHandler responseHandler) {
+            this.page = page;
+            this.requestGeneration = requestGeneration;
+            this.responseHandler = responseHandler;
+        }
+
+        @Override
+        public void onSuccess(@NonNull final List<Love> loves, final int totalPages) {
+            responseHandler.onSuccess(loves, totalPages);
+            if (requestGeneration == generation) {
+                onPageShown(page, totalPages);
+            }
+        }
+
+        @Override
+        public void onFail() {
+            responseHandler.onFail();
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+            responseHandler.onAuthenticationFailure();
+        }
+    }
+
+    /**
+     * A page being prefetched. Holds the result until a handler asks for it, or forwards the
+     * result directly if a handler asked while the prefetch was in flight.
+     */
+    private class PrefetchedPage implements LoveMonsterClient.LoveListResponseHandler {
+
+        private final int page;
+        private final int requestGeneration;
+
+        private boolean complete = false;
+        private List<Love> loves;
+        private int totalPages;
+
+        /**
+         * The handler which requested this page while it was in flight, or null.
+         */
+        private LoveMonsterClient.LoveListResponseHandler waitingHandler;
+
+        PrefetchedPage(final int page, final int requestGeneration) {
+            this.page = page;
+            this.requestGeneration = requestGeneration;
+        }
+
+        /**
+         * Hands this page to the handler, immediately if it has been loaded, or otherwise once the
+         * prefetch completes.
+         */
+        void handOff(@NonNull final LoveMonsterClient.LoveListResponseHandler responseHandler) {
+            if (complete) {
+                responseHandler.onSuccess(loves, totalPages);
+            } else {
+                waitingHandler = responseHandler;
+            }
+        }
+
+        @Override
+        public void onSuccess(@NonNull final List<Love> loves, final int totalPages) {
+            if (waitingHandler != null) {
+                waitingHandler.onSuccess(loves, totalPages);
+                return;
+            }
+            if (requestGeneration != generation) {
+                return;
+            }
+
+            this.loves = loves;
+            this.totalPages = totalPages;
+            this.complete = true;
+        }
+
+        @Override
+        public void onFail() {
+            if (waitingHandler != null) {
+                waitingHandler.onFail();
+                return;
+            }
+
+            // forget the failed prefetch, so the page is loaded normally when requested
+            discard();
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+            if (waitingHandler != null) {
+                waitingHandler.onAuthenticationFailure();
+                return;
+            }
+
+            discard();
+        }
+
+        private void discard() {
+            if (prefetchedPages.get(page) == this) {
+                prefetchedPages.remove(page);
+            }
+        }
+    }
+}
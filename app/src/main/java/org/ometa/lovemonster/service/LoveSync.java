@@ -0,0 +1,240 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import org.ometa.lovemonster.models.Love;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Retrieves the loves newer than the newest love already held. Pages are read newest first from
+ * page 1, stopping at the first love which is already held, so a refresh costs one page plus one
+ * page per page of new loves, however many loves are held.
+ *
+ * A love is already held if it was created before the newest held love, or if it is the newest
+ * held love. Within the same millisecond as the newest held love, loves are ordered by id when both
+ * ids are known, so a love with a higher id is new; otherwise a love is new unless it has the same
+ * {@link Love#fingerprint()} as the newest held love.
+ *
+ * If no held love is found within the maximum number of pages, the new loves found so far are
+ * reported as incomplete; the caller should reload the list instead of prepending them, since
+ * loves between them and the held loves are missing.
+ *
+ * Cancelling the sync cancels the page in flight. The handler is not called afterwards.
+ */
+@ThreadSafe
+class LoveSync implements Cancellable {
+
+    @NonNull
+    private final Love newestKnownLove;
+
+    private final int maxPages;
+
+    @NonNull
+    private final LovePageLoader pageLoader;
+
+    @NonNull
+    private final LoveMonsterClient.NewLovesResponseHandler responseHandler;
+
+    /**
+     * The new loves found so far, newest first.
+     */
+    @GuardedBy("this")
+    private final List<Love> newLoves = new ArrayList<>();
+
+    /**
+     * The page being loaded.
+     */
+    @GuardedBy("this")
+    private int page = 0;
+
+    /**
+     * The handle of the page being loaded.
+     */
+    @GuardedBy("this")
+    private Cancellable pageRequest;
+
+    @GuardedBy("this")
+    private boolean completed = false;
+
+    @GuardedBy("this")
+    private boolean cancelled = false;
+
+    /**
+     * Creates a sync. The sync does not start loading until {@link #start()} is called.
+     *
+     * @param newestKnownLove
+     *      the newest love already held
+     * @param maxPages
+     *      the maximum number of pages to load before giving up on finding a held love
+     * @param pageLoader
+     *      used to load each page
+     * @param responseHandler
+     *      the handler for the new loves
+     */
+    LoveSync(@NonNull final Love newestKnownLove, final int maxPages, @NonNull final LovePageLoader pageLoader, @NonNull final LoveMonsterClient.NewLovesResponseHandler responseHandler) {
+        this.newestKnownLove = newestKnownLove;
+        this.maxPages = maxPages;
+        this.pageLoader = pageLoader;
+        this.responseHandler = responseHandler;
+    }
+
+    /**
+     * Starts loading from the first page.
+     */
+    void start() {
+        loadNextPage();
+    }
+
+    @Override
+    public void cancel() {
+        final Cancellable inFlightRequest;
+        synchronized (this) {
+            if (completed || cancelled) {
+                return;
+            }
+            cancelled = true;
+            inFlightRequest = pageRequest;
+        }
+
+        if (inFlightRequest != null) {
+            inFlightRequest.cancel();
+        }
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return completed || cancelled;
+    }
+
+    /**
+     * Returns true if the love is already held.
+     */
+    boolean isKnown(@NonNull final Love love) {
+        final long createdAtMillis = love.createdAtMillis;
+        final long newestKnownMillis = newestKnownLove.createdAtMillis;
+        if (createdAtMillis != newestKnownMillis) {
+            return createdAtMillis < newestKnownMillis;
+        }
+
+        if (love.id != 0 && newestKnownLove.id != 0) {
+            return love.id <= newestKnownLove.id;
+        }
+        return love.fingerprint() == newestKnownLove.fingerprint();
+    }
+
+    /**
+     * Loads the next page. The load happens outside the lock, since a failed load may call back
+     * into this sync on the same thread.
+     */
+    private void loadNextPage() {
+        final int nextPage;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            nextPage = ++page;
+        }
+
+        final Cancellable request = pageLoader.loadPage(nextPage, new PageHandler(nextPage));
+        final boolean cancelRequest;
+        synchronized (this) {
+            if (page == nextPage) {
+                pageRequest = request;
+            }
+            cancelRequest = cancelled;
+        }
+        if (cancelRequest) {
+            // the sync was cancelled while the page was being loaded
+            request.cancel();
+        }
+    }
+
+    /**
+     * Invokes the handler with the new loves found, once.
+     */
+    private void complete(final boolean reachedKnownLoves) {
+        final List<Love> loves;
+        synchronized (this) {
+            if (completed || cancelled) {
+                return;
+            }
+            completed = true;
+            loves = Collections.unmodifiableList(new ArrayList<>(newLoves));
+        }
+
+        responseHandler.onSuccess(loves, reachedKnownLoves);
+    }
+
+    /**
+     * Collects the new loves from a single page, and decides whether to load the next one.
+     */
+    private class PageHandler implements LoveMonsterClient.LoveListResponseHandler {
+
+        private final int page;
+
+        PageHandler(final int page) {
+            this.page = page;
+        }
+
+        @Override
+        public void onSuccess(@NonNull final List<Love> loves, final int totalPages) {
+            boolean reachedKnownLoves = false;
+            synchronized (LoveSync.this) {
+                if (cancelled || completed) {
+                    return;
+                }
+                for (final Love love : loves) {
+                    if (isKnown(love)) {
+                        reachedKnownLoves = true;
+                        break;
+                    }
+                    newLoves.add(love);
+                }
+            }
+
+            if (reachedKnownLoves || loves.isEmpty() || (totalPages > 0 && page >= totalPages)) {
+                // an empty or last page also means every love has been seen
+                complete(true);
+            } else if (page >= maxPages) {
+                complete(false);
+            } else {
+                loadNextPage();
+            }
+        }
+
+        @Override
+        public void onFail() {
+            synchronized (LoveSync.this) {
+                if (cancelled || completed) {
+                    return;
+                }
+                completed = true;
+            }
+
+            responseHandler.onFail();
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+            synchronized (LoveSync.this) {
+                if (cancelled || completed) {
+                    return;
+                }
+                completed = true;
+            }
+
+            responseHandler.onAuthenticationFailure();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Tracks in-flight requests by key (generally the request url), so that identical requests made
+ * while one is already outstanding can wait on that request's result instead of making their own.
+ * Keeps hit and miss counts to show how many duplicate requests were saved.
+ *
+ * {@code
+ *      if (coalescer.join(url, handler)) {
+ *          // first request for the url; make the request, and on completion:
+ *          for (final Handler waiter : coalescer.complete(url)) { ... }
+ *      }
+ * }
+ *
+ * A waiter which is no longer interested may {@link #leave(String, Object)}; once every waiter has
+ * left, the request's {@link #attach(String, Cancellable) attached} handle is cancelled.
+ *
+ * @param <T>
+ *     the type of the waiters (generally response handlers)
+ */
+@ThreadSafe
+class RequestCoalescer<T> {
+
+    /**
+     * The waiters for each in-flight request, in the order they joined.
+     */
+    private final Map<String, List<T>> inFlightRequests = new HashMap<>();
+
+    /**
+     * The handles of the in-flight requests, once they have been made.
+     */
+    private final Map<String, Cancellable> inFlightHandles = new HashMap<>();
+
+    /**
+     * The number of requests which joined an in-flight request.
+     */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * The number of requests which had to be made because none was in flight.
+     */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Adds the waiter to the in-flight request for the key, starting a new one if there is none.
+     *
+     * @param key
+     *      the key for the request
+     * @param waiter
+     *      the waiter to notify when the request completes
+     * @return
+     *      true if no request was in flight, and the caller must make the request, or false if the
+     *      waiter has joined an in-flight request
+     */
+    synchronized boolean join(@NonNull final String key, @NonNull final T waiter) {
+        final List<T> waiters = inFlightRequests.get(key);
+        if (waiters != null) {
+            waiters.add(waiter);
+            hitCount.incrementAndGet();
+            return false;
+        }
+
+        final List<T> newWaiters = new ArrayList<>(2);
+        newWaiters.add(waiter);
+        inFlightRequests.put(key, newWaiters);
+        missCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Marks the request for the key as complete, returning all of its waiters. Requests for the
+     * key made after this call will start a new request.
+     *
+     * @param key
+     *      the key for the request
+     * @return
+     *      the waiters for the request. may be empty, but will not be null
+     */
+    @NonNull
+    synchronized List<T> complete(@NonNull final String key) {
+        inFlightHandles.remove(key);
+        final List<T> waiters = inFlightRequests.remove(key);
+        if (waiters == null) {
+            return Collections.emptyList();
+        }
+        return waiters;
+    }
+
+    /**
+     * Attaches the handle of the request made for the key, so that it can be cancelled once every
+     * waiter has left. If every waiter has already left, the handle is cancelled straight away.
+     *
+     * @param key
+     *      the key for the request
+     * @param handle
+     *      the handle of the request
+     */
+    void attach(@NonNull final String key, @NonNull final Cancellable handle) {
+        synchronized (this) {
+            if (inFlightRequests.containsKey(key)) {
+                inFlightHandles.put(key, handle);
+                return;
+            }
+        }
+        handle.cancel();
+    }
+
+    /**
+     * Removes the waiter from the in-flight request for the key. If it was the last waiter, the
+     * request is forgotten, so later requests for the key start a new one, and its attached handle
+     * is cancelled.
+     *
+     * @param key
+     *      the key for the request
+     * @param waiter
+     *      the waiter to remove
+     */
+    void leave(@NonNull final String key, @NonNull final T waiter) {
+        final Cancellable handle;
+        synchronized (this) {
+            final List<T> waiters = inFlightRequests.get(key);
+            if (waiters == null || !waiters.remove(waiter) || !waiters.isEmpty()) {
+                return;
+            }
+            inFlightRequests.remove(key);
+            handle = inFlightHandles.remove(key);
+        }
+
+        if (handle != null) {
+            handle.cancel();
+        }
+    }
+
+    /**
+     * Returns the number of requests which were served by joining an in-flight request.
+     */
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of requests which were made because no identical request was in flight.
+     */
+    long getMissCount() {
+        return missCount.get();
+    }
+}
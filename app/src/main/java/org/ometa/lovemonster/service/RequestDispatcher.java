@@ -0,0 +1,202 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Holds the executors used by {@link LoveMonsterClient} to run requests. Network calls run on the
+ * network executor; once a response has been downloaded, it is handed to the parse executor so the
+ * network thread is free for the next request while the previous response is being parsed. Failed
+ * requests which are retried wait out their backoff on the retry scheduler.
+ *
+ * {@code
+ *      final RequestDispatcher dispatcher = RequestDispatcher.create(4, 2);
+ * }
+ */
+@ThreadSafe
+public class RequestDispatcher {
+
+    /**
+     * The default number of threads making network calls.
+     */
+    private static final int DEFAULT_NETWORK_THREADS = 4;
+
+    /**
+     * The default number of threads parsing responses.
+     */
+    private static final int DEFAULT_PARSE_THREADS = 2;
+
+    /**
+     * The executor which makes the http calls.
+     */
+    @NonNull
+    private final ExecutorService networkExecutor;
+
+    /**
+     * The executor which parses downloaded responses.
+     */
+    @NonNull
+    private final Executor parseExecutor;
+
+    /**
+     * The scheduler which resends failed requests once their backoff has passed.
+     */
+    @NonNull
+    private final ScheduledExecutorService retryScheduler;
+
+    /**
+     * Creates a dispatcher which uses the specified executors, and a new single thread retry
+     * scheduler.
+     *
+     * @param networkExecutor
+     *      the executor used to make http calls
+     * @param parseExecutor
+     *      the executor used to parse downloaded responses
+     * @throws IllegalArgumentException
+     *      if {@code networkExecutor} or {@code parseExecutor} are null
+     */
+    public RequestDispatcher(@NonNull final ExecutorService networkExecutor, @NonNull final Executor parseExecutor) throws IllegalArgumentException {
+        this(networkExecutor, parseExecutor, newRetryScheduler());
+    }
+
+    /**
+     * Creates a dispatcher which uses the specified executors.
+     *
+     * @param networkExecutor
+     *      the executor used to make http calls
+     * @param parseExecutor
+     *      the executor used to parse downloaded responses
+     * @param retryScheduler
+     *      the scheduler used to resend failed requests after their backoff
+     * @throws IllegalArgumentException
+     *      if {@code networkExecutor}, {@code parseExecutor} or {@code retryScheduler} are null
+     */
+    public RequestDispatcher(@NonNull final ExecutorService networkExecutor, @NonNull final Executor parseExecutor, @NonNull final ScheduledExecutorService retryScheduler) throws IllegalArgumentException {
+        if (networkExecutor == null) {
+            throw new IllegalArgumentException("argument `networkExecutor` cannot be null");
+        }
+        if (parseExecutor == null) {
+            throw new IllegalArgumentException("argument `parseExecutor` cannot be null");
+        }
+        if (retryScheduler == null) {
+            throw new IllegalArgumentException("argument `retryScheduler` cannot be null");
+        }
+
+        this.networkExecutor = networkExecutor;
+        this.parseExecutor = parseExecutor;
+        this.retryScheduler = retryScheduler;
+    }
+
+    /**
+     * Creates a dispatcher with the default number of network and parse threads.
+     *
+     * @return
+     *      the new dispatcher
+     */
+    @NonNull
+    public static RequestDispatcher create() {
+        return create(DEFAULT_NETWORK_THREADS, DEFAULT_PARSE_THREADS);
+    }
+
+    /**
+     * Creates a dispatcher backed by fixed pools of daemon threads.
+     *
+     * @param networkThreads
+     *      the number of threads making network calls
+     * @param parseThreads
+     *      the number of threads parsing responses
+     * @return
+     *      the new dispatcher
+     * @throws IllegalArgumentException
+     *      if either thread count is less than 1
+     */
+    @NonNull
+    public static RequestDispatcher create(final int networkThreads, final int parseThreads) throws IllegalArgumentException {
+        if (networkThreads < 1) {
+            throw new IllegalArgumentException("argument `networkThreads` must be positive");
+        }
+        if (parseThreads < 1) {
+            throw new IllegalArgumentException("argument `parseThreads` must be positive");
+        }
+
+        return new RequestDispatcher(
+                Executors.newFixedThreadPool(networkThreads, new NamedThreadFactory("lovemonster-network")),
+                Executors.newFixedThreadPool(parseThreads, new NamedThreadFactory("lovemonster-parse"))
+        );
+    }
+
+    /**
+     * Returns the executor used to make http calls.
+     */
+    @NonNull
+    public ExecutorService getNetworkExecutor() {
+        return networkExecutor;
+    }
+
+    /**
+     * Returns the executor used to parse downloaded responses.
+     */
+    @NonNull
+    public Executor getParseExecutor() {
+        return parseExecutor;
+    }
+
+    /**
+     * Returns the number of threads the parse executor runs tasks on, or 1 if it cannot be told,
+     * such as for an executor which is not a thread pool.
+     */
+    public int getParseParallelism() {
+        if (parseExecutor instanceof ThreadPoolExecutor) {
+            return Math.max(1, ((ThreadPoolExecutor) parseExecutor).getMaximumPoolSize());
+        }
+        return 1;
+    }
+
+    /**
+     * Returns the scheduler used to resend failed requests after their backoff.
+     */
+    @NonNull
+    public ScheduledExecutorService getRetryScheduler() {
+        return retryScheduler;
+    }
+
+    /**
+     * Creates a single thread scheduler for retries. The thread is only started once the first
+     * retry is scheduled.
+     *
+     * @return
+     *      the new scheduler
+     */
+    @NonNull
+    static ScheduledExecutorService newRetryScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("lovemonster-retry"));
+    }
+
+    /**
+     * Creates numbered daemon threads, so idle pools never keep the process alive.
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        NamedThreadFactory(@NonNull final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Collects the requests started by a screen, so they can all be cancelled when the screen goes
+ * away. Generally owned by a fragment, which adds every request it makes and calls
+ * {@link #cancelAll()} when its view is destroyed; the group may be reused afterwards.
+ *
+ * {@code
+ *      requestGroup.add(client.retrieveRecentLoves(handler, page));
+ *      ...
+ *      public void onDestroyView() {
+ *          requestGroup.cancelAll();
+ *          super.onDestroyView();
+ *      }
+ * }
+ */
+@ThreadSafe
+public class RequestGroup {
+
+    @GuardedBy("this")
+    private final List<Cancellable> requests = new ArrayList<>();
+
+    /**
+     * Adds a request to the group. Requests which are already done are dropped as new ones are
+     * added, so the group does not grow without bound.
+     *
+     * @param request
+     *      the request to add
+     * @return
+     *      the request, for chaining
+     * @throws IllegalArgumentException
+     *      if {@code request} is null
+     */
+    @NonNull
+    public synchronized Cancellable add(@NonNull final Cancellable request) throws IllegalArgumentException {
+        if (request == null) {
+            throw new IllegalArgumentException("argument `request` cannot be null");
+        }
+
+        removeDone();
+        requests.add(request);
+        return request;
+    }
+
+    /**
+     * Cancels every request in the group which is not yet done, and empties the group.
+     *
+     * @return
+     *      the number of requests which were still outstanding
+     */
+    public int cancelAll() {
+        final List<Cancellable> outstandingRequests;
+        synchronized (this) {
+            removeDone();
+            outstandingRequests = new ArrayList<>(requests);
+            requests.clear();
+        }
+
+        // cancelled outside the lock, since cancelling may call back into other requests
+        for (final Cancellable request : outstandingRequests) {
+            request.cancel();
+        }
+        return outstandingRequests.size();
+    }
+
+    /**
+     * Returns the number of requests in the group which are not yet done.
+     */
+    @VisibleForTesting
+    synchronized int getOutstandingCount() {
+        removeDone();
+        return requests.size();
+    }
+
+    @GuardedBy("this")
+    private void removeDone() {
+        final Iterator<Cancellable> iterator = requests.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -1,22 +1,23 @@
 package org.ometa.lovemonster.service;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.ometa.lovemonster.models.Love;
 import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.models.UserIdentityMap;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.TimeZone;
-
-import cz.msebera.android.httpclient.annotation.NotThreadSafe;
-import cz.msebera.android.httpclient.client.utils.DateUtils;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Parses responses from the server into model objects.
@@ -24,49 +25,160 @@ import cz.msebera.android.httpclient.client.utils.DateUtils;
 class ResponseParser {
 
     /**
-     * The date format for iso8601.
-     *
-     * **N.B.**
-     *      Due to a bug in java, the date format doesn't handle "Z" as a timezone offset.
-     *      Instead of implementing complex logic around this, simply ignore the timezone and force
-     *      it to UTC.
+     * The smallest number of loves in a list which is parsed in parallel. Smaller lists are parsed
+     * faster on one thread than they can be handed to others.
+     */
+    static final int PARALLEL_PARSE_THRESHOLD = 200;
+
+    /**
+     * The smallest number of loves parsed as one chunk, so that each task is worth handing off.
+     */
+    private static final int MIN_PARALLEL_CHUNK_SIZE = 50;
+
+    /**
+     * The default maximum number of users in the user cache. Enough for everyone in a large feed.
      */
-    private static final String[] ISO8601 = new String[]{"yyyy-MM-dd'T'HH:mm:ss"};
+    static final int DEFAULT_USER_CACHE_MAX_ENTRIES = 2048;
 
     /**
-     * UTC timezone.
+     * The default maximum estimated memory of the users in the user cache.
      */
-    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    static final long DEFAULT_USER_CACHE_MAX_BYTES = 1024 * 1024;
 
     /**
-     * Internal cache used to reuse {@link User} objects to reduce memory overhead and reduce parse time.
-     * **N.B.** This is not made synchronized to help with performance, since it is unlikely to be
-     * accessed by multiple threads concurrently.
+     * The default number of stripes in the user cache, which is the number of threads which can use
+     * it at once.
      */
-    private static final Map<String, User> userCache = new EntityCache<>(25);
+    static final int DEFAULT_USER_CACHE_STRIPES = 8;
 
+    /**
+     * Cache used to reuse {@link User} objects to reduce memory overhead and reduce parse time, or
+     * null if users are not reused.
+     */
+    @Nullable
+    private final UserCache userCache;
 
-    private final boolean useUserCache;
+    /**
+     * The identity map every parsed user is resolved through, so that each person is a single
+     * instance across parsers, pages and lookups.
+     */
+    @NonNull
+    private final UserIdentityMap userIdentityMap;
 
     /**
      * The format to use when generating user profile image urls.
      */
     private final String userProfileImageUrlFormat;
 
+    /**
+     * The cache every parsed user is added to, so that it can be looked up by username without a
+     * request. May be null.
+     */
+    @Nullable
+    private volatile UserLookupCache userLookupCache;
+
+    /**
+     * The typeahead index every parsed user is added to. May be null.
+     */
+    @Nullable
+    private volatile UserPrefixIndex userPrefixIndex;
+
+    /**
+     * The executor which helps parse large love lists, or null to parse them on the calling thread.
+     */
+    @Nullable
+    private volatile Executor parallelParseExecutor;
+
+    /**
+     * The number of threads, including the calling thread, which parse a large love list.
+     */
+    private volatile int parseParallelism = 1;
+
     ResponseParser(final String userProfileImageUrlFormat) {
         this(true, userProfileImageUrlFormat);
     }
 
     ResponseParser(final boolean useUserCache, final String userProfileImageUrlFormat) {
-        this.useUserCache = useUserCache;
+        this(useUserCache ? new UserCache(DEFAULT_USER_CACHE_MAX_ENTRIES, DEFAULT_USER_CACHE_MAX_BYTES, DEFAULT_USER_CACHE_STRIPES) : null, userProfileImageUrlFormat);
+    }
+
+    /**
+     * Creates a parser which reuses the users in the specified cache, and resolves users through the
+     * app-wide {@link UserIdentityMap}.
+     *
+     * @param userCache
+     *      the cache of parsed users, or null to look users up in the identity map alone
+     * @param userProfileImageUrlFormat
+     *      the format to use when generating user profile image urls
+     */
+    ResponseParser(@Nullable final UserCache userCache, final String userProfileImageUrlFormat) {
+        this(userCache, UserIdentityMap.getInstance(), userProfileImageUrlFormat);
+    }
+
+    /**
+     * Creates a parser which reuses the users in the specified cache, and resolves users through the
+     * specified identity map.
+     *
+     * @param userCache
+     *      the cache of parsed users, or null to look users up in the identity map alone
+     * @param userIdentityMap
+     *      the identity map users are resolved through
+     * @param userProfileImageUrlFormat
+     *      the format to use when generating user profile image urls
+     */
+    ResponseParser(@Nullable final UserCache userCache, @NonNull final UserIdentityMap userIdentityMap, final String userProfileImageUrlFormat) {
+        this.userCache = userCache;
+        this.userIdentityMap = userIdentityMap;
         this.userProfileImageUrlFormat = userProfileImageUrlFormat;
     }
 
+    /**
+     * Sets the cache every parsed user is added to.
+     *
+     * @param userLookupCache
+     *      the cache, or null to stop adding users
+     */
+    void setUserLookupCache(@Nullable final UserLookupCache userLookupCache) {
+        this.userLookupCache = userLookupCache;
+    }
+
+    /**
+     * Sets the typeahead index every parsed user is added to.
+     *
+     * @param userPrefixIndex
+     *      the index, or null to stop adding users
+     */
+    void setUserPrefixIndex(@Nullable final UserPrefixIndex userPrefixIndex) {
+        this.userPrefixIndex = userPrefixIndex;
+    }
+
+    /**
+     * Parses love lists of at least {@link #PARALLEL_PARSE_THRESHOLD} loves on several threads.
+     *
+     * @param executor
+     *      the executor which helps the calling thread, or null to parse on the calling thread only
+     * @param parallelism
+     *      the number of threads which parse a list, including the calling thread
+     * @throws IllegalArgumentException
+     *      if {@code parallelism} is less than 1
+     */
+    void setParallelParse(@Nullable final Executor executor, final int parallelism) throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("argument `parallelism` must be positive");
+        }
+
+        this.parseParallelism = parallelism;
+        this.parallelParseExecutor = executor;
+    }
+
     /**
      * Parses a list of {@link Love} objects from a json response payload. May return an empty list,
      * but will not return null. Handles null inputs as well as malformed json.
      * If an element cannot be parsed, it will be excluded from the returned list.
      *
+     * Large lists are parsed in parallel if {@link #setParallelParse(Executor, int)} was called,
+     * and the loves are returned in the same order either way.
+     *
      * @param responseJsonObject
      *      the json response object from the server
      * @return
@@ -78,6 +190,11 @@ class ResponseParser {
 
         if (responseJsonObject != null) {
             final JSONArray lovesJsonArray = responseJsonObject.optJSONArray("data");
+            final Executor executor = parallelParseExecutor;
+            final int parallelism = parseParallelism;
+            if (lovesJsonArray != null && executor != null && parallelism > 1 && lovesJsonArray.length() >= PARALLEL_PARSE_THRESHOLD) {
+                return parseLoveListInParallel(lovesJsonArray, executor, parallelism);
+            }
             if (lovesJsonArray != null) {
                 for (int loveIndex = 0; loveIndex < lovesJsonArray.length(); loveIndex++) {
                     final Love love = parseLove(lovesJsonArray.optJSONObject(loveIndex));
@@ -91,6 +208,78 @@ class ResponseParser {
         return loves;
     }
 
+    /**
+     * Parses the loves in chunks. Helper tasks are handed to the executor, but the calling thread
+     * parses chunks too, claiming them from the same counter, and only waits for chunks already being
+     * parsed by another thread. So the list is parsed even if the executor never runs the helpers,
+     * such as when every executor thread is itself waiting on a parse.
+     *
+     * Each love is written to its own slot, so the order is kept. Users are shared between threads
+     * through the thread-safe {@link UserCache} and {@link UserIdentityMap}.
+     */
+    private List<Love> parseLoveListInParallel(@NonNull final JSONArray lovesJsonArray, @NonNull final Executor executor, final int parallelism) {
+        final int length = lovesJsonArray.length();
+        final int chunkSize = Math.max(MIN_PARALLEL_CHUNK_SIZE, (length + parallelism - 1) / parallelism);
+        final int chunkCount = (length + chunkSize - 1) / chunkSize;
+
+        final Love[] parsedLoves = new Love[length];
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch chunksParsed = new CountDownLatch(chunkCount);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        final Runnable parseChunks = new Runnable() {
+            @Override
+            public void run() {
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+                    try {
+                        final int end = Math.min(length, (chunk + 1) * chunkSize);
+                        for (int loveIndex = chunk * chunkSize; loveIndex < end; loveIndex++) {
+                            parsedLoves[loveIndex] = parseLove(lovesJsonArray.optJSONObject(loveIndex));
+                        }
+                    } catch (final RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        chunksParsed.countDown();
+                    }
+                }
+            }
+        };
+
+        try {
+            for (int helper = 1; helper < Math.min(parallelism, chunkCount); helper++) {
+                executor.execute(parseChunks);
+            }
+        } catch (final RejectedExecutionException e) {
+            // the calling thread parses the remaining chunks
+        }
+        parseChunks.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                chunksParsed.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        final ArrayList<Love> loves = new ArrayList<>(length);
+        for (final Love love : parsedLoves) {
+            if (love != null) {
+                loves.add(love);
+            }
+        }
+        return loves;
+    }
+
     /**
      * Parses a {@link Love} object from the passed json. If any of the required fields cannot be parsed,
      * this method will return null. If any non-required fields cannot be parsed, then that field will
@@ -106,104 +295,325 @@ class ResponseParser {
             return null;
         }
 
-        final String reason = parseString(loveJson, "reason");
-        if (reason == null) {
+        return buildLove(
+                parseString(loveJson, "reason"),
+                parseString(loveJson, "message"),
+                loveJson.optBoolean("private_message", false),
+                parseUser(loveJson.optJSONObject("user_from")),
+                parseUser(loveJson.optJSONObject("user_to")),
+                loveJson.optLong("id", 0),
+                loveJson.optString("created_at", null)
+        );
+    }
+
+    /**
+     * Parses a {@link User} object from the passed json. If any of the required fields cannot be parsed,
+     * this method will return null. If any non-required fields cannot be parsed, then that field will
+     * be set to null. Null-safe (will return null).
+     *
+     * @param userJson
+     *      the json object to parse
+     * @return
+     *      the parsed {@link User}, or null if it cannot be parsed
+     */
+    User parseUser(@Nullable final JSONObject userJson) {
+        if (userJson == null) {
             return null;
         }
 
-        final User lover = parseUser(loveJson.optJSONObject("user_from"));
-        if (lover == null) {
-            return null;
+        return buildUser(
+                parseString(userJson, "email"),
+                parseString(userJson, "username"),
+                parseString(userJson, "name")
+        );
+    }
+
+    /**
+     * Parses a page of {@link Love} objects directly from a json response stream, without building
+     * an intermediate {@link JSONObject} tree. Produces the same results as
+     * {@link ResponseParser#parseLoveList(JSONObject)}: elements which cannot be parsed are
+     * excluded, and the total pages default to 0 if the response has no {@code meta} section.
+     *
+     * @param responseReader
+     *      the reader for the response body. the caller is responsible for closing it
+     * @return
+     *      the parsed page of {@link Love} objects
+     * @throws IOException
+     *      if the stream cannot be read, or does not contain json. non-json content will result in
+     *      a {@link android.util.MalformedJsonException}
+     */
+    LoveListPage parseLoveListPage(@NonNull final Reader responseReader) throws IOException {
+        final JsonTokenReader reader = new JsonTokenReader(responseReader);
+        final ArrayList<Love> loves = new ArrayList<>();
+        int totalPages = 0;
+
+        final JsonTokenReader.Token rootToken = reader.peek();
+        if (rootToken == JsonTokenReader.Token.END_DOCUMENT || rootToken == JsonTokenReader.Token.NULL) {
+            return new LoveListPage(loves, totalPages);
+        }
+        if (rootToken != JsonTokenReader.Token.BEGIN_OBJECT) {
+            throw new IOException("expected a json object response but was " + rootToken);
         }
 
-        final User lovee = parseUser(loveJson.optJSONObject("user_to"));
-        if (lovee == null) {
-            return null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            final JsonTokenReader.Token valueToken = reader.peek();
+
+            if ("data".equals(name) && valueToken == JsonTokenReader.Token.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    final Love love = parseLove(reader);
+                    if (love != null) {
+                        loves.add(love);
+                    }
+                }
+                reader.endArray();
+            } else if ("meta".equals(name) && valueToken == JsonTokenReader.Token.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("total_pages".equals(reader.nextName())) {
+                        totalPages = parseInt(readString(reader));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
         }
+        reader.endObject();
 
-        final Calendar createdAt = parseDatetime(loveJson.optString("created_at", null));
-        if (createdAt == null) {
+        return new LoveListPage(loves, totalPages);
+    }
+
+    /**
+     * Parses the next {@link Love} object from the token reader, consuming the whole value. Follows
+     * the same rules as {@link ResponseParser#parseLove(JSONObject)}.
+     *
+     * @param reader
+     *      the reader positioned at the love value
+     * @return
+     *      the parsed {@link Love}, or null if it cannot be parsed
+     */
+    private Love parseLove(@NonNull final JsonTokenReader reader) throws IOException {
+        if (reader.peek() != JsonTokenReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
             return null;
         }
 
-        final Love love = new Love(reason, lover, lovee, createdAt);
-
-        love.message = parseString(loveJson, "message");
-        love.isPrivate = loveJson.optBoolean("private_message", false);
+        String reason = null;
+        String message = null;
+        String createdAt = null;
+        long id = 0;
+        boolean isPrivate = false;
+        User lover = null;
+        User lovee = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("reason".equals(name)) {
+                reason = blankToNull(readString(reader));
+            } else if ("message".equals(name)) {
+                message = blankToNull(readString(reader));
+            } else if ("created_at".equals(name)) {
+                createdAt = readString(reader);
+            } else if ("id".equals(name)) {
+                id = parseLong(readString(reader));
+            } else if ("private_message".equals(name)) {
+                isPrivate = "true".equalsIgnoreCase(readString(reader));
+            } else if ("user_from".equals(name)) {
+                lover = parseUser(reader);
+            } else if ("user_to".equals(name)) {
+                lovee = parseUser(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-        return love;
+        return buildLove(reason, message, isPrivate, lover, lovee, id, createdAt);
     }
 
     /**
-     * Parses a {@link User} object from the passed json. If any of the required fields cannot be parsed,
-     * this method will return null. If any non-required fields cannot be parsed, then that field will
-     * be set to null. Null-safe (will return null).
+     * Parses the next {@link User} object from the token reader, consuming the whole value. Follows
+     * the same rules as {@link ResponseParser#parseUser(JSONObject)}.
      *
-     * @param userJson
-     *      the json object to parse
+     * @param reader
+     *      the reader positioned at the user value
      * @return
      *      the parsed {@link User}, or null if it cannot be parsed
      */
-    User parseUser(@Nullable final JSONObject userJson) {
-        if (userJson == null) {
+    private User parseUser(@NonNull final JsonTokenReader reader) throws IOException {
+        if (reader.peek() != JsonTokenReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
             return null;
         }
 
-        final String email = parseString(userJson, "email");
-        if (email == null) {
-            return null;
+        String email = null;
+        String username = null;
+        String name = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String attributeName = reader.nextName();
+            if ("email".equals(attributeName)) {
+                email = blankToNull(readString(reader));
+            } else if ("username".equals(attributeName)) {
+                username = blankToNull(readString(reader));
+            } else if ("name".equals(attributeName)) {
+                name = blankToNull(readString(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return buildUser(email, username, name);
+    }
+
+    /**
+     * Reads the next scalar value as a string, mirroring {@link JSONObject#optString(String, String)}.
+     * Nulls, arrays and objects are consumed and returned as null.
+     */
+    private String readString(@NonNull final JsonTokenReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+            case BOOLEAN:
+                return reader.nextString();
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    /**
+     * Parses a number read as a string, mirroring {@link JSONObject#optInt(String)}, so that a
+     * numeric string is coerced and anything else is 0.
+     */
+    private int parseInt(@Nullable final String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            try {
+                return (int) Double.parseDouble(value);
+            } catch (final NumberFormatException e2) {
+                return 0;
+            }
         }
+    }
 
-        User user;
+    /**
+     * Parses a number read as a string, mirroring {@link JSONObject#optLong(String, long)} with a
+     * fallback of 0.
+     */
+    private long parseLong(@Nullable final String value) {
+        if (value == null) {
+            return 0;
+        }
 
-        if (useUserCache) {
-            user = userCache.get(email);
-            if (user != null) {
-                return user;
+        try {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(value);
+            } catch (final NumberFormatException e2) {
+                return 0;
             }
         }
+    }
 
-        final String username = parseString(userJson, "username");
-        if (username == null) {
+    /**
+     * Creates a {@link Love} from the parsed fields, or returns null if any of the required fields
+     * are missing or invalid.
+     */
+    private Love buildLove(@Nullable final String reason, @Nullable final String message, final boolean isPrivate,
+                           @Nullable final User lover, @Nullable final User lovee, final long id, @Nullable final String createdAt) {
+        if (reason == null || lover == null || lovee == null) {
             return null;
         }
 
-        user = new User(email, username);
+        final long createdAtMillis = Iso8601Parser.parseEpochMillis(createdAt);
+        if (createdAtMillis == Iso8601Parser.INVALID) {
+            return null;
+        }
+
+        return new Love(reason, message, isPrivate, lover, lovee, id, null, createdAtMillis);
+    }
 
-        user.name = parseString(userJson, "name");
-        user.profileImageUrl = String.format(userProfileImageUrlFormat, username);
+    /**
+     * Creates a {@link User} from the parsed fields, reusing a cached or live instance when available, and
+     * adds it to the user lookup cache and typeahead index. Returns null if any of the required fields are missing.
+     */
+    private User buildUser(@Nullable final String email, @Nullable final String username, @Nullable final String name) {
+        final User user = findOrCreateUser(email, username, name);
 
-        userCache.put(email, user);
+        final UserLookupCache lookupCache = userLookupCache;
+        if (user != null && lookupCache != null) {
+            lookupCache.putUser(user);
+        }
+
+        final UserPrefixIndex prefixIndex = userPrefixIndex;
+        if (user != null && prefixIndex != null) {
+            prefixIndex.add(user);
+        }
 
         return user;
     }
 
     /**
-     * Parses a datetime string into a {@link Calendar} object. Will return null if the date cannot
-     * be parsed. Null-safe (will return null).
-     *
-     * @param datetime
-     *      the datetime to parse
-     * @return
-     *      the parsed {@link Calendar}, or null if it cannot be parsed.
+     * Creates a {@link User} from the parsed fields, reusing a cached or live instance when available.
+     * Returns null if any of the required fields are missing.
      */
-    private Calendar parseDatetime(@Nullable final String datetime) {
-        if (datetime == null) {
+    private User findOrCreateUser(@Nullable final String email, @Nullable final String username, @Nullable final String name) {
+        if (email == null) {
             return null;
         }
 
-        final Date parsedDate = DateUtils.parseDate(datetime, ISO8601);
-        if (parsedDate == null) {
-            return null;
+        if (userCache != null) {
+            final User cachedUser = userCache.get(email);
+            if (cachedUser != null) {
+                return fillInName(cachedUser, name);
+            }
         }
 
-        final Calendar calendar = Calendar.getInstance();
+        User user = userIdentityMap.find(email);
+        if (user == null) {
+            if (username == null) {
+                return null;
+            }
+
+            final User parsedUser = new User(email, username);
+            parsedUser.name = name;
+            parsedUser.profileImageUrl = String.format(userProfileImageUrlFormat, username);
 
-        calendar.clear();
-        calendar.setTimeZone(UTC);
-        calendar.setTime(parsedDate);
+            // concurrent parsers of the same user share whichever instance was interned first
+            user = userIdentityMap.intern(parsedUser);
+        }
+        fillInName(user, name);
 
-        return calendar;
+        // the cache holds the user strongly, so it stays the live instance in the identity map
+        return userCache == null ? user : userCache.putIfAbsent(user);
+    }
+
+    /**
+     * Sets the name of a reused user which was first parsed from a response without one, such as a
+     * love list, so that a later response with the name, such as a user lookup, is not ignored.
+     * The name is volatile, so the user is safely published to other threads; parsers racing to fill
+     * it in write the same user's name, so whichever write lands last is correct.
+     */
+    private static User fillInName(@NonNull final User user, @Nullable final String name) {
+        if (name != null && user.name == null) {
+            user.name = name;
+        }
+        return user;
     }
 
     /**
@@ -224,36 +634,32 @@ class ResponseParser {
             return null;
         }
 
-        final String value = jsonObject.optString(attributeName, null);
-
-        if (value == null || value.replaceAll("\\s", "").equals("")) {
-            return null;
-        }
-
-        return value;
+        return blankToNull(jsonObject.optString(attributeName, null));
     }
 
     /**
-     * Provides lightweight caching of entities and automatically evicts the least recently used
-     * entity once the cache size is exceeded.
-     *
-     * This class itself is not threadsafe, and is intended to be wrapped in
-     * {@link java.util.Collections#synchronizedMap(Map)} if it will be modified by multiple threads.
+     * Returns null if the value is null or blank (either no characters or just whitespace), or the
+     * value otherwise.
      *
-     * @param <T>
-     *     the entity type
+     * @param value
+     *      the value to check
+     * @return
+     *      the non-blank value, or null otherwise
      */
-    @NotThreadSafe
-    private static class EntityCache<T> extends LinkedHashMap<String, T> {
-        private final int maxCacheSize;
-
-        public EntityCache(final int maxCacheSize) {
-            super(16, 0.75f, true);
-            this.maxCacheSize = maxCacheSize;
+    private String blankToNull(@Nullable final String value) {
+        if (value == null) {
+            return null;
         }
 
-        protected boolean removeEldestEntry(final Map.Entry<String, T> eldest) {
-            return size() >= maxCacheSize;
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case ' ': case '\t': case '\n': case '\u000B': case '\f': case '\r':
+                    break;
+                default:
+                    return value;
+            }
         }
+
+        return null;
     }
 }
@@ -0,0 +1,108 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Random;
+
+import cz.msebera.android.httpclient.annotation.Immutable;
+
+/**
+ * Describes how often, and how quickly, a failed request is retried. Retries back off exponentially
+ * from {@link #baseDelayMillis}, capped at {@link #maxDelayMillis}, with "full jitter": each delay
+ * is picked at random between zero and the backed-off value, so clients which failed together do
+ * not all retry together.
+ *
+ * Only transient failures are retried; see {@link #isTransientFailure(int, Throwable)}.
+ */
+@Immutable
+final class RetryPolicy {
+
+    /**
+     * A policy which never retries.
+     */
+    static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    /**
+     * The maximum number of attempts, including the first one.
+     */
+    final int maxAttempts;
+
+    /**
+     * The delay before the first retry, before jitter is applied.
+     */
+    final long baseDelayMillis;
+
+    /**
+     * The maximum delay before any retry, before jitter is applied.
+     */
+    final long maxDelayMillis;
+
+    /**
+     * Creates a policy.
+     *
+     * @param maxAttempts
+     *      the maximum number of attempts, including the first one
+     * @param baseDelayMillis
+     *      the delay before the first retry, before jitter is applied
+     * @param maxDelayMillis
+     *      the maximum delay before any retry, before jitter is applied
+     * @throws IllegalArgumentException
+     *      if {@code maxAttempts} is less than 1, or either delay is negative
+     */
+    RetryPolicy(final int maxAttempts, final long baseDelayMillis, final long maxDelayMillis) throws IllegalArgumentException {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("argument `maxAttempts` must be positive");
+        }
+        if (baseDelayMillis < 0 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("retry delays cannot be negative");
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Returns the delay before the specified retry.
+     *
+     * @param retry
+     *      the retry number, starting at 1 for the first retry
+     * @param random
+     *      the source of jitter
+     * @return
+     *      the delay in milliseconds, between zero and the backed-off delay inclusive
+     */
+    long backoffMillis(final int retry, @NonNull final Random random) {
+        final int doublings = Math.min(Math.max(retry - 1, 0), 30);
+        final long backoff = Math.min(maxDelayMillis, baseDelayMillis << doublings);
+        return (long) (random.nextDouble() * (backoff + 1));
+    }
+
+    /**
+     * Returns true if the failure is likely to go away on its own: the server could not be reached,
+     * or a proxy or the server said it is overloaded or temporarily unavailable. Other errors,
+     * including {@code 500 Internal Server Error}, are assumed to fail again the same way.
+     *
+     * @param statusCode
+     *      the status code of the response, or 0 if there was no response
+     * @param throwable
+     *      the thrown error. may be null
+     * @return
+     *      true if the request may be retried
+     */
+    static boolean isTransientFailure(final int statusCode, @Nullable final Throwable throwable) {
+        switch (statusCode) {
+            case 0:
+                return throwable instanceof IOException;
+            case 429: // too many requests
+            case 502: // bad gateway
+            case 503: // service unavailable
+            case 504: // gateway timeout
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.ometa.lovemonster.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Tracks whether the session has expired, so that it is noticed once for all requests rather than
+ * by each request on its own.
+ *
+ * An expired session is answered with the Okta login page instead of json. It is recognised from
+ * the response headers, before the body is read: a redirect, or an html content type. The first
+ * request to see it marks the session expired and tells the {@link Listener}, so the user can log in
+ * again. That request, and every request made or answered until then, is held instead of failing,
+ * and sent again once {@link #renew()} is called after logging in.
+ *
+ * Requests are only held while a listener is set, since nothing would log in again otherwise.
+ */
+@ThreadSafe
+class SessionState {
+
+    private static final Logger logger = new Logger(SessionState.class);
+
+    /**
+     * Told when the session expires.
+     */
+    interface Listener {
+
+        /**
+         * Invoked once when the session is found to have expired, on the thread it was found on.
+         * The held requests are sent again once the session is renewed.
+         */
+        void onSessionExpired();
+    }
+
+    @Nullable
+    private volatile Listener listener;
+
+    @GuardedBy("this")
+    private boolean expired = false;
+
+    /**
+     * The requests to send again once the session is renewed, in the order they were held.
+     */
+    @GuardedBy("this")
+    private final List<Runnable> heldRequests = new ArrayList<>();
+
+    /**
+     * Sets the listener told when the session expires.
+     *
+     * @param listener
+     *      the listener, or null to stop holding requests when the session expires
+     */
+    void setListener(@Nullable final Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns true if the session has expired and has not yet been renewed.
+     */
+    synchronized boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * Holds a request about to be sent if the session has already expired, since it would only be
+     * answered with the login page.
+     *
+     * @param resend
+     *      sends the request again in the renewed session
+     * @return
+     *      true if the request is held, and must not be sent now
+     */
+    synchronized boolean holdIfExpired(@NonNull final Runnable resend) {
+        if (!expired || listener == null) {
+            return false;
+        }
+        heldRequests.add(resend);
+        return true;
+    }
+
+    /**
+     * Marks the session expired, after a request was answered with the login page, and holds the
+     * request. The listener is told the first time.
+     *
+     * @param resend
+     *      sends the request again in the renewed session
+     * @return
+     *      true if the request is held, or false if there is no listener, in which case the request
+     *      should fail as an authentication failure
+     */
+    boolean expire(@NonNull final Runnable resend) {
+        final Listener currentListener = listener;
+        if (currentListener == null) {
+            return false;
+        }
+
+        final boolean newlyExpired;
+        synchronized (this) {
+            newlyExpired = !expired;
+            expired = true;
+            heldRequests.add(resend);
+        }
+
+        if (newlyExpired) {
+            logger.debug("method=expire sessionExpired=true");
+            currentListener.onSessionExpired();
+        }
+        return true;
+    }
+
+    /**
+     * Stops holding a request, generally because it was cancelled.
+     *
+     * @param resend
+     *      the action the request was held with
+     */
+    synchronized void release(@NonNull final Runnable resend) {
+        heldRequests.remove(resend);
+    }
+
+    /**
+     * Marks the session renewed, after logging in again, and sends the held requests again.
+     */
+    void renew() {
+        final List<Runnable> requests;
+        synchronized (this) {
+            expired = false;
+            requests = new ArrayList<>(heldRequests);
+            heldRequests.clear();
+        }
+
+        if (!requests.isEmpty()) {
+            logger.debug("method=renew resentRequests=" + requests.size());
+        }
+        for (final Runnable resend : requests) {
+            resend.run();
+        }
+    }
+
+    /**
+     * Returns true if the response is the login page rather than an api response, judged from the
+     * status and headers alone so that the body need not be read: a redirect, or a successful
+     * response with an html content type. A response without a content type is not judged.
+     *
+     * @param response
+     *      the response, before its body is read
+     * @return
+     *      true if the response is the login page
+     */
+    static boolean isLoginPage(@NonNull final HttpResponse response) {
+        final int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode >= 300 && statusCode < 400 && statusCode != 304) {
+            return response.getFirstHeader("Location") != null;
+        }
+        if (statusCode < 200 || statusCode >= 300) {
+            return false;
+        }
+
+        final Header contentType = response.getEntity() != null && response.getEntity().getContentType() != null
+                ? response.getEntity().getContentType()
+                : response.getFirstHeader("Content-Type");
+        return contentType != null && contentType.getValue().toLowerCase(Locale.US).startsWith("text/html");
+    }
+}
@@ -0,0 +1,352 @@
+package org.ometa.lovemonster.service;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.ometa.lovemonster.Logger;
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.models.User;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.Immutable;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Durable copy of the authenticated session: the auth cookies, the authenticated user's account,
+ * and the newest page of loves, so that a cold start can show the loves straight away instead of
+ * waiting for the Okta login page and the account request.
+ *
+ * The session is read from its file once, on the calling thread, since it is needed before anything
+ * can be shown and is only a few kilobytes. Every change is written on a single background thread,
+ * replacing the file in one rename, so a crash part way through a write never leaves a truncated
+ * session.
+ *
+ * The users and loves are kept in the server's own json format, so that they are restored by the
+ * same {@link ResponseParser} as any response.
+ *
+ * {@code
+ *      client.setSessionStore(SessionStore.getInstance(context));
+ *      if (!client.restoreSession()) {
+ *          // log in with okta
+ *      }
+ * }
+ */
+@ThreadSafe
+public class SessionStore {
+
+    private static final Logger logger = new Logger(SessionStore.class);
+
+    /**
+     * The name of the session file, in the app's private files directory.
+     */
+    private static final String FILE_NAME = "love_session.json";
+
+    /**
+     * The format the server sends datetimes in, always in UTC.
+     */
+    private static final String DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
+
+    /**
+     * The singleton instance, created on first use.
+     */
+    private static SessionStore singletonInstance;
+
+    /**
+     * Returns the singleton {@code SessionStore}, stored in the app's private files directory.
+     *
+     * @param context
+     *      any context for the app
+     * @return
+     *      the singleton session store
+     */
+    public static synchronized SessionStore getInstance(@NonNull final Context context) {
+        if (singletonInstance == null) {
+            singletonInstance = new SessionStore(
+                    new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    Executors.newSingleThreadExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull final Runnable runnable) {
+                            final Thread thread = new Thread(runnable, "lovemonster-session");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    })
+            );
+        }
+        return singletonInstance;
+    }
+
+    /**
+     * A saved session.
+     */
+    @Immutable
+    static class Session {
+
+        /**
+         * The auth cookies, formatted for the "Cookie" header.
+         */
+        @NonNull
+        final String cookies;
+
+        /**
+         * The authenticated user, as returned by {@code /api/v1/account}.
+         */
+        @NonNull
+        final JSONObject account;
+
+        /**
+         * The newest page of loves, as returned by {@code /api/v1/loves}, or null if none were saved.
+         */
+        @Nullable
+        final JSONObject loves;
+
+        Session(@NonNull final String cookies, @NonNull final JSONObject account, @Nullable final JSONObject loves) {
+            this.cookies = cookies;
+            this.account = account;
+            this.loves = loves;
+        }
+    }
+
+    /**
+     * The file the session is persisted to.
+     */
+    @NonNull
+    private final File file;
+
+    /**
+     * The single-threaded executor which writes the file.
+     */
+    @NonNull
+    private final Executor executor;
+
+    /**
+     * The saved session, or null if there is none. Only valid once {@link #loaded}.
+     */
+    @GuardedBy("this")
+    private Session session;
+
+    @GuardedBy("this")
+    private boolean loaded = false;
+
+    /**
+     * Creates a session store persisted to the specified file.
+     *
+     * @param file
+     *      the file the session is persisted to
+     * @param executor
+     *      a single-threaded executor used for writing the file
+     * @throws IllegalArgumentException
+     *      if {@code file} or {@code executor} are null
+     */
+    SessionStore(@NonNull final File file, @NonNull final Executor executor) throws IllegalArgumentException {
+        if (file == null) {
+            throw new IllegalArgumentException("argument `file` cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("argument `executor` cannot be null");
+        }
+
+        this.file = file;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the saved session, reading it from the file on first use.
+     *
+     * @return
+     *      the saved session, or null if there is none
+     */
+    @Nullable
+    synchronized Session load() {
+        if (!loaded) {
+            session = readSession();
+            loaded = true;
+        }
+        return session;
+    }
+
+    /**
+     * Saves a newly authenticated session, replacing the saved session and its loves.
+     *
+     * @param cookies
+     *      the auth cookies
+     * @param user
+     *      the authenticated user
+     */
+    void saveSession(@NonNull final String cookies, @NonNull final User user) {
+        try {
+            final JSONObject account = userToJson(user);
+            synchronized (this) {
+                loaded = true;
+                session = new Session(cookies, account, null);
+            }
+            persist();
+        } catch (final JSONException e) {
+            logger.debug("method=saveSession user=" + user.username, e);
+        }
+    }
+
+    /**
+     * Saves the newest page of loves with the session. Does nothing if there is no saved session.
+     *
+     * @param loves
+     *      the newest loves, newest first
+     */
+    void saveLoves(@NonNull final List<Love> loves) {
+        try {
+            final JSONArray data = new JSONArray();
+            final SimpleDateFormat datetimeFormat = new SimpleDateFormat(DATETIME_FORMAT, Locale.US);
+            datetimeFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+            for (final Love love : loves) {
+                data.put(loveToJson(love, datetimeFormat));
+            }
+
+            synchronized (this) {
+                final Session savedSession = load();
+                if (savedSession == null) {
+                    return;
+                }
+                session = new Session(savedSession.cookies, savedSession.account, new JSONObject().put("data", data));
+            }
+            persist();
+        } catch (final JSONException e) {
+            logger.debug("method=saveLoves loves=" + loves.size(), e);
+        }
+    }
+
+    /**
+     * Forgets the saved session, e.g. once it has expired.
+     */
+    void clear() {
+        synchronized (this) {
+            loaded = true;
+            session = null;
+        }
+        persist();
+    }
+
+    /**
+     * Writes the current session on the executor. Each write takes the session at the time it runs,
+     * so the file always ends up with the latest session.
+     */
+    private void persist() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Session currentSession;
+                synchronized (SessionStore.this) {
+                    currentSession = session;
+                }
+                writeSession(currentSession);
+            }
+        });
+    }
+
+    /**
+     * Reads the session from the file. Returns null if there is none, or it cannot be read.
+     */
+    @Nullable
+    private Session readSession() {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            final JSONObject json = new JSONObject(readFile());
+            return new Session(json.getString("cookies"), json.getJSONObject("account"), json.optJSONObject("loves"));
+        } catch (final IOException | JSONException e) {
+            logger.debug("method=readSession file=" + file + " unreadable=true", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the session to a temporary file and renames it over the session file, or deletes the
+     * session file if there is no session. Runs on the executor.
+     */
+    private void writeSession(@Nullable final Session currentSession) {
+        if (currentSession == null) {
+            if (file.exists() && !file.delete()) {
+                logger.debug("method=writeSession file=" + file + " deleted=false");
+            }
+            return;
+        }
+
+        try {
+            final JSONObject json = new JSONObject()
+                    .put("cookies", currentSession.cookies)
+                    .put("account", currentSession.account);
+            if (currentSession.loves != null) {
+                json.put("loves", currentSession.loves);
+            }
+
+            final File temporaryFile = new File(file.getPath() + ".tmp");
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), "UTF-8");
+            try {
+                writer.write(json.toString());
+            } finally {
+                writer.close();
+            }
+
+            if (!temporaryFile.renameTo(file)) {
+                throw new IOException("unable to rename " + temporaryFile + " to " + file);
+            }
+        } catch (final IOException | JSONException e) {
+            logger.debug("method=writeSession file=" + file, e);
+        }
+    }
+
+    private String readFile() throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            final StringBuilder contents = new StringBuilder();
+            final char[] buffer = new char[1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                contents.append(buffer, 0, read);
+            }
+            return contents.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static JSONObject userToJson(@NonNull final User user) throws JSONException {
+        return new JSONObject()
+                .put("email", user.email)
+                .put("username", user.username)
+                .putOpt("name", user.name);
+    }
+
+    private static JSONObject loveToJson(@NonNull final Love love, @NonNull final SimpleDateFormat datetimeFormat) throws JSONException {
+        return new JSONObject()
+                .put("id", love.id)
+                .put("reason", love.reason)
+                .putOpt("message", love.message)
+                .put("private_message", love.isPrivate)
+                .put("created_at", datetimeFormat.format(new Date(love.createdAtMillis)))
+                .put("user_from", userToJson(love.lover))
+                .put("user_to", userToJson(love.lovee));
+    }
+}
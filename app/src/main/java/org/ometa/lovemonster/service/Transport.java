@@ -0,0 +1,154 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.annotation.Immutable;
+
+/**
+ * Sends http requests for {@link LoveMonsterClient}. A transport only moves bytes: it sends the
+ * request, and hands the response, with its body as a stream, to the response handler. Parsing,
+ * retries and callback threading are left to the handler.
+ *
+ * Implementations must be threadsafe, since requests are sent from any thread.
+ *
+ * @see AsyncHttpClientTransport
+ * @see HttpUrlConnectionTransport
+ * @see InMemoryTransport
+ */
+public interface Transport {
+
+    /**
+     * Sends the request asynchronously. Any response, whatever its status, is passed to
+     * {@link ResponseHandlerInterface#sendResponseMessage(HttpResponse)} on a background thread,
+     * with the body as the content stream of the response's entity. If no response is received,
+     * {@link ResponseHandlerInterface#sendFailureMessage(int, Header[], byte[], Throwable)} is
+     * invoked with a status code of 0 instead.
+     *
+     * @param request
+     *      the request to send
+     * @param responseHandler
+     *      the handler for the response
+     * @return
+     *      a handle which stops the request if it is still in flight
+     */
+    @NonNull
+    Cancellable send(@NonNull Request request, @NonNull ResponseHandlerInterface responseHandler);
+
+    /**
+     * Optionally implemented by response handlers which want to know when the transport starts
+     * making their request. A request may wait for a free network thread before it is started, so
+     * this separates the time spent queued from the time spent on the network.
+     */
+    interface StartListener {
+
+        /**
+         * Invoked on the transport's thread just before the http call is made.
+         */
+        void onRequestStarted();
+    }
+
+    /**
+     * An http request without a body.
+     */
+    @Immutable
+    final class Request {
+
+        public static final String GET = "GET";
+        public static final String POST = "POST";
+
+        /**
+         * The http method, either {@link #GET} or {@link #POST}.
+         */
+        @NonNull
+        public final String method;
+
+        @NonNull
+        public final String url;
+
+        /**
+         * The request headers. May be empty, but will not be null.
+         */
+        @NonNull
+        private final Header[] headers;
+
+        /**
+         * The content type of the (empty) body sent with posts, or null for gets.
+         */
+        @Nullable
+        public final String contentType;
+
+        /**
+         * Creates a request.
+         *
+         * @param method
+         *      the http method, either {@link #GET} or {@link #POST}
+         * @param url
+         *      the url to request
+         * @param headers
+         *      the request headers. may be null
+         * @param contentType
+         *      the content type of the body sent with posts, or null for gets
+         * @throws IllegalArgumentException
+         *      if {@code method} or {@code url} are null
+         */
+        public Request(@NonNull final String method, @NonNull final String url, @Nullable final Header[] headers, @Nullable final String contentType) throws IllegalArgumentException {
+            if (method == null) {
+                throw new IllegalArgumentException("argument `method` cannot be null");
+            }
+            if (url == null) {
+                throw new IllegalArgumentException("argument `url` cannot be null");
+            }
+
+            this.method = method;
+            this.url = url;
+            this.headers = headers == null ? new Header[0] : headers.clone();
+            this.contentType = contentType;
+        }
+
+        /**
+         * Returns the request headers, or null if there are none. The array is a copy.
+         */
+        @Nullable
+        public Header[] getHeaders() {
+            return headers.length == 0 ? null : headers.clone();
+        }
+
+        /**
+         * Returns the request headers with the specified name, ignoring case. May be empty, but
+         * will not be null.
+         */
+        @NonNull
+        public List<Header> getHeaders(@NonNull final String name) {
+            final List<Header> matchingHeaders = new ArrayList<>();
+            for (final Header header : headers) {
+                if (header.getName().equalsIgnoreCase(name)) {
+                    matchingHeaders.add(header);
+                }
+            }
+            return matchingHeaders;
+        }
+
+        /**
+         * Returns the value of the first request header with the specified name, ignoring case, or
+         * null if there is none.
+         */
+        @Nullable
+        public String getFirstHeaderValue(@NonNull final String name) {
+            final List<Header> matchingHeaders = getHeaders(name);
+            return matchingHeaders.isEmpty() ? null : matchingHeaders.get(0).getValue();
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + url;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.ometa.lovemonster.models.User;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.Immutable;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Bounded cache of parsed {@link User}s by email, so that a user appearing in many loves is parsed
+ * into a single instance. Both the number of users and their estimated memory are bounded.
+ *
+ * Responses are parsed on several threads at once, so the cache is split into stripes, each with
+ * its own lock and its own share of the bounds. Each stripe evicts its least recently used users
+ * once either bound is exceeded. Hits, misses and evictions are counted.
+ */
+@ThreadSafe
+class UserCache {
+
+    /**
+     * The estimated size of a {@link User} and its empty love lists, excluding its strings, plus
+     * the map entry which holds it.
+     */
+    private static final int USER_OVERHEAD_BYTES = 160;
+
+    /**
+     * The estimated size of a {@link String} and its character array, excluding the characters.
+     */
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    /**
+     * A cached user, with its estimated memory as it was when cached, since users can be modified.
+     */
+    @Immutable
+    private static class Entry {
+
+        @NonNull
+        final User user;
+
+        final long bytes;
+
+        Entry(@NonNull final User user) {
+            this.user = user;
+            this.bytes = estimateBytes(user);
+        }
+    }
+
+    /**
+     * A share of the cache, with its own lock.
+     */
+    private static class Stripe {
+
+        /**
+         * The cached users keyed by email, in access order.
+         */
+        @GuardedBy("this")
+        final LinkedHashMap<String, Entry> users = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * The estimated memory of the cached users.
+         */
+        @GuardedBy("this")
+        long bytes = 0;
+    }
+
+    @NonNull
+    private final Stripe[] stripes;
+
+    private final int maxEntriesPerStripe;
+    private final long maxBytesPerStripe;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries
+     *      the maximum number of users to cache
+     * @param maxBytes
+     *      the maximum estimated memory of the cached users
+     * @param stripeCount
+     *      the number of stripes, which is the number of threads which can use the cache at once.
+     *      the bounds are shared evenly between the stripes
+     * @throws IllegalArgumentException
+     *      if any argument is less than 1, or {@code maxEntries} is less than {@code stripeCount}
+     */
+    UserCache(final int maxEntries, final long maxBytes, final int stripeCount) throws IllegalArgumentException {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("argument `stripeCount` must be positive");
+        }
+        if (maxEntries < stripeCount) {
+            throw new IllegalArgumentException("argument `maxEntries` must be at least `stripeCount`");
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("argument `maxBytes` must be positive");
+        }
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.maxEntriesPerStripe = maxEntries / stripeCount;
+        this.maxBytesPerStripe = Math.max(1, maxBytes / stripeCount);
+    }
+
+    /**
+     * Returns the cached user with the email, or null if it is not cached.
+     *
+     * @param email
+     *      the user's email
+     * @return
+     *      the cached user, or null
+     */
+    @Nullable
+    User get(@NonNull final String email) {
+        final Stripe stripe = stripeFor(email);
+        final Entry entry;
+        synchronized (stripe) {
+            entry = stripe.users.get(email);
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.user;
+    }
+
+    /**
+     * Caches the user, unless a user with the same email is already cached, so that users parsed on
+     * several threads at once end up as a single instance.
+     *
+     * @param user
+     *      the user to cache
+     * @return
+     *      the cached user with the same email, which is {@code user} unless one was already cached
+     */
+    @NonNull
+    User putIfAbsent(@NonNull final User user) {
+        final Stripe stripe = stripeFor(user.email);
+        synchronized (stripe) {
+            final Entry cachedEntry = stripe.users.get(user.email);
+            if (cachedEntry != null) {
+                return cachedEntry.user;
+            }
+
+            final Entry entry = new Entry(user);
+            stripe.users.put(user.email, entry);
+            stripe.bytes += entry.bytes;
+
+            final Iterator<Map.Entry<String, Entry>> eldest = stripe.users.entrySet().iterator();
+            while ((stripe.users.size() > maxEntriesPerStripe || stripe.bytes > maxBytesPerStripe) && eldest.hasNext()) {
+                stripe.bytes -= eldest.next().getValue().bytes;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Returns the number of cached users.
+     */
+    int size() {
+        int size = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.users.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the estimated memory of the cached users, in bytes.
+     */
+    long byteSize() {
+        long bytes = 0;
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                bytes += stripe.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of lookups which found a cached user.
+     */
+    long hitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups which did not find a cached user.
+     */
+    long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of users evicted to stay within the bounds.
+     */
+    long evictionCount() {
+        return evictions.get();
+    }
+
+    private Stripe stripeFor(@NonNull final String email) {
+        final int hash = email.hashCode();
+        return stripes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    /**
+     * Estimates the memory held by a cached user. The email is shared with the map key, so is only
+     * counted once.
+     */
+    static long estimateBytes(@NonNull final User user) {
+        return USER_OVERHEAD_BYTES
+                + estimateBytes(user.email)
+                + estimateBytes(user.username)
+                + estimateBytes(user.name)
+                + estimateBytes(user.profileImageUrl);
+    }
+
+    private static long estimateBytes(@Nullable final String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + 2L * value.length();
+    }
+}
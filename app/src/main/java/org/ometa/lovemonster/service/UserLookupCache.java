@@ -0,0 +1,141 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.ometa.lovemonster.models.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.Immutable;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * Bounded cache of user lookups by username, so that repeated searches, including repeated searches
+ * for a username which does not exist, are answered without a request. Users found are kept for
+ * longer than usernames not found, since a user may be created at any time. The cache is filled
+ * by lookups, and by every user parsed from any response.
+ *
+ * The least recently used entry is evicted once the cache is full.
+ */
+@ThreadSafe
+class UserLookupCache {
+
+    /**
+     * A cached lookup.
+     */
+    @Immutable
+    static class Entry {
+
+        /**
+         * The user, or null if no user has the username.
+         */
+        @Nullable
+        final User user;
+
+        final long expiresAtMillis;
+
+        Entry(@Nullable final User user, final long expiresAtMillis) {
+            this.user = user;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final long foundTtlMillis;
+    private final long notFoundTtlMillis;
+
+    @NonNull
+    private final CircuitBreaker.Clock clock;
+
+    /**
+     * The cached lookups keyed by username, in access order.
+     */
+    @GuardedBy("this")
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries
+     *      the maximum number of usernames to cache
+     * @param foundTtlMillis
+     *      how long a user found is cached for
+     * @param notFoundTtlMillis
+     *      how long a username not found is cached for
+     * @param clock
+     *      the source of the current time
+     * @throws IllegalArgumentException
+     *      if {@code maxEntries} is less than 1, either ttl is negative, or {@code clock} is null
+     */
+    UserLookupCache(final int maxEntries, final long foundTtlMillis, final long notFoundTtlMillis, @NonNull final CircuitBreaker.Clock clock) throws IllegalArgumentException {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("argument `maxEntries` must be positive");
+        }
+        if (foundTtlMillis < 0 || notFoundTtlMillis < 0) {
+            throw new IllegalArgumentException("arguments `foundTtlMillis` and `notFoundTtlMillis` cannot be negative");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("argument `clock` cannot be null");
+        }
+
+        this.foundTtlMillis = foundTtlMillis;
+        this.notFoundTtlMillis = notFoundTtlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached lookup of the username, or null if it is not cached or has expired.
+     *
+     * @param username
+     *      the username looked up
+     * @return
+     *      the cached lookup, or null
+     */
+    @Nullable
+    synchronized Entry get(@NonNull final String username) {
+        final Entry entry = entries.get(username);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.currentTimeMillis() >= entry.expiresAtMillis) {
+            entries.remove(username);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the user under its username.
+     *
+     * @param user
+     *      the user found
+     */
+    synchronized void putUser(@NonNull final User user) {
+        entries.put(user.username, new Entry(user, clock.currentTimeMillis() + foundTtlMillis));
+    }
+
+    /**
+     * Caches that no user has the username.
+     *
+     * @param username
+     *      the username not found
+     */
+    synchronized void putNotFound(@NonNull final String username) {
+        entries.put(username, new Entry(null, clock.currentTimeMillis() + notFoundTtlMillis));
+    }
+
+    /**
+     * Returns the number of cached usernames, including expired ones not yet removed.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+}
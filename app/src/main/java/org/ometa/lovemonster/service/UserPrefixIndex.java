@@ -0,0 +1,305 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.models.UserIdentityMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import cz.msebera.android.httpclient.annotation.GuardedBy;
+import cz.msebera.android.httpclient.annotation.ThreadSafe;
+
+/**
+ * In-memory index of users by the prefixes of their username and name, for typeahead. Each user is
+ * indexed under their username, their full name, and each later word of their name, so
+ * {@code "smi"} finds "John Smith". Matching ignores case.
+ *
+ * The keys are kept in a sorted array, so a search is a binary search for the prefix followed by a
+ * walk over the keys which start with it. Users are added one at a time as they are parsed, each
+ * insert shifting the keys after it along.
+ *
+ * Only the strings are held. Each match is resolved to the live user through the
+ * {@link UserIdentityMap}, so the index neither keeps users alive nor returns a second instance of
+ * anyone. Users which have since been collected are dropped from the index as searches come across
+ * them, and all at once whenever the index has doubled since they were last dropped. Users without
+ * an email cannot be resolved, so are not indexed.
+ */
+@ThreadSafe
+public class UserPrefixIndex {
+
+    /**
+     * Separates the key from the username in an indexed entry, sorting before any other character so
+     * that every entry for a key sorts before the entries for keys it is a prefix of.
+     */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The indexed entries, each a lower-cased key followed by {@link #KEY_SEPARATOR} and the
+     * username, in sorted order. Only the first {@link #size} are used.
+     */
+    @GuardedBy("this")
+    private String[] entries = new String[INITIAL_CAPACITY];
+
+    /**
+     * The email of the user for the entry at the same position, which the user is resolved by.
+     */
+    @GuardedBy("this")
+    private String[] emails = new String[INITIAL_CAPACITY];
+
+    @GuardedBy("this")
+    private int size = 0;
+
+    /**
+     * The name each username is indexed under, so a changed name replaces the old keys.
+     */
+    @GuardedBy("this")
+    private final Map<String, String> indexedNames = new HashMap<>();
+
+    /**
+     * The number of indexed users at which the users which have been collected are next dropped.
+     */
+    @GuardedBy("this")
+    private int removeCollectedThreshold = INITIAL_CAPACITY;
+
+    /**
+     * The identity map the users are resolved through.
+     */
+    @NonNull
+    private final UserIdentityMap userIdentityMap;
+
+    /**
+     * Creates an empty index, which resolves users through the app-wide {@link UserIdentityMap}.
+     */
+    public UserPrefixIndex() {
+        this(UserIdentityMap.getInstance());
+    }
+
+    /**
+     * Creates an empty index, which resolves users through the specified identity map.
+     *
+     * @param userIdentityMap
+     *      the identity map the users are resolved through
+     * @throws IllegalArgumentException
+     *      if {@code userIdentityMap} is null
+     */
+    UserPrefixIndex(@NonNull final UserIdentityMap userIdentityMap) throws IllegalArgumentException {
+        if (userIdentityMap == null) {
+            throw new IllegalArgumentException("argument `userIdentityMap` cannot be null");
+        }
+
+        this.userIdentityMap = userIdentityMap;
+    }
+
+    /**
+     * Adds the user to the index, replacing the entries of any user with the same username. The
+     * user is interned, so a search returns the live instance with the same email.
+     *
+     * @param user
+     *      the user to add. ignored if it has no email
+     */
+    void add(@NonNull final User user) {
+        if (user.email.isEmpty()) {
+            return;
+        }
+        userIdentityMap.intern(user);
+
+        synchronized (this) {
+            final String username = user.username;
+            final boolean indexed = indexedNames.containsKey(username);
+            final String previousName = indexedNames.get(username);
+            if (indexed && equal(previousName, user.name)) {
+                // the common case of the same user seen again
+                final int index = Arrays.binarySearch(entries, 0, size, entry(normalize(username), username));
+                if (index >= 0 && emails[index].equals(user.email)) {
+                    return;
+                }
+            } else if (indexed) {
+                removeUser(username);
+            } else if (indexedNames.size() >= removeCollectedThreshold) {
+                removeCollectedUsers();
+            }
+            for (final String key : keys(username, user.name)) {
+                insert(entry(key, username), user.email);
+            }
+            indexedNames.put(username, user.name);
+        }
+    }
+
+    /**
+     * Returns the users with a username, name, or word of their name starting with the prefix,
+     * ignoring case, in the alphabetical order of the username or name each matched on.
+     *
+     * @param prefix
+     *      the text typed so far
+     * @param limit
+     *      the maximum number of users to return
+     * @return
+     *      the matching users, empty if the prefix is blank. will not be null
+     */
+    @NonNull
+    public List<User> search(@Nullable final String prefix, final int limit) {
+        final List<User> matches = new ArrayList<>();
+        if (prefix == null || limit < 1) {
+            return matches;
+        }
+        final String normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.length() == 0) {
+            return matches;
+        }
+
+        final Set<String> matchedUsernames = new HashSet<>();
+        final List<String> collectedUsernames = new ArrayList<>();
+        synchronized (this) {
+            final int start = Arrays.binarySearch(entries, 0, size, normalizedPrefix);
+            // the bare prefix is never an entry, so the search gives the insertion point
+            for (int i = start < 0 ? -(start + 1) : start; i < size && matches.size() < limit; i++) {
+                if (!entries[i].startsWith(normalizedPrefix)) {
+                    break;
+                }
+                final String username = username(entries[i]);
+                if (!matchedUsernames.add(username)) {
+                    continue;
+                }
+
+                final User user = userIdentityMap.find(emails[i]);
+                if (user == null) {
+                    collectedUsernames.add(username);
+                } else {
+                    matches.add(user);
+                }
+            }
+
+            // removed after the walk, since removing shifts the entries along
+            for (final String username : collectedUsernames) {
+                removeUser(username);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the number of indexed users, including any which have been collected but not yet
+     * dropped from the index.
+     */
+    public synchronized int size() {
+        return indexedNames.size();
+    }
+
+    @GuardedBy("this")
+    private void insert(@NonNull final String entry, @NonNull final String email) {
+        final int index = Arrays.binarySearch(entries, 0, size, entry);
+        if (index >= 0) {
+            emails[index] = email;
+            return;
+        }
+
+        final int insertAt = -(index + 1);
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+            emails = Arrays.copyOf(emails, size * 2);
+        }
+        System.arraycopy(entries, insertAt, entries, insertAt + 1, size - insertAt);
+        System.arraycopy(emails, insertAt, emails, insertAt + 1, size - insertAt);
+        entries[insertAt] = entry;
+        emails[insertAt] = email;
+        size++;
+    }
+
+    /**
+     * Removes every entry of the user with the username.
+     */
+    @GuardedBy("this")
+    private void removeUser(@NonNull final String username) {
+        for (final String key : keys(username, indexedNames.remove(username))) {
+            remove(entry(key, username));
+        }
+    }
+
+    /**
+     * Drops the users which have been collected, in a single pass over the entries, and sets the
+     * next threshold to twice the number of users left.
+     */
+    @GuardedBy("this")
+    private void removeCollectedUsers() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (userIdentityMap.find(emails[i]) != null) {
+                entries[kept] = entries[i];
+                emails[kept] = emails[i];
+                kept++;
+            } else {
+                indexedNames.remove(username(entries[i]));
+            }
+        }
+        Arrays.fill(entries, kept, size, null);
+        Arrays.fill(emails, kept, size, null);
+        size = kept;
+        removeCollectedThreshold = Math.max(INITIAL_CAPACITY, indexedNames.size() * 2);
+    }
+
+    @GuardedBy("this")
+    private void remove(@NonNull final String entry) {
+        final int index = Arrays.binarySearch(entries, 0, size, entry);
+        if (index < 0) {
+            return;
+        }
+
+        System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+        System.arraycopy(emails, index + 1, emails, index, size - index - 1);
+        size--;
+        entries[size] = null;
+        emails[size] = null;
+    }
+
+    /**
+     * Returns the keys to index a user under: the username, the full name, and each later word of
+     * the name.
+     */
+    @NonNull
+    private static Set<String> keys(@NonNull final String username, @Nullable final String name) {
+        final Set<String> keys = new HashSet<>();
+        keys.add(normalize(username));
+        if (name != null) {
+            final String normalizedName = normalize(name);
+            if (normalizedName.length() > 0) {
+                keys.add(normalizedName);
+                for (final String word : normalizedName.split("\\s+")) {
+                    if (word.length() > 0) {
+                        keys.add(word);
+                    }
+                }
+            }
+        }
+        return keys;
+    }
+
+    @NonNull
+    private static String entry(@NonNull final String key, @NonNull final String username) {
+        return key + KEY_SEPARATOR + username;
+    }
+
+    @NonNull
+    private static String username(@NonNull final String entry) {
+        return entry.substring(entry.indexOf(KEY_SEPARATOR) + 1);
+    }
+
+    @NonNull
+    private static String normalize(@NonNull final String text) {
+        return text.trim().toLowerCase(Locale.US);
+    }
+
+    private static boolean equal(@Nullable final String a, @Nullable final String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
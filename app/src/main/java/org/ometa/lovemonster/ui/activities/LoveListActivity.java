@@ -1,17 +1,21 @@
 package org.ometa.lovemonster.ui.activities;
 
-import android.content.Intent;
+import android.database.Cursor;
+import android.database.MatrixCursor;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
+import android.provider.BaseColumns;
 import android.support.design.widget.FloatingActionButton;
+import android.support.v4.widget.SimpleCursorAdapter;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.SearchView;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.FilterQueryProvider;
 import android.widget.ImageView;
 import android.widget.Toast;
 
@@ -31,6 +35,9 @@ import java.util.List;
 public class LoveListActivity extends AppCompatActivity {
 
     private static final Logger logger = new Logger(LoveListActivity.class);
+    private static final int MAX_SEARCH_SUGGESTIONS = 10;
+    private static final String SUGGESTION_USERNAME_COLUMN = "username";
+    private static final String SUGGESTION_NAME_COLUMN = "name";
     private boolean searchInProgress = false;
     private Target userAvatarTarget;
 
@@ -43,6 +50,10 @@ public class LoveListActivity extends AppCompatActivity {
         final HomeLoveFragment fragment = (HomeLoveFragment) getSupportFragmentManager().findFragmentById(R.id.lovesList);
         fragment.setCurrentUser(client.getAuthenticatedUser());
 
+        if (client.isSessionRestored()) {
+            verifyRestoredSession(client);
+        }
+
         final FloatingActionButton makeLoveButton = (FloatingActionButton) findViewById(R.id.make_love);
         makeLoveButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -51,7 +62,7 @@ public class LoveListActivity extends AppCompatActivity {
                 makeLoveDialogFragment.setOnSuccessCallback(new MakeLoveDialogFragment.SuccessCallback() {
                     @Override
                     public void onSuccess() {
-                        fragment.reloadLoves();
+                        fragment.refreshLoves();
                     }
                 });
                 makeLoveDialogFragment.show(getFragmentManager(), "makeLoveDialog");
@@ -61,13 +72,71 @@ public class LoveListActivity extends AppCompatActivity {
 
     }
 
+    /**
+     * Checks the session restored from the last launch in the background, while the saved loves are
+     * shown, and sends the user to log in again if it has expired.
+     */
+    private void verifyRestoredSession(final LoveMonsterClient client) {
+        client.verifySession(new LoveMonsterClient.AuthenticationHandler() {
+            @Override
+            public void onSuccess() {
+                logger.debug("method=verifyRestoredSession verified=true");
+            }
+
+            @Override
+            public void onFail(final List<String> errorMessages) {
+                // most likely offline; keep the session, and let the requests find out if it expired
+                logger.debug("method=verifyRestoredSession verified=false errors=" + errorMessages);
+            }
+
+            @Override
+            public void onAuthenticationFailure() {
+                if (!isFinishing()) {
+                    OktaLoginActivity.reauthenticate(LoveListActivity.this);
+                }
+            }
+        });
+    }
+
     @Override
     public boolean onCreateOptionsMenu(final Menu menu) {
         getMenuInflater().inflate(R.menu.menu_love_list, menu);
 
         MenuItem searchItem = menu.findItem(R.id.action_search);
-        SearchView searchView = (SearchView) searchItem.getActionView();
+        final SearchView searchView = (SearchView) searchItem.getActionView();
         searchView.setQueryHint("Username...");
+
+        // suggest the users already seen as the username is typed; choosing one searches for it
+        final SimpleCursorAdapter suggestionsAdapter = new SimpleCursorAdapter(
+                this,
+                android.R.layout.simple_list_item_2,
+                null,
+                new String[] { SUGGESTION_USERNAME_COLUMN, SUGGESTION_NAME_COLUMN },
+                new int[] { android.R.id.text1, android.R.id.text2 },
+                0
+        );
+        suggestionsAdapter.setFilterQueryProvider(new FilterQueryProvider() {
+            @Override
+            public Cursor runQuery(final CharSequence constraint) {
+                return userSuggestions(constraint);
+            }
+        });
+        searchView.setSuggestionsAdapter(suggestionsAdapter);
+        searchView.setOnSuggestionListener(new SearchView.OnSuggestionListener() {
+            @Override
+            public boolean onSuggestionSelect(final int position) {
+                return false;
+            }
+
+            @Override
+            public boolean onSuggestionClick(final int position) {
+                final Cursor cursor = suggestionsAdapter.getCursor();
+                if (cursor != null && cursor.moveToPosition(position)) {
+                    searchView.setQuery(cursor.getString(cursor.getColumnIndex(SUGGESTION_USERNAME_COLUMN)), true);
+                }
+                return true;
+            }
+        });
         searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(final String query) {
@@ -83,9 +152,7 @@ public class LoveListActivity extends AppCompatActivity {
                     @Override
                     public void onUserExists(final User user) {
                         searchInProgress = false;
-                        final Intent intent = new Intent(LoveListActivity.this, UserLoveActivity.class);
-                        intent.putExtra(User.PARCELABLE_KEY, user);
-                        startActivity(intent);
+                        startActivity(UserLoveActivity.newIntent(LoveListActivity.this, user));
                     }
 
                     @Override
@@ -118,6 +185,22 @@ public class LoveListActivity extends AppCompatActivity {
         return true;
     }
 
+    /**
+     * Builds the search suggestions for the text typed so far, from the users already seen.
+     */
+    private static Cursor userSuggestions(final CharSequence constraint) {
+        final MatrixCursor cursor = new MatrixCursor(new String[] { BaseColumns._ID, SUGGESTION_USERNAME_COLUMN, SUGGESTION_NAME_COLUMN });
+        if (constraint == null) {
+            return cursor;
+        }
+
+        long id = 0;
+        for (final User user : LoveMonsterClient.getInstance().suggestUsers(constraint.toString(), MAX_SEARCH_SUGGESTIONS)) {
+            cursor.addRow(new Object[] { id++, user.username, user.name });
+        }
+        return cursor;
+    }
+
     @Override
     public boolean onPrepareOptionsMenu(final Menu menu) {
         super.onPrepareOptionsMenu(menu);
@@ -176,9 +259,7 @@ public class LoveListActivity extends AppCompatActivity {
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == R.id.menu_love_list_user_avatar) {
-            final Intent intent = new Intent(this, UserLoveActivity.class);
-            intent.putExtra(User.PARCELABLE_KEY, LoveMonsterClient.getInstance().getAuthenticatedUser());
-            startActivity(intent);
+            startActivity(UserLoveActivity.newIntent(this, LoveMonsterClient.getInstance().getAuthenticatedUser()));
             return true;
         }
 
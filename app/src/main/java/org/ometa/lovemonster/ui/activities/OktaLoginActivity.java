@@ -1,6 +1,7 @@
 package org.ometa.lovemonster.ui.activities;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
@@ -17,7 +18,9 @@ import android.widget.Toast;
 import org.ometa.lovemonster.Logger;
 import org.ometa.lovemonster.R;
 import org.ometa.lovemonster.service.LoveMonsterClient;
+import org.ometa.lovemonster.service.LoveOutbox;
 import org.ometa.lovemonster.service.NetworkHelper;
+import org.ometa.lovemonster.service.SessionStore;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,13 +32,73 @@ public class OktaLoginActivity extends AppCompatActivity {
 
     private static final Logger logger = new Logger(OktaLoginActivity.class);
 
+    /**
+     * Intent extra set when the login page is shown because the session expired while the app was
+     * in use. The requests held meanwhile are sent again once logged in, so the activity underneath
+     * is returned to rather than started again.
+     */
+    private static final String EXTRA_SESSION_EXPIRED = "session_expired";
+
+    /**
+     * True if the login page is shown because the session expired while the app was in use.
+     */
+    private boolean sessionExpired;
+
     private WebView webView;
     private ProgressBar progressBar;
     private RelativeLayout webViewContent;
     private View networkUnavailableMessage;
 
+    /**
+     * Forgets the current session and shows the login page, for when the session has expired.
+     *
+     * @param activity
+     *      the activity which found the session expired. it is finished
+     */
+    public static void reauthenticate(final Activity activity) {
+        LoveMonsterClient.getInstance().clearSession();
+
+        final Intent intent = new Intent(activity, OktaLoginActivity.class);
+        activity.startActivity(intent);
+        activity.finish();
+    }
+
+    /**
+     * Shows the login page over whatever is on screen when the session expires, so that the
+     * requests held until then are sent again once the user has logged in.
+     *
+     * @param context
+     *      any context for the app
+     */
+    private static void listenForExpiredSession(final Context context) {
+        final Context applicationContext = context.getApplicationContext();
+        LoveMonsterClient.getInstance().setSessionExpiredListener(new LoveMonsterClient.SessionExpiredListener() {
+            @Override
+            public void onSessionExpired() {
+                final Intent intent = new Intent(applicationContext, OktaLoginActivity.class);
+                intent.putExtra(EXTRA_SESSION_EXPIRED, true);
+                intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                applicationContext.startActivity(intent);
+            }
+        });
+    }
+
     @Override public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        final LoveMonsterClient client = LoveMonsterClient.getInstance();
+        listenForExpiredSession(this);
+        sessionExpired = getIntent().getBooleanExtra(EXTRA_SESSION_EXPIRED, false);
+
+        // skip the login page when the last session was saved; it is checked once the loves are shown
+        client.setSessionStore(SessionStore.getInstance(this));
+        if (!sessionExpired && client.restoreSession()) {
+            LoveOutbox.getInstance(this).drain(client);
+            startActivity(new Intent(this, LoveListActivity.class));
+            finish();
+            return;
+        }
+
         setContentView(R.layout.activity_okta_login);
 
         progressBar = (ProgressBar) findViewById(R.id.okta_login_progress_bar);
@@ -62,11 +125,25 @@ public class OktaLoginActivity extends AppCompatActivity {
     public void onDestroy() {
         super.onDestroy();
 
+        if (webView == null) {
+            // the saved session was restored, so the login page was never shown
+            return;
+        }
         webView.setWebViewClient(null);
         webViewContent.removeAllViews();
         webView.destroy(); // http://stackoverflow.com/a/8949378/82156
     }
 
+    @Override
+    public void onBackPressed() {
+        if (sessionExpired) {
+            // the screens underneath are waiting on the login, so leave the app instead
+            moveTaskToBack(true);
+            return;
+        }
+        super.onBackPressed();
+    }
+
     /**
      * Extended {@link WebViewClient} which interacts with the okta web view.
      */
@@ -87,6 +164,15 @@ public class OktaLoginActivity extends AppCompatActivity {
                     LoveMonsterClient.getInstance().authenticate(authCookies, new LoveMonsterClient.AuthenticationHandler() {
                         @Override
                         public void onSuccess() {
+                            // send any loves queued while offline or logged out
+                            LoveOutbox.getInstance(activity).drain(LoveMonsterClient.getInstance());
+
+                            if (sessionExpired && !isTaskRoot()) {
+                                // the held requests have been sent again, so go back to where the user was
+                                finish();
+                                return;
+                            }
+
                             final Intent intent = new Intent(activity, LoveListActivity.class);
                             startActivity(intent);
                             finish();
@@ -1,6 +1,10 @@
 package org.ometa.lovemonster.ui.activities;
 
+import android.content.Context;
+import android.content.Intent;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.design.widget.FloatingActionButton;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
@@ -15,6 +19,8 @@ import com.astuetz.PagerSlidingTabStrip;
 import org.ometa.lovemonster.Logger;
 import org.ometa.lovemonster.R;
 import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.models.UserIdentityMap;
+import org.ometa.lovemonster.models.UserRegistry;
 import org.ometa.lovemonster.service.LoveMonsterClient;
 import org.ometa.lovemonster.ui.adapters.SmartFragmentStatePagerAdapter;
 import org.ometa.lovemonster.ui.fragments.LovesListFragment;
@@ -30,6 +36,23 @@ public class UserLoveActivity extends AppCompatActivity {
 
     private PagerSlidingTabStrip tabsStrip;
 
+    /**
+     * Creates an intent which opens the user's loves. The intent carries only the user's
+     * {@link UserRegistry} key, not the parceled user.
+     *
+     * @param context
+     *      the context opening the activity
+     * @param user
+     *      the user whose loves are shown
+     * @return
+     *      the intent
+     */
+    public static Intent newIntent(@NonNull final Context context, @NonNull final User user) {
+        final Intent intent = new Intent(context, UserLoveActivity.class);
+        intent.putExtra(User.REGISTRY_KEY, UserRegistry.getInstance().register(user));
+        return intent;
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         logger = new Logger(UserLoveActivity.class);
@@ -41,7 +64,7 @@ public class UserLoveActivity extends AppCompatActivity {
         getSupportActionBar().setHomeAsUpIndicator(R.drawable.ic_keyboard_arrow_left_white_24dp);
 
         // get and assign the user we're concerned about
-        user = getIntent().getParcelableExtra(User.PARCELABLE_KEY);
+        user = resolveUser(savedInstanceState);
         getSupportActionBar().setTitle(titleFor(user));
 
         setupMakeLoveButton();
@@ -90,7 +113,7 @@ public class UserLoveActivity extends AppCompatActivity {
                          */
                         int tabIndex = (user.equals(currentUser)) ? LovesPagerAdapter.SENT_TAB_INDEX : LovesPagerAdapter.RECEIVED_TAB_INDEX;
                         UserLoveFragment fragment = (UserLoveFragment) fragmentAdapter.getRegisteredFragment(tabIndex);
-                        fragment.reloadLoves();
+                        fragment.refreshLoves();
                     }
                 });
                 makeLoveDialogFragment.show(getFragmentManager(), "makeLoveDialog");
@@ -98,6 +121,35 @@ public class UserLoveActivity extends AppCompatActivity {
         });
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putParcelable(User.PARCELABLE_KEY, user);
+    }
+
+    /**
+     * Finds the user in the registry, falling back to the copy saved with the instance state when
+     * the process has been restarted since the intent was created.
+     */
+    private User resolveUser(@Nullable final Bundle savedInstanceState) {
+        final String key = getIntent().getStringExtra(User.REGISTRY_KEY);
+        final User registeredUser = UserRegistry.getInstance().find(key);
+        if (registeredUser != null) {
+            return registeredUser;
+        }
+
+        final User savedUser = savedInstanceState == null ? null : (User) savedInstanceState.getParcelable(User.PARCELABLE_KEY);
+        if (savedUser != null) {
+            final User liveUser = UserIdentityMap.getInstance().intern(savedUser);
+            UserRegistry.getInstance().register(liveUser);
+            return liveUser;
+        }
+
+        // the key is the username, which is all that is needed to load the user's loves
+        logger.debug("method=resolveUser key=" + key + " restored=false");
+        return new User("", key);
+    }
+
     private void setCurrentUser(User currentUser) {
         this.currentUser = currentUser;
         if (!currentUser.equals(user)) {
@@ -1,7 +1,6 @@
 package org.ometa.lovemonster.ui.adapters;
 
 import android.content.Context;
-import android.content.Intent;
 import android.net.Uri;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -12,12 +11,16 @@ import android.widget.TextView;
 
 import com.squareup.picasso.Picasso;
 
+import org.ometa.lovemonster.LongHashSet;
 import org.ometa.lovemonster.R;
 import org.ometa.lovemonster.models.Love;
 import org.ometa.lovemonster.models.User;
 import org.ometa.lovemonster.ui.activities.UserLoveActivity;
 import org.ometa.lovemonster.ui.widget.RoundedRectangleTransformation;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -27,6 +30,10 @@ public class LoveArrayAdapter extends ArrayAdapter<Love> {
     public User currentUser;
     public User subjectUser;
 
+    // fingerprints of the loves shown, so that a love repeated by overlapping pages is only shown once.
+    // the list must only be changed through the adapter, or the fingerprints no longer match it
+    private final LongHashSet loveFingerprints = new LongHashSet();
+
     static class ViewHolder {
 
         private Context context;
@@ -57,9 +64,7 @@ public class LoveArrayAdapter extends ArrayAdapter<Love> {
             final View.OnClickListener loverOnClickListener = new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    Intent i = new Intent(context, UserLoveActivity.class);
-                    i.putExtra(User.PARCELABLE_KEY, love.lover);
-                    context.startActivity(i);
+                    context.startActivity(UserLoveActivity.newIntent(context, love.lover));
                 }
             };
             ivSenderImage.setOnClickListener(loverOnClickListener);
@@ -70,9 +75,7 @@ public class LoveArrayAdapter extends ArrayAdapter<Love> {
             final View.OnClickListener loveeOnClickListener = new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    Intent i = new Intent(context, UserLoveActivity.class);
-                    i.putExtra(User.PARCELABLE_KEY, love.lovee);
-                    context.startActivity(i);
+                    context.startActivity(UserLoveActivity.newIntent(context, love.lovee));
                 }
             };
             ivRecipientImage.setOnClickListener(loveeOnClickListener);
@@ -124,10 +127,15 @@ public class LoveArrayAdapter extends ArrayAdapter<Love> {
         return convertView;
     }
 
-    // method to add a list of loves to the beginning of the array adapter
+    // method to add a list of loves to the beginning of the array adapter, keeping their order
+    // and skipping loves already shown
     public void addAllToBeginning(List<Love> loves) {
+        setNotifyOnChange(false);
+        int position = 0;
         for (Love love : loves) {
-            this.insert(love, 0);
+            if (addFingerprint(love)) {
+                super.insert(love, position++);
+            }
         }
         notifyDataSetChanged();
     }
@@ -140,6 +148,60 @@ public class LoveArrayAdapter extends ArrayAdapter<Love> {
         notifyDataSetChanged();
     }
 
+    // adds the love to the end, unless it is already shown
+    @Override
+    public void add(Love love) {
+        if (addFingerprint(love)) {
+            super.add(love);
+        }
+    }
+
+    // adds the loves to the end, skipping loves already shown
+    @Override
+    public void addAll(Collection<? extends Love> loves) {
+        final List<Love> newLoves = new ArrayList<>(loves.size());
+        for (Love love : loves) {
+            if (addFingerprint(love)) {
+                newLoves.add(love);
+            }
+        }
+        super.addAll(newLoves);
+    }
+
+    // adds the loves to the end, skipping loves already shown
+    @Override
+    public void addAll(Love... loves) {
+        addAll(Arrays.asList(loves));
+    }
+
+    // inserts the love at the position, unless it is already shown
+    @Override
+    public void insert(Love love, int index) {
+        if (addFingerprint(love)) {
+            super.insert(love, index);
+        }
+    }
+
+    // removes the love, forgetting its fingerprint so that it may be shown again
+    @Override
+    public void remove(Love love) {
+        if (getPosition(love) >= 0) {
+            super.remove(love);
+            loveFingerprints.remove(love.fingerprint());
+        }
+    }
+
+    @Override
+    public void clear() {
+        loveFingerprints.clear();
+        super.clear();
+    }
+
+    // records the love's fingerprint, returning false if the love is already shown
+    private boolean addFingerprint(Love love) {
+        return loveFingerprints.add(love.fingerprint());
+    }
+
     private void highlight(View view, boolean highlightOn) {
         if (highlightOn) {
             view.setBackgroundResource(R.drawable.user_highlight);
@@ -0,0 +1,75 @@
+package org.ometa.lovemonster.ui.adapters;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+import android.widget.TextView;
+
+import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.service.LoveMonsterClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Suggests usernames for an {@link android.widget.AutoCompleteTextView} as they are typed, from the
+ * users already seen by the {@link LoveMonsterClient}. No requests are made, so users who have not
+ * appeared in any love list or lookup are not suggested.
+ */
+public class UserSuggestionAdapter extends ArrayAdapter<User> {
+
+    /**
+     * The maximum number of users suggested at once.
+     */
+    private static final int MAX_SUGGESTIONS = 10;
+
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(final CharSequence constraint) {
+            final List<User> users = constraint == null
+                    ? new ArrayList<User>()
+                    : LoveMonsterClient.getInstance().suggestUsers(constraint.toString(), MAX_SUGGESTIONS);
+
+            final FilterResults results = new FilterResults();
+            results.values = users;
+            results.count = users.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(final CharSequence constraint, final FilterResults results) {
+            setNotifyOnChange(false);
+            clear();
+            if (results.values != null) {
+                addAll((List<User>) results.values);
+            }
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public CharSequence convertResultToString(final Object resultValue) {
+            return ((User) resultValue).username;
+        }
+    };
+
+    public UserSuggestionAdapter(final Context context) {
+        super(context, android.R.layout.simple_dropdown_item_1line, new ArrayList<User>());
+    }
+
+    @Override
+    public View getView(final int position, final View convertView, final ViewGroup parent) {
+        final TextView view = (TextView) super.getView(position, convertView, parent);
+        final User user = getItem(position);
+        view.setText(TextUtils.isEmpty(user.name) ? user.username : user.username + " (" + user.name + ")");
+        return view;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
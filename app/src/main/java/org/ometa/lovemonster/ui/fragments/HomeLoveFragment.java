@@ -2,9 +2,14 @@ package org.ometa.lovemonster.ui.fragments;
 
 import android.os.Bundle;
 
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.service.Cancellable;
+import org.ometa.lovemonster.service.LoveCursor;
 import org.ometa.lovemonster.service.LoveMonsterClient;
 import org.ometa.lovemonster.ui.adapters.LoveArrayAdapter;
 
+import java.util.List;
+
 /**
  * Created by devin on 12/6/15.
  */
@@ -19,23 +24,22 @@ public class HomeLoveFragment extends LovesListFragment {
     }
 
     @Override
-    protected void onSwipeUp(int page) {
-        client.retrieveRecentLoves(getSwipeUpHandler(), page);
+    protected Cancellable loadLovesBefore(LoveCursor cursor, LoveMonsterClient.LoveCursorResponseHandler responseHandler) {
+        return client.retrieveLovesBefore(responseHandler, cursor);
     }
 
     @Override
-    public void reloadLoves() {
-        lovesList.clear();
-        client.retrieveRecentLoves(getSwipeDownHandler(), 1);
+    protected Cancellable loadNewLoves(Love newestKnownLove, LoveMonsterClient.NewLovesResponseHandler responseHandler) {
+        return client.retrieveNewLoves(responseHandler, newestKnownLove);
     }
 
     @Override
-    protected void initialLoadNoInternet(LoveArrayAdapter lovesArrayAdapter) {
-        // todo: load existing loves from sqlite db
+    protected List<Love> savedLoves() {
+        return client.getSavedLoves();
     }
 
     @Override
-    protected void initialLoadWithInternet() {
-        client.retrieveRecentLoves(getSwipeUpHandler(), 1);
+    protected void initialLoadNoInternet(LoveArrayAdapter lovesArrayAdapter) {
+        // todo: load existing loves from sqlite db
     }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package org.ometa.lovemonster.ui.fragments;
 
-import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -16,14 +15,20 @@ import org.ometa.lovemonster.Logger;
 import org.ometa.lovemonster.R;
 import org.ometa.lovemonster.models.Love;
 import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.service.Cancellable;
+import org.ometa.lovemonster.service.LoveCursor;
 import org.ometa.lovemonster.service.LoveMonsterClient;
+import org.ometa.lovemonster.service.LovePagePrefetcher;
 import org.ometa.lovemonster.service.NetworkHelper;
-import org.ometa.lovemonster.ui.activities.LoveListActivity;
+import org.ometa.lovemonster.service.RequestGroup;
+import org.ometa.lovemonster.ui.activities.OktaLoginActivity;
 import org.ometa.lovemonster.ui.adapters.LoveArrayAdapter;
 import org.ometa.lovemonster.ui.listeners.EndlessScrollListener;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by bschmeckpeper on 11/18/15.
@@ -31,16 +36,26 @@ import java.util.List;
 public abstract class LovesListFragment extends Fragment {
 
     // these methods must be implemented from children classes
-    protected abstract void onSwipeUp(int page);
-    public abstract void reloadLoves();
+    protected abstract Cancellable loadLovesBefore(LoveCursor cursor, LoveMonsterClient.LoveCursorResponseHandler responseHandler);
+    protected abstract Cancellable loadNewLoves(Love newestKnownLove, LoveMonsterClient.NewLovesResponseHandler responseHandler);
     protected abstract void initialLoadNoInternet(LoveArrayAdapter lovesArrayAdapter);
-    protected abstract void initialLoadWithInternet();
 
     private Logger logger;
 
     ArrayList<Love> lovesList;
     LoveArrayAdapter lovesArrayAdapter;
 
+    // loads pages for the endless scroll, prefetching the page after the last one shown
+    LovePagePrefetcher pagePrefetcher;
+
+    // the page requests in flight, cancelled when the view is destroyed
+    final RequestGroup requestGroup = new RequestGroup();
+
+    // the cursor each page of the endless scroll is loaded from, keyed by page. page 1 has none
+    final Map<Integer, LoveCursor> pageCursors = new HashMap<>();
+
+    EndlessScrollListener scrollListener;
+
     public class ViewHolder {
         public ListView lvLoves;
         public SwipeRefreshLayout swipeContainer;
@@ -56,6 +71,52 @@ public abstract class LovesListFragment extends Fragment {
         super.onCreate(savedInstanceState);
         lovesList = new ArrayList<>();
         lovesArrayAdapter = new LoveArrayAdapter(getContext(), lovesList, currentUser);
+
+        // created with the list rather than the view, since loads and reloads report to it before
+        // the view exists
+        scrollListener = new EndlessScrollListener(true) {
+            @Override
+            public boolean onLoadMore(int page, int totalItemsCount) {
+                if (NetworkHelper.isUp(getActivity())) {
+                    onSwipeUp(page);
+                } else {
+                    Toast.makeText(getActivity(), R.string.check_internet, Toast.LENGTH_SHORT).show();
+                }
+                return true;
+            }
+        };
+        pagePrefetcher = new LovePagePrefetcher(new LovePagePrefetcher.PageLoader() {
+            @Override
+            public void loadPage(final int page, @NonNull final LoveMonsterClient.LoveListResponseHandler responseHandler) {
+                final LoveCursor cursor = pageCursors.get(page);
+                if (page > 1 && cursor == null) {
+                    // the previous page was the last one
+                    responseHandler.onSuccess(new ArrayList<Love>(), page - 1);
+                    return;
+                }
+
+                requestGroup.add(loadLovesBefore(cursor, new LoveMonsterClient.LoveCursorResponseHandler() {
+                    @Override
+                    public void onSuccess(@NonNull List<Love> loves, @Nullable LoveCursor nextCursor) {
+                        if (nextCursor != null) {
+                            pageCursors.put(page + 1, nextCursor);
+                        }
+                        // the prefetcher and the scroll listener only load the next page while the total pages says it exists
+                        responseHandler.onSuccess(loves, nextCursor == null ? page : page + 1);
+                    }
+
+                    @Override
+                    public void onFail() {
+                        responseHandler.onFail();
+                    }
+
+                    @Override
+                    public void onAuthenticationFailure() {
+                        responseHandler.onAuthenticationFailure();
+                    }
+                }));
+            }
+        });
     }
 
     @Override
@@ -73,17 +134,7 @@ public abstract class LovesListFragment extends Fragment {
         toggleNoLoveMessage();
 
         // Swipe Up (load older loves)
-        viewHolder.lvLoves.setOnScrollListener(new EndlessScrollListener() {
-            @Override
-            public boolean onLoadMore(int page, int totalItemsCount) {
-                if (NetworkHelper.isUp(getActivity())) {
-                    onSwipeUp(page);
-                } else {
-                    Toast.makeText(getActivity(), R.string.check_internet, Toast.LENGTH_SHORT).show();
-                }
-                return true;
-            }
-        });
+        viewHolder.lvLoves.setOnScrollListener(scrollListener);
 
         // Swipe Down (load new loves)
         viewHolder.swipeContainer = (SwipeRefreshLayout) view.findViewById(R.id.swipeContainer);
@@ -95,7 +146,7 @@ public abstract class LovesListFragment extends Fragment {
             @Override
             public void onRefresh() {
                 if (NetworkHelper.isUp(getActivity())) {
-                    reloadLoves();
+                    refreshLoves();
 
                 } else {
                     viewHolder.swipeContainer.setRefreshing(false);
@@ -105,15 +156,113 @@ public abstract class LovesListFragment extends Fragment {
         });
 
 
+        // show the loves saved with the last session straight away, until the first page replaces them
+        final List<Love> savedLoves = savedLoves();
+        if (!savedLoves.isEmpty()) {
+            lovesArrayAdapter.addAllToEnd(savedLoves);
+            toggleNoLoveMessage();
+        }
+
         // Load initial Data (has to happen after we instantiate the client in the child onCreate()
         if (NetworkHelper.isUp(getActivity())) {
-            initialLoadWithInternet();
+            requestPage(1, savedLoves.isEmpty() ? getSwipeUpHandler() : getReplaceSavedLovesHandler());
         } else {
             Toast.makeText(getActivity(), R.string.check_internet, Toast.LENGTH_SHORT).show();
             initialLoadNoInternet(lovesArrayAdapter);
         }
     }
 
+    /**
+     * Returns the loves to show while the first page is loading. Override in child classes which
+     * have loves saved from the last session.
+     */
+    protected List<Love> savedLoves() {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Cancels the page requests in flight, so their responses are neither parsed nor delivered to
+     * the destroyed view, and clears the list along with them. A cancelled page never tells the
+     * scroll listener it has loaded, so the list starts again from the first page, which is
+     * requested when the view is created again.
+     */
+    @Override
+    public void onDestroyView() {
+        final int cancelled = clearLoves();
+        logger.debug("method=onDestroyView cancelledRequests=" + cancelled);
+        super.onDestroyView();
+    }
+
+    /**
+     * Loads the page of older loves, from the prefetched pages if it has already been loaded.
+     */
+    protected void onSwipeUp(int page) {
+        requestPage(page, getSwipeUpHandler());
+    }
+
+    /**
+     * Adds the loves newer than the newest love shown to the top of the list, keeping the loves
+     * already shown. Reloads the list if it is empty, or if there are too many new loves to reach
+     * the loves shown.
+     */
+    public void refreshLoves() {
+        if (lovesList.isEmpty()) {
+            reloadLoves();
+            return;
+        }
+
+        requestGroup.add(loadNewLoves(lovesList.get(0), getNewLovesHandler()));
+    }
+
+    /**
+     * Clears the list and loads the first page again, discarding any prefetched pages.
+     */
+    public void reloadLoves() {
+        clearLoves();
+        requestPage(1, getSwipeDownHandler());
+    }
+
+    /**
+     * Cancels the requests in flight and clears the list, the prefetched pages and the scroll
+     * listener, so the list can be loaded again from the first page.
+     *
+     * @return
+     *      the number of requests which were still outstanding
+     */
+    private int clearLoves() {
+        // the cursors of pages in flight belong to the old list
+        final int cancelled = requestGroup.cancelAll();
+        pageCursors.clear();
+        lovesArrayAdapter.clear();
+        pagePrefetcher.clear();
+        scrollListener.reset();
+        return cancelled;
+    }
+
+    /**
+     * Requests a page of the endless scroll, telling the scroll listener once it has loaded.
+     */
+    private void requestPage(final int page, final LoveMonsterClient.LoveListResponseHandler responseHandler) {
+        pagePrefetcher.requestPage(page, new LoveMonsterClient.LoveListResponseHandler() {
+            @Override
+            public void onSuccess(@NonNull List<Love> loves, int totalPages) {
+                responseHandler.onSuccess(loves, totalPages);
+                scrollListener.loadFinished(totalPages > page);
+            }
+
+            @Override
+            public void onFail() {
+                responseHandler.onFail();
+                scrollListener.loadFailed();
+            }
+
+            @Override
+            public void onAuthenticationFailure() {
+                responseHandler.onAuthenticationFailure();
+            }
+        });
+    }
+
     /**
      *  Toggles whether the no love message is displayed or not.
      */
@@ -160,9 +309,7 @@ public abstract class LovesListFragment extends Fragment {
 
             @Override
             public void onAuthenticationFailure() {
-                final Intent intent = new Intent(getActivity(), LoveListActivity.class);
-                getActivity().startActivity(intent);
-                getActivity().finish();
+                OktaLoginActivity.reauthenticate(getActivity());
             }
         };
     }
@@ -173,10 +320,6 @@ public abstract class LovesListFragment extends Fragment {
         return new LoveMonsterClient.LoveListResponseHandler() {
             @Override
             public void onSuccess(@NonNull List<Love> loves, int totalPages) {
-
-                // todo: implement loading just the new loves and add them to the beginning
-                // instead of resetting the arraylist
-                // lovesArrayAdapter.addAllToBeginning(loves);
                 lovesArrayAdapter.addAllToEnd(loves);
                 toggleNoLoveMessage();
                 viewHolder.swipeContainer.setRefreshing(false);
@@ -189,10 +332,66 @@ public abstract class LovesListFragment extends Fragment {
 
             @Override
             public void onAuthenticationFailure() {
-                final Intent intent = new Intent(getActivity(), LoveListActivity.class);
-                getActivity().startActivity(intent);
-                getActivity().finish();
+                OktaLoginActivity.reauthenticate(getActivity());
+            }
+        };
+    }
+
+    // Handler for the first page when saved loves are shown, replacing them with the page.
+    private LoveMonsterClient.LoveListResponseHandler getReplaceSavedLovesHandler() {
+        final LoveMonsterClient.LoveListResponseHandler swipeUpHandler = getSwipeUpHandler();
+        return new LoveMonsterClient.LoveListResponseHandler() {
+            @Override
+            public void onSuccess(@NonNull List<Love> loves, int totalPages) {
+                // the page may be shorter than the saved loves, which the scroll listener would
+                // otherwise take for the list being reloaded
+                scrollListener.reset();
+                lovesArrayAdapter.clear();
+                swipeUpHandler.onSuccess(loves, totalPages);
+            }
+
+            @Override
+            public void onFail() {
+                swipeUpHandler.onFail();
+            }
+
+            @Override
+            public void onAuthenticationFailure() {
+                swipeUpHandler.onAuthenticationFailure();
+            }
+        };
+    }
+
+    // Handler for a refresh that adds the new loves to the beginning of the arraylist, keeping the
+    // loves already shown. Falls back to reloading the list when the new loves did not reach them.
+    protected LoveMonsterClient.NewLovesResponseHandler getNewLovesHandler() {
+        return new LoveMonsterClient.NewLovesResponseHandler() {
+            @Override
+            public void onSuccess(@NonNull List<Love> newLoves, boolean complete) {
+                logger.debug("method=onRefresh newLoves=" + newLoves.size() + " complete=" + complete);
+                if (!complete) {
+                    reloadLoves();
+                    return;
+                }
+
+                if (!newLoves.isEmpty()) {
+                    // the endless scroll continues from its cursor, so the new loves do not shift it
+                    lovesArrayAdapter.addAllToBeginning(newLoves);
+                    toggleNoLoveMessage();
+                }
+                viewHolder.swipeContainer.setRefreshing(false);
+            }
+
+            @Override
+            public void onFail() {
+                viewHolder.swipeContainer.setRefreshing(false);
+                Toast.makeText(getContext(), "Unable to retrieve loves", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onAuthenticationFailure() {
+                OktaLoginActivity.reauthenticate(getActivity());
             }
         };
     }
-}
\ No newline at end of file
+}
@@ -2,16 +2,18 @@ package org.ometa.lovemonster.ui.fragments;
 
 import android.app.Dialog;
 import android.app.DialogFragment;
-import android.content.Intent;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.text.Editable;
+import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
 import android.widget.CheckBox;
 import android.widget.EditText;
+import android.widget.MultiAutoCompleteTextView;
 import android.widget.ProgressBar;
 import android.widget.Toast;
 
@@ -23,12 +25,23 @@ import org.ometa.lovemonster.R;
 import org.ometa.lovemonster.models.Love;
 import org.ometa.lovemonster.models.User;
 import org.ometa.lovemonster.service.LoveMonsterClient;
-import org.ometa.lovemonster.ui.activities.LoveListActivity;
-
+import org.ometa.lovemonster.service.LoveOutbox;
+import org.ometa.lovemonster.service.NetworkHelper;
+import org.ometa.lovemonster.service.RequestGroup;
+import org.ometa.lovemonster.ui.activities.OktaLoginActivity;
+import org.ometa.lovemonster.ui.adapters.UserSuggestionAdapter;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 /**
- * Extended {@link DialogFragment} which allows a user to send love to another user.
+ * Extended {@link DialogFragment} which allows a user to send love to one or more other users.
  */
 public class MakeLoveDialogFragment extends DialogFragment {
 
@@ -75,6 +88,16 @@ public class MakeLoveDialogFragment extends DialogFragment {
     }
     public SuccessCallback getOnSuccessCallback() { return onSuccessCallback; }
 
+    // the sends in flight, cancelled when the dialog goes away
+    private final RequestGroup requestGroup = new RequestGroup();
+
+    // the loves which have been sent but not yet sent successfully, by lovee username, so that
+    // sending again resends the same keyed loves
+    private final Map<String, Love> unsentLoves = new LinkedHashMap<>();
+
+    // the keys of the unsent loves which the server rejected, so are not worth finishing later
+    private final Set<String> rejectedKeys = new HashSet<>();
+
     @NonNull
     @Override
     public Dialog onCreateDialog(final Bundle savedInstanceState) {
@@ -97,10 +120,32 @@ public class MakeLoveDialogFragment extends DialogFragment {
                         final ProgressBar progressBar = (ProgressBar) materialDialog.findViewById(R.id.fragment_make_love_progress_bar);
                         final MDButton sendButton = materialDialog.getActionButton(DialogAction.POSITIVE);
 
-                        final User lovee = new User("", username.getText().toString());
-                        final Love love = new Love(reason.getText().toString(), LoveMonsterClient.getInstance().getAuthenticatedUser(), lovee);
-                        love.message = message.getText().toString();
-                        love.isPrivate = isPrivate.isChecked();
+                        final List<Love> loves = new ArrayList<>();
+                        for (final String loveeUsername : parseUsernames(username.getText().toString())) {
+                            final Love unsentLove = unsentLoves.get(loveeUsername);
+                            if (unsentLove != null && isSameLove(unsentLove, reason.getText().toString(), message.getText().toString(), isPrivate.isChecked())) {
+                                // resent under its key, so a love which reached the server is not created twice
+                                loves.add(unsentLove);
+                                continue;
+                            }
+
+                            // keyed up front, so the sends may be retried, or finished by the outbox
+                            // if the dialog goes away, without creating duplicates
+                            final Love love = new Love(reason.getText().toString(), message.getText().toString(), isPrivate.isChecked(),
+                                    LoveMonsterClient.getInstance().getAuthenticatedUser(), new User("", loveeUsername),
+                                    0, UUID.randomUUID().toString(), System.currentTimeMillis());
+                            if (unsentLove != null) {
+                                rejectedKeys.remove(unsentLove.idempotencyKey);
+                            }
+                            unsentLoves.put(loveeUsername, love);
+                            loves.add(love);
+                        }
+
+                        if (NetworkHelper.isDown(getActivity())) {
+                            queueForLater(loves);
+                            materialDialog.dismiss();
+                            return;
+                        }
 
                         username.setEnabled(false);
                         reason.setEnabled(false);
@@ -109,9 +154,41 @@ public class MakeLoveDialogFragment extends DialogFragment {
                         sendButton.setEnabled(false);
                         progressBar.setVisibility(View.VISIBLE);
 
-                        LoveMonsterClient.getInstance().makeLove(love, new LoveMonsterClient.LoveResponseHandler() {
+                        requestGroup.add(LoveMonsterClient.getInstance().makeLoves(loves, new LoveMonsterClient.BatchHandler() {
+                            @Override
+                            public void onLoveSent(@NonNull Love love) {
+                                unsentLoves.remove(love.lovee.username);
+                                rejectedKeys.remove(love.idempotencyKey);
+                            }
+
+                            @Override
+                            public void onLoveFailed(@NonNull Love love, int statusCode, @Nullable Throwable throwable, @NonNull List<String> errorMessages) {
+                                if (LoveOutbox.isRejection(statusCode, throwable)) {
+                                    rejectedKeys.add(love.idempotencyKey);
+                                } else {
+                                    rejectedKeys.remove(love.idempotencyKey);
+                                }
+                            }
+
                             @Override
-                            public void onSuccess(@NonNull Love love) {
+                            public void onComplete(@NonNull List<Love> sentLoves, @NonNull List<Love> failedLoves) {
+                                // the dialog is gone if authentication failed part way through the batch
+                                if (!isAdded()) {
+                                    return;
+                                }
+
+                                if (failedLoves.isEmpty()) {
+                                    onAllSent();
+                                } else if (NetworkHelper.isDown(getActivity())) {
+                                    // the network went away mid-send; keep the rest for when it returns
+                                    queueForLater(failedLoves);
+                                    materialDialog.dismiss();
+                                } else {
+                                    onSomeFailed(failedLoves);
+                                }
+                            }
+
+                            private void onAllSent() {
                                 final Toast toast = Toast.makeText(
                                         getActivity(),
                                         R.string.fragment_make_love_dialog_success,
@@ -126,15 +203,24 @@ public class MakeLoveDialogFragment extends DialogFragment {
                                 materialDialog.dismiss();
                             }
 
-                            @Override
-                            public void onFail(@NonNull List<String> errorMessages) {
+                            private void onSomeFailed(@NonNull List<Love> failedLoves) {
+                                // leave only the lovees which failed, so sending again retries just those
+                                final List<String> failedUsernames = new ArrayList<>();
+                                for (final Love love : failedLoves) {
+                                    failedUsernames.add(love.lovee.username);
+                                }
+                                final String failedUsernamesText = TextUtils.join(", ", failedUsernames);
+
                                 final Toast toast = Toast.makeText(
                                         getActivity(),
-                                        R.string.fragment_make_love_dialog_error_unable_to_send,
+                                        failedLoves.size() == loves.size()
+                                                ? getString(R.string.fragment_make_love_dialog_error_unable_to_send)
+                                                : getString(R.string.fragment_make_love_dialog_error_unable_to_send_to, failedUsernamesText),
                                         Toast.LENGTH_LONG
                                 );
                                 toast.setGravity(Gravity.CENTER, 0, 0);
                                 toast.show();
+                                username.setText(failedUsernamesText);
                                 progressBar.setVisibility(View.GONE);
                                 username.setEnabled(true);
                                 reason.setEnabled(true);
@@ -145,19 +231,21 @@ public class MakeLoveDialogFragment extends DialogFragment {
 
                             @Override
                             public void onAuthenticationFailure() {
-                                final Intent intent = new Intent(getActivity(), LoveListActivity.class);
-                                getActivity().startActivity(intent);
-                                getActivity().finish();
+                                OktaLoginActivity.reauthenticate(getActivity());
                             }
-                        });
+                        }));
                     }
                 })
                 .onNegative(CANCEL_CALLBACK)
                 .build();
 
-        final EditText username = (EditText) dialog.getView().findViewById(R.id.fragment_make_love_dialog_lovee_username);
+        final MultiAutoCompleteTextView username = (MultiAutoCompleteTextView) dialog.getView().findViewById(R.id.fragment_make_love_dialog_lovee_username);
         final EditText reason = (EditText) dialog.getView().findViewById(R.id.fragment_make_love_dialog_reason);
 
+        // suggest usernames as they are typed, each completed name followed by a comma for the next
+        username.setAdapter(new UserSuggestionAdapter(getActivity()));
+        username.setTokenizer(new MultiAutoCompleteTextView.CommaTokenizer());
+
         final MDButton sendButton = dialog.getActionButton(DialogAction.POSITIVE);
         sendButton.setEnabled(false);
 
@@ -176,6 +264,77 @@ public class MakeLoveDialogFragment extends DialogFragment {
         return dialog;
     }
 
+    /**
+     * When the dialog is going away for good, cancels the sends in flight, since their outcome can
+     * no longer be shown. The loves which were interrupted or failed transiently are handed to the
+     * {@link LoveOutbox} to finish in the background; a cancelled send may still have reached the
+     * server, which ignores the repeat by its idempotency key. Loves the server rejected are not
+     * queued. When the view is only being recreated, such as on rotation, the sends are left to
+     * finish.
+     */
+    @Override
+    public void onDestroyView() {
+        if (isRemoving() || getActivity().isFinishing()) {
+            requestGroup.cancelAll();
+
+            final List<Love> lovesToFinish = new ArrayList<>();
+            for (final Love love : unsentLoves.values()) {
+                if (!rejectedKeys.contains(love.idempotencyKey)) {
+                    lovesToFinish.add(love);
+                }
+            }
+            if (!lovesToFinish.isEmpty()) {
+                final LoveOutbox outbox = LoveOutbox.getInstance(getActivity());
+                outbox.enqueue(lovesToFinish);
+                outbox.drain(LoveMonsterClient.getInstance());
+            }
+            unsentLoves.clear();
+            rejectedKeys.clear();
+        }
+        super.onDestroyView();
+    }
+
+    /**
+     * Checks whether an unsent love has the same content as the love about to be sent.
+     */
+    private static boolean isSameLove(@NonNull final Love love, final String reason, final String message, final boolean isPrivate) {
+        return love.reason.equals(reason) && TextUtils.equals(love.message, message) && love.isPrivate == isPrivate;
+    }
+
+    /**
+     * Queues the loves in the {@link LoveOutbox}, to be sent once the network is back.
+     */
+    private void queueForLater(final List<Love> loves) {
+        LoveOutbox.getInstance(getActivity()).enqueue(loves);
+        for (final Love love : loves) {
+            unsentLoves.remove(love.lovee.username);
+            rejectedKeys.remove(love.idempotencyKey);
+        }
+
+        final Toast toast = Toast.makeText(getActivity(), R.string.fragment_make_love_dialog_queued_offline, Toast.LENGTH_LONG);
+        toast.setGravity(Gravity.CENTER, 0, 0);
+        toast.show();
+    }
+
+    /**
+     * Splits the lovee field into usernames. Usernames may be separated by commas and/or
+     * whitespace; blanks and duplicates are dropped, keeping the order they were entered in.
+     *
+     * @param usernames
+     *      the text from the lovee field
+     * @return
+     *      the usernames. may be empty, but will not be null
+     */
+    static List<String> parseUsernames(final String usernames) {
+        final Set<String> parsedUsernames = new LinkedHashSet<>();
+        for (final String username : usernames.split("[\\s,]+")) {
+            if (username.length() > 0) {
+                parsedUsernames.add(username);
+            }
+        }
+        return new ArrayList<>(parsedUsernames);
+    }
+
     private static class LoveValidator implements TextWatcher {
 
         private final EditText reasonField;
@@ -202,7 +361,7 @@ public class MakeLoveDialogFragment extends DialogFragment {
         public void afterTextChanged(Editable s) {
             final boolean enteredReasonAndLoveeUsername =
                     reasonField.getText().length() > 0
-                            && loveeField.getText().length() > 0;
+                            && !parseUsernames(loveeField.getText().toString()).isEmpty();
             sendButton.setEnabled(enteredReasonAndLoveeUsername);
         }
     }
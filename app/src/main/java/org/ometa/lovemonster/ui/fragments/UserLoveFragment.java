@@ -8,6 +8,8 @@ import android.widget.Toast;
 import org.ometa.lovemonster.Logger;
 import org.ometa.lovemonster.models.Love;
 import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.service.Cancellable;
+import org.ometa.lovemonster.service.LoveCursor;
 import org.ometa.lovemonster.service.LoveMonsterClient;
 import org.ometa.lovemonster.ui.activities.LoveListActivity;
 import org.ometa.lovemonster.ui.adapters.LoveArrayAdapter;
@@ -31,14 +33,13 @@ public class UserLoveFragment extends LovesListFragment {
     }
 
     @Override
-    protected void onSwipeUp(int page) {
-        client.retrieveRecentLoves(getSwipeUpHandler(), page, subjectUser, direction);
+    protected Cancellable loadLovesBefore(LoveCursor cursor, LoveMonsterClient.LoveCursorResponseHandler responseHandler) {
+        return client.retrieveLovesBefore(responseHandler, cursor, subjectUser, direction);
     }
 
     @Override
-    public void reloadLoves() {
-        lovesList.clear();
-        client.retrieveRecentLoves(getSwipeDownHandler(), 1, subjectUser, direction);
+    protected Cancellable loadNewLoves(Love newestKnownLove, LoveMonsterClient.NewLovesResponseHandler responseHandler) {
+        return client.retrieveNewLoves(responseHandler, newestKnownLove, subjectUser, direction);
     }
 
     @Override
@@ -46,11 +47,6 @@ public class UserLoveFragment extends LovesListFragment {
         // todo: load existing loves from sqlite db
     }
 
-    @Override
-    protected void initialLoadWithInternet() {
-        client.retrieveRecentLoves(getSwipeUpHandler(), 1, subjectUser, direction);
-    }
-
 
     public void setSubjectUser(User user) {
         // We sometimes get called before the array adapter has been created.  In those cases,
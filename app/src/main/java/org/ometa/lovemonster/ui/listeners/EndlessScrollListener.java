@@ -21,8 +21,19 @@ public abstract class EndlessScrollListener implements AbsListView.OnScrollListe
     // Sets the starting page index
     private int startingPageIndex = 0;
 
+    // In cursor mode a load may add no items, e.g. when every love on it was already shown, so
+    // each load is finished by calling loadFinished() instead of by the item count growing.
+    private boolean cursorMode = false;
+
+    // True once a load in cursor mode has reported that there is nothing more to load
+    private boolean endReached = false;
+
     public EndlessScrollListener() {}
 
+    public EndlessScrollListener(boolean cursorMode) {
+        this.cursorMode = cursorMode;
+    }
+
     public EndlessScrollListener(int visibleThreshold) {
         this.visibleThreshold = visibleThreshold;
     }
@@ -44,12 +55,18 @@ public abstract class EndlessScrollListener implements AbsListView.OnScrollListe
         if (totalItemCount < previousTotalItemCount) {
             this.currentPage = this.startingPageIndex;
             this.previousTotalItemCount = totalItemCount;
+            this.endReached = false;
             if (totalItemCount == 0) { this.loading = true; }
         }
+
+        // In cursor mode, loads are finished by loadFinished(), so only track the item count.
+        if (cursorMode) {
+            previousTotalItemCount = totalItemCount;
+        }
         // If it's still loading, we check to see if the dataset count has
         // changed, if so we conclude it has finished loading and update the current page
         // number and total item count.
-        if (loading && (totalItemCount > previousTotalItemCount)) {
+        if (!cursorMode && loading && (totalItemCount > previousTotalItemCount)) {
             loading = false;
             previousTotalItemCount = totalItemCount;
             currentPage++;
@@ -58,11 +75,32 @@ public abstract class EndlessScrollListener implements AbsListView.OnScrollListe
         // If it isn't currently loading, we check to see if we have breached
         // the visibleThreshold and need to reload more data.
         // If we do need to reload some more data, we execute onLoadMore to fetch the data.
-        if (!loading && (totalItemCount - visibleItemCount)<=(firstVisibleItem + visibleThreshold)) {
+        if (!loading && !endReached && (totalItemCount - visibleItemCount)<=(firstVisibleItem + visibleThreshold)) {
             loading = onLoadMore(currentPage + 1, totalItemCount);
         }
     }
 
+    // In cursor mode, marks the current load as finished, whether or not it added any items.
+    // hasMore is false once there is no more data to load.
+    public void loadFinished(boolean hasMore) {
+        loading = false;
+        endReached = !hasMore;
+        currentPage++;
+    }
+
+    // In cursor mode, marks the current load as failed, so that scrolling tries it again.
+    public void loadFailed() {
+        loading = false;
+    }
+
+    // Sets the listener back to its initial state, for when the list is reloaded
+    public void reset() {
+        currentPage = startingPageIndex;
+        previousTotalItemCount = 0;
+        loading = true;
+        endReached = false;
+    }
+
     // Defines the process for actually loading more data based on page
     // Returns true if more data is being loaded; returns false if there is no more data to load.
     public abstract boolean onLoadMore(int page, int totalItemsCount);
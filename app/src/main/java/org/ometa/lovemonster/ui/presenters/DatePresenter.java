@@ -3,9 +3,7 @@ package org.ometa.lovemonster.ui.presenters;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.Locale;
-import java.util.TimeZone;
 
 /**
  * Created by devin on 12/2/15.
@@ -14,12 +12,12 @@ import java.util.TimeZone;
 public class DatePresenter {
 
     public static String shortRelativeElapsedFrom(Calendar then) {
-        Calendar now = GregorianCalendar.getInstance(TimeZone.getTimeZone("UTC"));
-        now.setTime(new Date());
+        return shortRelativeElapsedFrom(then.getTimeInMillis());
+    }
 
-        // Get the represented date in milliseconds
-        long nowMs = now.getTimeInMillis();
-        long thenMs = then.getTimeInMillis();
+    // same as above, for a time in milliseconds since the epoch, so no Calendar is needed per call
+    public static String shortRelativeElapsedFrom(long thenMs) {
+        long nowMs = System.currentTimeMillis();
 
         // Calculate difference in milliseconds
         long diff = nowMs - thenMs;
@@ -45,7 +43,7 @@ public class DatePresenter {
             return diffDays + "d";
         } else {
             SimpleDateFormat toDate = new SimpleDateFormat("MMM dd", Locale.ENGLISH);
-            return toDate.format(then.getTime());
+            return toDate.format(new Date(thenMs));
         }
     }
 }
\ No newline at end of file
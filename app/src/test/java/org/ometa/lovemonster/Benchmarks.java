@@ -0,0 +1,146 @@
+package org.ometa.lovemonster;
+
+import java.lang.reflect.Method;
+
+/**
+ * Utility class for the small benchmarks which run alongside the unit tests. Measures the wall
+ * time and, where the jvm supports it, the bytes allocated by the current thread per operation,
+ * and the heap retained by objects.
+ */
+public class Benchmarks {
+
+    /**
+     * A single benchmarked operation.
+     */
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    /**
+     * The measurements from a benchmark run.
+     */
+    public static class Result {
+        public final String name;
+        public final long nanosPerOperation;
+
+        /**
+         * The bytes allocated per operation, or -1 if allocations cannot be measured on this jvm.
+         */
+        public final long bytesPerOperation;
+
+        Result(final String name, final long nanosPerOperation, final long bytesPerOperation) {
+            this.name = name;
+            this.nanosPerOperation = nanosPerOperation;
+            this.bytesPerOperation = bytesPerOperation;
+        }
+
+        @Override
+        public String toString() {
+            return "benchmark=" + name + " nanosPerOperation=" + nanosPerOperation + " bytesPerOperation=" + bytesPerOperation;
+        }
+    }
+
+    /**
+     * Creates one of the objects whose footprint is measured.
+     */
+    public interface Factory {
+        Object create(int index);
+    }
+
+    /**
+     * Estimates the heap retained by each object the factory creates, by comparing the used heap,
+     * after garbage collection, before and after holding the specified number of them. Anything the
+     * objects share with each other, or with objects created beforehand, is not counted.
+     *
+     * @param name
+     *      the name of the measurement, used when printing results
+     * @param count
+     *      the number of objects to hold. larger counts give more stable results
+     * @param factory
+     *      creates the objects
+     * @return
+     *      the retained bytes per object
+     */
+    public static long retainedBytesPerObject(final String name, final int count, final Factory factory) {
+        final Object[] objects = new Object[count];
+        final long startBytes = usedHeapBytes();
+        for (int i = 0; i < count; i++) {
+            objects[i] = factory.create(i);
+        }
+        final long endBytes = usedHeapBytes();
+
+        final long bytesPerObject = (endBytes - startBytes) / count;
+        System.out.println("footprint=" + name + " objects=" + objects.length + " bytesPerObject=" + bytesPerObject);
+        return bytesPerObject;
+    }
+
+    private static long usedHeapBytes() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Runs the operation for the specified number of warmup and measured iterations, printing and
+     * returning the result.
+     *
+     * @param name
+     *      the name of the benchmark, used when printing results
+     * @param warmupIterations
+     *      the number of unmeasured iterations to run first
+     * @param iterations
+     *      the number of measured iterations
+     * @param operation
+     *      the operation to benchmark
+     * @return
+     *      the benchmark result
+     */
+    public static Result run(final String name, final int warmupIterations, final int iterations, final Operation operation) {
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                operation.run();
+            }
+
+            final long startBytes = allocatedBytes();
+            final long startNanos = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                operation.run();
+            }
+            final long elapsedNanos = System.nanoTime() - startNanos;
+            final long endBytes = allocatedBytes();
+
+            final Result result = new Result(
+                    name,
+                    elapsedNanos / iterations,
+                    startBytes < 0 ? -1 : (endBytes - startBytes) / iterations
+            );
+            System.out.println(result);
+            return result;
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the total bytes allocated by the current thread, or -1 if the jvm does not support
+     * measuring allocations. Uses reflection since the management apis are not part of android.
+     *
+     * @return
+     *      the allocated bytes, or -1
+     */
+    public static long allocatedBytes() {
+        try {
+            final Object threadBean = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean")
+                    .invoke(null);
+            final Method getThreadAllocatedBytes = Class.forName("com.sun.management.ThreadMXBean")
+                    .getMethod("getThreadAllocatedBytes", long.class);
+
+            return (Long) getThreadAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+        } catch (final Exception e) {
+            return -1;
+        }
+    }
+}
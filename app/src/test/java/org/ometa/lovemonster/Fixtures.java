@@ -7,6 +7,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Calendar;
 import java.util.TimeZone;
 
@@ -28,6 +30,21 @@ public class Fixtures {
      *      a parsed JSONObject from the fixture
      */
     public static JSONObject getJsonObject(final String fixturePath) {
+        try {
+            return new JSONObject(getString(fixturePath));
+        } catch (final JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Loads the raw contents of the specified fixture file.
+     * @param fixturePath
+     *      the relative path to the fixture file
+     * @return
+     *      the contents of the fixture
+     */
+    public static String getString(final String fixturePath) {
         final InputStream fixtureStream = Fixtures.class.getClassLoader().getResourceAsStream(FIXTURE_ROOT_DIR + fixturePath);
         if (fixtureStream == null) {
             throw new IllegalArgumentException("fixture file " + fixturePath + " cannot be found");
@@ -45,12 +62,23 @@ public class Fixtures {
 
             fixtureStream.close();
 
-            return new JSONObject(builder.toString());
-        } catch (final IOException|JSONException e) {
+            return builder.toString();
+        } catch (final IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Returns a reader over the raw contents of the specified fixture file.
+     * @param fixturePath
+     *      the relative path to the fixture file
+     * @return
+     *      a reader for the fixture
+     */
+    public static Reader getReader(final String fixturePath) {
+        return new StringReader(getString(fixturePath));
+    }
+
     /**
      * Creates a {@link Calendar} in UTC for the specified date and time.
      * @param year
@@ -0,0 +1,105 @@
+package org.ometa.lovemonster;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest {
+
+    @Test
+    public void testSnapshot_Empty_ReportsZeros() {
+        final Histogram.Snapshot snapshot = Histogram.forLatencyMillis().snapshot();
+
+        assertEquals(0, snapshot.count);
+        assertEquals(0, snapshot.p50);
+        assertEquals(0, snapshot.p99);
+        assertEquals(0, snapshot.getMean());
+    }
+
+    @Test
+    public void testSnapshot_ReportsBucketUpperBounds() {
+        final Histogram histogram = new Histogram(new long[]{10, 20, 50, 100});
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5);
+        }
+        for (int i = 0; i < 8; i++) {
+            histogram.record(15);
+        }
+        histogram.record(45);
+        histogram.record(99);
+
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.count);
+        assertEquals(10, snapshot.p50);
+        assertEquals(20, snapshot.p95);
+        assertEquals(50, snapshot.p99);
+        assertEquals(99, snapshot.max);
+    }
+
+    @Test
+    public void testSnapshot_PercentilesCappedAtMax() {
+        final Histogram histogram = new Histogram(new long[]{10, 100});
+        histogram.record(42);
+
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(42, snapshot.p50);
+        assertEquals(42, snapshot.p99);
+        assertEquals(42, snapshot.getMean());
+    }
+
+    @Test
+    public void testRecord_AboveLastBound_ReportedAsMax() {
+        final Histogram histogram = new Histogram(new long[]{10, 100});
+        histogram.record(5);
+        histogram.record(5000);
+
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(10, snapshot.p50);
+        assertEquals(5000, snapshot.p99);
+    }
+
+    @Test
+    public void testRecord_Negative_RecordedAsZero() {
+        final Histogram histogram = Histogram.forLatencyMillis();
+        histogram.record(-3);
+
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1, snapshot.count);
+        assertEquals(0, snapshot.max);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_UnorderedBounds_ThrowsException() {
+        new Histogram(new long[]{10, 10});
+    }
+
+    @Test
+    public void testRecord_ConcurrentThreads_CountsEveryValue() throws InterruptedException {
+        final Histogram histogram = Histogram.forLatencyMillis();
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int value = 0; value < 10000; value++) {
+                        histogram.record(value % 100);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(40000, snapshot.count);
+        assertEquals(99, snapshot.max);
+        assertEquals(4 * 100 * 4950, snapshot.sum);
+    }
+}
@@ -0,0 +1,184 @@
+package org.ometa.lovemonster;
+
+import org.junit.Test;
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.models.User;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongHashSetTest {
+
+    @Test
+    public void testAdd_NewAndRepeatedValues() {
+        final LongHashSet set = new LongHashSet();
+
+        assertTrue(set.add(42));
+        assertTrue(set.add(-42));
+        assertFalse(set.add(42));
+
+        assertTrue(set.contains(42));
+        assertTrue(set.contains(-42));
+        assertFalse(set.contains(43));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void testAdd_Zero_TrackedSeparately() {
+        final LongHashSet set = new LongHashSet();
+
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testAdd_PastCapacity_KeepsEveryValue() {
+        final LongHashSet set = new LongHashSet(4);
+
+        for (long value = 1; value <= 10000; value++) {
+            assertTrue(set.add(value << 32));
+        }
+
+        assertEquals(10000, set.size());
+        for (long value = 1; value <= 10000; value++) {
+            assertTrue(set.contains(value << 32));
+        }
+        assertFalse(set.contains(10001L << 32));
+    }
+
+    @Test
+    public void testClear_RemovesEveryValue() {
+        final LongHashSet set = new LongHashSet();
+        set.add(0);
+        set.add(1);
+
+        set.clear();
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(1));
+        assertTrue(set.add(1));
+    }
+
+    @Test
+    public void testRemove_PresentAbsentAndZero() {
+        final LongHashSet set = new LongHashSet();
+        set.add(0);
+        set.add(42);
+
+        assertTrue(set.remove(42));
+        assertFalse(set.remove(42));
+        assertFalse(set.remove(43));
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(42));
+        assertTrue(set.add(42));
+    }
+
+    /**
+     * Adds and removes values from a small range at random, so probe runs keep colliding, wrapping
+     * around the table and being shifted back, and checks the set against a {@link HashSet}.
+     */
+    @Test
+    public void testRemove_RandomAddsAndRemoves_MatchesHashSet() {
+        final LongHashSet set = new LongHashSet();
+        final Set<Long> expected = new HashSet<>();
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            final long value = random.nextInt(200) - 100;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long value = -100; value < 100; value++) {
+            assertEquals("value " + value, expected.contains(value), set.contains(value));
+        }
+    }
+
+    /**
+     * Streams 100k loves as overlapping pages, as the love list receives them, checking each love
+     * is kept once, and compares the time against a set of boxed fingerprints.
+     */
+    @Test
+    public void testAdd_StreamedLovesWithHeavyOverlap_KeepsEachLoveOnce() {
+        final int pageSize = 25;
+        final int overlap = 15;
+        final int streamedLoves = 100000;
+
+        final User[] users = new User[50];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new User("user" + i + "@example.com", "user" + i);
+        }
+
+        // each page repeats the last loves of the page before it
+        final List<Love> stream = new ArrayList<>(streamedLoves);
+        int firstOfPage = 0;
+        while (stream.size() < streamedLoves) {
+            for (int i = firstOfPage; i < firstOfPage + pageSize && stream.size() < streamedLoves; i++) {
+                stream.add(new Love("thanks " + (i % 100), null, false, users[i % users.length], users[(i * 7 + 1) % users.length], 0, null, 1450000000000L + i * 1000L));
+            }
+            firstOfPage += pageSize - overlap;
+        }
+        final int distinctLoves = firstOfPage - (pageSize - overlap) + pageSize;
+
+        final long[] fingerprints = new long[stream.size()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = stream.get(i).fingerprint();
+        }
+
+        final LongHashSet set = new LongHashSet();
+        final List<Love> shown = new ArrayList<>();
+        for (int i = 0; i < fingerprints.length; i++) {
+            if (set.add(fingerprints[i])) {
+                shown.add(stream.get(i));
+            }
+        }
+
+        assertEquals("should keep each distinct love once", distinctLoves, shown.size());
+        assertEquals(distinctLoves, set.size());
+        for (int i = 1; i < shown.size(); i++) {
+            assertTrue("should keep the order", shown.get(i - 1).createdAtMillis < shown.get(i).createdAtMillis);
+        }
+
+        final Benchmarks.Result primitive = Benchmarks.run("love_dedupe.long_hash_set", 5, 20, new Benchmarks.Operation() {
+            @Override
+            public void run() {
+                final LongHashSet set = new LongHashSet();
+                for (final long fingerprint : fingerprints) {
+                    set.add(fingerprint);
+                }
+            }
+        });
+        final Benchmarks.Result boxed = Benchmarks.run("love_dedupe.boxed_hash_set", 5, 20, new Benchmarks.Operation() {
+            @Override
+            public void run() {
+                final Set<Long> set = new HashSet<>();
+                for (final long fingerprint : fingerprints) {
+                    set.add(fingerprint);
+                }
+            }
+        });
+
+        if (primitive.bytesPerOperation >= 0) {
+            assertTrue("should allocate less than boxed fingerprints", primitive.bytesPerOperation < boxed.bytesPerOperation);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.ometa.lovemonster;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+
+    MetricsRegistry metrics;
+
+    @Before
+    public void setup() {
+        metrics = new MetricsRegistry();
+    }
+
+    @Test
+    public void testRecordLatency_SameName_RecordedInOneHistogram() {
+        metrics.recordLatency("GET /a ttfb_ms", 10);
+        metrics.recordLatency("GET /a ttfb_ms", 30);
+
+        assertEquals(2, metrics.getSnapshot("GET /a ttfb_ms").count);
+        assertEquals(1, metrics.getSnapshots().size());
+    }
+
+    @Test
+    public void testGetSnapshot_UnknownName_ReturnsNull() {
+        assertNull(metrics.getSnapshot("GET /a ttfb_ms"));
+    }
+
+    @Test
+    public void testIncrement_CountsPerName() {
+        metrics.increment("GET /a retries");
+        metrics.increment("GET /a retries");
+        metrics.increment("GET /b retries");
+
+        assertEquals(2, metrics.getCount("GET /a retries"));
+        assertEquals(1, metrics.getCount("GET /b retries"));
+        assertEquals(0, metrics.getCount("GET /c retries"));
+    }
+
+    @Test
+    public void testDump_ListsHistogramsAndCountersByName() {
+        metrics.recordSize("GET /b size_bytes", 1500);
+        metrics.recordLatency("GET /a ttfb_ms", 42);
+        metrics.increment("GET /a retries");
+
+        final String dump = metrics.dump();
+
+        assertEquals(
+                "GET /a ttfb_ms count=1 p50=42 p95=42 p99=42 max=42 mean=42\n"
+                        + "GET /b size_bytes count=1 p50=1500 p95=1500 p99=1500 max=1500 mean=1500\n"
+                        + "GET /a retries count=1\n",
+                dump
+        );
+        assertTrue(dump.endsWith("\n"));
+    }
+}
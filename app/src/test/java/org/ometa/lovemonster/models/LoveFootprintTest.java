@@ -0,0 +1,71 @@
+package org.ometa.lovemonster.models;
+
+import org.junit.Test;
+import org.ometa.lovemonster.Benchmarks;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertTrue;
+
+public class LoveFootprintTest {
+
+    private static final int LOVE_COUNT = 50000;
+
+    private static final User LOVER = new User("lover@example.com", "lover");
+    private static final User LOVEE = new User("lovee@example.com", "lovee");
+
+    /**
+     * The shape of a love before it was made compact, as built by the parser: a {@link Calendar}
+     * per love and an eagerly created list of likes.
+     */
+    @SuppressWarnings("unused")
+    private static class CalendarLove {
+        String reason;
+        String message;
+        boolean isPrivate;
+        final User lover;
+        final User lovee;
+        final List<Like> likes;
+        long id;
+        String idempotencyKey;
+        final Calendar createdAt;
+
+        CalendarLove(final String reason, final User lover, final User lovee, final Calendar createdAt) {
+            this.reason = reason;
+            this.lover = lover;
+            this.lovee = lovee;
+            this.createdAt = createdAt;
+            this.likes = new ArrayList<>();
+        }
+    }
+
+    @Test
+    public void testFootprint_CompactLove_SmallerThanCalendarLove() {
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        final long before = Benchmarks.retainedBytesPerObject("CalendarLove", LOVE_COUNT, new Benchmarks.Factory() {
+            @Override
+            public Object create(final int index) {
+                final Calendar createdAt = Calendar.getInstance();
+                createdAt.clear();
+                createdAt.setTimeZone(utc);
+                createdAt.setTimeInMillis(1450000000000L + index * 1000L);
+
+                final CalendarLove love = new CalendarLove("thanks", LOVER, LOVEE, createdAt);
+                love.id = index;
+                return love;
+            }
+        });
+
+        final long after = Benchmarks.retainedBytesPerObject("Love", LOVE_COUNT, new Benchmarks.Factory() {
+            @Override
+            public Object create(final int index) {
+                return new Love("thanks", null, false, LOVER, LOVEE, index, null, 1450000000000L + index * 1000L);
+            }
+        });
+
+        assertTrue("compact love should be under half the size, before=" + before + " after=" + after, after * 2 < before);
+    }
+}
@@ -0,0 +1,53 @@
+package org.ometa.lovemonster.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class LoveTest {
+
+    private static final User LOVER = new User("lover@example.com", "lover");
+    private static final User LOVEE = new User("lovee@example.com", "lovee");
+
+    private static Love love(final String reason, final String message, final boolean isPrivate) {
+        return new Love(reason, message, isPrivate, LOVER, LOVEE, 0, null, 1450000000000L);
+    }
+
+    @Test
+    public void testFingerprint_SameContent_SameFingerprint() {
+        final Love love = love("thanks", "for the help", false);
+        final Love reparsed = new Love("thanks", "for the help", false, new User("lover@example.com", "lover"),
+                new User("lovee@example.com", "lovee"), 42, "key", 1450000000000L);
+
+        assertEquals(love.fingerprint(), reparsed.fingerprint());
+    }
+
+    @Test
+    public void testFingerprint_DifferentContent_DifferentFingerprints() {
+        final long fingerprint = love("thanks", "for the help", false).fingerprint();
+
+        assertNotEquals(fingerprint, love("thanks", "for the help!", false).fingerprint());
+        assertNotEquals(fingerprint, love("thanks", null, false).fingerprint());
+        assertNotEquals(fingerprint, love("thanks", "for the help", true).fingerprint());
+        assertNotEquals(fingerprint, love("Thanks", "for the help", false).fingerprint());
+        assertNotEquals(fingerprint, new Love("thanks", "for the help", false, LOVER, LOVEE, 0, null, 1450000000001L).fingerprint());
+        assertNotEquals(fingerprint, new Love("thanks", "for the help", false, LOVEE, LOVER, 0, null, 1450000000000L).fingerprint());
+    }
+
+    @Test
+    public void testFingerprint_TextMovedBetweenFields_DifferentFingerprints() {
+        assertNotEquals(love("thanks", "for the help", false).fingerprint(), love("thanks for", " the help", false).fingerprint());
+        assertNotEquals(love("ab", "c", false).fingerprint(), love("a", "bc", false).fingerprint());
+    }
+
+    /**
+     * Reasons with the same {@link String#hashCode()}, which the fingerprint must still tell apart.
+     */
+    @Test
+    public void testFingerprint_ReasonsWithSameHashCode_DifferentFingerprints() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        assertNotEquals(love("Aa", null, false).fingerprint(), love("BB", null, false).fingerprint());
+    }
+}
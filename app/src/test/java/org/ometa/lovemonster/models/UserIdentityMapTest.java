@@ -0,0 +1,106 @@
+package org.ometa.lovemonster.models;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UserIdentityMapTest {
+
+    private static User user(final String username) {
+        return new User(username + "@example.com", username);
+    }
+
+    /**
+     * Runs the garbage collector until the reference is cleared.
+     */
+    private static void collect(final WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testIntern_SameEmail_ReturnsFirstUser() {
+        final UserIdentityMap identityMap = new UserIdentityMap(1);
+        final User first = user("ada");
+
+        assertSame(first, identityMap.intern(first));
+        assertSame(first, identityMap.intern(user("ada")));
+        assertSame(first, identityMap.find("ada@example.com"));
+        assertEquals(1, identityMap.size());
+    }
+
+    @Test
+    public void testIntern_WithoutEmail_NotInterned() {
+        final UserIdentityMap identityMap = new UserIdentityMap(1);
+        final User lovee = new User("", "ada");
+
+        assertSame(lovee, identityMap.intern(lovee));
+        assertEquals(0, identityMap.size());
+        assertNull(identityMap.find(""));
+    }
+
+    @Test
+    public void testIntern_CollectedUser_IsForgotten() throws InterruptedException {
+        final UserIdentityMap identityMap = new UserIdentityMap(1);
+        WeakReference<User> reference = new WeakReference<>(identityMap.intern(user("ada")));
+
+        collect(reference);
+        identityMap.removeCollectedUsers();
+
+        assertNull(identityMap.find("ada@example.com"));
+        assertEquals(0, identityMap.size());
+
+        final User replacement = user("ada");
+        assertSame(replacement, identityMap.intern(replacement));
+    }
+
+    @Test
+    public void testIntern_ConcurrentParsers_ShareOneInstancePerUser() throws Exception {
+        final UserIdentityMap identityMap = new UserIdentityMap(4);
+        final int threads = 8;
+        final int users = 200;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<User[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                results.add(executor.submit(new Callable<User[]>() {
+                    @Override
+                    public User[] call() throws InterruptedException {
+                        start.await();
+                        final User[] interned = new User[users];
+                        for (int i = 0; i < users; i++) {
+                            interned[i] = identityMap.intern(user("user" + i));
+                        }
+                        return interned;
+                    }
+                }));
+            }
+            start.countDown();
+
+            final User[] expected = results.get(0).get();
+            for (final Future<User[]> result : results) {
+                final User[] interned = result.get();
+                for (int i = 0; i < users; i++) {
+                    assertSame(expected[i], interned[i]);
+                }
+            }
+            assertEquals(users, identityMap.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
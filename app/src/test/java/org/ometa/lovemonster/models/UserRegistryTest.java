@@ -0,0 +1,43 @@
+package org.ometa.lovemonster.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UserRegistryTest {
+
+    @Test
+    public void testRegister_ReturnsKeyWhichFindsSameInstance() {
+        final UserRegistry registry = new UserRegistry(10);
+        final User user = new User("ada@example.com", "ada");
+
+        final String key = registry.register(user);
+
+        assertEquals("ada", key);
+        assertSame(user, registry.find(key));
+    }
+
+    @Test
+    public void testFind_UnknownOrNullKey_ReturnsNull() {
+        final UserRegistry registry = new UserRegistry(10);
+
+        assertNull(registry.find("ada"));
+        assertNull(registry.find(null));
+    }
+
+    @Test
+    public void testRegister_OverMaxUsers_ForgetsLeastRecentlyUsed() {
+        final UserRegistry registry = new UserRegistry(2);
+        registry.register(new User("ada@example.com", "ada"));
+        registry.register(new User("bob@example.com", "bob"));
+        registry.find("ada");
+
+        registry.register(new User("cat@example.com", "cat"));
+
+        assertNull(registry.find("bob"));
+        assertEquals("ada@example.com", registry.find("ada").email);
+        assertEquals("cat@example.com", registry.find("cat").email);
+    }
+}
@@ -0,0 +1,113 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    /**
+     * Clock which only moves when the test advances it.
+     */
+    private static class FakeClock implements CircuitBreaker.Clock {
+        long nowMillis = 1000;
+
+        @Override
+        public long currentTimeMillis() {
+            return nowMillis;
+        }
+    }
+
+    FakeClock clock;
+    CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setup() {
+        clock = new FakeClock();
+        circuitBreaker = new CircuitBreaker(3, 30000, clock);
+    }
+
+    private void fail(final int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(circuitBreaker.allowRequest());
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    @Test
+    public void testFailuresBelowThreshold_StaysClosed() {
+        fail(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testSuccess_ResetsConsecutiveFailures() {
+        fail(2);
+        circuitBreaker.recordSuccess();
+        fail(2);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testFailuresAtThreshold_OpensAndRejects() {
+        fail(3);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+        assertEquals(2, circuitBreaker.getRejectedCount());
+    }
+
+    @Test
+    public void testOpenPeriodPassed_AllowsSingleTrialRequest() {
+        fail(3);
+        clock.nowMillis += 30000;
+
+        assertTrue("should allow the trial request", circuitBreaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse("should reject requests while the trial is in flight", circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testTrialSucceeds_Closes() {
+        fail(3);
+        clock.nowMillis += 30000;
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.recordSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testTrialFails_OpensAgain() {
+        fail(3);
+        clock.nowMillis += 30000;
+        circuitBreaker.allowRequest();
+
+        circuitBreaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.allowRequest());
+        clock.nowMillis += 30000;
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testTrialNeverCompletes_AllowsAnotherTrial() {
+        fail(3);
+        clock.nowMillis += 30000;
+        circuitBreaker.allowRequest();
+
+        clock.nowMillis += 30000;
+
+        assertTrue(circuitBreaker.allowRequest());
+    }
+}
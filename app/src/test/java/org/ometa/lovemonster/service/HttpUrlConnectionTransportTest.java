@@ -0,0 +1,169 @@
+package org.ometa.lovemonster.service;
+
+import com.loopj.android.http.AsyncHttpResponseHandler;
+import com.loopj.android.http.ResponseHandlerInterface;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.message.BasicHeader;
+import cz.msebera.android.httpclient.util.EntityUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class HttpUrlConnectionTransportTest {
+
+    /**
+     * Response handler which records the status and body of the response.
+     */
+    private static class RecordingResponseHandler extends AsyncHttpResponseHandler {
+        final CountDownLatch responded = new CountDownLatch(1);
+        int statusCode;
+        String body;
+
+        @Override
+        public void sendResponseMessage(final HttpResponse response) throws IOException {
+            statusCode = response.getStatusLine().getStatusCode();
+            body = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity(), "UTF-8");
+            responded.countDown();
+        }
+
+        @Override
+        public void onSuccess(final int statusCode, final Header[] headers, final byte[] responseBody) {
+        }
+
+        @Override
+        public void onFailure(final int statusCode, final Header[] headers, final byte[] responseBody, final Throwable error) {
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("should respond", responded.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    HttpServer server;
+    ExecutorService networkExecutor;
+    HttpUrlConnectionTransport transport;
+
+    final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+    final List<Integer> clientPorts = Collections.synchronizedList(new ArrayList<Integer>());
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                        + " cookie=" + exchange.getRequestHeaders().getFirst("Cookie")
+                        + " contentType=" + exchange.getRequestHeaders().getFirst("Content-Type"));
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+
+                final int statusCode = exchange.getRequestURI().getPath().equals("/unavailable") ? 503 : 200;
+                final byte[] body = ("path " + exchange.getRequestURI().getPath()).getBytes("UTF-8");
+                exchange.sendResponseHeaders(statusCode, body.length);
+                final OutputStream responseBody = exchange.getResponseBody();
+                responseBody.write(body);
+                responseBody.close();
+            }
+        });
+        server.start();
+
+        // a single network thread, so each request starts after the previous one released its connection
+        networkExecutor = Executors.newSingleThreadExecutor();
+        transport = new HttpUrlConnectionTransport(networkExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        networkExecutor.shutdownNow();
+        server.stop(0);
+    }
+
+    private String url(final String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    public void testSend_Get_PassesResponseToHandler() throws InterruptedException {
+        final RecordingResponseHandler handler = new RecordingResponseHandler();
+
+        transport.send(new Transport.Request(Transport.Request.GET, url("/loves"), new Header[]{new BasicHeader("Cookie", "session=1")}, null), handler);
+        handler.await();
+
+        assertEquals(200, handler.statusCode);
+        assertEquals("path /loves", handler.body);
+        assertEquals("GET /loves cookie=session=1 contentType=null", requests.get(0));
+    }
+
+    @Test
+    public void testSend_Post_SendsContentType() throws InterruptedException {
+        final RecordingResponseHandler handler = new RecordingResponseHandler();
+
+        transport.send(new Transport.Request(Transport.Request.POST, url("/loves"), null, "application/json"), handler);
+        handler.await();
+
+        assertEquals(200, handler.statusCode);
+        assertEquals("POST /loves cookie=null contentType=application/json", requests.get(0));
+    }
+
+    @Test
+    public void testSend_ErrorStatus_PassesErrorBodyToHandler() throws InterruptedException {
+        final RecordingResponseHandler handler = new RecordingResponseHandler();
+
+        transport.send(new Transport.Request(Transport.Request.GET, url("/unavailable"), null, null), handler);
+        handler.await();
+
+        assertEquals(503, handler.statusCode);
+        assertEquals("path /unavailable", handler.body);
+    }
+
+    @Test
+    public void testSend_SequentialRequests_ReuseConnection() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            final RecordingResponseHandler handler = new RecordingResponseHandler();
+            transport.send(new Transport.Request(Transport.Request.GET, url("/loves"), null, null), handler);
+            handler.await();
+        }
+
+        networkExecutor.shutdown();
+        assertTrue(networkExecutor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(3, clientPorts.size());
+        assertEquals("should keep the connection alive", 1, new HashSet<>(clientPorts).size());
+    }
+
+    @Test
+    public void testSend_HandlerThrows_SendsFailure() throws IOException {
+        final ResponseHandlerInterface handler = Mockito.mock(ResponseHandlerInterface.class);
+        doThrow(new IllegalStateException("unexpected response")).when(handler).sendResponseMessage(any(HttpResponse.class));
+
+        transport.send(new Transport.Request(Transport.Request.GET, url("/loves"), null, null), handler);
+
+        verify(handler, timeout(10000)).sendFailureMessage(eq(0), any(Header[].class), any(byte[].class), any(IllegalStateException.class));
+    }
+}
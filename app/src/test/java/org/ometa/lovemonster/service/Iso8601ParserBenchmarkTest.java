@@ -0,0 +1,66 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Test;
+import org.ometa.lovemonster.Benchmarks;
+
+import java.util.Date;
+import java.util.Random;
+
+import cz.msebera.android.httpclient.client.utils.DateUtils;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the previous {@link DateUtils} based parsing of love timestamps against
+ * {@link Iso8601Parser}.
+ */
+public class Iso8601ParserBenchmarkTest {
+
+    /**
+     * Builds random UTC timestamps, as sent by the server.
+     */
+    static String[] timestamps(final int count) {
+        final Random random = new Random(42);
+        final String[] timestamps = new String[count];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = String.format("%04d-%02d-%02dT%02d:%02d:%02dZ",
+                    2010 + random.nextInt(10), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60));
+        }
+        return timestamps;
+    }
+
+    @Test
+    public void benchmarkParseEpochMillis_HundredThousandTimestamps() {
+        final String[] timestamps = timestamps(100000);
+        final String[] formats = {"yyyy-MM-dd'T'HH:mm:ss"};
+
+        final Benchmarks.Result dateUtils = Benchmarks.run("iso8601.date_utils", 1, 3, new Benchmarks.Operation() {
+            @Override
+            public void run() {
+                for (final String timestamp : timestamps) {
+                    final Date date = DateUtils.parseDate(timestamp, formats);
+                    if (date == null) {
+                        throw new AssertionError(timestamp);
+                    }
+                }
+            }
+        });
+        final Benchmarks.Result iso8601Parser = Benchmarks.run("iso8601.parser", 3, 3, new Benchmarks.Operation() {
+            @Override
+            public void run() {
+                for (final String timestamp : timestamps) {
+                    if (Iso8601Parser.parseEpochMillis(timestamp) == Iso8601Parser.INVALID) {
+                        throw new AssertionError(timestamp);
+                    }
+                }
+            }
+        });
+
+        // the timings are only reported, since they depend on the machine and whatever else it runs
+        System.out.println("benchmark=iso8601 speedup=" + ((double) dateUtils.nanosPerOperation / iso8601Parser.nanosPerOperation));
+        if (iso8601Parser.bytesPerOperation >= 0) {
+            assertTrue("parsing should not allocate", iso8601Parser.bytesPerOperation < 1024);
+        }
+    }
+}
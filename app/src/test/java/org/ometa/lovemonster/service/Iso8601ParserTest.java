@@ -0,0 +1,67 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Test;
+
+import cz.msebera.android.httpclient.client.utils.DateUtils;
+
+import static org.junit.Assert.assertEquals;
+
+public class Iso8601ParserTest {
+
+    /**
+     * 2015-11-18T15:55:46Z
+     */
+    private static final long FIXTURE_MILLIS = 1447862146000L;
+
+    @Test
+    public void testParseEpochMillis_UtcWithOrWithoutZ() {
+        assertEquals(FIXTURE_MILLIS, Iso8601Parser.parseEpochMillis("2015-11-18T15:55:46Z"));
+        assertEquals(FIXTURE_MILLIS, Iso8601Parser.parseEpochMillis("2015-11-18T15:55:46"));
+        assertEquals(0, Iso8601Parser.parseEpochMillis("1970-01-01T00:00:00Z"));
+        assertEquals(-1000, Iso8601Parser.parseEpochMillis("1969-12-31T23:59:59Z"));
+    }
+
+    @Test
+    public void testParseEpochMillis_Offsets() {
+        assertEquals(FIXTURE_MILLIS, Iso8601Parser.parseEpochMillis("2015-11-18T17:25:46+01:30"));
+        assertEquals(FIXTURE_MILLIS, Iso8601Parser.parseEpochMillis("2015-11-18T10:55:46-0500"));
+        assertEquals(FIXTURE_MILLIS, Iso8601Parser.parseEpochMillis("2015-11-19T00:55:46+09"));
+    }
+
+    @Test
+    public void testParseEpochMillis_FractionalSeconds() {
+        assertEquals(FIXTURE_MILLIS + 500, Iso8601Parser.parseEpochMillis("2015-11-18T15:55:46.5Z"));
+        assertEquals(FIXTURE_MILLIS + 123, Iso8601Parser.parseEpochMillis("2015-11-18T15:55:46.123456Z"));
+        assertEquals(FIXTURE_MILLIS + 7, Iso8601Parser.parseEpochMillis("2015-11-18T15:55:46.007"));
+    }
+
+    @Test
+    public void testParseEpochMillis_LeapDay() {
+        assertEquals(951782400000L, Iso8601Parser.parseEpochMillis("2000-02-29T00:00:00Z"));
+        assertEquals(Iso8601Parser.INVALID, Iso8601Parser.parseEpochMillis("1900-02-29T00:00:00Z"));
+    }
+
+    @Test
+    public void testParseEpochMillis_Invalid() {
+        final String[] invalid = {
+                null, "", "2015-11-18", "2015-11-18 15:55:46", "2015-13-18T15:55:46Z", "2015-11-31T15:55:46Z",
+                "2015-11-18T24:00:00Z", "2015-11-18T15:55:46.Z", "2015-11-18T15:55:46+1", "2015-11-18T15:55:46Zjunk",
+                "2015-1a-18T15:55:46Z", "not a datetime at all"
+        };
+        for (final String datetime : invalid) {
+            assertEquals(datetime, Iso8601Parser.INVALID, Iso8601Parser.parseEpochMillis(datetime));
+        }
+    }
+
+    /**
+     * Checks {@link Iso8601Parser} agrees with the previous {@link DateUtils} based parsing, over
+     * random timestamps as sent by the server.
+     */
+    @Test
+    public void testParseEpochMillis_AgreesWithDateUtils() {
+        final String[] formats = {"yyyy-MM-dd'T'HH:mm:ss"};
+        for (final String timestamp : Iso8601ParserBenchmarkTest.timestamps(1000)) {
+            assertEquals(timestamp, DateUtils.parseDate(timestamp, formats).getTime(), Iso8601Parser.parseEpochMillis(timestamp));
+        }
+    }
+}
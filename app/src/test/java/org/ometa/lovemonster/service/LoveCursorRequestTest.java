@@ -0,0 +1,342 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.ometa.lovemonster.MetricsRegistry;
+import org.ometa.lovemonster.models.Love;
+
+import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.NameValuePair;
+import cz.msebera.android.httpclient.client.utils.URLEncodedUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scrolls through a fake server's love list with cursors while loves keep being added to the top
+ * of it, checking that every love is shown exactly once.
+ */
+public class LoveCursorRequestTest {
+
+    private static final int PAGE_SIZE = 5;
+
+    /**
+     * Serves the loves list in numbered pages of {@link #PAGE_SIZE} loves, newest first, from a list
+     * which the test changes between requests.
+     */
+    static class FakeLoveServer implements InMemoryTransport.Responder {
+        final List<JSONObject> loves = new ArrayList<>();
+        final List<Integer> requestedPages = new ArrayList<>();
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        private long nextId = 1;
+        private long nextCreatedAtMillis = 1450000000000L;
+
+        /**
+         * Whether the loves are served with their ids, which loves from older servers lack.
+         */
+        boolean servesIds = true;
+
+        FakeLoveServer() {
+            dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        /**
+         * Adds loves to the top of the list, one second apart, returning their ids.
+         */
+        List<Long> post(final int count) throws JSONException {
+            return post(count, 1000);
+        }
+
+        /**
+         * Adds loves to the top of the list, the specified time apart, returning their ids.
+         */
+        List<Long> post(final int count, final long millisApart) throws JSONException {
+            final List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                final long id = nextId++;
+                loves.add(0, new JSONObject()
+                        .put("id", servesIds ? id : 0)
+                        .put("reason", "love " + id)
+                        .put("created_at", dateFormat.format(new Date(nextCreatedAtMillis)))
+                        .put("user_from", new JSONObject().put("email", "lover@example.com").put("username", "lover"))
+                        .put("user_to", new JSONObject().put("email", "lovee@example.com").put("username", "lovee")));
+                nextCreatedAtMillis += millisApart;
+                ids.add(0, id);
+            }
+            return ids;
+        }
+
+        @NonNull
+        @Override
+        public HttpResponse respond(@NonNull final Transport.Request request) {
+            int page = 1;
+            for (final NameValuePair param : URLEncodedUtils.parse(URI.create(request.url), "UTF-8")) {
+                if ("page".equals(param.getName())) {
+                    page = Integer.parseInt(param.getValue());
+                }
+            }
+            requestedPages.add(page);
+
+            final JSONArray data = new JSONArray();
+            for (int i = (page - 1) * PAGE_SIZE; i < Math.min(page * PAGE_SIZE, loves.size()); i++) {
+                data.put(loves.get(i));
+            }
+            final int totalPages = (loves.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+            try {
+                return InMemoryTransport.response(200, new JSONObject()
+                        .put("meta", new JSONObject().put("total_pages", totalPages))
+                        .put("data", data)
+                        .toString());
+            } catch (final JSONException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Records the result of a single cursor request.
+     */
+    static class RecordingHandler implements LoveMonsterClient.LoveCursorResponseHandler {
+        List<Love> loves;
+        LoveCursor nextCursor;
+        boolean failed = false;
+
+        @Override
+        public void onSuccess(@NonNull final List<Love> loves, @Nullable final LoveCursor nextCursor) {
+            this.loves = loves;
+            this.nextCursor = nextCursor;
+        }
+
+        @Override
+        public void onFail() {
+            failed = true;
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+            failed = true;
+        }
+    }
+
+    /**
+     * Changes the server's list between two loads of the scroll.
+     */
+    interface Churn {
+        void between(int load) throws JSONException;
+    }
+
+    FakeLoveServer server;
+    LoveMonsterClient client;
+
+    @Before
+    public void setup() {
+        server = new FakeLoveServer();
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), new InMemoryTransport(server), "example.com", true, null, new MetricsRegistry());
+    }
+
+    /**
+     * Scrolls to the end of the list, returning the ids of the loves shown in order.
+     */
+    private List<Long> scroll(@NonNull final Churn churn) throws JSONException {
+        final List<Long> shownIds = new ArrayList<>();
+        for (final Love love : scrollLoves(churn)) {
+            shownIds.add(love.id);
+        }
+        return shownIds;
+    }
+
+    /**
+     * Scrolls to the end of the list, returning the loves shown in order.
+     */
+    private List<Love> scrollLoves(@NonNull final Churn churn) throws JSONException {
+        final List<Love> shownLoves = new ArrayList<>();
+        LoveCursor cursor = null;
+        for (int load = 1; load < 100; load++) {
+            final RecordingHandler handler = new RecordingHandler();
+            client.retrieveLovesBefore(handler, cursor);
+            assertFalse("load " + load + " should not fail", handler.failed);
+            assertNotNull("load " + load + " should complete", handler.loves);
+
+            shownLoves.addAll(handler.loves);
+            if (handler.nextCursor == null) {
+                return shownLoves;
+            }
+            cursor = handler.nextCursor;
+            churn.between(load);
+        }
+        throw new AssertionError("scroll did not reach the end of the list");
+    }
+
+    @Test
+    public void testScroll_NoChanges_ShowsEveryLoveOnce() throws JSONException {
+        final List<Long> expectedIds = server.post(23);
+
+        final List<Long> shownIds = scroll(new Churn() {
+            @Override
+            public void between(final int load) {
+            }
+        });
+
+        assertEquals(expectedIds, shownIds);
+        assertEquals("should load each page once", 5, server.requestedPages.size());
+    }
+
+    @Test
+    public void testScroll_LovesAddedMidScroll_NoDuplicatesOrSkips() throws JSONException {
+        final List<Long> expectedIds = server.post(23);
+
+        final List<Long> shownIds = scroll(new Churn() {
+            @Override
+            public void between(final int load) throws JSONException {
+                server.post(3);
+            }
+        });
+
+        assertEquals(expectedIds, shownIds);
+    }
+
+    @Test
+    public void testScroll_MoreThanAPageAddedMidScroll_NoDuplicatesOrSkips() throws JSONException {
+        final List<Long> expectedIds = server.post(23);
+
+        final List<Long> shownIds = scroll(new Churn() {
+            @Override
+            public void between(final int load) throws JSONException {
+                server.post(2 * PAGE_SIZE + 1);
+            }
+        });
+
+        assertEquals(expectedIds, shownIds);
+    }
+
+    @Test
+    public void testScroll_LovesCreatedInSameSecond_TiedOnId() throws JSONException {
+        final List<Long> expectedIds = server.post(4);
+        expectedIds.addAll(0, server.post(12, 0));
+        expectedIds.addAll(0, server.post(4));
+
+        final List<Long> shownIds = scroll(new Churn() {
+            @Override
+            public void between(final int load) throws JSONException {
+                server.post(2);
+            }
+        });
+
+        assertEquals(expectedIds, shownIds);
+    }
+
+    @Test
+    public void testScroll_LovesWithoutIdsCreatedInSameSecond_NoneSkipped() throws JSONException {
+        server.servesIds = false;
+        final List<Long> expectedIds = server.post(4);
+        expectedIds.addAll(0, server.post(12, 0));
+        expectedIds.addAll(0, server.post(4));
+        final List<String> expectedReasons = new ArrayList<>();
+        for (final long id : expectedIds) {
+            expectedReasons.add("love " + id);
+        }
+
+        final List<String> shownReasons = new ArrayList<>();
+        final Set<Long> shownFingerprints = new HashSet<>();
+        for (final Love love : scrollLoves(new Churn() {
+            @Override
+            public void between(final int load) throws JSONException {
+                server.post(2);
+            }
+        })) {
+            // loves repeated from the cursor's second are dropped by fingerprint, as the list does
+            if (shownFingerprints.add(love.fingerprint())) {
+                shownReasons.add(love.reason);
+            }
+        }
+
+        assertEquals(expectedReasons, shownReasons);
+    }
+
+    @Test
+    public void testScroll_PageNumbers_LovesAddedMidScroll_RepeatsLoves() throws JSONException {
+        // the page number paging this replaces, for comparison
+        server.post(23);
+
+        final List<Long> shownIds = new ArrayList<>();
+        for (int page = 1; page <= 3; page++) {
+            final List<Love> loves = new ArrayList<>();
+            client.retrieveRecentLoves(new LoveMonsterClient.LoveListResponseHandler() {
+                @Override
+                public void onSuccess(@NonNull final List<Love> pageLoves, final int totalPages) {
+                    loves.addAll(pageLoves);
+                }
+
+                @Override
+                public void onFail() {
+                }
+
+                @Override
+                public void onAuthenticationFailure() {
+                }
+            }, page);
+            for (final Love love : loves) {
+                shownIds.add(love.id);
+            }
+            server.post(3);
+        }
+
+        assertEquals(15, shownIds.size());
+        assertTrue("page numbers should repeat loves pushed down by new ones", shownIds.size() > new HashSet<>(shownIds).size());
+    }
+
+    @Test
+    public void testRetrieveLovesBefore_EndOfList_ReturnsNoCursor() throws JSONException {
+        server.post(3);
+
+        final RecordingHandler handler = new RecordingHandler();
+        client.retrieveLovesBefore(handler, null);
+
+        assertEquals(3, handler.loves.size());
+        assertNull(handler.nextCursor);
+    }
+
+    @Test
+    public void testRetrieveLovesBefore_Cancelled_NotCalledBack() throws JSONException {
+        server.post(3);
+        final List<Runnable> heldResponses = new ArrayList<>();
+        final InMemoryTransport heldTransport = new InMemoryTransport(server, new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable runnable) {
+                heldResponses.add(runnable);
+            }
+        });
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), heldTransport, "example.com", true, null, new MetricsRegistry());
+
+        final RecordingHandler handler = new RecordingHandler();
+        final Cancellable request = client.retrieveLovesBefore(handler, null);
+        request.cancel();
+        for (final Runnable response : heldResponses) {
+            response.run();
+        }
+
+        assertTrue(request.isCancelled());
+        assertTrue(server.requestedPages.isEmpty());
+        assertNull(handler.loves);
+    }
+}
@@ -0,0 +1,117 @@
+package org.ometa.lovemonster.service;
+
+import android.content.Context;
+
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.JsonHttpResponseHandler;
+import com.loopj.android.http.RequestParams;
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.ometa.lovemonster.Fixtures;
+import org.ometa.lovemonster.Histogram;
+import org.ometa.lovemonster.MetricsRegistry;
+import org.ometa.lovemonster.models.Love;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+import cz.msebera.android.httpclient.Header;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Compares the time the callback thread spends on a large love list page when the page is parsed
+ * on the callback thread, against when only the parsed models are posted back to it.
+ */
+public class LoveMonsterClientBenchmarkTest {
+
+    private static final int PAGES = 20;
+
+    @Mock
+    AsyncHttpClient mockAsyncHttpClient;
+
+    @Mock
+    LoveMonsterClient.LoveListResponseHandler mockLoveListResponseHandler;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    /**
+     * Builds a page with the loves from the standard fixture repeated 40 times.
+     */
+    private static JSONObject largePage() throws JSONException {
+        final JSONObject fixture = Fixtures.getJsonObject("v1_loves.json");
+        final JSONArray fixtureLoves = fixture.getJSONArray("data");
+        final JSONArray loves = new JSONArray();
+        for (int copy = 0; copy < 40; copy++) {
+            for (int i = 0; i < fixtureLoves.length(); i++) {
+                loves.put(fixtureLoves.get(i));
+            }
+        }
+        return new JSONObject(fixture.put("data", loves).toString());
+    }
+
+    private JsonHttpResponseHandler verifyLoveListGets(final int count) {
+        final ArgumentCaptor<ResponseHandlerInterface> responseHandlerArgumentCaptor = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        verify(mockAsyncHttpClient, times(count)).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+        return (JsonHttpResponseHandler) responseHandlerArgumentCaptor.getValue();
+    }
+
+    @Test
+    public void benchmarkRetrieveRecentLoves_MainThreadTime_InlineVersusParseExecutor() throws JSONException {
+        final JSONObject largePage = largePage();
+        final String metricName = LoveMonsterClient.metricName(LoveMonsterClient.LOVE_LIST_ENDPOINT, LoveMonsterClient.MAIN_THREAD_TIME_METRIC);
+
+        final MetricsRegistry inlineMetrics = new MetricsRegistry();
+        LoveMonsterClient client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), new AsyncHttpClientTransport(mockAsyncHttpClient, null), "example.com", false, null, inlineMetrics);
+        for (int page = 1; page <= PAGES; page++) {
+            client.retrieveRecentLoves(mockLoveListResponseHandler, page);
+            verifyLoveListGets(page).onSuccess(200, null, largePage);
+        }
+
+        final List<Runnable> parseTasks = new ArrayList<>();
+        final Executor queuingExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                parseTasks.add(runnable);
+            }
+        };
+        final RequestDispatcher dispatcher = new RequestDispatcher(Mockito.mock(ExecutorService.class), queuingExecutor, Mockito.mock(ScheduledExecutorService.class));
+        final MetricsRegistry executorMetrics = new MetricsRegistry();
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), new AsyncHttpClientTransport(mockAsyncHttpClient, null), "example.com", false, dispatcher, executorMetrics);
+        for (int page = 1; page <= PAGES; page++) {
+            client.retrieveRecentLoves(mockLoveListResponseHandler, page);
+            verifyLoveListGets(PAGES + page).onSuccess(200, null, largePage);
+            parseTasks.remove(0).run();
+        }
+
+        final Histogram.Snapshot inline = inlineMetrics.getSnapshot(metricName);
+        final Histogram.Snapshot parseExecutor = executorMetrics.getSnapshot(metricName);
+        // the times are only reported, since they depend on the machine and whatever else it runs
+        System.out.println("benchmark=main_thread_time pages=" + PAGES + " inlineSum=" + inline.sum + " parseExecutorSum=" + parseExecutor.sum);
+
+        verify(mockLoveListResponseHandler, times(2 * PAGES)).onSuccess(anyListOf(Love.class), eq(444));
+        assertEquals(PAGES, inline.count);
+        assertEquals("should record the handoff and the delivery of each page", 2 * PAGES, parseExecutor.count);
+    }
+}
@@ -0,0 +1,265 @@
+package org.ometa.lovemonster.service;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.AsyncHttpRequest;
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.models.User;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.HttpStatus;
+import cz.msebera.android.httpclient.HttpVersion;
+import cz.msebera.android.httpclient.NameValuePair;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.client.utils.URLEncodedUtils;
+import cz.msebera.android.httpclient.entity.StringEntity;
+import cz.msebera.android.httpclient.impl.client.DefaultHttpClient;
+import cz.msebera.android.httpclient.message.BasicHttpResponse;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a {@link LoveMonsterClient} from many threads at once against a fake server, while the
+ * session cookies are being replaced, and checks that every request is answered correctly.
+ */
+public class LoveMonsterClientStressTest {
+
+    private static final int CALLER_THREADS = 8;
+    private static final int REQUESTS_PER_THREAD = 250;
+    private static final int PAGES = 10;
+    private static final int USERS = 5;
+
+    /**
+     * Fake server which answers love list requests on the client's network thread pool. Requests
+     * go through the client's own {@link AsyncHttpClient#sendRequest}, so handlers it would refuse
+     * fail here too; only the http call itself is faked. Each page has an ETag, so repeated
+     * requests exercise the conditional get cache. Requests for other endpoints are never answered.
+     */
+    static class FakeLoveServer extends AsyncHttpClient {
+
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger requestCount = new AtomicInteger();
+        final AtomicInteger notModifiedCount = new AtomicInteger();
+
+        @Override
+        protected AsyncHttpRequest newAsyncHttpRequest(final DefaultHttpClient client, final HttpContext httpContext, final HttpUriRequest uriRequest, final String contentType, final ResponseHandlerInterface responseHandler, final Context context) {
+            return new AsyncHttpRequest(client, httpContext, uriRequest, responseHandler) {
+                @Override
+                public void run() {
+                    if (!uriRequest.getURI().getPath().equals("/api/v1/loves")) {
+                        return;
+                    }
+
+                    try {
+                        responseHandler.sendResponseMessage(respond(uriRequest));
+                    } catch (final Exception e) {
+                        errors.add("exception=" + e);
+                    }
+                }
+            };
+        }
+
+        private HttpResponse respond(final HttpUriRequest request) throws JSONException, UnsupportedEncodingException {
+            requestCount.incrementAndGet();
+            checkSessionHeaders(request);
+
+            int page = 0;
+            for (final NameValuePair parameter : URLEncodedUtils.parse(request.getURI(), "UTF-8")) {
+                if (parameter.getName().equals("page")) {
+                    page = Integer.parseInt(parameter.getValue());
+                }
+            }
+
+            final String etag = "\"page-" + page + "\"";
+            final Header ifNoneMatch = request.getFirstHeader("If-None-Match");
+            if (ifNoneMatch != null && ifNoneMatch.getValue().equals(etag)) {
+                notModifiedCount.incrementAndGet();
+                return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_NOT_MODIFIED, "Not Modified");
+            }
+
+            final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+            response.setHeader("ETag", etag);
+            response.setEntity(new StringEntity(lovePage(page), "UTF-8"));
+            return response;
+        }
+
+        /**
+         * Every request must carry exactly one complete set of session headers.
+         */
+        private void checkSessionHeaders(final HttpUriRequest request) {
+            final Header[] cookies = request.getHeaders("Cookie");
+            if (cookies.length != 1 || !cookies[0].getValue().startsWith("session=")) {
+                errors.add("cookies=" + Arrays.toString(cookies));
+            }
+            if (request.getHeaders("Accept").length != 1 || request.getHeaders("Content-Type").length != 1) {
+                errors.add("incomplete session headers for " + request.getURI());
+            }
+        }
+
+        private static String lovePage(final int page) throws JSONException {
+            final JSONArray loves = new JSONArray();
+            for (int i = 0; i < USERS; i++) {
+                loves.put(new JSONObject()
+                        .put("reason", "page " + page + " love " + i)
+                        .put("created_at", "2015-11-22T20:35:44Z")
+                        .put("user_from", user(i))
+                        .put("user_to", user((i + 1) % USERS)));
+            }
+
+            return new JSONObject()
+                    .put("data", loves)
+                    .put("meta", new JSONObject().put("total_pages", PAGES))
+                    .toString();
+        }
+
+        private static JSONObject user(final int index) throws JSONException {
+            return new JSONObject()
+                    .put("username", "user" + index)
+                    .put("email", "user" + index + "@example.com")
+                    .put("name", "User " + index);
+        }
+    }
+
+    FakeLoveServer fakeLoveServer;
+    RequestDispatcher dispatcher;
+    LoveMonsterClient client;
+
+    @Before
+    public void setup() {
+        fakeLoveServer = new FakeLoveServer();
+        dispatcher = RequestDispatcher.create(4, 2);
+        client = new LoveMonsterClient(new ResponseParser("example.com/%s.png"), fakeLoveServer, "example.com", true, dispatcher);
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.getNetworkExecutor().shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentRequests_AllAnsweredWithoutRaces() throws Exception {
+        final int totalRequests = CALLER_THREADS * REQUESTS_PER_THREAD;
+        final CountDownLatch completed = new CountDownLatch(totalRequests);
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        final Set<User> seenUsers = Collections.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<User, Boolean>()));
+        final Map<String, Boolean> seenUsernames = new ConcurrentHashMap<>();
+
+        client.authenticate("session=0", new NoOpAuthenticationHandler());
+
+        final ExecutorService callers = Executors.newFixedThreadPool(CALLER_THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for (int thread = 0; thread < CALLER_THREADS; thread++) {
+            final int callerIndex = thread;
+            callers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+
+                    for (int request = 0; request < REQUESTS_PER_THREAD; request++) {
+                        // one caller keeps replacing the session while the others make requests
+                        if (callerIndex == 0 && request % 10 == 0) {
+                            client.authenticate("session=" + request, new NoOpAuthenticationHandler());
+                        }
+
+                        final int page = 1 + (request % PAGES);
+                        client.retrieveRecentLoves(new LoveMonsterClient.LoveListResponseHandler() {
+                            @Override
+                            public void onSuccess(@NonNull final List<Love> loves, final int totalPages) {
+                                if (loves.size() != USERS || totalPages != PAGES) {
+                                    errors.add("page=" + page + " loves=" + loves.size() + " totalPages=" + totalPages);
+                                }
+                                for (final Love love : loves) {
+                                    if (!love.reason.startsWith("page " + page + " ")) {
+                                        errors.add("page=" + page + " reason=" + love.reason);
+                                    }
+                                    seenUsers.add(love.lover);
+                                    seenUsernames.put(love.lover.username, true);
+                                }
+                                completed.countDown();
+                            }
+
+                            @Override
+                            public void onFail() {
+                                errors.add("page=" + page + " failed");
+                                completed.countDown();
+                            }
+
+                            @Override
+                            public void onAuthenticationFailure() {
+                                errors.add("page=" + page + " authentication failed");
+                                completed.countDown();
+                            }
+                        }, page);
+                    }
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue("all requests should complete", completed.await(60, TimeUnit.SECONDS));
+        callers.shutdownNow();
+
+        assertEquals("server errors: " + fakeLoveServer.errors, 0, fakeLoveServer.errors.size());
+        assertEquals("handler errors: " + errors, 0, errors.size());
+        assertEquals("every user should be seen", USERS, seenUsernames.size());
+        assertEquals("concurrent parsers should share one instance per user", USERS, seenUsers.size());
+        assertEquals(
+                "every request should be either made or coalesced",
+                totalRequests,
+                client.getCoalescedRequestHitCount() + client.getCoalescedRequestMissCount()
+        );
+        assertEquals(client.getCoalescedRequestMissCount(), fakeLoveServer.requestCount.get());
+
+        System.out.println("benchmark=stress requests=" + totalRequests
+                + " httpCalls=" + fakeLoveServer.requestCount.get()
+                + " notModified=" + fakeLoveServer.notModifiedCount.get()
+                + " coalesced=" + client.getCoalescedRequestHitCount());
+    }
+
+    private static class NoOpAuthenticationHandler implements LoveMonsterClient.AuthenticationHandler {
+        @Override
+        public void onSuccess() {
+        }
+
+        @Override
+        public void onFail(final List<String> errorMessages) {
+        }
+
+        @Override
+        public void onAuthenticationFailure() {
+        }
+    }
+}
@@ -1,25 +1,35 @@
 package org.ometa.lovemonster.service;
 
 import android.content.Context;
+import android.util.MalformedJsonException;
 
 import com.loopj.android.http.AsyncHttpClient;
 import com.loopj.android.http.JsonHttpResponseHandler;
 import com.loopj.android.http.RequestParams;
+import com.loopj.android.http.ResponseHandlerInterface;
 
 import org.hamcrest.Description;
 import org.hamcrest.StringDescription;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.ometa.lovemonster.Fixtures;
+import org.ometa.lovemonster.Histogram;
+import org.ometa.lovemonster.MetricsRegistry;
 import org.ometa.lovemonster.models.Love;
 import org.ometa.lovemonster.models.User;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -27,17 +37,32 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import cz.msebera.android.httpclient.Header;
 import cz.msebera.android.httpclient.HttpEntity;
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.HttpVersion;
 import cz.msebera.android.httpclient.NameValuePair;
+import cz.msebera.android.httpclient.client.HttpResponseException;
 import cz.msebera.android.httpclient.client.utils.URIBuilder;
+import cz.msebera.android.httpclient.entity.BasicHttpEntity;
+import cz.msebera.android.httpclient.entity.StringEntity;
+import cz.msebera.android.httpclient.message.BasicHttpResponse;
 import cz.msebera.android.httpclient.message.BasicNameValuePair;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.isNull;
@@ -45,6 +70,8 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -58,6 +85,13 @@ public class LoveMonsterClientTest {
     LoveMonsterClient.LoveListResponseHandler mockLoveListResponseHandler;
     @Mock
     LoveMonsterClient.LoveResponseHandler mockLoveResponseHandler;
+    @Mock
+    LoveMonsterClient.BatchHandler mockBatchHandler;
+    @Mock
+    ScheduledExecutorService mockRetryScheduler;
+
+    @Captor
+    ArgumentCaptor<List<Love>> lovesArgumentCaptor;
 
     LoveMonsterClient client;
 
@@ -314,11 +348,143 @@ public class LoveMonsterClientTest {
         verify(mockLoveListResponseHandler).onSuccess(expectedLoves, 0);
     }
 
+    /**
+     * Creates a raw http response, as passed to streaming response handlers.
+     *
+     * @param statusCode
+     *      the status code for the response
+     * @param body
+     *      the response body
+     * @return
+     *      the http response
+     */
+    private HttpResponse httpResponse(final int statusCode, final String body) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "reason");
+        response.setEntity(new StringEntity(body, "UTF-8"));
+        return response;
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_RequestSucceeds_InvokesOnSuccessWithParsedPage() throws IOException {
+        final ArgumentCaptor<ResponseHandlerInterface> responseHandlerArgumentCaptor = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), mockAsyncHttpClient, "example.com", true);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+        responseHandlerArgumentCaptor.getValue().sendResponseMessage(httpResponse(200, Fixtures.getString("v1_loves.json")));
+
+        verify(mockLoveListResponseHandler).onSuccess(lovesArgumentCaptor.capture(), eq(444));
+        assertEquals("should parse all loves", 25, lovesArgumentCaptor.getValue().size());
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_RequestFails_InvokesOnFail() throws IOException {
+        final ArgumentCaptor<ResponseHandlerInterface> responseHandlerArgumentCaptor = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), mockAsyncHttpClient, "example.com", true);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+        responseHandlerArgumentCaptor.getValue().sendResponseMessage(httpResponse(500, "{\"errors\": \"boom\"}"));
+
+        verify(mockLoveListResponseHandler).onFail();
+        verify(mockLoveListResponseHandler, never()).onSuccess(anyList(), anyInt());
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_HtmlResponse_InvokesOnAuthenticationFailure() throws IOException {
+        final ArgumentCaptor<ResponseHandlerInterface> responseHandlerArgumentCaptor = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), mockAsyncHttpClient, "example.com", true);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+        responseHandlerArgumentCaptor.getValue().sendResponseMessage(httpResponse(200, "<html><body>okta login</body></html>"));
+
+        verify(mockLoveListResponseHandler).onAuthenticationFailure();
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_NotModified_InvokesOnSuccessWithCachedPage() throws IOException {
+        final ArgumentCaptor<ResponseHandlerInterface> responseHandlerArgumentCaptor = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        final ArgumentCaptor<Header[]> headersArgumentCaptor = ArgumentCaptor.forClass(Header[].class);
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), mockAsyncHttpClient, "example.com", true);
+
+        final HttpResponse firstResponse = httpResponse(200, Fixtures.getString("v1_loves.json"));
+        firstResponse.addHeader("ETag", "\"v1\"");
+        firstResponse.addHeader("Last-Modified", "Wed, 18 Nov 2015 15:55:46 GMT");
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), headersArgumentCaptor.capture(), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+        assertNull("should not send validators without a cached response", headersArgumentCaptor.getValue());
+        responseHandlerArgumentCaptor.getValue().sendResponseMessage(firstResponse);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient, times(2)).get(any(Context.class), anyString(), headersArgumentCaptor.capture(), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+
+        final Map<String, String> sentHeaders = new HashMap<>();
+        for (final Header header : headersArgumentCaptor.getValue()) {
+            sentHeaders.put(header.getName(), header.getValue());
+        }
+        assertEquals("should send the etag", "\"v1\"", sentHeaders.get("If-None-Match"));
+        assertEquals("should send the last modified date", "Wed, 18 Nov 2015 15:55:46 GMT", sentHeaders.get("If-Modified-Since"));
+
+        responseHandlerArgumentCaptor.getValue().sendResponseMessage(new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified"));
+
+        verify(mockLoveListResponseHandler, times(2)).onSuccess(lovesArgumentCaptor.capture(), eq(444));
+        assertSame("should return the cached loves", lovesArgumentCaptor.getAllValues().get(0), lovesArgumentCaptor.getAllValues().get(1));
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_NotModifiedWithoutCache_InvokesOnFail() throws IOException {
+        final ArgumentCaptor<ResponseHandlerInterface> responseHandlerArgumentCaptor = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), mockAsyncHttpClient, "example.com", true);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+        responseHandlerArgumentCaptor.getValue().sendResponseMessage(new BasicHttpResponse(HttpVersion.HTTP_1_1, 304, "Not Modified"));
+
+        verify(mockLoveListResponseHandler).onFail();
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_IdenticalRequestInFlight_SharesResponse() throws JSONException {
+        final ArgumentCaptor<JsonHttpResponseHandler> jsonHttpResponseHandlerArgumentCaptor = ArgumentCaptor.forClass(JsonHttpResponseHandler.class);
+        final LoveMonsterClient.LoveListResponseHandler otherLoveListResponseHandler = Mockito.mock(LoveMonsterClient.LoveListResponseHandler.class);
+        final List<Love> expectedLoves = new ArrayList<>();
+        final JSONObject expectedJsonObject = new JSONObject("{\"meta\":{\"total_pages\":7}}");
+        when(mockResponseParser.parseLoveList(expectedJsonObject)).thenReturn(expectedLoves);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        client.retrieveRecentLoves(otherLoveListResponseHandler, 1);
+        client.retrieveRecentLoves(otherLoveListResponseHandler, 2);
+
+        verify(mockAsyncHttpClient, times(2)).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), jsonHttpResponseHandlerArgumentCaptor.capture());
+        jsonHttpResponseHandlerArgumentCaptor.getAllValues().get(0).onSuccess(200, null, expectedJsonObject);
+
+        verify(mockLoveListResponseHandler).onSuccess(expectedLoves, 7);
+        verify(otherLoveListResponseHandler).onSuccess(expectedLoves, 7);
+        verify(mockResponseParser).parseLoveList(expectedJsonObject);
+        assertEquals("should count the coalesced request", 1, client.getCoalescedRequestHitCount());
+        assertEquals("should count the requests that were made", 2, client.getCoalescedRequestMissCount());
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_IdenticalRequestCompleted_MakesNewRequest() throws JSONException {
+        final ArgumentCaptor<JsonHttpResponseHandler> jsonHttpResponseHandlerArgumentCaptor = ArgumentCaptor.forClass(JsonHttpResponseHandler.class);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), jsonHttpResponseHandlerArgumentCaptor.capture());
+        jsonHttpResponseHandlerArgumentCaptor.getValue().onFailure(500, null, null, new JSONObject());
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+
+        verify(mockAsyncHttpClient, times(2)).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), any(JsonHttpResponseHandler.class));
+        verify(mockLoveListResponseHandler).onFail();
+        assertEquals("should not count any coalesced requests", 0, client.getCoalescedRequestHitCount());
+    }
+
     @Test
     public void testMakeLove_CreatesCorrectRequest() {
-        final Love love = new Love("the reason", new User("lover@example.com", "lover"), new User("lovee@example.com", "lovee"));
-        love.isPrivate = true;
-        love.message = "the message";
+        final Love love = new Love("the reason", "the message", true, new User("lover@example.com", "lover"), new User("lovee@example.com", "lovee"), 0, null, System.currentTimeMillis());
 
         client.makeLove(love, mockLoveResponseHandler);
 
@@ -345,7 +511,7 @@ public class LoveMonsterClientTest {
 
         client.makeLove(Mockito.mock(Love.class), mockLoveResponseHandler);
 
-        verify(mockLoveResponseHandler).onFail(Arrays.asList("some exception"));
+        verify(mockLoveResponseHandler).onFail(eq(0), any(RuntimeException.class), eq(Arrays.asList("some exception")));
     }
 
     @Test
@@ -356,7 +522,7 @@ public class LoveMonsterClientTest {
         verify(mockAsyncHttpClient).post(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), eq("application/json"), jsonHttpResponseHandlerArgumentCaptor.capture());
         jsonHttpResponseHandlerArgumentCaptor.getValue().onFailure(400, null, new Throwable("throwable message"), new JSONObject("{\"errors\": \"error message from server\"}"));
 
-        verify(mockLoveResponseHandler).onFail(Arrays.asList("error message from server", "throwable message"));
+        verify(mockLoveResponseHandler).onFail(eq(400), any(Throwable.class), eq(Arrays.asList("error message from server", "throwable message")));
     }
 
     @Test
@@ -367,7 +533,7 @@ public class LoveMonsterClientTest {
         verify(mockAsyncHttpClient).post(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), eq("application/json"), jsonHttpResponseHandlerArgumentCaptor.capture());
         jsonHttpResponseHandlerArgumentCaptor.getValue().onFailure(400, null, null, new JSONObject());
 
-        verify(mockLoveResponseHandler).onFail(new ArrayList<String>());
+        verify(mockLoveResponseHandler).onFail(eq(400), isNull(Throwable.class), eq(new ArrayList<String>()));
     }
 
     public void testMakeLove_RequestSucceeds_InvokesOnSuccessWithPassedLove() throws JSONException {
@@ -381,6 +547,646 @@ public class LoveMonsterClientTest {
         verify(mockLoveResponseHandler).onSuccess(expectedLove);
     }
 
+    /**
+     * Builds the specified number of distinct loves.
+     */
+    private List<Love> loves(final int count) {
+        final User lover = new User("lover@example.com", "lover");
+        final List<Love> loves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            loves.add(new Love("reason " + i, lover, new User("lovee" + i + "@example.com", "lovee" + i)));
+        }
+        return loves;
+    }
+
+    /**
+     * Verifies the number of love posts made so far, returning their handlers in request order.
+     */
+    private List<JsonHttpResponseHandler> verifyLovePosts(final int count) {
+        final ArgumentCaptor<JsonHttpResponseHandler> jsonHttpResponseHandlerArgumentCaptor = ArgumentCaptor.forClass(JsonHttpResponseHandler.class);
+        verify(mockAsyncHttpClient, times(count)).post(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), eq("application/json"), jsonHttpResponseHandlerArgumentCaptor.capture());
+        return jsonHttpResponseHandlerArgumentCaptor.getAllValues();
+    }
+
+    @Test
+    public void testMakeLoves_LimitsConcurrentSends() {
+        client.makeLoves(loves(10), mockBatchHandler);
+        final List<JsonHttpResponseHandler> handlers = verifyLovePosts(6);
+
+        handlers.get(0).onSuccess(200, null, new JSONArray());
+
+        verifyLovePosts(7);
+        verify(mockBatchHandler, never()).onComplete(anyListOf(Love.class), anyListOf(Love.class));
+    }
+
+    @Test
+    public void testMakeLoves_ReportsEachLoveAndBatch() throws JSONException {
+        final List<Love> loves = loves(3);
+
+        client.makeLoves(loves, mockBatchHandler);
+        final List<JsonHttpResponseHandler> handlers = verifyLovePosts(3);
+        handlers.get(0).onSuccess(200, null, new JSONArray());
+        handlers.get(1).onFailure(400, null, new Throwable("throwable message"), new JSONObject("{\"errors\": \"error message from server\"}"));
+        handlers.get(2).onSuccess(200, null, new JSONArray());
+
+        verify(mockBatchHandler).onLoveSent(loves.get(0));
+        verify(mockBatchHandler).onLoveFailed(eq(loves.get(1)), eq(400), any(Throwable.class), eq(Arrays.asList("error message from server", "throwable message")));
+        verify(mockBatchHandler).onLoveSent(loves.get(2));
+        verify(mockBatchHandler).onComplete(Arrays.asList(loves.get(0), loves.get(2)), Arrays.asList(loves.get(1)));
+    }
+
+    @Test
+    public void testMakeLoves_AuthenticationFailure_StopsSending() {
+        final List<Love> loves = loves(8);
+
+        client.makeLoves(loves, mockBatchHandler);
+        final List<JsonHttpResponseHandler> handlers = verifyLovePosts(6);
+        handlers.get(0).onFailure(200, null, new MalformedJsonException("not json"), (JSONObject) null);
+        handlers.get(1).onFailure(200, null, new MalformedJsonException("not json"), (JSONObject) null);
+        for (int i = 2; i < 6; i++) {
+            handlers.get(i).onSuccess(200, null, new JSONArray());
+        }
+
+        verifyLovePosts(6);
+        verify(mockBatchHandler, times(1)).onAuthenticationFailure();
+        verify(mockBatchHandler).onComplete(loves.subList(2, 6), Arrays.asList(loves.get(0), loves.get(1), loves.get(6), loves.get(7)));
+    }
+
+    @Test
+    public void testMakeLoves_Empty_CompletesImmediately() {
+        client.makeLoves(new ArrayList<Love>(), mockBatchHandler);
+
+        verifyLovePosts(0);
+        verify(mockBatchHandler).onComplete(new ArrayList<Love>(), new ArrayList<Love>());
+    }
+
+    @Test
+    public void testMakeLoves_Cancelled_StopsSendingAndCallbacks() {
+        final Cancellable batch = client.makeLoves(loves(10), mockBatchHandler);
+        final List<JsonHttpResponseHandler> handlers = verifyLovePosts(6);
+
+        batch.cancel();
+        handlers.get(0).onSuccess(200, null, new JSONArray());
+
+        verifyLovePosts(6);
+        assertTrue(batch.isDone());
+        verify(mockBatchHandler, never()).onLoveSent(any(Love.class));
+        verify(mockBatchHandler, never()).onComplete(anyListOf(Love.class), anyListOf(Love.class));
+    }
+
+    /**
+     * Creates a client whose retries are scheduled on {@link #mockRetryScheduler}, and whose love
+     * lists are parsed on the calling thread.
+     */
+    private LoveMonsterClient clientWithRetryScheduler(final boolean streamingParseEnabled) {
+        final Executor directExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                runnable.run();
+            }
+        };
+        final RequestDispatcher dispatcher = new RequestDispatcher(Mockito.mock(ExecutorService.class), directExecutor, mockRetryScheduler);
+        return new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), mockAsyncHttpClient, "example.com", streamingParseEnabled, dispatcher);
+    }
+
+    /**
+     * Verifies the number of retries scheduled so far, returning the last one.
+     */
+    private Runnable verifyRetriesScheduled(final int count) {
+        final ArgumentCaptor<Runnable> runnableArgumentCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(mockRetryScheduler, times(count)).schedule(runnableArgumentCaptor.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+        return count == 0 ? null : runnableArgumentCaptor.getValue();
+    }
+
+    /**
+     * Verifies the number of love list gets made so far, returning the handler of the last one.
+     */
+    private ResponseHandlerInterface verifyLoveListGets(final int count) {
+        final ArgumentCaptor<ResponseHandlerInterface> responseHandlerArgumentCaptor = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        verify(mockAsyncHttpClient, times(count)).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+        return responseHandlerArgumentCaptor.getValue();
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_ServiceUnavailable_RetriesAndSucceeds() throws IOException {
+        final ArgumentCaptor<Long> delayArgumentCaptor = ArgumentCaptor.forClass(Long.class);
+        client = clientWithRetryScheduler(true);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verifyLoveListGets(1).sendResponseMessage(httpResponse(503, "Service Unavailable"));
+
+        verify(mockRetryScheduler).schedule(any(Runnable.class), delayArgumentCaptor.capture(), eq(TimeUnit.MILLISECONDS));
+        assertTrue("should back off no longer than the base delay", delayArgumentCaptor.getValue() <= 250);
+        verify(mockLoveListResponseHandler, never()).onFail();
+
+        verifyRetriesScheduled(1).run();
+        verifyLoveListGets(2).sendResponseMessage(httpResponse(200, Fixtures.getString("v1_loves.json")));
+
+        verify(mockLoveListResponseHandler).onSuccess(lovesArgumentCaptor.capture(), eq(444));
+        assertEquals(25, lovesArgumentCaptor.getValue().size());
+        assertEquals(1, client.getRetryCount());
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_ServiceUnavailable_InvokesOnFailOnceRetriesExhausted() throws IOException {
+        client = clientWithRetryScheduler(true);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verifyLoveListGets(1).sendResponseMessage(httpResponse(503, "Service Unavailable"));
+        verifyRetriesScheduled(1).run();
+        verifyLoveListGets(2).sendResponseMessage(httpResponse(502, "Bad Gateway"));
+        verifyRetriesScheduled(2).run();
+        verifyLoveListGets(3).sendResponseMessage(httpResponse(504, "Gateway Timeout"));
+
+        verifyRetriesScheduled(2);
+        verify(mockLoveListResponseHandler).onFail();
+        assertEquals(2, client.getRetryCount());
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_ClientError_NotRetried() throws JSONException {
+        final ArgumentCaptor<JsonHttpResponseHandler> jsonHttpResponseHandlerArgumentCaptor = ArgumentCaptor.forClass(JsonHttpResponseHandler.class);
+        client = clientWithRetryScheduler(false);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), jsonHttpResponseHandlerArgumentCaptor.capture());
+        jsonHttpResponseHandlerArgumentCaptor.getValue().onFailure(404, null, null, new JSONObject());
+
+        verifyRetriesScheduled(0);
+        verify(mockLoveListResponseHandler).onFail();
+    }
+
+    @Test
+    public void testMakeLove_WithoutIdempotencyKey_NotRetried() {
+        client = clientWithRetryScheduler(false);
+
+        client.makeLove(loves(1).get(0), mockLoveResponseHandler);
+        verifyLovePosts(1).get(0).onFailure(503, null, new IOException("unavailable"), (JSONObject) null);
+
+        verifyRetriesScheduled(0);
+        verify(mockLoveResponseHandler).onFail(eq(503), any(IOException.class), eq(Arrays.asList("unavailable")));
+    }
+
+    @Test
+    public void testMakeLove_WithIdempotencyKey_RetriedWithSameKey() throws JSONException {
+        final Love love = loves(1).get(0).withIdempotencyKey("key-1");
+        client = clientWithRetryScheduler(false);
+
+        client.makeLove(love, mockLoveResponseHandler);
+        verifyLovePosts(1).get(0).onFailure(0, null, new IOException("connection reset"), (JSONObject) null);
+        verifyRetriesScheduled(1).run();
+
+        final ArgumentCaptor<String> urlArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mockAsyncHttpClient, times(2)).post(any(Context.class), urlArgumentCaptor.capture(), any(Header[].class), any(RequestParams.class), eq("application/json"), any(JsonHttpResponseHandler.class));
+        assertEquals("should resend the same love", urlArgumentCaptor.getAllValues().get(0), urlArgumentCaptor.getAllValues().get(1));
+        assertTrue(urlArgumentCaptor.getValue().contains("idempotency_key=key-1"));
+
+        verifyLovePosts(2).get(1).onSuccess(200, null, new JSONArray());
+        verify(mockLoveResponseHandler).onSuccess(love);
+        verify(mockLoveResponseHandler, never()).onFail(anyInt(), any(Throwable.class), anyListOf(String.class));
+    }
+
+    @Test
+    public void testCircuitBreaker_RepeatedFailures_FailsFastWithoutRequest() {
+        client = clientWithRetryScheduler(false);
+
+        client.makeLoves(loves(5), mockBatchHandler);
+        for (final JsonHttpResponseHandler handler : verifyLovePosts(5)) {
+            handler.onFailure(503, null, new IOException("unavailable"), (JSONObject) null);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreakerState());
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+
+        verify(mockAsyncHttpClient, never()).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), any(ResponseHandlerInterface.class));
+        verify(mockLoveListResponseHandler).onFail();
+        assertEquals(1, client.getCircuitBreakerRejectedCount());
+        verifyRetriesScheduled(0);
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_InMemoryTransport_InvokesOnSuccessWithServedPage() throws IOException {
+        final String lovesJson = Fixtures.getString("v1_loves.json");
+        final InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Responder() {
+            @Override
+            public HttpResponse respond(final Transport.Request request) {
+                return InMemoryTransport.response(200, lovesJson);
+            }
+        });
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), transport, "example.com", true, null);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 2);
+
+        verify(mockLoveListResponseHandler).onSuccess(lovesArgumentCaptor.capture(), eq(444));
+        assertEquals(25, lovesArgumentCaptor.getValue().size());
+        assertEquals(1, transport.getSentRequests().size());
+        assertEquals(Transport.Request.GET, transport.getSentRequests().get(0).method);
+        assertEquals("https://example.com/api/v1/loves?clientId=androidapp&page=2", transport.getSentRequests().get(0).url);
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Cancelled_SkipsParsingAndHandler() throws JSONException {
+        final ArgumentCaptor<JsonHttpResponseHandler> jsonHttpResponseHandlerArgumentCaptor = ArgumentCaptor.forClass(JsonHttpResponseHandler.class);
+
+        final Cancellable request = client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), jsonHttpResponseHandlerArgumentCaptor.capture());
+        request.cancel();
+        jsonHttpResponseHandlerArgumentCaptor.getValue().onSuccess(200, null, new JSONObject("{\"meta\":{\"total_pages\":7}}"));
+
+        assertTrue(request.isCancelled());
+        verify(mockResponseParser, never()).parseLoveList(any(JSONObject.class));
+        verify(mockLoveListResponseHandler, never()).onSuccess(anyListOf(Love.class), anyInt());
+        verify(mockLoveListResponseHandler, never()).onFail();
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_Cancelled_DropsResponseUnread() throws IOException {
+        client = clientWithRetryScheduler(true);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1).cancel();
+        final HttpResponse response = httpResponse(200, Fixtures.getString("v1_loves.json"));
+        verifyLoveListGets(1).sendResponseMessage(response);
+
+        verify(mockLoveListResponseHandler, never()).onSuccess(anyListOf(Love.class), anyInt());
+        verify(mockLoveListResponseHandler, never()).onFail();
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_CoalescedCallerCancels_OtherCallerStillServed() throws JSONException {
+        final ArgumentCaptor<JsonHttpResponseHandler> jsonHttpResponseHandlerArgumentCaptor = ArgumentCaptor.forClass(JsonHttpResponseHandler.class);
+        final LoveMonsterClient.LoveListResponseHandler otherLoveListResponseHandler = Mockito.mock(LoveMonsterClient.LoveListResponseHandler.class);
+        final List<Love> expectedLoves = new ArrayList<>();
+        final JSONObject expectedJsonObject = new JSONObject("{\"meta\":{\"total_pages\":7}}");
+        when(mockResponseParser.parseLoveList(expectedJsonObject)).thenReturn(expectedLoves);
+
+        final Cancellable request = client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        final Cancellable otherRequest = client.retrieveRecentLoves(otherLoveListResponseHandler, 1);
+        request.cancel();
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), jsonHttpResponseHandlerArgumentCaptor.capture());
+        jsonHttpResponseHandlerArgumentCaptor.getValue().onSuccess(200, null, expectedJsonObject);
+
+        verify(mockLoveListResponseHandler, never()).onSuccess(anyListOf(Love.class), anyInt());
+        verify(otherLoveListResponseHandler).onSuccess(expectedLoves, 7);
+        assertTrue(otherRequest.isDone());
+        assertFalse(otherRequest.isCancelled());
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_AllCoalescedCallersCancel_CancelsRequest() throws JSONException {
+        final ArgumentCaptor<JsonHttpResponseHandler> jsonHttpResponseHandlerArgumentCaptor = ArgumentCaptor.forClass(JsonHttpResponseHandler.class);
+        final LoveMonsterClient.LoveListResponseHandler otherLoveListResponseHandler = Mockito.mock(LoveMonsterClient.LoveListResponseHandler.class);
+
+        final Cancellable request = client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        final Cancellable otherRequest = client.retrieveRecentLoves(otherLoveListResponseHandler, 1);
+        request.cancel();
+        otherRequest.cancel();
+        verify(mockAsyncHttpClient).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), jsonHttpResponseHandlerArgumentCaptor.capture());
+        jsonHttpResponseHandlerArgumentCaptor.getValue().onSuccess(200, null, new JSONObject());
+
+        verify(mockResponseParser, never()).parseLoveList(any(JSONObject.class));
+        verify(otherLoveListResponseHandler, never()).onSuccess(anyListOf(Love.class), anyInt());
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verify(mockAsyncHttpClient, times(2)).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), any(JsonHttpResponseHandler.class));
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Streaming_ParserThrows_CoalescedCallersFail() throws IOException {
+        final List<Runnable> queuedResponses = new ArrayList<>();
+        final InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Responder() {
+            @Override
+            public HttpResponse respond(final Transport.Request request) {
+                return InMemoryTransport.response(200, "{}");
+            }
+        }, new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                queuedResponses.add(runnable);
+            }
+        });
+        when(mockResponseParser.parseLoveListPage(any(Reader.class))).thenThrow(new IllegalStateException("unexpected page"));
+        client = new LoveMonsterClient(mockResponseParser, transport, "example.com", true, null);
+        final LoveMonsterClient.LoveListResponseHandler otherLoveListResponseHandler = Mockito.mock(LoveMonsterClient.LoveListResponseHandler.class);
+
+        final Cancellable request = client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        final Cancellable otherRequest = client.retrieveRecentLoves(otherLoveListResponseHandler, 1);
+        queuedResponses.remove(0).run();
+
+        verify(mockLoveListResponseHandler).onFail();
+        verify(otherLoveListResponseHandler).onFail();
+        assertTrue(request.isDone());
+        assertTrue(otherRequest.isDone());
+        assertEquals(1, client.getCoalescedRequestHitCount());
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        assertEquals("should not leave the failed request pending", 2, transport.getSentRequests().size());
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_CancelledDuringBackoff_NotRetried() throws IOException {
+        client = clientWithRetryScheduler(true);
+
+        final Cancellable request = client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verifyLoveListGets(1).sendResponseMessage(httpResponse(503, "Service Unavailable"));
+        request.cancel();
+        verifyRetriesScheduled(1).run();
+
+        verifyLoveListGets(1);
+        verify(mockLoveListResponseHandler, never()).onFail();
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_InMemoryTransport_CancelledBeforeResponse_NotAnswered() {
+        final List<Runnable> queuedResponses = new ArrayList<>();
+        final List<Transport.Request> answeredRequests = new ArrayList<>();
+        final InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Responder() {
+            @Override
+            public HttpResponse respond(final Transport.Request request) {
+                answeredRequests.add(request);
+                return InMemoryTransport.response(200, "{}");
+            }
+        }, new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                queuedResponses.add(runnable);
+            }
+        });
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), transport, "example.com", true, null);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1).cancel();
+        for (final Runnable queuedResponse : queuedResponses) {
+            queuedResponse.run();
+        }
+
+        assertEquals(1, transport.getSentRequests().size());
+        assertTrue("should not answer the cancelled request", answeredRequests.isEmpty());
+        verify(mockLoveListResponseHandler, never()).onSuccess(anyListOf(Love.class), anyInt());
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_RecordsEndpointMetrics() throws IOException {
+        final String lovesJson = Fixtures.getString("v1_loves.json");
+        final InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Responder() {
+            @Override
+            public HttpResponse respond(final Transport.Request request) {
+                return InMemoryTransport.response(200, lovesJson);
+            }
+        });
+        final MetricsRegistry metrics = new MetricsRegistry();
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), transport, "example.com", true, null, metrics);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 2);
+        final String dump = metrics.dump();
+
+        for (final String metric : Arrays.asList(LoveMonsterClient.QUEUE_TIME_METRIC, LoveMonsterClient.TIME_TO_FIRST_BYTE_METRIC, LoveMonsterClient.DOWNLOAD_TIME_METRIC, LoveMonsterClient.PARSE_TIME_METRIC)) {
+            final String metricName = LoveMonsterClient.metricName(LoveMonsterClient.LOVE_LIST_ENDPOINT, metric);
+            final Histogram.Snapshot snapshot = metrics.getSnapshot(metricName);
+            assertEquals("should record " + metric + " for each request", 2, snapshot.count);
+            assertTrue("should dump " + metric, dump.contains(metricName + " " + snapshot + "\n"));
+        }
+        assertFalse("should only dump the love list endpoint", dump.contains(LoveMonsterClient.USER_LOOKUP_ENDPOINT));
+        final Histogram.Snapshot sizes = metrics.getSnapshot(LoveMonsterClient.metricName(LoveMonsterClient.LOVE_LIST_ENDPOINT, LoveMonsterClient.PAYLOAD_SIZE_METRIC));
+        assertEquals(2, sizes.count);
+        assertEquals(lovesJson.getBytes("UTF-8").length, sizes.max);
+        assertNull(metrics.getSnapshot(LoveMonsterClient.metricName(LoveMonsterClient.USER_LOOKUP_ENDPOINT, LoveMonsterClient.TIME_TO_FIRST_BYTE_METRIC)));
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_Retried_CountsRetryPerEndpoint() throws IOException {
+        final String lovesJson = Fixtures.getString("v1_loves.json");
+        final List<Integer> statusCodes = new ArrayList<>(Arrays.asList(503, 200));
+        final InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Responder() {
+            @Override
+            public HttpResponse respond(final Transport.Request request) {
+                return InMemoryTransport.response(statusCodes.remove(0), lovesJson);
+            }
+        });
+        final Executor directExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                runnable.run();
+            }
+        };
+        final MetricsRegistry metrics = new MetricsRegistry();
+        client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), transport, "example.com", true, new RequestDispatcher(Mockito.mock(ExecutorService.class), directExecutor, mockRetryScheduler), metrics);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verifyRetriesScheduled(1).run();
+
+        verify(mockLoveListResponseHandler).onSuccess(anyListOf(Love.class), eq(444));
+        assertEquals(1, metrics.getCount(LoveMonsterClient.metricName(LoveMonsterClient.LOVE_LIST_ENDPOINT, LoveMonsterClient.RETRY_METRIC)));
+        assertEquals(2, metrics.getSnapshot(LoveMonsterClient.metricName(LoveMonsterClient.LOVE_LIST_ENDPOINT, LoveMonsterClient.TIME_TO_FIRST_BYTE_METRIC)).count);
+        assertEquals("should only record the download of the successful response", 1, metrics.getSnapshot(LoveMonsterClient.metricName(LoveMonsterClient.LOVE_LIST_ENDPOINT, LoveMonsterClient.DOWNLOAD_TIME_METRIC)).count);
+    }
+
+    /**
+     * Creates a client whose parse executor queues the parse tasks, to be run by the test.
+     */
+    private LoveMonsterClient clientWithQueuedParseExecutor(final ResponseParser responseParser, final List<Runnable> parseTasks, final MetricsRegistry metrics) {
+        final Executor queuingExecutor = new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                parseTasks.add(runnable);
+            }
+        };
+        final RequestDispatcher dispatcher = new RequestDispatcher(Mockito.mock(ExecutorService.class), queuingExecutor, mockRetryScheduler);
+        return new LoveMonsterClient(responseParser, new AsyncHttpClientTransport(mockAsyncHttpClient, null), "example.com", false, dispatcher, metrics);
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_ParseExecutor_ParsesOnExecutorAndPostsModels() throws JSONException {
+        final List<Runnable> parseTasks = new ArrayList<>();
+        final List<Love> expectedLoves = new ArrayList<>();
+        final JSONObject expectedJsonObject = new JSONObject("{\"meta\":{\"total_pages\":7}}");
+        when(mockResponseParser.parseLoveList(expectedJsonObject)).thenReturn(expectedLoves);
+        client = clientWithQueuedParseExecutor(mockResponseParser, parseTasks, new MetricsRegistry());
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        ((JsonHttpResponseHandler) verifyLoveListGets(1)).onSuccess(200, null, expectedJsonObject);
+
+        assertEquals(1, parseTasks.size());
+        verify(mockResponseParser, never()).parseLoveList(any(JSONObject.class));
+        verify(mockLoveListResponseHandler, never()).onSuccess(anyListOf(Love.class), anyInt());
+
+        parseTasks.get(0).run();
+        verify(mockResponseParser).parseLoveList(expectedJsonObject);
+        verify(mockLoveListResponseHandler).onSuccess(expectedLoves, 7);
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_ParseExecutor_CancelledBeforeParse_SkipsParsingAndHandler() throws JSONException {
+        final List<Runnable> parseTasks = new ArrayList<>();
+        client = clientWithQueuedParseExecutor(mockResponseParser, parseTasks, new MetricsRegistry());
+
+        final Cancellable request = client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        ((JsonHttpResponseHandler) verifyLoveListGets(1)).onSuccess(200, null, new JSONObject("{\"meta\":{\"total_pages\":7}}"));
+        request.cancel();
+        parseTasks.get(0).run();
+
+        verify(mockResponseParser, never()).parseLoveList(any(JSONObject.class));
+        verify(mockLoveListResponseHandler, never()).onSuccess(anyListOf(Love.class), anyInt());
+        verify(mockLoveListResponseHandler, never()).onFail();
+    }
+
+    private LoveMonsterClient clientWithRealParser(final MetricsRegistry metrics) {
+        return new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), new AsyncHttpClientTransport(mockAsyncHttpClient, null), "example.com", false, null, metrics);
+    }
+
+    @Test
+    public void testGetUserFromUsername_RepeatLookup_AnsweredWithoutRequest() throws JSONException {
+        final MetricsRegistry metrics = new MetricsRegistry();
+        client = clientWithRealParser(metrics);
+        final LoveMonsterClient.UserLookupResponseHandler handler = Mockito.mock(LoveMonsterClient.UserLookupResponseHandler.class);
+
+        client.getUserFromUsername("lovee", handler);
+        ((JsonHttpResponseHandler) verifyLoveListGets(1)).onSuccess(200, null, new JSONObject("{\"email\": \"lovee@example.com\", \"username\": \"lovee\"}"));
+        final Cancellable repeatLookup = client.getUserFromUsername("lovee", handler);
+
+        final ArgumentCaptor<User> user = ArgumentCaptor.forClass(User.class);
+        verify(handler, times(2)).onUserExists(user.capture());
+        assertEquals("lovee@example.com", user.getValue().email);
+        assertSame(user.getAllValues().get(0), user.getAllValues().get(1));
+        verifyLoveListGets(1);
+        assertTrue(repeatLookup.isDone());
+        assertEquals(1, metrics.getCount(LoveMonsterClient.metricName(LoveMonsterClient.USER_LOOKUP_ENDPOINT, LoveMonsterClient.CACHE_HIT_METRIC)));
+    }
+
+    @Test
+    public void testGetUserFromUsername_RepeatLookupNotFound_AnsweredWithoutRequest() {
+        client = clientWithRealParser(new MetricsRegistry());
+        final LoveMonsterClient.UserLookupResponseHandler handler = Mockito.mock(LoveMonsterClient.UserLookupResponseHandler.class);
+
+        client.getUserFromUsername("nobody", handler);
+        ((JsonHttpResponseHandler) verifyLoveListGets(1)).onFailure(404, null, "Not Found", new HttpResponseException(404, "Not Found"));
+        client.getUserFromUsername("nobody", handler);
+
+        verify(handler, times(2)).onUserNotFound();
+        verify(handler, never()).onFail(anyListOf(String.class));
+        verifyLoveListGets(1);
+    }
+
+    @Test
+    public void testGetUserFromUsername_UserSeenInLoveList_AnsweredWithoutRequest() {
+        client = clientWithRealParser(new MetricsRegistry());
+        final LoveMonsterClient.UserLookupResponseHandler handler = Mockito.mock(LoveMonsterClient.UserLookupResponseHandler.class);
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        ((JsonHttpResponseHandler) verifyLoveListGets(1)).onSuccess(200, null, Fixtures.getJsonObject("v1_loves.json"));
+        client.getUserFromUsername("adalal", handler);
+
+        final ArgumentCaptor<User> user = ArgumentCaptor.forClass(User.class);
+        verify(handler).onUserExists(user.capture());
+        assertEquals("adalal", user.getValue().username);
+        verifyLoveListGets(1);
+    }
+
+    @Test
+    public void testSuggestUsers_UsersSeenInLoveList_SuggestedByPrefix() {
+        client = clientWithRealParser(new MetricsRegistry());
+        assertTrue(client.suggestUsers("ad", 10).isEmpty());
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        ((JsonHttpResponseHandler) verifyLoveListGets(1)).onSuccess(200, null, Fixtures.getJsonObject("v1_loves.json"));
+
+        final List<String> usernames = new ArrayList<>();
+        for (final User user : client.suggestUsers("ad", 10)) {
+            usernames.add(user.username);
+        }
+        assertTrue(usernames.containsAll(Arrays.asList("adalal", "adeitch", "aderly")));
+    }
+
+    /**
+     * Creates the okta login page an expired session is answered with, over a stream whose
+     * remaining bytes show whether it was read.
+     */
+    private HttpResponse loginPage(final ByteArrayInputStream content) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        final BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContent(content);
+        entity.setContentType("text/html; charset=UTF-8");
+        response.setEntity(entity);
+        return response;
+    }
+
+    private static String cookieHeader(final Header[] headers) {
+        for (final Header header : headers) {
+            if (header.getName().equals("Cookie")) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_LoginPage_HeldAndSentAgainAfterReauthenticating() throws IOException, JSONException {
+        client = clientWithRealParser(new MetricsRegistry());
+        final LoveMonsterClient.SessionExpiredListener listener = Mockito.mock(LoveMonsterClient.SessionExpiredListener.class);
+        client.setSessionExpiredListener(listener);
+        final ByteArrayInputStream firstPage = new ByteArrayInputStream("<html>okta login</html>".getBytes("UTF-8"));
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 2);
+        final ArgumentCaptor<ResponseHandlerInterface> handlers = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        verify(mockAsyncHttpClient, times(2)).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), handlers.capture());
+        handlers.getAllValues().get(0).sendResponseMessage(loginPage(firstPage));
+        handlers.getAllValues().get(1).sendResponseMessage(loginPage(new ByteArrayInputStream(new byte[0])));
+
+        assertEquals("should not read the login page", 23, firstPage.available());
+        verify(listener).onSessionExpired();
+        verify(mockLoveListResponseHandler, never()).onAuthenticationFailure();
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 3);
+        verifyLoveListGets(2);
+
+        client.authenticate("renewed=true;", Mockito.mock(LoveMonsterClient.AuthenticationHandler.class));
+        ((JsonHttpResponseHandler) verifyLoveListGets(3)).onSuccess(200, null, new JSONObject("{\"email\": \"ada@example.com\", \"username\": \"ada\"}"));
+
+        final ArgumentCaptor<Header[]> headers = ArgumentCaptor.forClass(Header[].class);
+        verify(mockAsyncHttpClient, times(6)).get(any(Context.class), anyString(), headers.capture(), any(RequestParams.class), handlers.capture());
+        for (final Header[] resentHeaders : headers.getAllValues().subList(3, 6)) {
+            assertEquals("renewed=true;", cookieHeader(resentHeaders));
+        }
+        ((JsonHttpResponseHandler) handlers.getValue()).onSuccess(200, null, Fixtures.getJsonObject("v1_loves.json"));
+
+        verify(mockLoveListResponseHandler).onSuccess(anyListOf(Love.class), eq(444));
+        verify(listener).onSessionExpired();
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_SentAgainAfterReauthenticating_KeepsEveryRetry() throws IOException, JSONException {
+        client = clientWithRetryScheduler(true);
+        client.setSessionExpiredListener(Mockito.mock(LoveMonsterClient.SessionExpiredListener.class));
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verifyLoveListGets(1).sendResponseMessage(loginPage(new ByteArrayInputStream(new byte[0])));
+        client.authenticate("renewed=true;", Mockito.mock(LoveMonsterClient.AuthenticationHandler.class));
+        ((JsonHttpResponseHandler) verifyLoveListGets(2)).onSuccess(200, null, new JSONObject("{\"email\": \"ada@example.com\", \"username\": \"ada\"}"));
+
+        verifyLoveListGets(3).sendResponseMessage(httpResponse(503, "Service Unavailable"));
+        verifyRetriesScheduled(1).run();
+        verifyLoveListGets(4).sendResponseMessage(httpResponse(503, "Service Unavailable"));
+
+        verifyRetriesScheduled(2).run();
+        verifyLoveListGets(5).sendResponseMessage(httpResponse(200, Fixtures.getString("v1_loves.json")));
+        verify(mockLoveListResponseHandler).onSuccess(anyListOf(Love.class), eq(444));
+        verify(mockLoveListResponseHandler, never()).onFail();
+    }
+
+    @Test
+    public void testRetrieveRecentLoves_LoginPageWithoutListener_InvokesOnAuthenticationFailure() throws IOException {
+        client = clientWithRealParser(new MetricsRegistry());
+        final ByteArrayInputStream content = new ByteArrayInputStream("<html>okta login</html>".getBytes("UTF-8"));
+
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 1);
+        verifyLoveListGets(1).sendResponseMessage(loginPage(content));
+
+        verify(mockLoveListResponseHandler).onAuthenticationFailure();
+        assertEquals("should not read the login page", 23, content.available());
+        client.retrieveRecentLoves(mockLoveListResponseHandler, 2);
+        verifyLoveListGets(2);
+    }
+
     /**
      * Parses the request params and returns a map of <param, value>.
      * This is to work around an issue with RequestParams not exposing the parameters in an
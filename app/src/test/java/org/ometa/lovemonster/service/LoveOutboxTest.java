@@ -0,0 +1,317 @@
+package org.ometa.lovemonster.service;
+
+import android.content.Context;
+
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.AsyncHttpRequest;
+import com.loopj.android.http.JsonHttpResponseHandler;
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import org.json.JSONArray;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.models.User;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import cz.msebera.android.httpclient.Header;
+import cz.msebera.android.httpclient.client.methods.HttpUriRequest;
+import cz.msebera.android.httpclient.impl.client.DefaultHttpClient;
+import cz.msebera.android.httpclient.protocol.HttpContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class LoveOutboxTest {
+
+    /**
+     * Runs outbox work on the calling thread, so tests can check the state straight away.
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    LoveMonsterClient mockClient;
+
+    @Captor
+    ArgumentCaptor<List<Love>> lovesArgumentCaptor;
+
+    File file;
+    LoveOutbox outbox;
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        file = new File(temporaryFolder.getRoot(), "love_outbox.json");
+        outbox = new LoveOutbox(file, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+    }
+
+    private List<Love> loves(final int count) {
+        final User lover = new User("lover@example.com", "lover");
+        final List<Love> loves = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            loves.add(new Love("reason " + i, "message " + i, i % 2 == 0, lover, new User("", "lovee" + i), 0, null, System.currentTimeMillis()));
+        }
+        return loves;
+    }
+
+    /**
+     * Verifies the number of batches sent so far, capturing the handler of each and returning the
+     * loves of the last.
+     */
+    private List<Love> verifyBatches(final int count, final ArgumentCaptor<LoveMonsterClient.BatchHandler> batchHandlerArgumentCaptor) {
+        verify(mockClient, times(count)).makeLoves(lovesArgumentCaptor.capture(), batchHandlerArgumentCaptor.capture());
+        return lovesArgumentCaptor.getValue();
+    }
+
+    @Test
+    public void testEnqueue_AssignsIdempotencyKeys() {
+        final List<Love> loves = outbox.enqueue(loves(2));
+
+        assertNotNull(loves.get(0).idempotencyKey);
+        assertNotNull(loves.get(1).idempotencyKey);
+        assertFalse(loves.get(0).idempotencyKey.equals(loves.get(1).idempotencyKey));
+    }
+
+    @Test
+    public void testEnqueue_SurvivesRestart() {
+        final List<Love> loves = outbox.enqueue(loves(2));
+
+        final LoveOutbox restartedOutbox = new LoveOutbox(file, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        assertEquals(2, restartedOutbox.getPendingCount());
+
+        final ArgumentCaptor<LoveMonsterClient.BatchHandler> batchHandlerArgumentCaptor = ArgumentCaptor.forClass(LoveMonsterClient.BatchHandler.class);
+        restartedOutbox.drain(mockClient);
+        final List<Love> sentLoves = verifyBatches(1, batchHandlerArgumentCaptor);
+
+        assertEquals(2, sentLoves.size());
+        for (int i = 0; i < loves.size(); i++) {
+            assertEquals(loves.get(i).idempotencyKey, sentLoves.get(i).idempotencyKey);
+            assertEquals(loves.get(i).reason, sentLoves.get(i).reason);
+            assertEquals(loves.get(i).message, sentLoves.get(i).message);
+            assertEquals(loves.get(i).isPrivate, sentLoves.get(i).isPrivate);
+            assertEquals(loves.get(i).lover.username, sentLoves.get(i).lover.username);
+            assertEquals(loves.get(i).lovee.username, sentLoves.get(i).lovee.username);
+            assertEquals(loves.get(i).createdAtMillis, sentLoves.get(i).createdAtMillis);
+        }
+    }
+
+    @Test
+    public void testEnqueue_SameLoveTwice_QueuedOnce() {
+        final List<Love> loves = outbox.enqueue(loves(1));
+        outbox.enqueue(loves);
+
+        assertEquals(1, outbox.getPendingCount());
+    }
+
+    @Test
+    public void testDrain_RemovesSentLovesAndKeepsFailedLoves() {
+        final List<Love> loves = loves(2);
+        outbox.enqueue(loves);
+
+        final ArgumentCaptor<LoveMonsterClient.BatchHandler> batchHandlerArgumentCaptor = ArgumentCaptor.forClass(LoveMonsterClient.BatchHandler.class);
+        outbox.drain(mockClient);
+        final List<Love> batch = verifyBatches(1, batchHandlerArgumentCaptor);
+        final LoveMonsterClient.BatchHandler batchHandler = batchHandlerArgumentCaptor.getValue();
+        batchHandler.onLoveSent(batch.get(0));
+        batchHandler.onLoveFailed(batch.get(1), 0, new IOException("network down"), Arrays.asList("network down"));
+        batchHandler.onComplete(Arrays.asList(batch.get(0)), Arrays.asList(batch.get(1)));
+
+        assertEquals(1, new LoveOutbox(file, DIRECT_EXECUTOR, DIRECT_EXECUTOR).getPendingCount());
+        verifyBatches(1, batchHandlerArgumentCaptor);
+    }
+
+    @Test
+    public void testDrain_WhileDraining_DoesNotSendAgain() {
+        outbox.enqueue(loves(3));
+
+        outbox.drain(mockClient);
+        outbox.drain(mockClient);
+
+        verify(mockClient, times(1)).makeLoves(anyListOf(Love.class), any(LoveMonsterClient.BatchHandler.class));
+    }
+
+    @Test
+    public void testDrain_SendsInBatchesUntilEmpty() {
+        outbox.enqueue(loves(45));
+        final ArgumentCaptor<LoveMonsterClient.BatchHandler> batchHandlerArgumentCaptor = ArgumentCaptor.forClass(LoveMonsterClient.BatchHandler.class);
+
+        outbox.drain(mockClient);
+        for (int batchCount = 1; batchCount <= 3; batchCount++) {
+            final List<Love> batch = verifyBatches(batchCount, batchHandlerArgumentCaptor);
+            final LoveMonsterClient.BatchHandler batchHandler = batchHandlerArgumentCaptor.getValue();
+
+            assertEquals(batchCount < 3 ? 20 : 5, batch.size());
+            for (final Love love : batch) {
+                batchHandler.onLoveSent(love);
+            }
+            batchHandler.onComplete(batch, new ArrayList<Love>());
+        }
+
+        verifyBatches(3, batchHandlerArgumentCaptor);
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    public void testDrain_RepeatedlyFailingLove_Dropped() {
+        outbox.enqueue(loves(1));
+        final ArgumentCaptor<LoveMonsterClient.BatchHandler> batchHandlerArgumentCaptor = ArgumentCaptor.forClass(LoveMonsterClient.BatchHandler.class);
+
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            assertEquals(1, outbox.getPendingCount());
+            outbox.drain(mockClient);
+            final List<Love> batch = verifyBatches(attempt, batchHandlerArgumentCaptor);
+            final LoveMonsterClient.BatchHandler batchHandler = batchHandlerArgumentCaptor.getValue();
+            batchHandler.onLoveFailed(batch.get(0), 422, null, Arrays.asList("Unknown user"));
+            batchHandler.onComplete(new ArrayList<Love>(), batch);
+        }
+
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    public void testDrain_RepeatedlyOffline_LoveKept() {
+        final List<Love> loves = outbox.enqueue(loves(1));
+        final ArgumentCaptor<LoveMonsterClient.BatchHandler> batchHandlerArgumentCaptor = ArgumentCaptor.forClass(LoveMonsterClient.BatchHandler.class);
+        final Throwable[] failures = {
+                new IOException("network down"),
+                new CircuitBreaker.OpenException(),
+                new IOException("timed out"),
+        };
+
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            outbox.drain(mockClient);
+            final List<Love> batch = verifyBatches(attempt, batchHandlerArgumentCaptor);
+            final LoveMonsterClient.BatchHandler batchHandler = batchHandlerArgumentCaptor.getValue();
+            batchHandler.onLoveFailed(batch.get(0), 0, failures[attempt % failures.length], Arrays.asList("offline"));
+            batchHandler.onComplete(new ArrayList<Love>(), batch);
+        }
+
+        final LoveOutbox restartedOutbox = new LoveOutbox(file, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        assertEquals(1, restartedOutbox.getPendingCount());
+        restartedOutbox.drain(mockClient);
+        assertEquals(loves.get(0).idempotencyKey, verifyBatches(11, batchHandlerArgumentCaptor).get(0).idempotencyKey);
+    }
+
+    @Test
+    public void testDrain_OneUnreadableEntry_OthersKept() throws IOException {
+        final String lover = "{\"email\":\"lover@example.com\",\"username\":\"lover\"}";
+        final String lovee = "{\"email\":\"\",\"username\":\"lovee\"}";
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(("["
+                + "{\"idempotency_key\":\"key-1\",\"created_at\":1450000000000,\"lover\":" + lover + ",\"lovee\":" + lovee + "},"
+                + "{\"idempotency_key\":\"key-2\",\"reason\":\"thanks\",\"created_at\":1450000000000,\"lover\":" + lover + ",\"lovee\":" + lovee + "}"
+                + "]").getBytes("UTF-8"));
+        outputStream.close();
+
+        final LoveOutbox restartedOutbox = new LoveOutbox(file, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        assertEquals(1, restartedOutbox.getPendingCount());
+
+        final ArgumentCaptor<LoveMonsterClient.BatchHandler> batchHandlerArgumentCaptor = ArgumentCaptor.forClass(LoveMonsterClient.BatchHandler.class);
+        restartedOutbox.drain(mockClient);
+        assertEquals("key-2", verifyBatches(1, batchHandlerArgumentCaptor).get(0).idempotencyKey);
+    }
+
+    @Test
+    public void testDrain_CorruptFile_TreatedAsEmpty() throws IOException {
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write("[{\"reason\":".getBytes("UTF-8"));
+        outputStream.close();
+
+        final LoveOutbox corruptOutbox = new LoveOutbox(file, DIRECT_EXECUTOR, DIRECT_EXECUTOR);
+        corruptOutbox.drain(mockClient);
+
+        assertEquals(0, corruptOutbox.getPendingCount());
+        verify(mockClient, never()).makeLoves(anyListOf(Love.class), any(LoveMonsterClient.BatchHandler.class));
+
+        corruptOutbox.enqueue(loves(1));
+        final File unreadableFile = new File(file.getPath() + ".unreadable");
+        assertTrue("should move the unreadable file aside", unreadableFile.exists());
+        assertEquals(11, unreadableFile.length());
+        assertEquals(1, new LoveOutbox(file, DIRECT_EXECUTOR, DIRECT_EXECUTOR).getPendingCount());
+    }
+
+    @Test
+    public void testDrain_ThroughAsyncHttpClientTransport_SendsEveryLove() throws Exception {
+        final List<String> requestingThreads = Collections.synchronizedList(new ArrayList<String>());
+        final AsyncHttpClient fakeServer = new AsyncHttpClient() {
+            @Override
+            protected AsyncHttpRequest newAsyncHttpRequest(final DefaultHttpClient client, final HttpContext httpContext, final HttpUriRequest uriRequest, final String contentType, final ResponseHandlerInterface responseHandler, final Context context) {
+                requestingThreads.add(Thread.currentThread().getName());
+                return new AsyncHttpRequest(client, httpContext, uriRequest, responseHandler) {
+                    @Override
+                    public void run() {
+                        ((JsonHttpResponseHandler) responseHandler).onSuccess(200, new Header[0], new JSONArray());
+                    }
+                };
+            }
+        };
+        final RequestDispatcher dispatcher = RequestDispatcher.create(2, 1);
+        final ExecutorService outboxExecutor = Executors.newSingleThreadExecutor();
+        final ExecutorService mainThreadExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(runnable, "main");
+            }
+        });
+
+        try {
+            final LoveMonsterClient client = new LoveMonsterClient(new ResponseParser("example.com/%s.png"), fakeServer, "example.com", true, dispatcher);
+            final LoveOutbox threadedOutbox = new LoveOutbox(file, outboxExecutor, mainThreadExecutor);
+            threadedOutbox.enqueue(loves(25));
+            threadedOutbox.drain(client);
+
+            final long deadline = System.currentTimeMillis() + 10000;
+            int pendingCount;
+            do {
+                Thread.sleep(10);
+                pendingCount = outboxExecutor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return threadedOutbox.getPendingCount();
+                    }
+                }).get();
+            } while (pendingCount > 0 && System.currentTimeMillis() < deadline);
+
+            assertEquals(0, pendingCount);
+            assertEquals(25, requestingThreads.size());
+            assertEquals("batches should be sent from the main thread", "main", requestingThreads.get(0));
+        } finally {
+            outboxExecutor.shutdownNow();
+            mainThreadExecutor.shutdownNow();
+            dispatcher.getNetworkExecutor().shutdownNow();
+        }
+    }
+}
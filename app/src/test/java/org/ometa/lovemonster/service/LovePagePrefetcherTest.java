@@ -0,0 +1,148 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.models.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class LovePagePrefetcherTest {
+
+    /**
+     * Records the handler for each loaded page, so the test can complete them.
+     */
+    static class RecordingPageLoader implements LovePagePrefetcher.PageLoader {
+        final Map<Integer, LoveMonsterClient.LoveListResponseHandler> handlers = new HashMap<>();
+        final List<Integer> loadedPages = new ArrayList<>();
+
+        @Override
+        public void loadPage(final int page, @NonNull final LoveMonsterClient.LoveListResponseHandler responseHandler) {
+            loadedPages.add(page);
+            handlers.put(page, responseHandler);
+        }
+    }
+
+    @Mock
+    LoveMonsterClient.LoveListResponseHandler mockPageOneHandler;
+    @Mock
+    LoveMonsterClient.LoveListResponseHandler mockPageTwoHandler;
+
+    RecordingPageLoader pageLoader;
+    LovePagePrefetcher prefetcher;
+    List<Love> pageOne;
+    List<Love> pageTwo;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        pageLoader = new RecordingPageLoader();
+        prefetcher = new LovePagePrefetcher(pageLoader);
+        pageOne = new ArrayList<>();
+        pageOne.add(new Love("thanks", new User("lover@example.com", "lover"), new User("lovee@example.com", "lovee")));
+        pageTwo = new ArrayList<>();
+        pageTwo.add(new Love("thanks", new User("lover@example.com", "lover"), new User("lovee@example.com", "lovee")));
+    }
+
+    @Test
+    public void testRequestPage_PrefetchesNextPageOnceShown() {
+        prefetcher.requestPage(1, mockPageOneHandler);
+        assertEquals("only the requested page should be loaded", 1, pageLoader.loadedPages.size());
+
+        pageLoader.handlers.get(1).onSuccess(pageOne, 3);
+
+        verify(mockPageOneHandler).onSuccess(pageOne, 3);
+        assertEquals("next page should be prefetched", Integer.valueOf(2), pageLoader.loadedPages.get(1));
+        assertEquals(1, prefetcher.getBufferedPageCount());
+    }
+
+    @Test
+    public void testRequestPage_HandsOverCompletedPrefetch() {
+        prefetcher.requestPage(1, mockPageOneHandler);
+        pageLoader.handlers.get(1).onSuccess(pageOne, 3);
+        pageLoader.handlers.get(2).onSuccess(pageTwo, 3);
+
+        prefetcher.requestPage(2, mockPageTwoHandler);
+
+        verify(mockPageTwoHandler).onSuccess(pageTwo, 3);
+        assertEquals("page 2 should not be loaded again, and page 3 should be prefetched", 3, pageLoader.loadedPages.size());
+        assertEquals(Integer.valueOf(3), pageLoader.loadedPages.get(2));
+    }
+
+    @Test
+    public void testRequestPage_JoinsInFlightPrefetch() {
+        prefetcher.requestPage(1, mockPageOneHandler);
+        pageLoader.handlers.get(1).onSuccess(pageOne, 3);
+
+        prefetcher.requestPage(2, mockPageTwoHandler);
+        verify(mockPageTwoHandler, never()).onSuccess(pageTwo, 3);
+        assertEquals("page 2 should not be loaded again", 2, pageLoader.loadedPages.size());
+
+        pageLoader.handlers.get(2).onSuccess(pageTwo, 3);
+        verify(mockPageTwoHandler).onSuccess(pageTwo, 3);
+        assertEquals(Integer.valueOf(3), pageLoader.loadedPages.get(2));
+    }
+
+    @Test
+    public void testRequestPage_DoesNotPrefetchPastTotalPages() {
+        prefetcher.requestPage(1, mockPageOneHandler);
+        pageLoader.handlers.get(1).onSuccess(pageOne, 1);
+
+        assertEquals(1, pageLoader.loadedPages.size());
+        assertEquals(0, prefetcher.getBufferedPageCount());
+    }
+
+    @Test
+    public void testRequestPage_FailedPrefetchIsLoadedAgain() {
+        prefetcher.requestPage(1, mockPageOneHandler);
+        pageLoader.handlers.get(1).onSuccess(pageOne, 3);
+        pageLoader.handlers.get(2).onFail();
+
+        assertEquals(0, prefetcher.getBufferedPageCount());
+
+        prefetcher.requestPage(2, mockPageTwoHandler);
+        assertEquals("page 2 should be loaded again", 3, pageLoader.loadedPages.size());
+        assertEquals(Integer.valueOf(2), pageLoader.loadedPages.get(2));
+
+        pageLoader.handlers.get(2).onSuccess(pageTwo, 3);
+        verify(mockPageTwoHandler).onSuccess(pageTwo, 3);
+    }
+
+    @Test
+    public void testRequestPage_FailedPrefetchWithWaitingHandlerFails() {
+        prefetcher.requestPage(1, mockPageOneHandler);
+        pageLoader.handlers.get(1).onSuccess(pageOne, 3);
+        prefetcher.requestPage(2, mockPageTwoHandler);
+
+        pageLoader.handlers.get(2).onFail();
+
+        verify(mockPageTwoHandler).onFail();
+    }
+
+    @Test
+    public void testClear_DiscardsPrefetchedPages() {
+        prefetcher.requestPage(1, mockPageOneHandler);
+        pageLoader.handlers.get(1).onSuccess(pageOne, 3);
+        final LoveMonsterClient.LoveListResponseHandler staleHandler = pageLoader.handlers.get(2);
+
+        prefetcher.clear();
+        staleHandler.onSuccess(pageTwo, 3);
+        assertEquals(0, prefetcher.getBufferedPageCount());
+
+        prefetcher.requestPage(2, mockPageTwoHandler);
+        assertEquals("page 2 should be loaded again after clearing", 3, pageLoader.loadedPages.size());
+        assertNotSame(staleHandler, pageLoader.handlers.get(2));
+    }
+}
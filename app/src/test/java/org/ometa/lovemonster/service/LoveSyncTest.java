@@ -0,0 +1,236 @@
+package org.ometa.lovemonster.service;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.models.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class LoveSyncTest {
+
+    private static final int PAGE_SIZE = 3;
+    private static final int MAX_PAGES = 3;
+
+    /**
+     * Serves pages of {@link #PAGE_SIZE} loves from a list, newest first, answering immediately
+     * unless told to hold the pages back.
+     */
+    static class FakeServer implements LovePageLoader {
+        final List<Love> loves = new ArrayList<>();
+        final List<Integer> loadedPages = new ArrayList<>();
+        final List<Cancellable> requests = new ArrayList<>();
+        LoveMonsterClient.LoveListResponseHandler heldHandler;
+        boolean holdPages = false;
+
+        @NonNull
+        @Override
+        public Cancellable loadPage(final int page, @NonNull final LoveMonsterClient.LoveListResponseHandler responseHandler) {
+            loadedPages.add(page);
+            final Cancellable request = new RequestGroupTest.FakeRequest();
+            requests.add(request);
+            if (holdPages) {
+                heldHandler = responseHandler;
+            } else {
+                final int totalPages = (loves.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+                final int from = Math.min((page - 1) * PAGE_SIZE, loves.size());
+                final int to = Math.min(page * PAGE_SIZE, loves.size());
+                responseHandler.onSuccess(new ArrayList<>(loves.subList(from, to)), totalPages);
+            }
+            return request;
+        }
+    }
+
+    @Mock
+    LoveMonsterClient.NewLovesResponseHandler mockResponseHandler;
+
+    FakeServer server;
+    long nextCreatedAtMillis;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        server = new FakeServer();
+        nextCreatedAtMillis = 1450000000000L;
+    }
+
+    /**
+     * Adds the specified number of loves to the top of the server's list, newest first, returning them.
+     */
+    private List<Love> postLoves(final int count) {
+        final List<Love> posted = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final long createdAtMillis = nextCreatedAtMillis;
+            nextCreatedAtMillis += 1000;
+            posted.add(0, love("love " + nextCreatedAtMillis, createdAtMillis));
+        }
+        server.loves.addAll(0, posted);
+        return posted;
+    }
+
+    private static Love love(final String reason, final long createdAtMillis) {
+        return love(reason, 0, createdAtMillis);
+    }
+
+    private static Love love(final String reason, final long id, final long createdAtMillis) {
+        return new Love(reason, null, false, new User("lover@example.com", "lover"), new User("lovee@example.com", "lovee"), id, null, createdAtMillis);
+    }
+
+    private LoveSync startSync(final Love newestKnownLove) {
+        final LoveSync sync = new LoveSync(newestKnownLove, MAX_PAGES, server, mockResponseHandler);
+        sync.start();
+        return sync;
+    }
+
+    @Test
+    public void testStart_NoNewLoves_LoadsOnePage() {
+        final Love newestKnownLove = postLoves(20).get(0);
+
+        final LoveSync sync = startSync(newestKnownLove);
+
+        assertEquals(Arrays.asList(1), server.loadedPages);
+        verify(mockResponseHandler).onSuccess(new ArrayList<Love>(), true);
+        assertTrue(sync.isDone());
+    }
+
+    @Test
+    public void testStart_NewLovesWithinFirstPage_ReturnsOnlyNewLoves() {
+        final Love newestKnownLove = postLoves(20).get(0);
+        final List<Love> newLoves = postLoves(2);
+
+        startSync(newestKnownLove);
+
+        assertEquals(Arrays.asList(1), server.loadedPages);
+        verify(mockResponseHandler).onSuccess(newLoves, true);
+    }
+
+    @Test
+    public void testStart_NewLovesAcrossPages_PagesUntilKnownLove() {
+        final Love newestKnownLove = postLoves(20).get(0);
+        final List<Love> newLoves = postLoves(7);
+
+        startSync(newestKnownLove);
+
+        assertEquals("should stop at the page holding the known love", Arrays.asList(1, 2, 3), server.loadedPages);
+        verify(mockResponseHandler).onSuccess(newLoves, true);
+    }
+
+    @Test
+    public void testStart_TooManyNewLoves_ReportsIncomplete() {
+        final Love newestKnownLove = postLoves(20).get(0);
+        final List<Love> newLoves = postLoves(MAX_PAGES * PAGE_SIZE + 1);
+
+        startSync(newestKnownLove);
+
+        assertEquals(Arrays.asList(1, 2, 3), server.loadedPages);
+        verify(mockResponseHandler).onSuccess(newLoves.subList(0, MAX_PAGES * PAGE_SIZE), false);
+    }
+
+    @Test
+    public void testStart_KnownLoveDeleted_StopsAtOlderLove() {
+        final List<Love> knownLoves = postLoves(20);
+        final List<Love> newLoves = postLoves(2);
+        server.loves.remove(knownLoves.get(0));
+
+        startSync(knownLoves.get(0));
+
+        verify(mockResponseHandler).onSuccess(newLoves, true);
+    }
+
+    @Test
+    public void testStart_NewLoveInSameMillisecond_IsNew() {
+        final Love newestKnownLove = postLoves(20).get(0);
+        final Love sameMillisecondLove = new Love("another", null, false, new User("other@example.com", "other"), new User("lovee@example.com", "lovee"), 0, null, newestKnownLove.createdAtMillis);
+        server.loves.add(0, sameMillisecondLove);
+
+        startSync(newestKnownLove);
+
+        verify(mockResponseHandler).onSuccess(Arrays.asList(sameMillisecondLove), true);
+    }
+
+    @Test
+    public void testStart_SameLoveAgainInSameMillisecond_NewIdIsNew() {
+        final Love newestKnownLove = love("thanks", 10, nextCreatedAtMillis);
+        final Love sameLoveAgain = love("thanks", 11, nextCreatedAtMillis);
+        server.loves.addAll(Arrays.asList(sameLoveAgain, newestKnownLove, love("thanks", 9, nextCreatedAtMillis)));
+
+        startSync(newestKnownLove);
+
+        verify(mockResponseHandler).onSuccess(Arrays.asList(sameLoveAgain), true);
+    }
+
+    @Test
+    public void testStart_KnownLoveDeletedInSameMillisecond_StopsAtLowerId() {
+        final Love newestKnownLove = love("thanks", 10, nextCreatedAtMillis);
+        final Love newLove = love("welcome", 11, nextCreatedAtMillis);
+        server.loves.addAll(Arrays.asList(newLove, love("cheers", 9, nextCreatedAtMillis)));
+
+        startSync(newestKnownLove);
+
+        verify(mockResponseHandler).onSuccess(Arrays.asList(newLove), true);
+    }
+
+    @Test
+    public void testStart_ReachesLastPage_ReportsComplete() {
+        final Love newestKnownLove = love("old", 0);
+        final List<Love> newLoves = postLoves(4);
+
+        startSync(newestKnownLove);
+
+        assertEquals(Arrays.asList(1, 2), server.loadedPages);
+        verify(mockResponseHandler).onSuccess(newLoves, true);
+    }
+
+    @Test
+    public void testStart_PageFails_InvokesOnFailOnly() {
+        final Love newestKnownLove = postLoves(20).get(0);
+        server.holdPages = true;
+
+        startSync(newestKnownLove);
+        server.heldHandler.onFail();
+
+        verify(mockResponseHandler).onFail();
+        verify(mockResponseHandler, never()).onSuccess(anyListOf(Love.class), anyBoolean());
+    }
+
+    @Test
+    public void testCancel_CancelsPageInFlightAndStopsCallbacks() {
+        final Love newestKnownLove = postLoves(20).get(0);
+        postLoves(1);
+        server.holdPages = true;
+
+        final LoveSync sync = startSync(newestKnownLove);
+        sync.cancel();
+        server.heldHandler.onSuccess(server.loves.subList(0, PAGE_SIZE), 7);
+
+        assertTrue(sync.isCancelled());
+        assertTrue(server.requests.get(0).isCancelled());
+        assertEquals(Arrays.asList(1), server.loadedPages);
+        verify(mockResponseHandler, never()).onSuccess(anyListOf(Love.class), anyBoolean());
+    }
+
+    @Test
+    public void testCancel_AfterCompletion_DoesNothing() {
+        final Love newestKnownLove = postLoves(20).get(0);
+
+        final LoveSync sync = startSync(newestKnownLove);
+        sync.cancel();
+
+        assertFalse(sync.isCancelled());
+        assertFalse(server.requests.get(0).isCancelled());
+    }
+}
@@ -0,0 +1,94 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestGroupTest {
+
+    /**
+     * Request which only completes when the test says so.
+     */
+    static class FakeRequest implements Cancellable {
+        int cancelCount = 0;
+        boolean completed = false;
+
+        @Override
+        public void cancel() {
+            cancelCount++;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelCount > 0;
+        }
+
+        @Override
+        public boolean isDone() {
+            return completed || isCancelled();
+        }
+    }
+
+    RequestGroup requestGroup;
+
+    @Before
+    public void setup() {
+        requestGroup = new RequestGroup();
+    }
+
+    @Test
+    public void testAdd_ReturnsRequest() {
+        final FakeRequest request = new FakeRequest();
+
+        assertSame(request, requestGroup.add(request));
+        assertEquals(1, requestGroup.getOutstandingCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdd_Null_ThrowsException() {
+        requestGroup.add(null);
+    }
+
+    @Test
+    public void testCancelAll_CancelsOutstandingRequestsOnly() {
+        final FakeRequest outstandingRequest = new FakeRequest();
+        final FakeRequest completedRequest = new FakeRequest();
+        requestGroup.add(outstandingRequest);
+        requestGroup.add(completedRequest);
+        completedRequest.completed = true;
+
+        assertEquals(1, requestGroup.cancelAll());
+
+        assertTrue(outstandingRequest.isCancelled());
+        assertFalse(completedRequest.isCancelled());
+        assertEquals(0, requestGroup.getOutstandingCount());
+    }
+
+    @Test
+    public void testCancelAll_Twice_CancelsOnce() {
+        final FakeRequest request = new FakeRequest();
+        requestGroup.add(request);
+
+        requestGroup.cancelAll();
+
+        assertEquals(0, requestGroup.cancelAll());
+        assertEquals(1, request.cancelCount);
+    }
+
+    @Test
+    public void testAdd_DropsCompletedRequests() {
+        for (int i = 0; i < 100; i++) {
+            final FakeRequest request = new FakeRequest();
+            requestGroup.add(request);
+            request.completed = true;
+        }
+
+        requestGroup.add(new FakeRequest());
+
+        assertEquals(1, requestGroup.getOutstandingCount());
+    }
+}
@@ -0,0 +1,132 @@
+package org.ometa.lovemonster.service;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.ometa.lovemonster.Benchmarks;
+import org.ometa.lovemonster.Fixtures;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares parse time and allocations of the {@link JSONObject} based parser against the streaming
+ * parser, for the fixture pages and a synthetic large page.
+ */
+public class ResponseParserBenchmarkTest {
+
+    private static final int ITERATIONS = 200;
+
+    ResponseParser responseParser;
+
+    @Before
+    public void setUp() {
+        responseParser = new ResponseParser("example.com/%s.png");
+    }
+
+    /**
+     * Builds a page with the loves from the standard fixture repeated the specified number of times.
+     */
+    private String largePage(final int copies) throws JSONException {
+        final JSONObject fixture = Fixtures.getJsonObject("v1_loves.json");
+        final JSONArray fixtureLoves = fixture.getJSONArray("data");
+        final JSONArray loves = new JSONArray();
+
+        for (int copy = 0; copy < copies; copy++) {
+            for (int i = 0; i < fixtureLoves.length(); i++) {
+                loves.put(fixtureLoves.get(i));
+            }
+        }
+
+        return fixture.put("data", loves).toString();
+    }
+
+    private void compare(final String name, final String body, final int expectedLoves, final int iterations) throws Exception {
+        assertEquals("dom parser should parse all loves", expectedLoves, responseParser.parseLoveList(new JSONObject(body)).size());
+        assertEquals("streaming parser should parse all loves", expectedLoves, responseParser.parseLoveListPage(new StringReader(body)).loves.size());
+
+        Benchmarks.run(name + ".dom", iterations, iterations, new Benchmarks.Operation() {
+            @Override
+            public void run() throws Exception {
+                responseParser.parseLoveList(new JSONObject(body));
+            }
+        });
+
+        Benchmarks.run(name + ".streaming", iterations, iterations, new Benchmarks.Operation() {
+            @Override
+            public void run() throws Exception {
+                responseParser.parseLoveListPage(new StringReader(body));
+            }
+        });
+    }
+
+    @Test
+    public void benchmarkParseLoveList_FullFixture() throws Exception {
+        compare("v1_loves", Fixtures.getString("v1_loves.json"), 25, ITERATIONS);
+    }
+
+    @Test
+    public void benchmarkParseLoveList_BlankFieldsFixture() throws Exception {
+        compare("v1_loves-blank_fields", Fixtures.getString("v1_loves-blank_fields.json"), 2, ITERATIONS);
+    }
+
+    @Test
+    public void benchmarkParseLoveList_MissingFieldsFixture() throws Exception {
+        compare("v1_loves-missing_fields", Fixtures.getString("v1_loves-missing_fields.json"), 0, ITERATIONS);
+    }
+
+    @Test
+    public void benchmarkParseLoveList_LargePage() throws Exception {
+        compare("v1_loves-x20", largePage(20), 500, ITERATIONS / 10);
+    }
+
+    /**
+     * Compares parsing a bulk import of 5000 loves on one thread against parsing it in parallel
+     * with increasing numbers of threads. Every configuration is warmed up, in turn, before any is
+     * measured, so that no configuration is measured before the parser has been compiled.
+     */
+    @Test
+    public void benchmarkParseLoveList_Parallel() throws Exception {
+        final JSONObject response = new JSONObject(largePage(200));
+        final int cores = Runtime.getRuntime().availableProcessors();
+
+        final List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads <= Math.max(8, cores); threads *= 2) {
+            threadCounts.add(threads);
+        }
+        final List<ExecutorService> executors = new ArrayList<>();
+        try {
+            for (final int threads : threadCounts) {
+                executors.add(Executors.newFixedThreadPool(threads));
+            }
+
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < threadCounts.size(); i++) {
+                    responseParser.setParallelParse(executors.get(i), threadCounts.get(i));
+                    assertEquals("should parse all loves", 5000, responseParser.parseLoveList(response).size());
+                }
+            }
+
+            for (int i = 0; i < threadCounts.size(); i++) {
+                responseParser.setParallelParse(executors.get(i), threadCounts.get(i));
+                Benchmarks.run("v1_loves-x200.parallel" + threadCounts.get(i) + ".cores" + cores, 2, 10, new Benchmarks.Operation() {
+                    @Override
+                    public void run() throws Exception {
+                        responseParser.parseLoveList(response);
+                    }
+                });
+            }
+        } finally {
+            for (final ExecutorService executor : executors) {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.ometa.lovemonster.service;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Before;
@@ -7,14 +8,23 @@ import org.junit.Test;
 import org.ometa.lovemonster.Fixtures;
 import org.ometa.lovemonster.models.Love;
 import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.models.UserIdentityMap;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ResponseParserTest {
 
@@ -58,9 +68,10 @@ public class ResponseParserTest {
 
         final Love fullyFilledOutLove = loves.get(0);
         assertEquals("should set the reason", "organizing all the move-related stuff", fullyFilledOutLove.reason);
+        assertEquals("should set the id", 11642, fullyFilledOutLove.id);
         assertEquals("should set the message", "this is a fake message", fullyFilledOutLove.message);
         assertTrue("should be a private message", fullyFilledOutLove.isPrivate);
-        assertEquals("should set created at", Fixtures.getDatetime(2015, 11, 18, 15, 55, 46), fullyFilledOutLove.createdAt);
+        assertEquals("should set created at", Fixtures.getDatetime(2015, 11, 18, 15, 55, 46).getTimeInMillis(), fullyFilledOutLove.createdAtMillis);
         assertEquals("should set lovee email", "jjenkins@groupon.com", fullyFilledOutLove.lovee.email);
         assertEquals("should set lovee name", "Jonathan Jenkins", fullyFilledOutLove.lovee.name);
         assertEquals("should set lovee username", "jjenkins", fullyFilledOutLove.lovee.username);
@@ -74,7 +85,7 @@ public class ResponseParserTest {
         assertEquals("should set the reason", "New Yooooooooooooork", minimallyFilledOutLove.reason);
         assertNull("should set the message to null when missing", minimallyFilledOutLove.message);
         assertFalse("should not be a private message", minimallyFilledOutLove.isPrivate);
-        assertEquals("should set created at", Fixtures.getDatetime(2015, 11, 13, 15, 17, 2), minimallyFilledOutLove.createdAt);
+        assertEquals("should set created at", Fixtures.getDatetime(2015, 11, 13, 15, 17, 2).getTimeInMillis(), minimallyFilledOutLove.createdAtMillis);
         assertEquals("should set lovee email", "aderly@groupon.com", minimallyFilledOutLove.lovee.email);
         assertNull("should set lovee nam to null when missinge", minimallyFilledOutLove.lovee.name);
         assertEquals("should set lovee username", "aderly", minimallyFilledOutLove.lovee.username);
@@ -136,4 +147,190 @@ public class ResponseParserTest {
         assertEquals("should set user username", "anthony", user.username);
         assertEquals("should set user profile image url", "example.com/anthony.png", user.profileImageUrl);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParseLoveListPage_EmptyBody_ReturnsEmptyPage() throws IOException {
+        final LoveListPage page = responseParser.parseLoveListPage(new StringReader(""));
+
+        assertTrue("loves should be empty", page.loves.isEmpty());
+        assertEquals("should default total pages", 0, page.totalPages);
+    }
+
+    @Test
+    public void testParseLoveListPage_NoDataSection_ReturnsEmptyPage() throws IOException {
+        final LoveListPage page = responseParser.parseLoveListPage(new StringReader("{\"meta\":{\"total_pages\":3}}"));
+
+        assertTrue("loves should be empty", page.loves.isEmpty());
+        assertEquals("should set total pages", 3, page.totalPages);
+    }
+
+    @Test
+    public void testParseLoveListPage_NonNumericTotalPages_DefaultsToZero() throws IOException {
+        for (final String totalPages : new String[]{"\"many\"", "true", "null", "[3]", "{\"pages\":3}"}) {
+            final LoveListPage page = responseParser.parseLoveListPage(new StringReader("{\"meta\":{\"total_pages\":" + totalPages + "}}"));
+
+            assertEquals("should default total pages for " + totalPages, 0, page.totalPages);
+        }
+    }
+
+    @Test
+    public void testParseLoveListPage_MissingFields_SkipsLove() throws IOException {
+        final LoveListPage page = responseParser.parseLoveListPage(Fixtures.getReader("v1_loves-missing_fields.json"));
+
+        assertTrue("loves should be empty", page.loves.isEmpty());
+        assertEquals("should set total pages", 444, page.totalPages);
+    }
+
+    @Test
+    public void testParseLoveListPage_BlankValues_SetsAsNull() throws IOException {
+        final LoveListPage page = responseParser.parseLoveListPage(Fixtures.getReader("v1_loves-blank_fields.json"));
+
+        assertEquals("should have 2 loves", 2, page.loves.size());
+        assertNull("empty string message should be set to null", page.loves.get(0).message);
+        assertNull("blank string message should be set to null", page.loves.get(1).message);
+    }
+
+    @Test
+    public void testParseLoveListPage_FullResponse_MatchesJsonObjectParser() throws IOException {
+        final List<Love> expectedLoves = responseParser.parseLoveList(Fixtures.getJsonObject("v1_loves.json"));
+        final LoveListPage page = responseParser.parseLoveListPage(Fixtures.getReader("v1_loves.json"));
+
+        assertEquals("should set total pages", 444, page.totalPages);
+        assertEquals("should have the same number of loves", expectedLoves.size(), page.loves.size());
+
+        for (int i = 0; i < expectedLoves.size(); i++) {
+            final Love expected = expectedLoves.get(i);
+            final Love actual = page.loves.get(i);
+
+            assertEquals("should set the reason", expected.reason, actual.reason);
+            assertEquals("should set the id", expected.id, actual.id);
+            assertEquals("should set the message", expected.message, actual.message);
+            assertEquals("should set private", expected.isPrivate, actual.isPrivate);
+            assertEquals("should set created at", expected.createdAtMillis, actual.createdAtMillis);
+            assertEquals("should set lover", expected.lover.username, actual.lover.username);
+            assertEquals("should set lover email", expected.lover.email, actual.lover.email);
+            assertEquals("should set lover name", expected.lover.name, actual.lover.name);
+            assertEquals("should set lovee", expected.lovee.username, actual.lovee.username);
+            assertEquals("should set lovee profile image url", expected.lovee.profileImageUrl, actual.lovee.profileImageUrl);
+        }
+    }
+
+    @Test
+    public void testParseLoveListPage_EscapedAndUnknownValues_ParsesLove() throws IOException {
+        final String json = "{\"extra\":[1,{\"a\":[true,null]}],\"data\":[{\"reason\":\"say \\\"hi\\\" \\u2764\","
+                + "\"tags\":{\"nested\":[1,2]},\"private_message\":false,\"created_at\":\"2015-11-18T15:55:46Z\","
+                + "\"user_to\":{\"email\":\"to@example.com\",\"username\":\"to\"},"
+                + "\"user_from\":{\"email\":\"from@example.com\",\"username\":\"from\",\"id\":7}}],\"meta\":{\"total_pages\":\"2\"}}";
+
+        final LoveListPage page = responseParser.parseLoveListPage(new StringReader(json));
+
+        assertEquals("should have 1 love", 1, page.loves.size());
+        assertEquals("should unescape the reason", "say \"hi\" \u2764", page.loves.get(0).reason);
+        assertEquals("should coerce numeric total pages, as optInt does", 2, page.totalPages);
+    }
+
+    @Test
+    public void testParseLoveList_UserCache_ReusesUsersAcrossLoves() {
+        final UserCache userCache = new UserCache(100, 1024 * 1024, 4);
+        responseParser = new ResponseParser(userCache, "example.com/%s.png");
+
+        final List<Love> loves = responseParser.parseLoveList(Fixtures.getJsonObject("v1_loves.json"));
+
+        assertEquals("should cache each distinct user", 36, userCache.size());
+        assertEquals("should miss each distinct user once", 36, userCache.missCount());
+        assertEquals("should reuse users seen earlier in the page", 14, userCache.hitCount());
+
+        final List<Love> lovesAgain = responseParser.parseLoveList(Fixtures.getJsonObject("v1_loves.json"));
+
+        assertSame(loves.get(0).lover, lovesAgain.get(0).lover);
+        assertEquals("should reuse every user", 36, userCache.missCount());
+    }
+
+    @Test
+    public void testParseLoveList_WithoutUserCache_ReusesLiveUsers() {
+        final List<Love> loves = responseParser.parseLoveList(Fixtures.getJsonObject("v1_loves.json"));
+        final List<Love> lovesAgain = responseParser.parseLoveList(Fixtures.getJsonObject("v1_loves.json"));
+
+        assertSame(loves.get(0).lover, lovesAgain.get(0).lover);
+    }
+
+    @Test
+    public void testParseLoveList_SeparateParsers_ShareLiveUsers() {
+        final UserIdentityMap userIdentityMap = new UserIdentityMap(4);
+        final ResponseParser firstParser = new ResponseParser(new UserCache(100, 1024 * 1024, 4), userIdentityMap, "example.com/%s.png");
+        final ResponseParser secondParser = new ResponseParser(new UserCache(100, 1024 * 1024, 4), userIdentityMap, "example.com/%s.png");
+
+        final List<Love> loves = firstParser.parseLoveList(Fixtures.getJsonObject("v1_loves.json"));
+        final List<Love> lovesAgain = secondParser.parseLoveList(Fixtures.getJsonObject("v1_loves.json"));
+
+        assertEquals("should hold each distinct user once", 36, userIdentityMap.size());
+        for (int i = 0; i < loves.size(); i++) {
+            assertSame(loves.get(i).lover, lovesAgain.get(i).lover);
+            assertSame(loves.get(i).lovee, lovesAgain.get(i).lovee);
+        }
+    }
+
+    /**
+     * Builds a response with the loves from the standard fixture repeated the specified number of
+     * times.
+     */
+    static JSONObject repeatedLoves(final int copies) throws JSONException {
+        final JSONObject fixture = Fixtures.getJsonObject("v1_loves.json");
+        final JSONArray fixtureLoves = fixture.getJSONArray("data");
+        final JSONArray loves = new JSONArray();
+
+        for (int copy = 0; copy < copies; copy++) {
+            for (int i = 0; i < fixtureLoves.length(); i++) {
+                loves.put(fixtureLoves.get(i));
+            }
+        }
+
+        return fixture.put("data", loves);
+    }
+
+    @Test
+    public void testParseLoveList_Parallel_KeepsOrderAndSharesUsers() throws Exception {
+        final JSONObject response = repeatedLoves(40);
+        final List<Love> expected = responseParser.parseLoveList(response);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            responseParser = new ResponseParser(new UserCache(100, 1024 * 1024, 4), "example.com/%s.png");
+            responseParser.setParallelParse(executor, 4);
+
+            final List<Love> loves = responseParser.parseLoveList(response);
+
+            assertEquals(1000, loves.size());
+            for (int i = 0; i < loves.size(); i++) {
+                assertEquals(expected.get(i).id, loves.get(i).id);
+                assertEquals(expected.get(i).reason, loves.get(i).reason);
+                assertSame("should share one instance per user across threads", loves.get(i % 25).lover, loves.get(i).lover);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParseLoveList_ParallelExecutorNeverRuns_ParsesOnCallingThread() throws JSONException {
+        final List<Runnable> neverRun = new ArrayList<>();
+        responseParser.setParallelParse(new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                neverRun.add(runnable);
+            }
+        }, 4);
+
+        assertEquals(1000, responseParser.parseLoveList(repeatedLoves(40)).size());
+        assertEquals(3, neverRun.size());
+    }
+
+    @Test
+    public void testParseLoveListPage_HtmlResponse_ThrowsMalformedJson() throws IOException {
+        try {
+            responseParser.parseLoveListPage(new StringReader("<html><body>login</body></html>"));
+            fail("should throw for non-json content");
+        } catch (final android.util.MalformedJsonException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cz.msebera.android.httpclient.HttpResponse;
+import cz.msebera.android.httpclient.HttpVersion;
+import cz.msebera.android.httpclient.entity.ContentType;
+import cz.msebera.android.httpclient.entity.StringEntity;
+import cz.msebera.android.httpclient.message.BasicHttpResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SessionStateTest {
+
+    SessionState sessionState;
+    int expiredCount;
+    List<String> resent;
+
+    @Before
+    public void setup() {
+        sessionState = new SessionState();
+        expiredCount = 0;
+        resent = new ArrayList<>();
+        sessionState.setListener(new SessionState.Listener() {
+            @Override
+            public void onSessionExpired() {
+                expiredCount++;
+            }
+        });
+    }
+
+    private Runnable resend(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                resent.add(name);
+            }
+        };
+    }
+
+    private static HttpResponse response(final int statusCode, final ContentType contentType) {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, statusCode, "reason");
+        if (contentType != null) {
+            response.setEntity(new StringEntity("body", contentType));
+        }
+        return response;
+    }
+
+    @Test
+    public void testIsLoginPage_HtmlOrRedirect_True() {
+        assertTrue(SessionState.isLoginPage(response(200, ContentType.TEXT_HTML)));
+        assertTrue(SessionState.isLoginPage(response(200, ContentType.create("TEXT/HTML", "UTF-8"))));
+
+        final HttpResponse redirect = response(302, null);
+        redirect.addHeader("Location", "https://example.okta.com/login");
+        assertTrue(SessionState.isLoginPage(redirect));
+    }
+
+    @Test
+    public void testIsLoginPage_JsonErrorOrUnknownType_False() {
+        assertFalse(SessionState.isLoginPage(response(200, ContentType.APPLICATION_JSON)));
+        assertFalse(SessionState.isLoginPage(response(500, ContentType.TEXT_HTML)));
+        assertFalse(SessionState.isLoginPage(response(304, null)));
+        assertFalse(SessionState.isLoginPage(response(200, null)));
+    }
+
+    @Test
+    public void testExpire_SeveralRequests_ListenerToldOnce() {
+        assertTrue(sessionState.expire(resend("first")));
+        assertTrue(sessionState.expire(resend("second")));
+
+        assertTrue(sessionState.isExpired());
+        assertEquals(1, expiredCount);
+        assertTrue(resent.isEmpty());
+    }
+
+    @Test
+    public void testRenew_SendsHeldRequestsAgainInOrder() {
+        assertFalse("should not hold before expiring", sessionState.holdIfExpired(resend("early")));
+        sessionState.expire(resend("first"));
+        assertTrue(sessionState.holdIfExpired(resend("second")));
+
+        sessionState.renew();
+
+        assertFalse(sessionState.isExpired());
+        assertEquals(Arrays.asList("first", "second"), resent);
+        assertFalse(sessionState.holdIfExpired(resend("third")));
+    }
+
+    @Test
+    public void testRelease_NotSentAgain() {
+        final Runnable cancelled = resend("cancelled");
+        sessionState.expire(resend("first"));
+        sessionState.holdIfExpired(cancelled);
+
+        sessionState.release(cancelled);
+        sessionState.renew();
+
+        assertEquals(Arrays.asList("first"), resent);
+    }
+
+    @Test
+    public void testExpire_NoListener_NotHeld() {
+        sessionState.setListener(null);
+
+        assertFalse(sessionState.expire(resend("first")));
+        assertFalse(sessionState.isExpired());
+        assertFalse(sessionState.holdIfExpired(resend("second")));
+    }
+}
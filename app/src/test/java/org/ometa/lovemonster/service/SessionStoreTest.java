@@ -0,0 +1,213 @@
+package org.ometa.lovemonster.service;
+
+import android.content.Context;
+import android.util.MalformedJsonException;
+
+import com.loopj.android.http.AsyncHttpClient;
+import com.loopj.android.http.JsonHttpResponseHandler;
+import com.loopj.android.http.RequestParams;
+import com.loopj.android.http.ResponseHandlerInterface;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.ometa.lovemonster.Fixtures;
+import org.ometa.lovemonster.MetricsRegistry;
+import org.ometa.lovemonster.models.Love;
+import org.ometa.lovemonster.models.User;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import cz.msebera.android.httpclient.Header;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SessionStoreTest {
+
+    /**
+     * Writes the session on the calling thread, so tests can check the file straight away.
+     */
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private static final String COOKIES = "SimpleSAMLAuthToken=token;SimpleSAMLSessionID=session;";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    AsyncHttpClient mockAsyncHttpClient;
+
+    File file;
+    SessionStore store;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        file = new File(temporaryFolder.getRoot(), "love_session.json");
+        store = new SessionStore(file, DIRECT_EXECUTOR);
+    }
+
+    private static User user(final String username, final String name) {
+        final User user = new User(username + "@example.com", username);
+        user.name = name;
+        return user;
+    }
+
+    private static Love love(final long id, final String reason) {
+        return new Love(reason, "message " + id, id % 2 == 0, user("lover", "Lover"), user("lovee", null), id, null, 1450000000000L + id * 1000);
+    }
+
+    /**
+     * Creates a client which saves sessions to a store over the same file, as a new launch would.
+     */
+    private LoveMonsterClient newLaunch() {
+        final LoveMonsterClient client = new LoveMonsterClient(new ResponseParser(false, "example.com/%s.png"), new AsyncHttpClientTransport(mockAsyncHttpClient, null), "example.com", false, null, new MetricsRegistry());
+        client.setSessionStore(new SessionStore(file, DIRECT_EXECUTOR));
+        return client;
+    }
+
+    /**
+     * Verifies the number of GETs made so far, returning the handler of the last.
+     */
+    private JsonHttpResponseHandler verifyGets(final int count) {
+        final ArgumentCaptor<ResponseHandlerInterface> responseHandlerArgumentCaptor = ArgumentCaptor.forClass(ResponseHandlerInterface.class);
+        verify(mockAsyncHttpClient, times(count)).get(any(Context.class), anyString(), any(Header[].class), any(RequestParams.class), responseHandlerArgumentCaptor.capture());
+        return (JsonHttpResponseHandler) responseHandlerArgumentCaptor.getValue();
+    }
+
+    @Test
+    public void testLoad_NoFile_ReturnsNull() {
+        assertNull(store.load());
+    }
+
+    @Test
+    public void testSaveSession_ReadByNewStore() throws JSONException {
+        store.saveSession(COOKIES, user("ada", "Ada Lovelace"));
+
+        final SessionStore.Session session = new SessionStore(file, DIRECT_EXECUTOR).load();
+
+        assertNotNull(session);
+        assertEquals(COOKIES, session.cookies);
+        assertEquals("ada", session.account.getString("username"));
+        assertEquals("Ada Lovelace", session.account.getString("name"));
+        assertNull(session.loves);
+    }
+
+    @Test
+    public void testSaveLoves_RestoredByParser() {
+        store.saveSession(COOKIES, user("ada", null));
+        store.saveLoves(Arrays.asList(love(2, "second"), love(1, "first")));
+
+        final SessionStore.Session session = new SessionStore(file, DIRECT_EXECUTOR).load();
+        final List<Love> loves = new ResponseParser(false, "example.com/%s.png").parseLoveList(session.loves);
+
+        assertEquals(2, loves.size());
+        assertEquals(2, loves.get(0).id);
+        assertEquals("second", loves.get(0).reason);
+        assertEquals("message 2", loves.get(0).message);
+        assertTrue(loves.get(0).isPrivate);
+        assertEquals(1450000002000L, loves.get(0).createdAtMillis);
+        assertEquals("lover", loves.get(0).lover.username);
+        assertEquals("Lover", loves.get(0).lover.name);
+        assertEquals("lovee@example.com", loves.get(0).lovee.email);
+        assertFalse(loves.get(1).isPrivate);
+    }
+
+    @Test
+    public void testSaveLoves_NoSession_SavesNothing() {
+        store.saveLoves(Arrays.asList(love(1, "first")));
+
+        assertNull(store.load());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testSaveSession_ReplacesSavedLoves() {
+        store.saveSession(COOKIES, user("ada", null));
+        store.saveLoves(Arrays.asList(love(1, "first")));
+        store.saveSession(COOKIES, user("bob", null));
+
+        assertNull(new SessionStore(file, DIRECT_EXECUTOR).load().loves);
+    }
+
+    @Test
+    public void testClear_DeletesFile() {
+        store.saveSession(COOKIES, user("ada", null));
+        store.clear();
+
+        assertNull(store.load());
+        assertFalse(file.exists());
+        assertNull(new SessionStore(file, DIRECT_EXECUTOR).load());
+    }
+
+    @Test
+    public void testLoad_UnreadableFile_ReturnsNull() throws IOException {
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write("{not json".getBytes("UTF-8"));
+        outputStream.close();
+
+        assertNull(store.load());
+    }
+
+    @Test
+    public void testRestoreSession_AfterAuthenticating_SkipsLoginAndShowsSavedLoves() throws JSONException {
+        final LoveMonsterClient firstLaunch = newLaunch();
+        assertFalse(firstLaunch.restoreSession());
+        firstLaunch.authenticate(COOKIES, mock(LoveMonsterClient.AuthenticationHandler.class));
+        verifyGets(1).onSuccess(200, null, new JSONObject("{\"email\": \"ada@example.com\", \"username\": \"ada\", \"name\": \"Ada Lovelace\"}"));
+        firstLaunch.retrieveLovesBefore(mock(LoveMonsterClient.LoveCursorResponseHandler.class), null);
+        verifyGets(2).onSuccess(200, null, Fixtures.getJsonObject("v1_loves.json"));
+
+        final LoveMonsterClient secondLaunch = newLaunch();
+
+        assertTrue(secondLaunch.restoreSession());
+        assertTrue(secondLaunch.isSessionRestored());
+        assertEquals("ada", secondLaunch.getAuthenticatedUser().username);
+        assertEquals("Ada Lovelace", secondLaunch.getAuthenticatedUser().name);
+        assertTrue(firstLaunch.getSavedLoves().isEmpty());
+        assertEquals(25, secondLaunch.getSavedLoves().size());
+    }
+
+    @Test
+    public void testVerifySession_Expired_ClearsSavedSession() throws JSONException {
+        store.saveSession(COOKIES, user("ada", null));
+        final LoveMonsterClient client = newLaunch();
+        assertTrue(client.restoreSession());
+        final LoveMonsterClient.AuthenticationHandler handler = mock(LoveMonsterClient.AuthenticationHandler.class);
+
+        client.verifySession(handler);
+        // an expired session is answered with the okta login page instead of json
+        verifyGets(1).onFailure(200, null, new MalformedJsonException("not json"), (JSONObject) null);
+
+        verify(handler).onAuthenticationFailure();
+        assertNull(client.getAuthenticatedUser());
+        assertFalse(client.isSessionRestored());
+        assertFalse(file.exists());
+        assertFalse(newLaunch().restoreSession());
+    }
+}
@@ -0,0 +1,122 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Test;
+import org.ometa.lovemonster.models.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UserCacheTest {
+
+    private static User user(final String username) {
+        return new User(username + "@example.com", username);
+    }
+
+    @Test
+    public void testGet_CountsHitsAndMisses() {
+        final UserCache cache = new UserCache(10, 1024 * 1024, 1);
+        final User ada = user("ada");
+
+        assertNull(cache.get("ada@example.com"));
+        assertSame(ada, cache.putIfAbsent(ada));
+        assertSame(ada, cache.get("ada@example.com"));
+        assertSame(ada, cache.get("ada@example.com"));
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void testPutIfAbsent_AlreadyCached_ReturnsCachedUser() {
+        final UserCache cache = new UserCache(10, 1024 * 1024, 1);
+        final User first = user("ada");
+
+        cache.putIfAbsent(first);
+
+        assertSame(first, cache.putIfAbsent(user("ada")));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testPutIfAbsent_OverMaxEntries_EvictsLeastRecentlyUsed() {
+        final UserCache cache = new UserCache(2, 1024 * 1024, 1);
+        cache.putIfAbsent(user("ada"));
+        cache.putIfAbsent(user("bob"));
+        cache.get("ada@example.com");
+
+        cache.putIfAbsent(user("cat"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("bob@example.com"));
+        assertEquals("ada", cache.get("ada@example.com").username);
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void testPutIfAbsent_OverMaxBytes_EvictsUntilWithinBudget() {
+        final long userBytes = UserCache.estimateBytes(user("ada"));
+        final UserCache cache = new UserCache(100, 3 * userBytes, 1);
+
+        for (final String username : new String[]{"ada", "bob", "cat", "dan", "eve"}) {
+            cache.putIfAbsent(user(username));
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(3 * userBytes, cache.byteSize());
+        assertEquals(2, cache.evictionCount());
+        assertNull(cache.get("ada@example.com"));
+        assertNull(cache.get("bob@example.com"));
+    }
+
+    @Test
+    public void testPutIfAbsent_ConcurrentParsers_ShareOneInstancePerUser() throws Exception {
+        final UserCache cache = new UserCache(1000, 1024 * 1024, 4);
+        final int threads = 8;
+        final int users = 200;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<User[]>> results = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                results.add(executor.submit(new Callable<User[]>() {
+                    @Override
+                    public User[] call() throws InterruptedException {
+                        start.await();
+                        final User[] cached = new User[users];
+                        for (int i = 0; i < users; i++) {
+                            final User found = cache.get("user" + i + "@example.com");
+                            cached[i] = found != null ? found : cache.putIfAbsent(user("user" + i));
+                        }
+                        return cached;
+                    }
+                }));
+            }
+            start.countDown();
+
+            final User[] expected = results.get(0).get();
+            for (final Future<User[]> result : results) {
+                final User[] cached = result.get();
+                for (int i = 0; i < users; i++) {
+                    assertSame(expected[i], cached[i]);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(users, cache.size());
+        assertEquals(threads * users, cache.hitCount() + cache.missCount());
+        assertTrue(cache.missCount() >= users);
+    }
+}
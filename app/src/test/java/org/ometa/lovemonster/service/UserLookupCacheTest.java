@@ -0,0 +1,98 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ometa.lovemonster.models.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UserLookupCacheTest {
+
+    private static final long FOUND_TTL_MILLIS = 10000;
+    private static final long NOT_FOUND_TTL_MILLIS = 1000;
+
+    /**
+     * Clock which only moves when the test advances it.
+     */
+    private static class FakeClock implements CircuitBreaker.Clock {
+        long nowMillis = 1000;
+
+        @Override
+        public long currentTimeMillis() {
+            return nowMillis;
+        }
+    }
+
+    FakeClock clock;
+    UserLookupCache cache;
+
+    @Before
+    public void setup() {
+        clock = new FakeClock();
+        cache = new UserLookupCache(3, FOUND_TTL_MILLIS, NOT_FOUND_TTL_MILLIS, clock);
+    }
+
+    @Test
+    public void testGet_NotCached_ReturnsNull() {
+        assertNull(cache.get("lovee"));
+    }
+
+    @Test
+    public void testGet_UserCached_ReturnsUserUntilExpired() {
+        final User user = new User("lovee@example.com", "lovee");
+        cache.putUser(user);
+
+        clock.nowMillis += FOUND_TTL_MILLIS - 1;
+        assertSame(user, cache.get("lovee").user);
+
+        clock.nowMillis += 1;
+        assertNull(cache.get("lovee"));
+        assertEquals("should remove the expired entry", 0, cache.size());
+    }
+
+    @Test
+    public void testGet_NotFoundCached_ReturnsEmptyEntryUntilExpired() {
+        cache.putNotFound("nobody");
+
+        clock.nowMillis += NOT_FOUND_TTL_MILLIS - 1;
+        final UserLookupCache.Entry entry = cache.get("nobody");
+        assertNotNull(entry);
+        assertNull(entry.user);
+
+        clock.nowMillis += 1;
+        assertNull(cache.get("nobody"));
+    }
+
+    @Test
+    public void testPutUser_PreviouslyNotFound_ReplacesEntry() {
+        final User user = new User("lovee@example.com", "lovee");
+        cache.putNotFound("lovee");
+        cache.putUser(user);
+
+        assertSame(user, cache.get("lovee").user);
+    }
+
+    @Test
+    public void testPut_Full_EvictsLeastRecentlyUsed() {
+        cache.putNotFound("a");
+        cache.putNotFound("b");
+        cache.putNotFound("c");
+        cache.get("a");
+
+        cache.putNotFound("d");
+
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull("should evict the least recently used", cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_NoEntries_Throws() {
+        new UserLookupCache(0, FOUND_TTL_MILLIS, NOT_FOUND_TTL_MILLIS, clock);
+    }
+}
@@ -0,0 +1,66 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Test;
+import org.ometa.lovemonster.Benchmarks;
+import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.models.UserIdentityMap;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures adding and searching tens of thousands of users in the {@link UserPrefixIndex}.
+ */
+public class UserPrefixIndexBenchmarkTest {
+
+    private static final int USERS = 50000;
+    private static final int SEARCHES = 20000;
+
+    private static String randomWord(final Random random) {
+        final char[] word = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+
+    @Test
+    public void benchmarkSearch_TensOfThousandsOfUsers() {
+        final Random random = new Random(42);
+        // kept alive, since the index only finds users which are still in memory
+        final User[] users = new User[USERS];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new User(i + "@example.com", randomWord(random) + i);
+            users[i].name = randomWord(random) + " " + randomWord(random);
+        }
+        final String[] prefixes = new String[SEARCHES];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = randomWord(random).substring(0, 1 + random.nextInt(3));
+        }
+
+        final UserPrefixIndex index = new UserPrefixIndex(new UserIdentityMap(8));
+        Benchmarks.run("user_prefix_index.add", 0, 1, new Benchmarks.Operation() {
+            @Override
+            public void run() {
+                for (final User user : users) {
+                    index.add(user);
+                }
+            }
+        });
+
+        final int[] matches = new int[1];
+        Benchmarks.run("user_prefix_index.search", 1, 3, new Benchmarks.Operation() {
+            @Override
+            public void run() {
+                for (final String prefix : prefixes) {
+                    matches[0] += index.search(prefix, 10).size();
+                }
+            }
+        });
+
+        assertEquals(USERS, index.size());
+        assertTrue(matches[0] > 0);
+    }
+}
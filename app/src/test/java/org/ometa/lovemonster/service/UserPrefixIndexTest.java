@@ -0,0 +1,169 @@
+package org.ometa.lovemonster.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ometa.lovemonster.models.User;
+import org.ometa.lovemonster.models.UserIdentityMap;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UserPrefixIndexTest {
+
+    UserPrefixIndex index;
+
+    /**
+     * The users added by {@link #add(String, String)}, kept alive for the length of the test.
+     */
+    List<User> liveUsers;
+
+    @Before
+    public void setup() {
+        index = new UserPrefixIndex(new UserIdentityMap(1));
+        liveUsers = new ArrayList<>();
+    }
+
+    private static User user(final String username, final String name) {
+        final User user = new User(username + "@example.com", username);
+        user.name = name;
+        return user;
+    }
+
+    /**
+     * Adds a user to the index, keeping it alive so that it can be found.
+     */
+    private User add(final String username, final String name) {
+        final User user = user(username, name);
+        liveUsers.add(user);
+        index.add(user);
+        return user;
+    }
+
+    /**
+     * Adds users to the index without keeping them alive, returning references to them.
+     */
+    private List<WeakReference<User>> addCollectable(final String usernamePrefix, final int count) {
+        final List<WeakReference<User>> references = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final User user = user(usernamePrefix + i, null);
+            index.add(user);
+            references.add(new WeakReference<>(user));
+        }
+        return references;
+    }
+
+    /**
+     * Runs the garbage collector until every reference is cleared.
+     */
+    private static void collect(final List<WeakReference<User>> references) throws InterruptedException {
+        for (final WeakReference<User> reference : references) {
+            for (int i = 0; i < 50 && reference.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static List<String> usernames(final List<User> users) {
+        final List<String> usernames = new ArrayList<>();
+        for (final User user : users) {
+            usernames.add(user.username);
+        }
+        return usernames;
+    }
+
+    @Test
+    public void testSearch_MatchesUsernameNameAndLaterWordsOfName_IgnoringCase() {
+        add("jsmith", "John Smith");
+        add("ada", "Ada Lovelace");
+        add("smitty", null);
+
+        assertEquals(Arrays.asList("jsmith"), usernames(index.search("JS", 10)));
+        assertEquals(Arrays.asList("jsmith"), usernames(index.search("john s", 10)));
+        assertEquals(Arrays.asList("jsmith", "smitty"), usernames(index.search("smit", 10)));
+        assertEquals(Arrays.asList("ada"), usernames(index.search("love", 10)));
+    }
+
+    @Test
+    public void testSearch_UserMatchingSeveralKeys_ListedOnce() {
+        add("sam", "Sam Samson");
+
+        assertEquals(Arrays.asList("sam"), usernames(index.search("sam", 10)));
+    }
+
+    @Test
+    public void testSearch_BlankOrUnmatched_ReturnsEmpty() {
+        add("ada", "Ada Lovelace");
+
+        assertTrue(index.search("", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+        assertTrue(index.search(null, 10).isEmpty());
+        assertTrue(index.search("bob", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch_MoreMatchesThanLimit_ReturnsFirstInOrder() {
+        add("abe", null);
+        add("abd", null);
+        add("abc", null);
+
+        assertEquals(Arrays.asList("abc", "abd"), usernames(index.search("ab", 2)));
+    }
+
+    @Test
+    public void testSearch_CollectedUser_DroppedFromIndex() throws InterruptedException {
+        add("abc", null);
+        collect(addCollectable("abd", 1));
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("abc"), usernames(index.search("ab", 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testAdd_NameChanged_ReplacesOldName() {
+        final User ada = add("ada", "Ada Lovelace");
+        ada.name = "Ada King";
+        index.add(ada);
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("love", 10).isEmpty());
+        assertSame(ada, index.search("king", 10).get(0));
+        assertSame(ada, index.search("ada", 10).get(0));
+    }
+
+    @Test
+    public void testAdd_SameUserAgain_ReturnsLiveInstance() {
+        final User ada = add("ada", "Ada Lovelace");
+        index.add(user("ada", "Ada Lovelace"));
+
+        assertEquals(1, index.size());
+        assertSame(ada, index.search("ada", 10).get(0));
+        assertSame(ada, index.search("love", 10).get(0));
+    }
+
+    @Test
+    public void testAdd_WithoutEmail_NotIndexed() {
+        index.add(new User("", "ada"));
+
+        assertEquals(0, index.size());
+        assertTrue(index.search("ada", 10).isEmpty());
+    }
+
+    @Test
+    public void testAdd_ManyCollectedUsers_DroppedAsIndexGrows() throws InterruptedException {
+        collect(addCollectable("collected", 100));
+        for (int i = 0; i < 100; i++) {
+            add("live" + i, null);
+        }
+
+        assertEquals(100, index.size());
+        assertEquals(10, index.search("live", 10).size());
+    }
+}
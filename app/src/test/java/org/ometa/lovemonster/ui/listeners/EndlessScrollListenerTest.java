@@ -0,0 +1,80 @@
+package org.ometa.lovemonster.ui.listeners;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class EndlessScrollListenerTest {
+
+    List<Integer> loadedPages;
+    EndlessScrollListener scrollListener;
+
+    @Before
+    public void setup() {
+        loadedPages = new ArrayList<>();
+        scrollListener = new EndlessScrollListener(true) {
+            @Override
+            public boolean onLoadMore(final int page, final int totalItemsCount) {
+                loadedPages.add(page);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Scrolls to the top of a list of 20 items, 10 of which are visible, which is within the
+     * threshold of the end.
+     */
+    private void scrollNearEnd() {
+        scrollListener.onScroll(null, 0, 10, 20);
+    }
+
+    @Test
+    public void testOnScroll_WhileLoading_DoesNotLoadAgain() {
+        scrollListener.loadFinished(true);
+        scrollNearEnd();
+        scrollNearEnd();
+
+        assertEquals(Arrays.asList(2), loadedPages);
+    }
+
+    @Test
+    public void testOnScroll_AfterLoadFailed_LoadsSamePageAgain() {
+        scrollListener.loadFinished(true);
+        scrollNearEnd();
+        scrollListener.loadFailed();
+        scrollNearEnd();
+
+        assertEquals(Arrays.asList(2, 2), loadedPages);
+    }
+
+    @Test
+    public void testOnScroll_LastPageLoaded_DoesNotLoad() {
+        scrollListener.loadFinished(false);
+        scrollNearEnd();
+
+        assertEquals(new ArrayList<Integer>(), loadedPages);
+    }
+
+    @Test
+    public void testReset_PageCancelledWithTheView_LoadsAgainOnceViewRecreated() {
+        scrollListener.loadFinished(true);
+        scrollNearEnd();
+
+        // the view is destroyed while page 2 is loading, which is cancelled without finishing
+        scrollListener.reset();
+        scrollNearEnd();
+        assertEquals("should wait for the first page of the recreated view", Arrays.asList(2), loadedPages);
+
+        // the recreated view loads the first page again
+        scrollListener.loadFinished(true);
+        scrollNearEnd();
+
+        assertEquals(Arrays.asList(2, 2), loadedPages);
+    }
+}